@@ -127,6 +127,16 @@ public class KVStoreConfig implements Serializable, Cloneable,
      */
     public static final int DEFAULT_CHECK_INTERVAL_MILLIS = 5000;
 
+    /**
+     * The default maximum number of bytes ({@value}) used by the client-side
+     * query result cache.
+     *
+     * @see #setQueryResultCacheMaxBytes
+     * @since 18.1
+     */
+    public static final long DEFAULT_QUERY_RESULT_CACHE_MAX_BYTES =
+        16 * 1024 * 1024;
+
     /**
      * The name of the system property that controls whether to use the async
      * network protocol by default.
@@ -200,6 +210,9 @@ public class KVStoreConfig implements Serializable, Cloneable,
     private int maxCheckRetries;
     private int checkIntervalMillis;
 
+    /* Query result cache size, zero disables the cache */
+    private long queryResultCacheMaxBytes;
+
     /**
      * Creates a config object with the minimum required properties.
      *
@@ -244,6 +257,8 @@ public class KVStoreConfig implements Serializable, Cloneable,
         maxCheckRetries = DEFAULT_MAX_CHECK_RETRIES;
         checkIntervalMillis = DEFAULT_CHECK_INTERVAL_MILLIS;
 
+        queryResultCacheMaxBytes = DEFAULT_QUERY_RESULT_CACHE_MAX_BYTES;
+
         masterSecurityProps = readSecurityProps();
         securityProps = mergeSecurityProps(null, masterSecurityProps);
     }
@@ -1196,6 +1211,50 @@ public class KVStoreConfig implements Serializable, Cloneable,
         this.maxCheckRetries = maxCheckRetries;
     }
 
+    /**
+     * Configures the maximum number of bytes, as estimated by the client,
+     * held by the query result cache of the store handle. The results of a
+     * query are cached only if the query is executed with a non-zero
+     * {@link oracle.kv.query.ExecuteOptions#setResultCacheTTL result cache
+     * TTL}. A value of zero disables the cache. The default value is
+     * {@link #DEFAULT_QUERY_RESULT_CACHE_MAX_BYTES}.
+     *
+     * @throws IllegalArgumentException if the value is negative
+     *
+     * @since 18.1
+     */
+    public KVStoreConfig setQueryResultCacheMaxBytes(long maxBytes)
+        throws IllegalArgumentException {
+
+        setQueryResultCacheMaxBytesVoid(maxBytes);
+        return this;
+    }
+
+    /**
+     * The void return setter for use by Bean editors.
+     *
+     * @hidden
+     */
+    public void setQueryResultCacheMaxBytesVoid(long maxBytes)
+        throws IllegalArgumentException {
+
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException(
+                "queryResultCacheMaxBytes: " + maxBytes);
+        }
+        queryResultCacheMaxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the maximum number of bytes held by the query result cache of
+     * the store handle. Zero means the cache is disabled.
+     *
+     * @since 18.1
+     */
+    public long getQueryResultCacheMaxBytes() {
+        return queryResultCacheMaxBytes;
+    }
+
     /**
      * Whether calls to the store should use the async network protocol.
      *
@@ -118,6 +118,9 @@ public class KVVersion implements Comparable<KVVersion>, Serializable {
     /** @hidden */
     public static final KVVersion R18_1_19 =
         new KVVersion(18, 1, 18, 1, 19, null);   /* R18.1.19 9/2018 */
+    /** @hidden */
+    public static final KVVersion R18_2 =
+        new KVVersion(18, 1, 18, 2, 0, null);    /* R18.2 */
 
     /**
      * The current software version.
@@ -127,7 +130,7 @@ public class KVVersion implements Comparable<KVVersion>, Serializable {
          * WHEN YOU BUMP THIS VERSION, BE SURE TO BUMP THE VERSIONS IN
          * misc/rpm/*.spec and release-compat.xml.
          */
-        R18_1_19;
+        R18_2;
 
    /**
     * The current prerequisite version.  Nodes can only join the cluster if
@@ -1801,6 +1801,9 @@ class ShowCommand extends ShowCommandBase {
      */
     private static final class ShowPerf extends SubCommand {
 
+        static final String tableFlag = "-table";
+        static final String hotKeysFlag = "-hotkeys";
+
         private ShowPerf() {
             super("perf", 3);
         }
@@ -1812,10 +1815,34 @@ class ShowCommand extends ShowCommandBase {
             return new ShowPerfExecutor<String>() {
                 @Override
                 public String
-                    multiPerfResult(Map<ResourceId, PerfEvent> map) {
+                    multiPerfResult(Map<ResourceId, PerfEvent> map,
+                                    boolean showTables,
+                                    boolean showHotKeys) {
                     final ByteArrayOutputStream outStream =
                         new ByteArrayOutputStream();
                     final PrintStream out = new PrintStream(outStream);
+                    if (showHotKeys) {
+                        out.println(PerfEvent.HOT_KEY_HEADER);
+                        for (PerfEvent pe : map.values()) {
+                            final String hotKeys =
+                                pe.getHotKeyColumnFormatted();
+                            if (!hotKeys.isEmpty()) {
+                                out.println(hotKeys);
+                            }
+                        }
+                        return outStream.toString();
+                    }
+                    if (showTables) {
+                        out.println(PerfEvent.TABLE_HEADER);
+                        for (PerfEvent pe : map.values()) {
+                            final String tables =
+                                pe.getTableColumnFormatted();
+                            if (!tables.isEmpty()) {
+                                out.println(tables);
+                            }
+                        }
+                        return outStream.toString();
+                    }
                     out.println(PerfEvent.HEADER);
                     for (PerfEvent pe : map.values()) {
                         out.println(pe.getColumnFormatted());
@@ -1829,18 +1856,37 @@ class ShowCommand extends ShowCommandBase {
             @Override
             public T commonExecute(String[] args, Shell shell)
                 throws ShellException {
+                Shell.checkHelp(args, ShowPerf.this);
+                boolean showTables = false;
+                boolean showHotKeys = false;
+                for (int i = 1; i < args.length; i++) {
+                    if (tableFlag.equals(args[i])) {
+                        showTables = true;
+                    } else if (hotKeysFlag.equals(args[i])) {
+                        showHotKeys = true;
+                    } else {
+                        shell.unknownArgument(args[i], ShowPerf.this);
+                    }
+                }
+                if (showTables && showHotKeys) {
+                    throw new ShellUsageException(
+                        "Only one of " + tableFlag + " and " + hotKeysFlag +
+                        " may be specified", ShowPerf.this);
+                }
                 final CommandShell cmd = (CommandShell) shell;
                 final CommandServiceAPI cs = cmd.getAdmin();
                 try {
                     final Map<ResourceId, PerfEvent> perfMap = cs.getPerfMap();
-                    return multiPerfResult(perfMap);
+                    return multiPerfResult(perfMap, showTables, showHotKeys);
                 } catch (RemoteException re) {
                     cmd.noAdmin(re);
                 }
                 return null;
             }
             public abstract T multiPerfResult(
-                Map<ResourceId, PerfEvent> map);
+                Map<ResourceId, PerfEvent> map,
+                boolean showTables,
+                boolean showHotKeys);
         }
 
         @Override
@@ -1854,9 +1900,25 @@ class ShowCommand extends ShowCommandBase {
             return new ShowPerfExecutor<ShellCommandResult>() {
                 @Override
                 public ShellCommandResult
-                multiPerfResult(Map<ResourceId, PerfEvent> map) {
+                multiPerfResult(Map<ResourceId, PerfEvent> map,
+                                boolean showTables,
+                                boolean showHotKeys) {
                     for (PerfEvent pe : map.values()) {
-                        perfArray.add(pe.getColumnFormatted());
+                        if (showHotKeys) {
+                            final String hotKeys =
+                                pe.getHotKeyColumnFormatted();
+                            if (!hotKeys.isEmpty()) {
+                                perfArray.add(hotKeys);
+                            }
+                        } else if (showTables) {
+                            final String tables =
+                                pe.getTableColumnFormatted();
+                            if (!tables.isEmpty()) {
+                                perfArray.add(tables);
+                            }
+                        } else {
+                            perfArray.add(pe.getColumnFormatted());
+                        }
                     }
                     scr.setReturnValue(top);
                     return scr;
@@ -1866,7 +1928,7 @@ class ShowCommand extends ShowCommandBase {
 
         @Override
         protected String getCommandSyntax() {
-            return "show perf " +
+            return "show perf [" + tableFlag + " | " + hotKeysFlag + "] " +
                     CommandParser.getJsonUsage();
         }
 
@@ -1874,7 +1936,13 @@ class ShowCommand extends ShowCommandBase {
         protected String getCommandDescription() {
             return
                 "Displays recent performance information for each " +
-                "Replication Node.";
+                "Replication Node." + eolt +
+                tableFlag + ": display the latency and throughput of the " +
+                "busiest tables on" + eolt + "each Replication Node." +
+                eolt + hotKeysFlag + ": display the most frequently read " +
+                "and written partitions" + eolt + "and keys on each " +
+                "Replication Node. Keys are identified by a hash" + eolt +
+                "of their major path, or shard key.";
         }
     }
 
@@ -29,10 +29,13 @@ import static oracle.kv.impl.param.ParameterState.RN_CACHE_PERCENT;
 import static oracle.kv.impl.param.ParameterState.RN_ENABLED_REQUEST_TYPE;
 import static oracle.kv.impl.param.ParameterState.RN_ENABLED_REQUEST_TYPE_DEFAULT;
 import static oracle.kv.impl.param.ParameterState.RN_HEAP_MB_MIN;
+import static oracle.kv.impl.param.ParameterState.RN_METRICS_HTTP_PORT;
 import static oracle.kv.impl.param.ParameterState.RN_MOUNT_POINT;
 import static oracle.kv.impl.param.ParameterState.RN_MOUNT_POINT_SIZE;
 import static oracle.kv.impl.param.ParameterState.RN_NODE_TYPE;
+import static oracle.kv.impl.param.ParameterState.RN_RH_ASYNC_EXEC_MAX_QUEUE_WAIT;
 import static oracle.kv.impl.param.ParameterState.RN_RH_ASYNC_EXEC_MAX_THREADS;
+import static oracle.kv.impl.param.ParameterState.RN_RH_ASYNC_EXEC_QUEUE_SIZE;
 import static oracle.kv.impl.param.ParameterState.RN_RH_ASYNC_EXEC_THREAD_KEEP_ALIVE;
 import static oracle.kv.impl.param.ParameterState.RN_RH_SO_BACKLOG;
 import static oracle.kv.impl.param.ParameterState.RN_RH_SO_CONNECT_TIMEOUT;
@@ -488,6 +491,26 @@ public class RepNodeParams extends GroupNodeParams {
                 ParameterState.RN_PM_CONCURRENT_TARGET_LIMIT).asInt();
     }
 
+    /**
+     * Gets the maximum number of partitions populated concurrently when a
+     * new index is added.
+     *
+     * @return the maximum number of partitions populated concurrently
+     */
+    public int getIndexPopulateThreads() {
+        return map.getOrDefault(
+                ParameterState.RN_INDEX_POPULATE_THREADS).asInt();
+    }
+
+    /**
+     * Returns true if index population inserts the records of each batch in
+     * index key order. The order is local to each batch.
+     */
+    public boolean getIndexPopulateSorted() {
+        return map.getOrDefault(
+                ParameterState.RN_INDEX_POPULATE_SORTED).asBoolean();
+    }
+
     /**
      * Gets the wait time (in milliseconds) before trying a partition migration
      * service request after a busy response.
@@ -815,6 +838,68 @@ public class RepNodeParams extends GroupNodeParams {
         map.setParameter(RN_RH_ASYNC_EXEC_THREAD_KEEP_ALIVE, stringValue);
     }
 
+    /**
+     * Returns true if the async request handler should execute requests on
+     * virtual threads when the JVM supports them.
+     */
+    public boolean getAsyncExecVirtualThreads() {
+        return map.getOrDefault(
+                ParameterState.RN_RH_ASYNC_EXEC_VIRTUAL_THREADS).asBoolean();
+    }
+
+    /**
+     * Returns the maximum number of async requests that may execute
+     * concurrently when requests are executed on virtual threads.
+     */
+    public int getAsyncExecMaxVirtualRequests() {
+        return map.getOrDefault(
+            ParameterState.RN_RH_ASYNC_EXEC_MAX_VIRTUAL_REQUESTS).asInt();
+    }
+
+    /**
+     * Returns the maximum number of async requests that may wait for a
+     * thread in the async request handler thread pool.
+     *
+     * @return the queue size
+     */
+    public int getAsyncExecQueueSize() {
+        return map.getOrDefault(RN_RH_ASYNC_EXEC_QUEUE_SIZE).asInt();
+    }
+
+    /**
+     * Sets the maximum number of async requests that may wait for a thread
+     * in the async request handler thread pool.
+     *
+     * @param queueSize the queue size
+     */
+    public void setAsyncExecQueueSize(int queueSize) {
+        map.setParameter(RN_RH_ASYNC_EXEC_QUEUE_SIZE,
+                         Integer.toString(queueSize));
+    }
+
+    /**
+     * Returns the maximum amount of time in milliseconds an async request
+     * may wait in the queue of the async request handler thread pool, or 0
+     * if the wait is only limited by the request timeout.
+     *
+     * @return the max queue wait in milliseconds
+     */
+    public int getAsyncExecMaxQueueWaitMs() {
+        final long waitMs = ParameterUtils.getDurationMillis(
+            map, RN_RH_ASYNC_EXEC_MAX_QUEUE_WAIT);
+        return (waitMs > Integer.MAX_VALUE) ?
+            Integer.MAX_VALUE :
+            (int) waitMs;
+    }
+
+    /**
+     * Returns the port of the HTTP server that exposes RN metrics, or 0 if
+     * the server is disabled.
+     */
+    public int getMetricsHttpPort() {
+        return map.getOrDefault(RN_METRICS_HTTP_PORT).asInt();
+    }
+
     @Override
     public String toString() {
         return map.toString();
@@ -50,6 +50,7 @@ import static oracle.kv.impl.param.ParameterState.SN_LOGIN_SO_READ_TIMEOUT;
 import static oracle.kv.impl.param.ParameterState.SN_LOG_FILE_COUNT;
 import static oracle.kv.impl.param.ParameterState.SN_LOG_FILE_LIMIT;
 import static oracle.kv.impl.param.ParameterState.SN_MAX_LINK_COUNT;
+import static oracle.kv.impl.param.ParameterState.SN_METRICS_HTTP_PORT;
 import static oracle.kv.impl.param.ParameterState.SN_MONITOR_SO_BACKLOG;
 import static oracle.kv.impl.param.ParameterState.SN_MONITOR_SO_CONNECT_TIMEOUT;
 import static oracle.kv.impl.param.ParameterState.SN_MONITOR_SO_READ_TIMEOUT;
@@ -727,6 +728,14 @@ public class StorageNodeParams implements ParamsWithMap, Serializable {
         return map.getOrZeroInt(SN_LOG_FILE_LIMIT);
     }
 
+    /**
+     * Returns the port of the HTTP server that exposes SN metrics, or 0 if
+     * the server is disabled.
+     */
+    public int getMetricsHttpPort() {
+        return map.getOrDefault(SN_METRICS_HTTP_PORT).asInt();
+    }
+
     public int getServiceWaitMillis() {
         return (int) ParameterUtils.getDurationMillis
             (map, SN_SERVICE_STOP_WAIT);
@@ -28,6 +28,7 @@ import oracle.kv.impl.api.table.FieldMap;
 import oracle.kv.impl.api.table.TableImpl;
 import oracle.kv.impl.api.table.TableLimits;
 import oracle.kv.impl.api.table.TableMetadata;
+import oracle.kv.impl.api.table.ValueCompression;
 import oracle.kv.impl.security.AccessCheckUtils;
 import oracle.kv.impl.security.ExecutionContext;
 import oracle.kv.impl.security.util.SecurityUtils;
@@ -43,8 +44,9 @@ import com.sleepycat.persist.model.Persistent;
  * version 1: added primaryKeySizes, ttl and ttlUnit fields
  * version 2: added namespace
  * version 3: added limits, systemTable
+ * version 4: added compression
  */
-@Persistent(version=3)
+@Persistent(version=4)
 public class AddTable extends UpdateMetadata<TableMetadata> {
     private static final long serialVersionUID = 1L;
 
@@ -77,6 +79,9 @@ public class AddTable extends UpdateMetadata<TableMetadata> {
     /* true if adding a system table */
     private /*final*/ boolean sysTable;
 
+    /* null if values are not compressed */
+    private /*final*/ ValueCompression compression;
+
     /**
      */
     public AddTable(MetadataPlan<TableMetadata> plan,
@@ -110,6 +115,7 @@ public class AddTable extends UpdateMetadata<TableMetadata> {
         this.schemaId = table.getSchemaId();
         this.description = table.getDescription();
         this.sysTable = table.isSystemTable();
+        this.compression = table.getValueCompression();
 
         final TableMetadata md = plan.getMetadata();
 
@@ -206,7 +212,8 @@ public class AddTable extends UpdateMetadata<TableMetadata> {
                         schemaId,
                         description,
                         SecurityUtils.currentUserAsOwner(),
-                        sysTable);
+                        sysTable,
+                        compression);
             getPlan().getAdmin().saveMetadata(md, txn);
             return md;
         }
@@ -0,0 +1,93 @@
+/*-
+ * Copyright (C) 2011, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This file was distributed by Oracle as part of a version of Oracle NoSQL
+ * Database made available at:
+ *
+ * http://www.oracle.com/technetwork/database/database-technologies/nosqldb/downloads/index.html
+ *
+ * Please see the LICENSE file included in the top-level directory of the
+ * appropriate version of Oracle NoSQL Database for a copy of the license and
+ * additional information.
+ */
+
+package oracle.kv.impl.api;
+
+/**
+ * The stats of the queue of async requests waiting to be executed by an RN,
+ * for an interval. The values other than the queue depth are collected and
+ * reset together, so they describe the same set of requests.
+ */
+public class AsyncQueueStats {
+
+    /** Stats for an RN that is not executing async requests. */
+    public static final AsyncQueueStats EMPTY =
+        new AsyncQueueStats(0, 0, 0, 0, 0);
+
+    private final int queueDepth;
+    private final long avgQueueWaitMs;
+    private final long maxQueueWaitMs;
+    private final long numRejected;
+    private final long numShed;
+
+    AsyncQueueStats(int queueDepth,
+                    long avgQueueWaitMs,
+                    long maxQueueWaitMs,
+                    long numRejected,
+                    long numShed) {
+        this.queueDepth = queueDepth;
+        this.avgQueueWaitMs = avgQueueWaitMs;
+        this.maxQueueWaitMs = maxQueueWaitMs;
+        this.numRejected = numRejected;
+        this.numShed = numShed;
+    }
+
+    /**
+     * Returns the number of requests waiting to be executed at the end of
+     * the interval.
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * Returns the average time in milliseconds the requests dequeued during
+     * the interval waited to be executed.
+     */
+    public long getAvgQueueWaitMs() {
+        return avgQueueWaitMs;
+    }
+
+    /**
+     * Returns the maximum time in milliseconds a request dequeued during the
+     * interval waited to be executed.
+     */
+    public long getMaxQueueWaitMs() {
+        return maxQueueWaitMs;
+    }
+
+    /**
+     * Returns the number of requests rejected during the interval because
+     * the queue was full.
+     */
+    public long getNumRejected() {
+        return numRejected;
+    }
+
+    /**
+     * Returns the number of requests shed during the interval, without
+     * being executed, because they waited too long in the queue.
+     */
+    public long getNumShed() {
+        return numShed;
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncQueueStats[queueDepth=" + queueDepth +
+            " avgQueueWaitMs=" + avgQueueWaitMs +
+            " maxQueueWaitMs=" + maxQueueWaitMs +
+            " numRejected=" + numRejected +
+            " numShed=" + numShed + "]";
+    }
+}
@@ -0,0 +1,513 @@
+/*-
+ * Copyright (C) 2011, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This file was distributed by Oracle as part of a version of Oracle NoSQL
+ * Database made available at:
+ *
+ * http://www.oracle.com/technetwork/database/database-technologies/nosqldb/downloads/index.html
+ *
+ * Please see the LICENSE file included in the top-level directory of the
+ * appropriate version of Oracle NoSQL Database for a copy of the license and
+ * additional information.
+ */
+
+package oracle.kv.impl.api;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import oracle.kv.RequestTimeoutException;
+import oracle.kv.ResultHandler;
+import oracle.kv.impl.api.ops.InternalOperation.OpCode;
+import oracle.kv.impl.fault.RNUnavailableException;
+
+/**
+ * The executor used by RequestHandlerImpl to execute async requests.
+ *
+ * At most maxThreads requests are executed concurrently, or maxRequests
+ * when running on virtual threads, as described below. Requests that
+ * arrive when that many are executing wait in a bounded queue. By default
+ * maxThreads is unlimited, so pool threads never queue requests, and the
+ * queue only comes into play when a finite max is configured.
+ *
+ * The queue favors single key reads over writes, and both over iterations,
+ * batch operations and queries, which tend to be long running background
+ * work. Rather than ordering strictly by priority, which would let a steady
+ * stream of reads starve the other requests, each request is ordered by its
+ * arrival time plus a delay that depends on its priority. A request is
+ * therefore only passed by higher priority requests that arrive less than
+ * that delay after it, and is served ahead of all requests that arrive
+ * later still, so no request waits indefinitely.
+ *
+ * Admission control happens at both ends of the queue:
+ *
+ * - A request that arrives when the queue is full is rejected right away
+ *   with an RNUnavailableException, which the client handles by retrying
+ *   the request at another RN, if there is one, until its timeout expires.
+ *
+ * - A request that has waited longer than the max queue wait is shed with an
+ *   RNUnavailableException when it reaches the head of the queue, and one
+ *   that has waited longer than its own timeout is shed with a
+ *   RequestTimeoutException, since the client has given up on it already.
+ *   Shedding before doing any work keeps a backlog from consuming the RN
+ *   resources that requests which can still succeed need.
+ *
+ * The queue depth, the time spent waiting, the number of requests rejected,
+ * and the number of requests shed are tracked separately for the RN stats.
+ *
+ * Requests are executed in one of two ways, depending on the constructor:
+ *
+ * - By a pool of platform threads, created on demand by the supplied thread
+ *   factory up to maxThreads. Once that many threads exist, requests are
+ *   executed by the idle threads, and the pool takes queued requests as
+ *   threads become free.
+ *
+ * - By a thread-per-task executor, which starts a new virtual thread for
+ *   each request. Virtual threads are cheap to create and must not be
+ *   pooled, so the number of requests executing concurrently is bounded by
+ *   counting them instead: a request is started if fewer than maxRequests
+ *   are executing, and otherwise queued, and each request that completes
+ *   starts the next queued request. The maxRequests limit is separate from
+ *   maxThreads, and much larger, since a request blocked on I/O or a lock
+ *   does not hold a platform thread.
+ */
+class AsyncRequestExecutor {
+
+    /** Priorities, lower values are favored. */
+    private static final int READ_PRIORITY = 0;
+    private static final int WRITE_PRIORITY = 1;
+    private static final int SCAN_PRIORITY = 2;
+
+    /**
+     * The delay added to the arrival time of a queued request when ordering
+     * the queue, indexed by priority.
+     */
+    private static final long[] PRIORITY_DELAY_NANOS = {
+        0,
+        MILLISECONDS.toNanos(10),
+        MILLISECONDS.toNanos(100)
+    };
+
+    private final RequestQueue queue;
+
+    /* The pool of platform threads, or null if perTaskExecutor is used */
+    private final ThreadPoolExecutor pool;
+
+    /*
+     * The executor that starts a virtual thread per request, the number of
+     * requests it is executing, and the max, or null if pool is used.
+     */
+    private final ExecutorService perTaskExecutor;
+    private final AtomicInteger numExecuting = new AtomicInteger();
+    private volatile int maxExecuting;
+
+    private volatile boolean shutdown;
+
+    /**
+     * The max time in milliseconds a request may wait in the queue, or 0
+     * for no limit other than the request timeout.
+     */
+    private volatile int maxQueueWaitMs;
+
+    /** Assigns the arrival order of queued requests. */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /*
+     * Stats, reset each time they are collected. They are updated and
+     * collected while synchronized on statsLock, so a collection sees a
+     * consistent set of values.
+     */
+    private final Object statsLock = new Object();
+    private long numDequeued;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+    private long numRejected;
+    private long numShed;
+
+    /**
+     * Creates an executor that executes requests in a pool of threads
+     * created by the thread factory.
+     */
+    AsyncRequestExecutor(int maxThreads,
+                         int keepAliveMs,
+                         int queueSize,
+                         int maxQueueWaitMs,
+                         ThreadFactory threadFactory) {
+        queue = new RequestQueue(queueSize);
+        this.maxQueueWaitMs = maxQueueWaitMs;
+        perTaskExecutor = null;
+
+        /*
+         * Make the core size equal to the max size, and let core threads
+         * time out, so that a new thread is started for each request until
+         * the max is reached, and requests are only queued after that. If
+         * the max is unlimited, the pool creates threads on demand and the
+         * queue is not used.
+         */
+        pool = new ThreadPoolExecutor(maxThreads, maxThreads,
+                                      keepAliveMs, MILLISECONDS, queue,
+                                      threadFactory, new RejectHandler());
+        pool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Creates an executor that executes each request with the specified
+     * thread-per-task executor, which should create virtual threads, with
+     * at most maxRequests requests executing concurrently.
+     */
+    AsyncRequestExecutor(int maxRequests,
+                         int queueSize,
+                         int maxQueueWaitMs,
+                         ExecutorService perTaskExecutor) {
+        queue = new RequestQueue(queueSize);
+        this.maxQueueWaitMs = maxQueueWaitMs;
+        this.maxExecuting = maxRequests;
+        this.perTaskExecutor = perTaskExecutor;
+        pool = null;
+    }
+
+    /**
+     * Executes the request, delivering its response, or the exception that
+     * caused it to fail or be rejected, to the result handler.
+     */
+    void execute(Request request,
+                 ResultHandler<Response> handler,
+                 Runnable task) {
+        final RequestTask requestTask =
+            new RequestTask(request, handler, task,
+                            sequence.getAndIncrement());
+        if (pool != null) {
+            pool.execute(requestTask);
+            return;
+        }
+        if (shutdown || !queue.offer(requestTask)) {
+            requestTask.reject();
+            return;
+        }
+        startQueued();
+    }
+
+    /*
+     * Starts queued requests on the thread-per-task executor while fewer
+     * than maxExecuting requests are executing. It is called each time a
+     * request is queued or completes, so a queued request is always started
+     * once a request completes.
+     */
+    private void startQueued() {
+        while (!queue.isEmpty()) {
+            final int n = numExecuting.get();
+            if (n >= maxExecuting) {
+                return;
+            }
+            if (!numExecuting.compareAndSet(n, n + 1)) {
+                continue;
+            }
+            final RequestTask task = (RequestTask) queue.poll();
+            if (task == null) {
+                numExecuting.decrementAndGet();
+                continue;
+            }
+            try {
+                perTaskExecutor.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        numExecuting.decrementAndGet();
+                        startQueued();
+                    }
+                });
+            } catch (RejectedExecutionException ree) {
+                numExecuting.decrementAndGet();
+                task.reject();
+            }
+        }
+    }
+
+    /**
+     * Updates the max number of pool threads. Does nothing if requests are
+     * executed on virtual threads.
+     */
+    void setMaxThreads(int maxThreads) {
+        if (pool == null) {
+            return;
+        }
+        if (maxThreads > pool.getMaximumPoolSize()) {
+            pool.setMaximumPoolSize(maxThreads);
+            pool.setCorePoolSize(maxThreads);
+        } else {
+            pool.setCorePoolSize(maxThreads);
+            pool.setMaximumPoolSize(maxThreads);
+        }
+    }
+
+    /**
+     * Updates the max number of requests executing concurrently on virtual
+     * threads. Does nothing if requests are executed by the pool.
+     */
+    void setMaxVirtualRequests(int maxRequests) {
+        if (pool == null) {
+            maxExecuting = maxRequests;
+            startQueued();
+        }
+    }
+
+    /**
+     * Updates the time idle pool threads are kept. Virtual threads are not
+     * kept.
+     */
+    void setKeepAliveMs(int keepAliveMs) {
+        if (pool != null) {
+            pool.setKeepAliveTime(keepAliveMs, MILLISECONDS);
+        }
+    }
+
+    /**
+     * Returns the underlying executor.
+     */
+    ExecutorService getExecutor() {
+        return (pool != null) ? pool : perTaskExecutor;
+    }
+
+    boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * Stops accepting requests. The queued requests are still executed by
+     * the pool threads, but rejected by a thread-per-task executor, which
+     * no longer starts threads.
+     */
+    void shutdown() {
+        shutdown = true;
+        if (pool != null) {
+            pool.shutdown();
+            return;
+        }
+        perTaskExecutor.shutdown();
+        Runnable task;
+        while ((task = queue.poll()) != null) {
+            ((RequestTask) task).reject();
+        }
+    }
+
+    void setQueueSize(int queueSize) {
+        queue.capacity = queueSize;
+    }
+
+    void setMaxQueueWaitMs(int maxQueueWaitMs) {
+        this.maxQueueWaitMs = maxQueueWaitMs;
+    }
+
+    /**
+     * Returns the number of requests waiting for a thread.
+     */
+    int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Returns the queue stats since the last reset, and optionally resets
+     * them.
+     */
+    AsyncQueueStats getQueueStats(boolean reset) {
+        synchronized (statsLock) {
+            final AsyncQueueStats stats = new AsyncQueueStats(
+                getQueueDepth(),
+                (numDequeued == 0) ?
+                0 :
+                NANOSECONDS.toMillis(totalWaitNanos / numDequeued),
+                NANOSECONDS.toMillis(maxWaitNanos),
+                numRejected,
+                numShed);
+            if (reset) {
+                numDequeued = 0;
+                totalWaitNanos = 0;
+                maxWaitNanos = 0;
+                numRejected = 0;
+                numShed = 0;
+            }
+            return stats;
+        }
+    }
+
+    /**
+     * Returns the queue priority of a request, based on the kind of
+     * operation.
+     */
+    static int getPriority(Request request) {
+        final OpCode opCode = request.getOperation().getOpCode();
+
+        switch (opCode) {
+        case NOP:
+        case GET:
+        case MULTI_GET:
+        case MULTI_GET_KEYS:
+        case MULTI_GET_TABLE:
+        case MULTI_GET_TABLE_KEYS:
+            return READ_PRIORITY;
+        default:
+            break;
+        }
+
+        if (request.isWrite() && opCode != OpCode.PUT_BATCH) {
+            return WRITE_PRIORITY;
+        }
+        return SCAN_PRIORITY;
+    }
+
+    private void recordWait(long waitNanos, boolean shed) {
+        synchronized (statsLock) {
+            numDequeued++;
+            totalWaitNanos += waitNanos;
+            if (waitNanos > maxWaitNanos) {
+                maxWaitNanos = waitNanos;
+            }
+            if (shed) {
+                numShed++;
+            }
+        }
+    }
+
+    private void recordRejected() {
+        synchronized (statsLock) {
+            numRejected++;
+        }
+    }
+
+    /**
+     * A request waiting for, or running in, a pool thread.
+     */
+    private class RequestTask
+        implements Runnable, Comparable<RequestTask> {
+
+        private final Request request;
+        private final ResultHandler<Response> handler;
+        private final Runnable task;
+        private final int priority;
+        private final long seq;
+        private final long queuedNanos;
+
+        /* The arrival time plus the priority delay, used for ordering */
+        private final long orderNanos;
+
+        RequestTask(Request request,
+                    ResultHandler<Response> handler,
+                    Runnable task,
+                    long seq) {
+            this.request = request;
+            this.handler = handler;
+            this.task = task;
+            this.seq = seq;
+            priority = getPriority(request);
+            queuedNanos = System.nanoTime();
+            orderNanos = queuedNanos + PRIORITY_DELAY_NANOS[priority];
+        }
+
+        @Override
+        public void run() {
+            final long waitNanos = System.nanoTime() - queuedNanos;
+            final long waitMs = NANOSECONDS.toMillis(waitNanos);
+            final int timeoutMs = request.getTimeout();
+            final int maxWaitMs = maxQueueWaitMs;
+            final boolean timedOut = (waitMs >= timeoutMs);
+            final boolean shed =
+                timedOut || (maxWaitMs > 0 && waitMs >= maxWaitMs);
+            recordWait(waitNanos, shed);
+
+            if (timedOut) {
+                handler.onResult(
+                    null,
+                    new RequestTimeoutException(
+                        timeoutMs,
+                        "Request timed out after waiting " + waitMs +
+                        " ms in the request queue",
+                        null, true));
+                return;
+            }
+
+            if (shed) {
+                handler.onResult(
+                    null,
+                    new RNUnavailableException(
+                        "Request shed after waiting " + waitMs +
+                        " ms in the request queue"));
+                return;
+            }
+
+            task.run();
+        }
+
+        @Override
+        public int compareTo(RequestTask other) {
+            /* Compare the difference, since nanoTime values may wrap */
+            final long diff = orderNanos - other.orderNanos;
+            if (diff != 0) {
+                return (diff < 0) ? -1 : 1;
+            }
+            return Long.compare(seq, other.seq);
+        }
+
+        void reject() {
+            recordRejected();
+            handler.onResult(
+                null,
+                new RNUnavailableException(
+                    isShutdown() ?
+                    "Request rejected, the request handler is shut down" :
+                    "Request rejected, the request queue is full"));
+        }
+    }
+
+    /**
+     * A priority queue that refuses new elements once it holds capacity
+     * elements, so that ThreadPoolExecutor treats it as bounded. The
+     * capacity check is not atomic with the insertion, so the queue may
+     * briefly exceed its capacity by the number of concurrent callers.
+     */
+    private static class RequestQueue
+        extends PriorityBlockingQueue<Runnable> {
+
+        private static final long serialVersionUID = 1L;
+
+        volatile int capacity;
+
+        RequestQueue(int capacity) {
+            this.capacity = capacity;
+        }
+
+        @Override
+        public boolean offer(Runnable r) {
+            if (size() >= capacity) {
+                return false;
+            }
+            return super.offer(r);
+        }
+
+        @Override
+        public int remainingCapacity() {
+            return Math.max(0, capacity - size());
+        }
+    }
+
+    /**
+     * Fails requests that cannot be queued, rather than throwing an
+     * exception into the caller, which is a dialog layer thread.
+     */
+    private static class RejectHandler implements RejectedExecutionHandler {
+
+        @Override
+        public void rejectedExecution(Runnable r,
+                                      ThreadPoolExecutor executor) {
+            ((AsyncRequestExecutor.RequestTask) r).reject();
+        }
+    }
+}
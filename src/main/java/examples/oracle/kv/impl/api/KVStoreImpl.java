@@ -303,7 +303,8 @@ public class KVStoreImpl implements KVStore, Cloneable {
         this.avroCatalogRef =
             new AtomicReference<oracle.kv.avro.AvroCatalog>(null);
         this.sharedThreadPool = new SharedThreadPool(logger);
-        this.tableAPI = new TableAPIImpl(this);
+        this.tableAPI =
+            new TableAPIImpl(this, config.getQueryResultCacheMaxBytes());
 
         /*
          * Only invoke this after all ivs have been initialized, since it
@@ -2192,6 +2193,10 @@ public class KVStoreImpl implements KVStore, Cloneable {
         } catch (MetadataNotFoundException mnfe) {
             tableAPI.metadataNotification(mnfe.getTableMetadataSeqNum());
             throw mnfe;
+        } finally {
+            if (request.isWrite()) {
+                tableAPI.writeNotification(request.getOperation());
+            }
         }
     }
 
@@ -2291,6 +2296,9 @@ public class KVStoreImpl implements KVStore, Cloneable {
                     tableAPI.metadataNotification(
                         mnfe.getTableMetadataSeqNum());
                 }
+                if (request.isWrite()) {
+                    tableAPI.writeNotification(request.getOperation());
+                }
                 if (e != null) {
                     handler.onResult(null, e);
                 } else {
@@ -2306,7 +2314,9 @@ public class KVStoreImpl implements KVStore, Cloneable {
      */
     @Override
     public KVStats getStats(boolean clear) {
-        return new KVStats(clear, dispatcher);
+        return new KVStats(clear, dispatcher,
+                           tableAPI.getQueryResultCache(),
+                           tableAPI.getValueCompressionStats());
     }
 
     @SuppressWarnings("deprecation")
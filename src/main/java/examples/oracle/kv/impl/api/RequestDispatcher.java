@@ -23,6 +23,7 @@ import oracle.kv.impl.api.ops.InternalOperation.OpCode;
 import oracle.kv.impl.api.rgstate.RepGroupStateTable;
 import oracle.kv.impl.api.rgstate.RepNodeState;
 import oracle.kv.impl.api.table.TableMetadata;
+import oracle.kv.impl.measurement.LatencyHistogram;
 import oracle.kv.impl.security.login.LoginManager;
 import oracle.kv.impl.topo.PartitionId;
 import oracle.kv.impl.topo.RepNodeId;
@@ -168,6 +169,14 @@ public interface RequestDispatcher {
      */
     public Map<OpCode, Latency> getLatencyStats(boolean clear);
 
+    /**
+     * Returns a snapshot of the microsecond operation latency histograms
+     * associated with the request dispatcher.
+     *
+     * @param clear if true clears the histograms
+     */
+    public Map<OpCode, LatencyHistogram> getLatencyHistograms(boolean clear);
+
     /**
      * The total number of requests that were retried by the request dispatcher.
      */
@@ -28,6 +28,7 @@ import java.rmi.UnknownHostException;
 import java.rmi.UnmarshalException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -62,6 +63,8 @@ import oracle.kv.impl.fault.OperationFaultException;
 import oracle.kv.impl.fault.RNUnavailableException;
 import oracle.kv.impl.fault.TTLFaultException;
 import oracle.kv.impl.fault.WrappedClientException;
+import oracle.kv.impl.measurement.LatencyHistogram;
+import oracle.kv.impl.measurement.LatencyRecorder;
 import oracle.kv.impl.metadata.Metadata.MetadataType;
 import oracle.kv.impl.param.ParameterState;
 import oracle.kv.impl.param.ParameterUtils;
@@ -180,6 +183,13 @@ public class RequestDispatcherImpl implements RequestDispatcher {
 
     final StatsTracker<OpCode> statsTracker;
 
+    /**
+     * The microsecond latency histograms of each op type, which complement
+     * the millisecond latencies tracked by statsTracker.
+     */
+    private final Map<OpCode, LatencyRecorder> latencyHistograms =
+        createLatencyHistograms();
+
     /**
      * Shutdown can only be executed once. The shutdown field protects against
      * multiple invocations.
@@ -837,6 +847,7 @@ public class RequestDispatcherImpl implements RequestDispatcher {
             response.getResult().getNumRecords() : 1;
         statsTracker.markFinish(request.getOperation().getOpCode(),
                                 startNs, nRecords);
+        recordLatency(request.getOperation().getOpCode(), startNs, nRecords);
         activeRequestCount.decrementAndGet();
 
         if (exception != null) {
@@ -1063,6 +1074,7 @@ public class RequestDispatcherImpl implements RequestDispatcher {
             rns.requestEnd();
             activeRequestCount.decrementAndGet();
             statsTracker.markFinish(OpCode.NOP, startTimeNs);
+            recordLatency(OpCode.NOP, startTimeNs, 1);
         }
     }
 
@@ -1957,6 +1969,43 @@ public class RequestDispatcherImpl implements RequestDispatcher {
         return map;
     }
 
+    @Override
+    public Map<OpCode, LatencyHistogram> getLatencyHistograms(boolean clear) {
+
+        final Map<OpCode, LatencyHistogram> map =
+            new HashMap<OpCode, LatencyHistogram>();
+
+        for (Map.Entry<OpCode, LatencyRecorder> entry :
+             latencyHistograms.entrySet()) {
+            final LatencyHistogram histogram = clear ?
+                entry.getValue().snapshotAndClear() :
+                entry.getValue().snapshot();
+            map.put(entry.getKey(), histogram);
+        }
+
+        return map;
+    }
+
+    private static Map<OpCode, LatencyRecorder> createLatencyHistograms() {
+        final Map<OpCode, LatencyRecorder> map =
+            new EnumMap<OpCode, LatencyRecorder>(OpCode.class);
+        for (OpCode op : OpCode.values()) {
+            map.put(op, new LatencyRecorder());
+        }
+        return map;
+    }
+
+    /**
+     * Records the request latency in the op type's histogram. As with
+     * statsTracker, requests that returned no records are not recorded.
+     */
+    private void recordLatency(OpCode op, long startNs, int numRecords) {
+        if (numRecords == 0) {
+            return;
+        }
+        latencyHistograms.get(op).record(System.nanoTime() - startNs);
+    }
+
     /* The total number of requests that were retried. */
     @Override
     public long getTotalRetryCount(boolean clear) {
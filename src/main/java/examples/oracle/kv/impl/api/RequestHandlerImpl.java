@@ -28,8 +28,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
@@ -101,6 +100,7 @@ import oracle.kv.impl.util.KVThreadFactory;
 import oracle.kv.impl.util.RateLimitingLogger;
 import oracle.kv.impl.util.SerialVersion;
 import oracle.kv.impl.util.TxnUtil;
+import oracle.kv.impl.util.VirtualThreadFactory;
 import oracle.kv.impl.util.WaitableCounter;
 import oracle.kv.impl.util.contextlogger.LogContext;
 import oracle.kv.impl.util.registry.AsyncRegistryUtils;
@@ -337,7 +337,7 @@ public class RequestHandlerImpl
     private ListenHandle asyncServerHandle = null;
 
     /** Thread pool for executing async requests. */
-    private volatile ThreadPoolExecutor asyncThreadPool;
+    private volatile AsyncRequestExecutor asyncThreadPool;
 
     /*
      * Encapsulates the above logger to limit the rate of log messages
@@ -388,18 +388,38 @@ public class RequestHandlerImpl
                                         (ONE_MINUTE_MS, LIMIT_FAULTS, logger);
         enableRequestType(rnParams.getEnabledRequestType());
 
-        /*
-         * Immediately create threads on demand by using a synchronous queue.
-         *
-         * TODO: Consider adding support for a queue, including a parameter to
-         * control the queue size and the ability to update the queue in place
-         * in response to a parameter change.
-         */
-        asyncThreadPool = new ThreadPoolExecutor(
-            0, rnParams.getAsyncExecMaxThreads(),
-            rnParams.getAsyncExecThreadKeepAliveMs(), MILLISECONDS,
-            new SynchronousQueue<>(),
-            new KVThreadFactory("RequestHandlerImpl(Async)", logger));
+        asyncThreadPool = createAsyncExecutor(rnParams);
+    }
+
+    /**
+     * Returns the executor for async requests, which starts a virtual thread
+     * per request if virtual threads were requested and the JVM supports
+     * them, and otherwise creates platform threads on demand. Either way,
+     * requests are queued by priority once the max number of requests are
+     * executing.
+     */
+    private AsyncRequestExecutor createAsyncExecutor(RepNodeParams rnParams) {
+        final String name = "RequestHandlerImpl(Async)";
+        if (rnParams.getAsyncExecVirtualThreads()) {
+            final ExecutorService executor =
+                VirtualThreadFactory.createThreadPerTaskExecutor(name, logger);
+            if (executor != null) {
+                logger.info("Executing async requests on virtual threads");
+                return new AsyncRequestExecutor(
+                    rnParams.getAsyncExecMaxVirtualRequests(),
+                    rnParams.getAsyncExecQueueSize(),
+                    rnParams.getAsyncExecMaxQueueWaitMs(),
+                    executor);
+            }
+            logger.warning("Virtual threads are not supported by this JVM," +
+                           " executing async requests on platform threads");
+        }
+        return new AsyncRequestExecutor(
+            rnParams.getAsyncExecMaxThreads(),
+            rnParams.getAsyncExecThreadKeepAliveMs(),
+            rnParams.getAsyncExecQueueSize(),
+            rnParams.getAsyncExecMaxQueueWaitMs(),
+            new KVThreadFactory(name, logger));
     }
 
     /* Implement ParameterListener */
@@ -409,13 +429,27 @@ public class RequestHandlerImpl
         final RepNodeParams newParams = new RepNodeParams(newMap);
         if (oldParams.getAsyncExecMaxThreads() !=
             newParams.getAsyncExecMaxThreads()) {
-            asyncThreadPool.setMaximumPoolSize(
+            asyncThreadPool.setMaxThreads(
                 newParams.getAsyncExecMaxThreads());
         }
+        if (oldParams.getAsyncExecMaxVirtualRequests() !=
+            newParams.getAsyncExecMaxVirtualRequests()) {
+            asyncThreadPool.setMaxVirtualRequests(
+                newParams.getAsyncExecMaxVirtualRequests());
+        }
         if (oldParams.getAsyncExecThreadKeepAliveMs() !=
             newParams.getAsyncExecThreadKeepAliveMs()) {
-            asyncThreadPool.setKeepAliveTime(
-                newParams.getAsyncExecThreadKeepAliveMs(), MILLISECONDS);
+            asyncThreadPool.setKeepAliveMs(
+                newParams.getAsyncExecThreadKeepAliveMs());
+        }
+        if (oldParams.getAsyncExecQueueSize() !=
+            newParams.getAsyncExecQueueSize()) {
+            asyncThreadPool.setQueueSize(newParams.getAsyncExecQueueSize());
+        }
+        if (oldParams.getAsyncExecMaxQueueWaitMs() !=
+            newParams.getAsyncExecMaxQueueWaitMs()) {
+            asyncThreadPool.setMaxQueueWaitMs(
+                newParams.getAsyncExecMaxQueueWaitMs());
         }
     }
 
@@ -531,7 +565,8 @@ public class RequestHandlerImpl
                         ResultHandler<Response> handler) {
         final DialogContext context =
             AsyncRequestHandlerResponder.getDialogContext(handler);
-        asyncThreadPool.submit(
+        asyncThreadPool.execute(
+            request, handler,
             () -> {
                 final Response response;
                 try {
@@ -557,8 +592,27 @@ public class RequestHandlerImpl
     }
 
     /** Returns the async thread pool -- for testing. */
-    public ThreadPoolExecutor getAsyncThreadPool() {
-        return asyncThreadPool;
+    public ExecutorService getAsyncThreadPool() {
+        return asyncThreadPool.getExecutor();
+    }
+
+    /**
+     * Returns the number of async requests waiting for a thread.
+     */
+    public int getAsyncQueueDepth() {
+        final AsyncRequestExecutor pool = asyncThreadPool;
+        return (pool == null) ? 0 : pool.getQueueDepth();
+    }
+
+    /**
+     * Returns the stats of the async request queue since the last call, and
+     * resets them.
+     */
+    public AsyncQueueStats getAndResetAsyncQueueStats() {
+        final AsyncRequestExecutor pool = asyncThreadPool;
+        return (pool == null) ?
+            AsyncQueueStats.EMPTY :
+            pool.getQueueStats(true);
     }
 
     /**
@@ -829,6 +883,10 @@ public class RequestHandlerImpl
                 response = createResponse(repEnv, request, result);
 
                 tracker.markFinish(opCode, startNs, result.getNumRecords());
+                opTracker.getTableStatsTracker().markFinish(
+                    internalOp, startNs, result.getNumRecords());
+                opTracker.getHotKeyTracker().track(
+                    internalOp, request.getPartitionId(), request.isWrite());
                 return response;
             } catch (InsufficientAcksException iae) {
                 /* Propagate RequestTimeoutException back to the client */
@@ -55,11 +55,16 @@ import oracle.kv.impl.util.TxnUtil;
  */
 public class IndexScanner {
 
-    private final InternalOperation op;
     private final IndexImpl index;
-    private final IndexRange range;
-    private final byte[] resumeSecondaryKey;
-    private final byte[] resumePrimaryKey;
+
+    /*
+     * These are replaced when the scanner is moved to a new range by
+     * resetRange().
+     */
+    private InternalOperation op;
+    private IndexRange range;
+    private byte[] resumeSecondaryKey;
+    private byte[] resumePrimaryKey;
 
     /*
      * If false, resume will start at the resume key rather than moving to
@@ -67,14 +72,14 @@ public class IndexScanner {
      * a query containing a NESTED TABLES clause, or if a SizeLimitException
      * is thrown during query processing.
      */
-    private final boolean moveAfterResumeKey;
+    private boolean moveAfterResumeKey;
 
     private final SecondaryCursor cursor;
     private final DatabaseEntry dataEntry;
     private final LockMode lockMode;
 
     /*
-     * These are "final" once initialized
+     * These are "final" once initialized, until the next resetRange()
      */
     private DatabaseEntry indexKeyEntry;
     private DatabaseEntry primaryKeyEntry;
@@ -207,6 +212,32 @@ public class IndexScanner {
         return result;
     }
 
+    /**
+     * Moves the scanner to a new range, reusing the open cursor. This is
+     * used when a query scans a batch of index ranges on the same index
+     * (for example, the two ranges of a != predicate): the cursor is
+     * repositioned with a key search for each range instead of being closed
+     * and reopened. The new range is scanned on the next call to next().
+     *
+     * The op is the operation that the new range belongs to. It is charged
+     * with the read cost of the new range.
+     */
+    public void resetRange(InternalOperation newOp,
+                           IndexRange newRange,
+                           byte[] newResumeSecondaryKey,
+                           byte[] newResumePrimaryKey,
+                           boolean newMoveAfterResumeKey) {
+        op = newOp;
+        range = newRange;
+        resumeSecondaryKey = newResumeSecondaryKey;
+        resumePrimaryKey = newResumePrimaryKey;
+        moveAfterResumeKey = newMoveAfterResumeKey;
+        indexKeyEntry = null;
+        primaryKeyEntry = null;
+        result = null;
+        initialized = false;
+    }
+
     /**
      * Closes the scanner.
      */
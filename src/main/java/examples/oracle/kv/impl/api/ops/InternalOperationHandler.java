@@ -78,6 +78,16 @@ public abstract class InternalOperationHandler<T extends InternalOperation> {
     private static final DatabaseEntry EMPTY_DATA =
         new DatabaseEntry(new byte[0]);
 
+    /**
+     * The JE write options for writes that neither set nor update a TTL,
+     * which are most writes, shared to avoid allocating options for each
+     * single-key write request. Must not be modified.
+     */
+    static final com.sleepycat.je.WriteOptions NO_TTL_WRITE_OPTIONS =
+        new com.sleepycat.je.WriteOptions()
+        .setTTL(0, null)
+        .setUpdateTTL(false);
+
     /** Same key comparator as used for KV keys */
     static final Comparator<byte[]> KEY_BYTES_COMPARATOR =
         new Key.BytesComparator();
@@ -186,10 +196,15 @@ public abstract class InternalOperationHandler<T extends InternalOperation> {
     }
 
     /**
-     * Creates JE write options with given TTL arguments.
+     * Returns JE write options with given TTL arguments. If the arguments
+     * neither set nor update a TTL, the shared NO_TTL_WRITE_OPTIONS are
+     * returned, so the options must not be modified.
      */
     com.sleepycat.je.WriteOptions makeOption(TimeToLive ttl, boolean updateTTL) {
         int ttlVal = ttl != null ? (int) ttl.getValue() : 0;
+        if (ttlVal == 0 && !updateTTL) {
+            return NO_TTL_WRITE_OPTIONS;
+        }
         TimeUnit ttlUnit = ttl != null ? ttl.getUnit() : null;
         return new com.sleepycat.je.WriteOptions()
             .setTTL(ttlVal, ttlUnit)
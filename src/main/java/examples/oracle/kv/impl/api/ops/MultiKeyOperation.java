@@ -121,7 +121,10 @@ public abstract class MultiKeyOperation extends InternalOperation {
         }
     }
 
-    byte[] getParentKey() {
+    /**
+     * Returns the parent key, or null. Public for use in hot key tracking.
+     */
+    public byte[] getParentKey() {
         return parentKey;
     }
 
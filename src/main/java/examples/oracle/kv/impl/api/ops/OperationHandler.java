@@ -15,6 +15,7 @@ package oracle.kv.impl.api.ops;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Logger;
 
 import com.sleepycat.je.Cursor;
@@ -37,6 +38,7 @@ import oracle.kv.impl.api.table.TableImpl;
 import oracle.kv.impl.metadata.Metadata.MetadataType;
 import oracle.kv.impl.rep.RepNode;
 import oracle.kv.impl.rep.RepNodeService;
+import oracle.kv.impl.rep.table.DecodedRowCache;
 import oracle.kv.impl.security.KVStorePrivilege;
 import oracle.kv.impl.topo.PartitionId;
 import oracle.kv.impl.util.SortableString;
@@ -75,7 +77,15 @@ public class OperationHandler {
     private final RepNode repNode;
 
     /** The RepNode's UUID. */
-    private UUID repNodeUUID;
+    private volatile UUID repNodeUUID;
+
+    /*
+     * Guards the initialization of repNodeUUID. A lock is used rather than
+     * synchronized because the initialization waits for the environment,
+     * and a virtual thread blocked in a synchronized block pins its carrier
+     * thread.
+     */
+    private final ReentrantLock repNodeUUIDLock = new ReentrantLock();
 
     /**
      * The logger is available to classes to log notable situations to the
@@ -135,7 +145,17 @@ public class OperationHandler {
                           PartitionId partitionId)
         throws UnauthorizedException {
 
-        return executeCast(getHandler(op.getOpCode()), op, txn, partitionId);
+        /*
+         * Share the rows decoded for index key extraction by the writes of
+         * the operation, see DecodedRowCache.
+         */
+        DecodedRowCache.begin();
+        try {
+            return executeCast(getHandler(op.getOpCode()), op, txn,
+                               partitionId);
+        } finally {
+            DecodedRowCache.end();
+        }
     }
 
     /**
@@ -277,7 +297,8 @@ public class OperationHandler {
             return repNodeUUID;
         }
 
-        synchronized (this) {
+        repNodeUUIDLock.lock();
+        try {
 
             if (repNodeUUID != null) {
                 return repNodeUUID;
@@ -292,6 +313,8 @@ public class OperationHandler {
             repNodeUUID = repImpl.getUUID();
             assert repNodeUUID != null;
             return repNodeUUID;
+        } finally {
+            repNodeUUIDLock.unlock();
         }
     }
 
@@ -14,6 +14,7 @@
 package oracle.kv.impl.api.ops;
 
 import static oracle.kv.impl.util.ObjectUtil.checkNull;
+import static oracle.kv.impl.util.SerialVersion.COLUMNAR_QUERY_RESULTS_VERSION;
 import static oracle.kv.impl.util.SerialVersion.MAXKB_ITERATE_VERSION;
 import static oracle.kv.impl.util.SerialVersion.QUERY_VERSION_2;
 import static oracle.kv.impl.util.SerialVersion.QUERY_VERSION_5;
@@ -42,10 +43,13 @@ import oracle.kv.OperationResult;
 import oracle.kv.Value;
 import oracle.kv.Version;
 import oracle.kv.impl.api.ops.InternalOperation.OpCode;
+import oracle.kv.impl.api.table.ColumnarBatch;
 import oracle.kv.impl.api.table.FieldDefImpl;
 import oracle.kv.impl.api.table.FieldDefSerialization;
 import oracle.kv.impl.api.table.FieldValueImpl;
 import oracle.kv.impl.api.table.FieldValueSerialization;
+import oracle.kv.impl.api.table.RecordDefImpl;
+import oracle.kv.impl.api.table.ValueDictionary;
 import oracle.kv.impl.query.runtime.ResumeInfo;
 import oracle.kv.impl.util.FastExternalizable;
 import oracle.kv.impl.util.SerialVersion;
@@ -1581,7 +1585,17 @@ public abstract class Result
      */
     public static class QueryResult extends Result {
 
-        private final List<FieldValueImpl> results;
+        /*
+         * The results, or null if they were read in columnar form and have
+         * not been materialized yet
+         */
+        private List<FieldValueImpl> results;
+
+        /*
+         * The results in columnar form, or null if they are sent or were
+         * received as rows. Added in COLUMNAR_QUERY_RESULTS_VERSION.
+         */
+        private final ColumnarBatch columnarResults;
 
         private final FieldDefImpl resultDef;
 
@@ -1606,7 +1620,8 @@ public abstract class Result
                     boolean mayReturnNULL,
                     boolean moreElements,
                     ResumeInfo resumeInfo,
-                    boolean exceededSizeLimit) {
+                    boolean exceededSizeLimit,
+                    boolean columnar) {
 
             super(opCode, readKB, writeKB);
 
@@ -1631,6 +1646,10 @@ public abstract class Result
             this.moreElements = moreElements;
             this.resumeInfo = resumeInfo;
             this.exceededSizeLimit = exceededSizeLimit;
+            columnarResults =
+                (columnar && ColumnarBatch.isSupported(resultDef, results)) ?
+                ColumnarBatch.create((RecordDefImpl) resultDef, results) :
+                null;
         }
 
         /**
@@ -1654,35 +1673,13 @@ public abstract class Result
                     mayReturnNULL = false;
                 }
 
-                FieldDefImpl valDef = (resultDef.isWildcard() ?
-                                       null :
-                                       resultDef);
-
-                final int listSize = (serialVersion >= STD_UTF8_VERSION) ?
-                    readNonNullSequenceLength(in) :
-                    in.readInt();
-                results = new ArrayList<FieldValueImpl>(listSize);
-
-                if (mayReturnNULL) {
-                    for (int i = 0; i < listSize; i += 1) {
-                        FieldValueImpl val = (FieldValueImpl)
-                            FieldValueSerialization.
-                            readFieldValue(valDef,
-                                           in,
-                                           serialVersion);
-                        results.add(val);
-                    }
+                if (serialVersion >= COLUMNAR_QUERY_RESULTS_VERSION &&
+                    in.readBoolean()) {
+                    columnarResults = new ColumnarBatch(
+                        (RecordDefImpl) resultDef, in, serialVersion);
                 } else {
-                    for (int i = 0; i < listSize; i += 1) {
-                        FieldValueImpl val = (FieldValueImpl)
-                            FieldValueSerialization.
-                            readNonNullFieldValue(
-                                valDef,
-                                null, // valKind
-                                in,
-                                serialVersion);
-                        results.add(val);
-                    }
+                    columnarResults = null;
+                    results = readResults(in, serialVersion);
                 }
 
                 moreElements = in.readBoolean();
@@ -1694,7 +1691,7 @@ public abstract class Result
                 } else if (moreElements) {
                     resumeInfo = new ResumeInfo(null);
 
-                    resumeInfo.setNumResultsComputed(results.size());
+                    resumeInfo.setNumResultsComputed(getNumRecords());
 
                     if (serialVersion >= QUERY_VERSION_5) {
                         resumeInfo.setCurrentIndexRange(in.readInt());
@@ -1745,6 +1742,53 @@ public abstract class Result
             }
         }
 
+        /*
+         * Reads the results in row form.
+         */
+        private List<FieldValueImpl> readResults(DataInput in,
+                                                 short serialVersion)
+            throws IOException {
+
+            FieldDefImpl valDef = (resultDef.isWildcard() ?
+                                   null :
+                                   resultDef);
+
+            final int listSize = (serialVersion >= STD_UTF8_VERSION) ?
+                readNonNullSequenceLength(in) :
+                in.readInt();
+            final List<FieldValueImpl> list =
+                new ArrayList<FieldValueImpl>(listSize);
+
+            /* Share the repeated strings of the batch, if enabled */
+            final ValueDictionary dictionary =
+                ValueDictionary.createIfEnabled();
+
+            if (mayReturnNULL) {
+                for (int i = 0; i < listSize; i += 1) {
+                    FieldValueImpl val = (FieldValueImpl)
+                        FieldValueSerialization.
+                        readFieldValue(valDef,
+                                       in,
+                                       serialVersion,
+                                       dictionary);
+                    list.add(val);
+                }
+            } else {
+                for (int i = 0; i < listSize; i += 1) {
+                    FieldValueImpl val = (FieldValueImpl)
+                        FieldValueSerialization.
+                        readNonNullFieldValue(
+                            valDef,
+                            null, // valKind
+                            in,
+                            serialVersion,
+                            dictionary);
+                    list.add(val);
+                }
+            }
+            return list;
+        }
+
         /**
          * Writes this object to the output stream.  Format for {@code
          * serialVersion} {@link SerialVersion#STD_UTF8_VERSION} and greater:
@@ -1753,18 +1797,25 @@ public abstract class Result
          * <li> {@link FieldDefSerialization#writeFieldDef
          *      writeFieldDef(resultDef)}
          * <li> ({@link DataOutput#writeBoolean boolean}) {@code mayReturnNull}
-         * <li> ({@link SerializationUtil#writeNonNullSequenceLength non-null
-         *      sequence length}) <i>results length</i>
-         * <li> For each result, choose one of the following:
+         * <li> ({@link DataOutput#writeBoolean boolean}) <i>whether the
+         *      results are in columnar form</i> // for {@code serialVersion}
+         *      {@link SerialVersion#COLUMNAR_QUERY_RESULTS_VERSION} or greater
+         * <li> If the results are in columnar form, {@link
+         *      ColumnarBatch#writeFastExternal ColumnarBatch}, else:
          *   <ol type="a">
-         *   <li> {@link FieldValueSerialization#writeFieldValue
-         *        writeFieldValue(result, } {@link FieldDefImpl#isWildcard
-         *        resultDef.isWildcard())} // If {@code mayReturnNULL} is
-         *        {@code true}
-         *   <li> {@link FieldValueSerialization#writeNonNullFieldValue
-         *        writeNonNullFieldValue(result, } {@link
-         *        FieldDefImpl#isWildcard resultDef.isWildcard()}{@code ,
-         *        true)} // If {@code mayReturnNULL} is {@code false}
+         *   <li> ({@link SerializationUtil#writeNonNullSequenceLength non-null
+         *        sequence length}) <i>results length</i>
+         *   <li> For each result, choose one of the following:
+         *     <ol type="a">
+         *     <li> {@link FieldValueSerialization#writeFieldValue
+         *          writeFieldValue(result, } {@link FieldDefImpl#isWildcard
+         *          resultDef.isWildcard())} // If {@code mayReturnNULL} is
+         *          {@code true}
+         *     <li> {@link FieldValueSerialization#writeNonNullFieldValue
+         *          writeNonNullFieldValue(result, } {@link
+         *          FieldDefImpl#isWildcard resultDef.isWildcard()}{@code ,
+         *          true)} // If {@code mayReturnNULL} is {@code false}
+         *     </ol>
          *   </ol>
          * <li> ({@link DataOutput#writeBoolean boolean}) {@link
          *      #hasMoreElements moreElements}
@@ -1791,29 +1842,15 @@ public abstract class Result
                     out.writeBoolean(mayReturnNULL);
                 }
 
-                if (serialVersion >= STD_UTF8_VERSION) {
-                    writeNonNullSequenceLength(out, results.size());
-                } else {
-                    out.writeInt(results.size());
-                }
-
-                boolean isWildcard = resultDef.isWildcard();
-
-                if (mayReturnNULL) {
-                    for (final FieldValueImpl res : results) {
-                        FieldValueSerialization.
-                            writeFieldValue(res,
-                                            isWildcard, //writeValDef
-                                            out, serialVersion);
+                if (serialVersion >= COLUMNAR_QUERY_RESULTS_VERSION) {
+                    out.writeBoolean(columnarResults != null);
+                    if (columnarResults != null) {
+                        columnarResults.writeFastExternal(out, serialVersion);
+                    } else {
+                        writeResults(out, serialVersion);
                     }
                 } else {
-                    for (final FieldValueImpl res : results) {
-                        FieldValueSerialization.
-                            writeNonNullFieldValue(res,
-                                                   isWildcard, //writeValDef
-                                                   true, // writeValKind
-                                                   out, serialVersion);
-                    }
+                    writeResults(out, serialVersion);
                 }
 
                 out.writeBoolean(moreElements);
@@ -1868,16 +1905,67 @@ public abstract class Result
             }
         }
 
+        /*
+         * Writes the results in row form.
+         */
+        private void writeResults(DataOutput out, short serialVersion)
+            throws IOException {
+
+            final List<FieldValueImpl> rows = getQueryResults();
+
+            if (serialVersion >= STD_UTF8_VERSION) {
+                writeNonNullSequenceLength(out, rows.size());
+            } else {
+                out.writeInt(rows.size());
+            }
+
+            boolean isWildcard = resultDef.isWildcard();
+
+            if (mayReturnNULL) {
+                for (final FieldValueImpl res : rows) {
+                    FieldValueSerialization.
+                        writeFieldValue(res,
+                                        isWildcard, //writeValDef
+                                        out, serialVersion);
+                }
+            } else {
+                for (final FieldValueImpl res : rows) {
+                    FieldValueSerialization.
+                        writeNonNullFieldValue(res,
+                                               isWildcard, //writeValDef
+                                               true, // writeValKind
+                                               out, serialVersion);
+                }
+            }
+        }
+
         @Override
         public boolean getSuccess() {
-            return results.size() > 0;
+            return getNumRecords() > 0;
         }
 
+        /**
+         * Returns the results. If they were received in columnar form, they
+         * are materialized as records the first time this method is called.
+         */
         @Override
         public List<FieldValueImpl> getQueryResults() {
+            if (results == null) {
+                results = new ArrayList<FieldValueImpl>(
+                    columnarResults.getRows());
+            }
             return results;
         }
 
+        /**
+         * Returns the results in columnar form, or null if they were sent
+         * as rows, because the query did not ask for columnar results or
+         * they are not records.
+         */
+        public ColumnarBatch getColumnarResults() {
+            return columnarResults;
+        }
+
         @Override
         public boolean hasMoreElements() {
             return moreElements;
@@ -1885,7 +1973,9 @@ public abstract class Result
 
         @Override
         public int getNumRecords() {
-            return results.size();
+            return (results != null) ?
+                results.size() :
+                columnarResults.getNumRows();
         }
 
         public ResumeInfo getResumeInfo() {
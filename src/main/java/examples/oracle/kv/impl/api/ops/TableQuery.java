@@ -14,6 +14,7 @@
 package oracle.kv.impl.api.ops;
 
 import static oracle.kv.impl.api.ops.InternalOperationHandler.MIN_READ;
+import static oracle.kv.impl.util.SerialVersion.COLUMNAR_QUERY_RESULTS_VERSION;
 import static oracle.kv.impl.util.SerialVersion.EMPTY_READ_FACTOR_VERSION;
 import static oracle.kv.impl.util.SerialVersion.MAXKB_ITERATE_VERSION;
 import static oracle.kv.impl.util.SerialVersion.QUERY_VERSION;
@@ -110,6 +111,12 @@ public class TableQuery extends InternalOperation {
 
     private final int emptyReadFactor;
 
+    /*
+     * Whether the results should be returned in columnar form, if possible.
+     * Added in COLUMNAR_QUERY_RESULTS_VERSION.
+     */
+    private final boolean columnarResults;
+
     public TableQuery(
         DistributionKind distKind,
         FieldDefImpl resultDef,
@@ -125,7 +132,8 @@ public class TableQuery extends InternalOperation {
         int currentMaxReadKB,
         int maxReadKB,
         ResumeInfo resumeInfo,
-        int emptyReadFactor) {
+        int emptyReadFactor,
+        boolean columnarResults) {
 
         /*
          * The distinct OpCodes are primarily for a finer granularity of
@@ -153,6 +161,7 @@ public class TableQuery extends InternalOperation {
         /* emptyReadFactor is serialized as a byte */
         assert emptyReadFactor <= Byte.MAX_VALUE;
         this.emptyReadFactor = emptyReadFactor;
+        this.columnarResults = columnarResults;
     }
 
     FieldDefImpl getResultDef() {
@@ -218,6 +227,10 @@ public class TableQuery extends InternalOperation {
         return emptyReadFactor;
     }
 
+    boolean getColumnarResults() {
+        return columnarResults;
+    }
+
     /**
      * FastExternalizable writer.  Must call superclass method first to write
      * common elements.
@@ -320,6 +333,10 @@ public class TableQuery extends InternalOperation {
         if (serialVersion >= EMPTY_READ_FACTOR_VERSION) {
             out.writeByte(emptyReadFactor);
         }
+
+        if (serialVersion >= COLUMNAR_QUERY_RESULTS_VERSION) {
+            out.writeBoolean(columnarResults);
+        }
     }
 
     /**
@@ -429,6 +446,12 @@ public class TableQuery extends InternalOperation {
                 emptyReadFactor = in.readByte();
             }
 
+            if (serialVersion < COLUMNAR_QUERY_RESULTS_VERSION) {
+                columnarResults = false;
+            } else {
+                columnarResults = in.readBoolean();
+            }
+
         } catch (IOException e) {
             e.printStackTrace();
             throw e;
@@ -97,7 +97,8 @@ class TableQueryHandler extends InternalOperationHandler<TableQuery> {
             rcb.trace("Resume Info:\n" + ri);
         }
 
-        executeQueryPlan(op, rcb, results, partitionId);
+        final boolean planDone =
+            executeQueryPlan(op, rcb, results, partitionId);
 
         /*
          * Resume key is both input and output parameter for RCB. If set on
@@ -109,6 +110,7 @@ class TableQueryHandler extends InternalOperationHandler<TableQuery> {
         byte[] newSecondaryResumeKey = ri.getSecResumeKey();
         boolean more = (rcb.getReachedLimit() ||
                         (results.size() == batchSize &&
+                         !planDone &&
                          (newPrimaryResumeKey != null ||
                           newSecondaryResumeKey != null)));
 
@@ -131,7 +133,8 @@ class TableQueryHandler extends InternalOperationHandler<TableQuery> {
                                       op.mayReturnNULL(),
                                       more,
                                       ri,
-                                      rcb.getReachedLimit());
+                                      rcb.getReachedLimit(),
+                                      op.getColumnarResults());
     }
 
     /**
@@ -152,7 +155,13 @@ class TableQueryHandler extends InternalOperationHandler<TableQuery> {
         return md;
     }
 
-    private void executeQueryPlan(
+    /**
+     * Executes the query plan until it produces a full batch of results or
+     * it has no more results. Returns true if the plan is known to have no
+     * more results (for example, because a pushed limit has been reached),
+     * even though the batch may be full.
+     */
+    private boolean executeQueryPlan(
         TableQuery op,
         RuntimeControlBlock rcb,
         List<FieldValueImpl> results,
@@ -162,6 +171,7 @@ class TableQueryHandler extends InternalOperationHandler<TableQuery> {
         final PlanIter queryPlan = op.getQueryPlan();
         FieldValueImpl res = null;
         boolean noException = false;
+        boolean planDone = false;
 
         try {
             queryPlan.open(rcb);
@@ -182,6 +192,7 @@ class TableQueryHandler extends InternalOperationHandler<TableQuery> {
                 results.add(res);
             }
 
+            planDone = queryPlan.isDone(rcb);
             noException = true;
         } catch (QueryException qe) {
 
@@ -221,5 +232,7 @@ class TableQueryHandler extends InternalOperationHandler<TableQuery> {
                 }
             }
         }
+
+        return planDone;
     }
 }
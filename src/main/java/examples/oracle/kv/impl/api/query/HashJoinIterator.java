@@ -0,0 +1,708 @@
+/*-
+ * Copyright (C) 2011, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This file was distributed by Oracle as part of a version of Oracle NoSQL
+ * Database made available at:
+ *
+ * http://www.oracle.com/technetwork/database/database-technologies/nosqldb/downloads/index.html
+ *
+ * Please see the LICENSE file included in the top-level directory of the
+ * appropriate version of Oracle NoSQL Database for a copy of the license and
+ * additional information.
+ */
+
+package oracle.kv.impl.api.query;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import oracle.kv.StatementResult;
+import oracle.kv.impl.api.table.FieldDefFactory;
+import oracle.kv.impl.api.table.FieldDefImpl;
+import oracle.kv.impl.api.table.FieldMap;
+import oracle.kv.impl.api.table.FieldValueSerialization;
+import oracle.kv.impl.api.table.RecordDefImpl;
+import oracle.kv.impl.util.SerialVersion;
+import oracle.kv.stats.DetailedMetrics;
+import oracle.kv.table.FieldValue;
+import oracle.kv.table.RecordDef;
+import oracle.kv.table.RecordValue;
+import oracle.kv.table.TableIterator;
+
+/**
+ * An equi-join of two record streams, evaluated at the client with a hash
+ * join. It is meant for joins that cannot be expressed with the NESTED TABLES
+ * clause: joins between unrelated tables, or lookups into a table by a
+ * non-key column, which otherwise require a get() call per row of the outer
+ * table. Each input is typically the iterator of a query (for example,
+ * "SELECT * FROM lookup_table"), so every input is read with one distributed
+ * scan. TableAPIImpl.executeJoin executes two queries and joins their
+ * results with this iterator.
+ *
+ * The "build" input, which should be the smaller of the two, is read first
+ * and loaded into a hash table keyed by its join columns. The "probe" input
+ * is then streamed, and each of its records is joined with the build records
+ * that have equal join column values. Records with an SQL NULL or json null
+ * join column never match. Numeric join column values are compared by
+ * value, so an INTEGER, LONG, FLOAT, DOUBLE or NUMBER column can be joined
+ * with a column of any of these types; other values are compared with
+ * FieldValue.equals(), so they only match values of the same type.
+ *
+ * Memory is bounded by maxMemory, using the same size estimates as the
+ * QueryResultCache. If the build input turns out to be larger, both inputs
+ * are hash-partitioned into temporary files and each partition is joined
+ * separately (a "grace" hash join). A build partition that still does not
+ * fit is processed in chunks, rescanning its probe partition for each chunk.
+ * The files of a partition are deleted once it has been joined, and any
+ * remaining files are deleted by close(), which is called when the join
+ * is exhausted or fails, so an iterator that is not read to the end must
+ * be closed.
+ *
+ * Each result is a record with two fields, named by the caller, holding the
+ * joined build and probe records. Instances are not thread-safe.
+ */
+public class HashJoinIterator implements TableIterator<RecordValue> {
+
+    /* The number of partitions the inputs are split into when spilling */
+    private static final int NUM_SPILL_PARTITIONS = 32;
+
+    private final TableIterator<RecordValue> buildInput;
+    private final RecordDef buildDef;
+    private final int[] buildKeyPositions;
+
+    private final TableIterator<RecordValue> probeInput;
+    private final RecordDef probeDef;
+    private final int[] probeKeyPositions;
+
+    private final RecordDefImpl resultDef;
+
+    private final long maxMemory;
+
+    private final File spillDir;
+
+    /* The hash table built from (a chunk of) the build input */
+    private final HashMap<JoinKey, List<RecordValue>> table =
+        new HashMap<JoinKey, List<RecordValue>>();
+
+    private long tableBytes;
+
+    private boolean initialized;
+
+    private boolean closed;
+
+    /* Non-null after the inputs have been spilled */
+    private SpillFile[] buildSpills;
+    private SpillFile[] probeSpills;
+
+    /* The partition being joined, and the readers of its spill files */
+    private int spillPartition = -1;
+    private SpillReader buildReader;
+    private SpillReader probeReader;
+
+    /* The probe record being joined and the build records it matches */
+    private RecordValue probeRecord;
+    private Iterator<RecordValue> matches;
+
+    private RecordValue nextResult;
+
+    /**
+     * Creates a join of the results of two queries. The join columns are
+     * given by name, and must be top-level fields of the query results.
+     */
+    public HashJoinIterator(StatementResult build,
+                            String buildName,
+                            String[] buildKeyFields,
+                            StatementResult probe,
+                            String probeName,
+                            String[] probeKeyFields,
+                            long maxMemory,
+                            File spillDir) {
+
+        this(build.iterator(), build.getResultDef(), buildName,
+             getPositions(build.getResultDef(), buildKeyFields),
+             probe.iterator(), probe.getResultDef(), probeName,
+             getPositions(probe.getResultDef(), probeKeyFields),
+             maxMemory, spillDir);
+    }
+
+    public HashJoinIterator(TableIterator<RecordValue> buildInput,
+                            RecordDef buildDef,
+                            String buildName,
+                            int[] buildKeyPositions,
+                            TableIterator<RecordValue> probeInput,
+                            RecordDef probeDef,
+                            String probeName,
+                            int[] probeKeyPositions,
+                            long maxMemory,
+                            File spillDir) {
+
+        if (buildKeyPositions.length == 0 ||
+            buildKeyPositions.length != probeKeyPositions.length) {
+            throw new IllegalArgumentException(
+                "The build and probe inputs must have the same, non-zero, " +
+                "number of join columns");
+        }
+
+        if (maxMemory <= 0) {
+            throw new IllegalArgumentException(
+                "The max memory of a hash join must be positive: " +
+                maxMemory);
+        }
+
+        this.buildInput = buildInput;
+        this.buildDef = buildDef;
+        this.buildKeyPositions = buildKeyPositions;
+        this.probeInput = probeInput;
+        this.probeDef = probeDef;
+        this.probeKeyPositions = probeKeyPositions;
+        this.maxMemory = maxMemory;
+        this.spillDir = spillDir;
+
+        FieldMap fieldMap = new FieldMap();
+        fieldMap.put(buildName, (FieldDefImpl)buildDef,
+                     false/*nullable*/, null/*defaultValue*/);
+        fieldMap.put(probeName, (FieldDefImpl)probeDef,
+                     false/*nullable*/, null/*defaultValue*/);
+        resultDef = FieldDefFactory.createRecordDef(fieldMap, null);
+    }
+
+    private static int[] getPositions(RecordDef def, String[] fieldNames) {
+
+        int[] positions = new int[fieldNames.length];
+
+        for (int i = 0; i < fieldNames.length; ++i) {
+            if (!def.getFieldNames().contains(fieldNames[i])) {
+                throw new IllegalArgumentException(
+                    "Join column " + fieldNames[i] +
+                    " is not a field of the input records");
+            }
+            positions[i] = def.getFieldPos(fieldNames[i]);
+        }
+
+        return positions;
+    }
+
+    /**
+     * Returns the type of the join results.
+     */
+    public RecordDef getResultDef() {
+        return resultDef;
+    }
+
+    /**
+     * Returns true if the build input did not fit in memory and the join
+     * had to use temporary files.
+     */
+    public boolean hasSpilled() {
+        return buildSpills != null;
+    }
+
+    @Override
+    public boolean hasNext() {
+
+        if (nextResult != null) {
+            return true;
+        }
+
+        if (closed) {
+            return false;
+        }
+
+        try {
+            if (!initialized) {
+                initialized = true;
+                build();
+            }
+
+            nextResult = computeNext();
+
+        } catch (IOException ioe) {
+            close();
+            throw new IllegalStateException(
+                "Hash join failed to use its spill files: " + ioe, ioe);
+        }
+
+        if (nextResult == null) {
+            close();
+            return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public RecordValue next() {
+
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        final RecordValue res = nextResult;
+        nextResult = null;
+        return res;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        buildInput.close();
+        probeInput.close();
+        table.clear();
+        matches = null;
+
+        closeQuietly(buildReader);
+        closeQuietly(probeReader);
+
+        deleteSpills(buildSpills);
+        deleteSpills(probeSpills);
+    }
+
+    /*
+     * Deletes the spill files, which may not all have been created if
+     * spilling failed.
+     */
+    private static void deleteSpills(SpillFile[] spills) {
+        if (spills == null) {
+            return;
+        }
+        for (SpillFile spill : spills) {
+            if (spill != null) {
+                spill.delete();
+            }
+        }
+    }
+
+    @Override
+    public List<DetailedMetrics> getPartitionMetrics() {
+        final List<DetailedMetrics> metrics =
+            new ArrayList<DetailedMetrics>(buildInput.getPartitionMetrics());
+        metrics.addAll(probeInput.getPartitionMetrics());
+        return metrics;
+    }
+
+    @Override
+    public List<DetailedMetrics> getShardMetrics() {
+        final List<DetailedMetrics> metrics =
+            new ArrayList<DetailedMetrics>(buildInput.getShardMetrics());
+        metrics.addAll(probeInput.getShardMetrics());
+        return metrics;
+    }
+
+    /*
+     * Reads the build input into the hash table. If it does not fit, both
+     * inputs are partitioned into spill files, and the first chunk of the
+     * first partition is loaded.
+     */
+    private void build() throws IOException {
+
+        while (buildInput.hasNext()) {
+
+            final RecordValue rec = buildInput.next();
+            final JoinKey key = JoinKey.create(rec, buildKeyPositions);
+
+            if (key == null) {
+                continue;
+            }
+
+            if (buildSpills != null) {
+                buildSpills[key.partition()].write(rec);
+                continue;
+            }
+
+            final long size = QueryResultCache.estimateSize(rec);
+
+            if (tableBytes + size > maxMemory) {
+                spill();
+                buildSpills[key.partition()].write(rec);
+                continue;
+            }
+
+            addToTable(key, rec, size);
+        }
+
+        buildInput.close();
+
+        if (buildSpills == null) {
+            return;
+        }
+
+        while (probeInput.hasNext()) {
+
+            final RecordValue rec = probeInput.next();
+            final JoinKey key = JoinKey.create(rec, probeKeyPositions);
+
+            if (key != null) {
+                probeSpills[key.partition()].write(rec);
+            }
+        }
+
+        probeInput.close();
+
+        for (int i = 0; i < NUM_SPILL_PARTITIONS; ++i) {
+            buildSpills[i].finishWriting();
+            probeSpills[i].finishWriting();
+        }
+
+        nextBuildChunk();
+    }
+
+    /*
+     * Creates the spill files and moves the contents of the hash table to
+     * the build spill files.
+     */
+    private void spill() throws IOException {
+
+        buildSpills = new SpillFile[NUM_SPILL_PARTITIONS];
+        probeSpills = new SpillFile[NUM_SPILL_PARTITIONS];
+
+        for (int i = 0; i < NUM_SPILL_PARTITIONS; ++i) {
+            buildSpills[i] = new SpillFile(spillDir, buildDef);
+            probeSpills[i] = new SpillFile(spillDir, probeDef);
+        }
+
+        for (List<RecordValue> recs : table.values()) {
+            for (RecordValue rec : recs) {
+                final JoinKey key = JoinKey.create(rec, buildKeyPositions);
+                buildSpills[key.partition()].write(rec);
+            }
+        }
+
+        table.clear();
+        tableBytes = 0;
+    }
+
+    private void addToTable(JoinKey key, RecordValue rec, long size) {
+
+        List<RecordValue> recs = table.get(key);
+        if (recs == null) {
+            recs = new ArrayList<RecordValue>(1);
+            table.put(key, recs);
+        }
+        recs.add(rec);
+        tableBytes += size;
+    }
+
+    /*
+     * Loads the next chunk of build records from the spill files into the
+     * hash table, and opens the matching probe spill file. Returns false if
+     * all the partitions have been processed. Always returns false if the
+     * join has not spilled.
+     */
+    private boolean nextBuildChunk() throws IOException {
+
+        if (buildSpills == null) {
+            return false;
+        }
+
+        closeQuietly(probeReader);
+        probeReader = null;
+        table.clear();
+        tableBytes = 0;
+
+        while (true) {
+
+            if (buildReader == null || !buildReader.hasNext()) {
+
+                closeQuietly(buildReader);
+                buildReader = null;
+
+                if (spillPartition >= 0) {
+                    buildSpills[spillPartition].delete();
+                    probeSpills[spillPartition].delete();
+                }
+
+                if (++spillPartition == NUM_SPILL_PARTITIONS) {
+                    return false;
+                }
+
+                if (buildSpills[spillPartition].numRecords == 0 ||
+                    probeSpills[spillPartition].numRecords == 0) {
+                    continue;
+                }
+
+                buildReader = buildSpills[spillPartition].openReader();
+            }
+
+            /* Load at least one record, so that progress is always made */
+            while (buildReader.hasNext()) {
+
+                final RecordValue rec = buildReader.next();
+                final long size = QueryResultCache.estimateSize(rec);
+
+                addToTable(JoinKey.create(rec, buildKeyPositions), rec, size);
+
+                if (tableBytes >= maxMemory) {
+                    break;
+                }
+            }
+
+            probeReader = probeSpills[spillPartition].openReader();
+            return true;
+        }
+    }
+
+    private RecordValue nextProbeRecord() throws IOException {
+
+        if (buildSpills == null) {
+            return (probeInput.hasNext() ? probeInput.next() : null);
+        }
+
+        return (probeReader.hasNext() ? probeReader.next() : null);
+    }
+
+    private RecordValue computeNext() throws IOException {
+
+        while (true) {
+
+            if (matches != null && matches.hasNext()) {
+                final RecordValue res = resultDef.createRecord();
+                res.put(0, matches.next());
+                res.put(1, probeRecord);
+                return res;
+            }
+
+            matches = null;
+            probeRecord = null;
+
+            final RecordValue rec = nextProbeRecord();
+
+            if (rec == null) {
+                if (!nextBuildChunk()) {
+                    return null;
+                }
+                continue;
+            }
+
+            final JoinKey key = JoinKey.create(rec, probeKeyPositions);
+            if (key == null) {
+                continue;
+            }
+
+            final List<RecordValue> recs = table.get(key);
+            if (recs != null) {
+                probeRecord = rec;
+                matches = recs.iterator();
+            }
+        }
+    }
+
+    private static void closeQuietly(SpillReader reader) {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    /**
+     * The values of the join columns of a record. Numeric values are held in
+     * a normalized form, so that equal numbers of different types, such as
+     * an INTEGER 5, a LONG 5 and a NUMBER 5.0, have equal keys and hash
+     * codes.
+     */
+    private static final class JoinKey {
+
+        /* The max double, exclusive, that converts to a long exactly */
+        private static final double LONG_RANGE = 0x1p63;
+
+        private final Object[] values;
+
+        private final int hashCode;
+
+        private JoinKey(Object[] values) {
+            this.values = values;
+            this.hashCode = Arrays.hashCode(values);
+        }
+
+        /*
+         * Returns null if any of the join columns is NULL, since such a
+         * record cannot match any other.
+         */
+        static JoinKey create(RecordValue rec, int[] positions) {
+
+            final Object[] values = new Object[positions.length];
+
+            for (int i = 0; i < positions.length; ++i) {
+                final FieldValue val = rec.get(positions[i]);
+                if (val == null || val.isNull() || val.isJsonNull()) {
+                    return null;
+                }
+                values[i] = normalize(val);
+            }
+
+            return new JoinKey(values);
+        }
+
+        /*
+         * Returns the value itself if it is not numeric. Numbers are
+         * returned as a Long if they are integral and fit in a long, else
+         * as a BigDecimal without trailing zeros, or as a Double for the
+         * infinities and NaN.
+         */
+        private static Object normalize(FieldValue val) {
+            switch (val.getType()) {
+            case INTEGER:
+                return Long.valueOf(val.asInteger().get());
+            case LONG:
+                return Long.valueOf(val.asLong().get());
+            case FLOAT:
+                return normalize(val.asFloat().get());
+            case DOUBLE:
+                return normalize(val.asDouble().get());
+            case NUMBER:
+                return normalize(val.asNumber().get());
+            default:
+                return val;
+            }
+        }
+
+        private static Object normalize(double val) {
+            if (Double.isNaN(val) || Double.isInfinite(val)) {
+                return Double.valueOf(val);
+            }
+            if (val == Math.rint(val) &&
+                val >= -LONG_RANGE && val < LONG_RANGE) {
+                return Long.valueOf((long) val);
+            }
+            return normalize(new BigDecimal(val));
+        }
+
+        private static Object normalize(BigDecimal val) {
+            final BigDecimal stripped = val.stripTrailingZeros();
+            if (stripped.scale() <= 0) {
+                try {
+                    return Long.valueOf(stripped.longValueExact());
+                } catch (ArithmeticException outOfRange) {
+                    /* Keep the BigDecimal */
+                }
+            }
+            return stripped;
+        }
+
+        int partition() {
+            /* Re-mix, so the partitions are independent of the table hash */
+            final int h = hashCode * 0x9E3779B9;
+            return (h >>> 16) % NUM_SPILL_PARTITIONS;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return (other instanceof JoinKey &&
+                    Arrays.equals(values, ((JoinKey)other).values));
+        }
+    }
+
+    /**
+     * A temporary file holding the serialized records of one partition of
+     * an input.
+     */
+    private static final class SpillFile {
+
+        private final File file;
+
+        private final RecordDef def;
+
+        private DataOutputStream out;
+
+        int numRecords;
+
+        SpillFile(File dir, RecordDef def) throws IOException {
+            this.def = def;
+            file = File.createTempFile("kvhashjoin", ".spill", dir);
+            try {
+                out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(file)));
+            } catch (IOException ioe) {
+                file.delete();
+                throw ioe;
+            }
+        }
+
+        void write(RecordValue rec) throws IOException {
+            FieldValueSerialization.writeFieldValue(
+                rec, false /*writeValDef*/, out, SerialVersion.CURRENT);
+            ++numRecords;
+        }
+
+        void finishWriting() throws IOException {
+            out.close();
+            out = null;
+        }
+
+        SpillReader openReader() throws IOException {
+            return new SpillReader(file, def, numRecords);
+        }
+
+        void delete() {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignore) {
+                }
+                out = null;
+            }
+            file.delete();
+        }
+    }
+
+    private static final class SpillReader {
+
+        private final DataInputStream in;
+
+        private final RecordDef def;
+
+        private int remaining;
+
+        SpillReader(File file, RecordDef def, int numRecords)
+            throws IOException {
+
+            this.def = def;
+            remaining = numRecords;
+            in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file)));
+        }
+
+        boolean hasNext() {
+            return remaining > 0;
+        }
+
+        RecordValue next() throws IOException {
+            --remaining;
+            return (RecordValue) FieldValueSerialization.readFieldValue(
+                def, in, SerialVersion.CURRENT);
+        }
+
+        void close() throws IOException {
+            in.close();
+        }
+    }
+}
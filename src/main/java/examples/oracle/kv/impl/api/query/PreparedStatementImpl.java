@@ -123,6 +123,12 @@ public class PreparedStatementImpl
 
     private final String tableName;
 
+    /*
+     * Whether the query does not modify any data. Only the results of
+     * read-only queries may be cached in the QueryResultCache.
+     */
+    private final boolean isReadOnly;
+
     /*
      * Needed for unit testing only
      */
@@ -144,6 +150,7 @@ public class PreparedStatementImpl
         this.distributionKind = qcb.getPushedDistributionKind();
         this.tableId = qcb.getTargetTableId();
         this.tableName = qcb.getTargetTableName();
+        this.isReadOnly = !qcb.isUpdate();
         PrimaryKeyImpl pkey = qcb.getPushedPrimaryKey();
 
         if (pkey != null && pkey.isEmpty()) {
@@ -268,10 +275,36 @@ public class PreparedStatementImpl
         return tableId;
     }
 
+    /**
+     * Returns the IDs of the tables the query may access, or null if it is
+     * not known.
+     */
+    long[] getTableHierarchyIds() {
+        return qcb.getTargetTableHierarchyIds();
+    }
+
+    /**
+     * Returns the text of the query.
+     */
+    String getQueryText() {
+        return qcb.getQueryText();
+    }
+
+    /**
+     * Returns the namespace used to resolve the table names in the query.
+     */
+    String getNamespace() {
+        return qcb.getNamespace();
+    }
+
     public String getTableName() {
         return tableName;
     }
 
+    boolean isReadOnly() {
+        return isReadOnly;
+    }
+
     /**
      * Convert the map of external vars (maping names to values) to an array
      * with the values only. The array is indexed by an internalid assigned
@@ -519,6 +552,12 @@ public class PreparedStatementImpl
             /* to make the compiler happy about final members that aren't used */
             partitionId = null;
             shardKey = null;
+
+            /*
+             * The statement kind is not serialized, so be conservative and
+             * keep deserialized statements out of the result cache.
+             */
+            isReadOnly = false;
         } catch (QueryException qe) {
             throw qe.getIllegalArgument();
         } catch (RuntimeException re) {
@@ -0,0 +1,478 @@
+/*-
+ * Copyright (C) 2011, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This file was distributed by Oracle as part of a version of Oracle NoSQL
+ * Database made available at:
+ *
+ * http://www.oracle.com/technetwork/database/database-technologies/nosqldb/downloads/index.html
+ *
+ * Please see the LICENSE file included in the top-level directory of the
+ * appropriate version of Oracle NoSQL Database for a copy of the license and
+ * additional information.
+ */
+
+package oracle.kv.impl.api.query;
+
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import oracle.kv.Consistency;
+import oracle.kv.impl.topo.RepGroupId;
+import oracle.kv.query.ExecuteOptions;
+import oracle.kv.table.ArrayValue;
+import oracle.kv.table.FieldValue;
+import oracle.kv.table.RecordValue;
+
+/**
+ * A client-side cache of the results of read-only queries. The cache is
+ * owned by TableAPIImpl and is shared by all the queries executed through
+ * the same store handle. A query participates only if the application sets
+ * a result cache TTL in the ExecuteOptions used to execute it, and reads
+ * with Consistency.NONE_REQUIRED, since a cached result may be older than
+ * what any other consistency policy allows.
+ *
+ * Entries are keyed by the query text, the namespace used to resolve its
+ * table names, the values of the bound external variables, and the
+ * MathContext used by the query, so that separately prepared copies of the
+ * same query, including the ones prepared by executeSync(String), share
+ * entries. Each entry holds the complete list of records returned by the
+ * query, so a hit is served without contacting any RN.
+ *
+ * The cache is bounded by an estimated number of bytes. Entries are evicted
+ * in LRU order when the budget is exceeded, and an entry is discarded on
+ * access after its TTL expires. All entries are dropped when the client
+ * learns that the table metadata has changed (see metadataChanged()), because
+ * a schema change or a dropped/recreated table may change query results in
+ * ways the TTL alone does not cover.
+ *
+ * Writes made through the same store handle drop the entries of the queries
+ * on the written table's hierarchy as soon as the write completes (see
+ * tableWritten()), so a client reads its own writes. Writes made by other
+ * clients are only noticed when the entries expire, so results may be up to
+ * the TTL out of date with respect to them.
+ */
+public class QueryResultCache {
+
+    /* Rough per-object overheads used by the size estimates below */
+    private static final int OBJECT_OVERHEAD = 16;
+    private static final int REF_SIZE = 8;
+    private static final int ENTRY_OVERHEAD = 64;
+
+    private final long maxBytes;
+
+    /*
+     * Access-ordered, so iteration starts from the least recently used
+     * entry. Guarded by "this".
+     */
+    private final LinkedHashMap<CacheKey, CacheEntry> entries;
+
+    private long usedBytes;
+
+    /* The highest table metadata seqNum seen so far. Guarded by "this". */
+    private int metadataSeqNum;
+
+    /*
+     * Counts the local writes, the count at the last write to each table, and
+     * the count at the last write that may have modified any table, so that
+     * results computed across a write are not added. Guarded by "this".
+     */
+    private long writeSeqNum;
+    private final Map<Long, Long> tableWriteSeqNums = new HashMap<Long, Long>();
+    private long anyTableWriteSeqNum;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong savedRequests = new AtomicLong();
+
+    public QueryResultCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        entries = new LinkedHashMap<CacheKey, CacheEntry>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns true if the results of executing the given statement with the
+     * given options may be served from, or stored in, the cache.
+     */
+    static boolean isCacheable(PreparedStatementImpl ps,
+                               ExecuteOptions options,
+                               Consistency defaultConsistency,
+                               Set<Integer> partitions,
+                               Set<RepGroupId> shards) {
+
+        final Consistency consistency =
+            (options.getConsistency() != null ?
+             options.getConsistency() :
+             defaultConsistency);
+
+        return (options.getResultCacheTTL() > 0 &&
+                Consistency.NONE_REQUIRED.equals(consistency) &&
+                ps.isReadOnly() &&
+                partitions == null &&
+                shards == null &&
+                options.getContinuationKey() == null &&
+                options.getMaxReadKB() == 0 &&
+                !options.getUseBatchSizeAsLimit());
+    }
+
+    /**
+     * Creates the key for the given statement and bound variable values.
+     */
+    CacheKey makeKey(PreparedStatementImpl ps,
+                     FieldValue[] externalVars,
+                     ExecuteOptions options) {
+
+        final int seqNum;
+        final long writeSeq;
+        synchronized (this) {
+            seqNum = metadataSeqNum;
+            writeSeq = writeSeqNum;
+        }
+        return new CacheKey(ps.getQueryText(), ps.getNamespace(),
+                            ps.getTableHierarchyIds(), externalVars,
+                            options.getMathContext(), seqNum, writeSeq);
+    }
+
+    /**
+     * Returns a copy of the cached results for the given key, or null if
+     * there is no valid entry for it.
+     */
+    List<RecordValue> get(CacheKey key) {
+
+        final CacheEntry entry;
+
+        synchronized (this) {
+            CacheEntry e = entries.get(key);
+
+            if (e != null && e.expirationTime <= System.currentTimeMillis()) {
+                entries.remove(key);
+                usedBytes -= e.numBytes;
+                e = null;
+            }
+            entry = e;
+        }
+
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        hits.incrementAndGet();
+        savedRequests.addAndGet(entry.numRequests);
+
+        /* Records are mutable, so hand out copies */
+        final List<RecordValue> results =
+            new ArrayList<RecordValue>(entry.results.size());
+        for (RecordValue rec : entry.results) {
+            results.add(rec.clone());
+        }
+        return results;
+    }
+
+    /**
+     * Adds the complete results of a query execution to the cache. The
+     * results are not cached if the table metadata changed while the query
+     * was running, or if they don't fit in the cache budget.
+     *
+     * @param numRequests the number of requests sent to RNs in order to
+     * compute the results. It is added to the saved requests stat for every
+     * subsequent hit on the entry.
+     */
+    void put(CacheKey key,
+             List<RecordValue> results,
+             long numBytes,
+             int numRequests,
+             long ttlMs) {
+
+        numBytes += ENTRY_OVERHEAD;
+
+        if (numBytes > maxBytes) {
+            return;
+        }
+
+        final CacheEntry entry =
+            new CacheEntry(results, numBytes, numRequests,
+                           System.currentTimeMillis() + ttlMs);
+
+        synchronized (this) {
+
+            if (key.metadataSeqNum != metadataSeqNum ||
+                writtenSince(key)) {
+                return;
+            }
+
+            final CacheEntry old = entries.put(key, entry);
+            if (old != null) {
+                usedBytes -= old.numBytes;
+            }
+            usedBytes += numBytes;
+
+            final Iterator<CacheEntry> iter = entries.values().iterator();
+            while (usedBytes > maxBytes && iter.hasNext()) {
+                final CacheEntry lru = iter.next();
+                usedBytes -= lru.numBytes;
+                iter.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the max number of bytes a single query result may occupy in
+     * the cache. Results that grow larger than this while they are being
+     * collected are not cached.
+     */
+    long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Invoked when the client receives a table metadata seqNum from an RN.
+     * If the seqNum is higher than the one seen so far, all the entries are
+     * dropped.
+     */
+    public synchronized void metadataChanged(int remoteSeqNum) {
+
+        if (remoteSeqNum <= metadataSeqNum) {
+            return;
+        }
+
+        metadataSeqNum = remoteSeqNum;
+        entries.clear();
+        usedBytes = 0;
+    }
+
+    /**
+     * Invoked when a write made through this store handle to the table with
+     * the given ID completes, successfully or not, since a failed write may
+     * still have been applied. Drops the entries of the queries that may
+     * access the table. A table ID of 0 means that the write may have
+     * modified any table, as is the case for writes made through the
+     * key/value API, and drops all the entries.
+     */
+    public synchronized void tableWritten(long tableId) {
+
+        ++writeSeqNum;
+
+        if (tableId == 0) {
+            anyTableWriteSeqNum = writeSeqNum;
+            tableWriteSeqNums.clear();
+            entries.clear();
+            usedBytes = 0;
+            return;
+        }
+
+        tableWriteSeqNums.put(tableId, writeSeqNum);
+
+        final Iterator<Map.Entry<CacheKey, CacheEntry>> iter =
+            entries.entrySet().iterator();
+        while (iter.hasNext()) {
+            final Map.Entry<CacheKey, CacheEntry> e = iter.next();
+            if (e.getKey().accessesTable(tableId)) {
+                usedBytes -= e.getValue().numBytes;
+                iter.remove();
+            }
+        }
+    }
+
+    /*
+     * Returns true if a local write that may affect the results of the query
+     * with the given key happened after the key was created.
+     */
+    private boolean writtenSince(CacheKey key) {
+
+        if (anyTableWriteSeqNum > key.writeSeqNum) {
+            return true;
+        }
+        if (key.tableIds == null) {
+            return writeSeqNum > key.writeSeqNum;
+        }
+        for (long tableId : key.tableIds) {
+            final Long seqNum = tableWriteSeqNums.get(tableId);
+            if (seqNum != null && seqNum > key.writeSeqNum) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public long getHits(boolean clear) {
+        return (clear ? hits.getAndSet(0) : hits.get());
+    }
+
+    public long getMisses(boolean clear) {
+        return (clear ? misses.getAndSet(0) : misses.get());
+    }
+
+    public long getSavedRequests(boolean clear) {
+        return (clear ? savedRequests.getAndSet(0) : savedRequests.get());
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Returns an estimate of the memory consumed by the given record when
+     * held in the cache.
+     */
+    static long estimateSize(FieldValue value) {
+
+        if (value == null || value.isNull() || value.isJsonNull()) {
+            return REF_SIZE;
+        }
+
+        switch (value.getType()) {
+        case STRING:
+            return OBJECT_OVERHEAD * 2 + 2L * value.asString().get().length();
+        case ENUM:
+            return OBJECT_OVERHEAD + REF_SIZE;
+        case BINARY:
+            return OBJECT_OVERHEAD * 2 + value.asBinary().get().length;
+        case FIXED_BINARY:
+            return OBJECT_OVERHEAD * 2 + value.asFixedBinary().get().length;
+        case NUMBER:
+            return OBJECT_OVERHEAD * 4;
+        case RECORD: {
+            final RecordValue rec = value.asRecord();
+            final int numFields = rec.getDefinition().getNumFields();
+            long size = OBJECT_OVERHEAD * 2 + (long) REF_SIZE * numFields;
+            for (int i = 0; i < numFields; ++i) {
+                size += estimateSize(rec.get(i));
+            }
+            return size;
+        }
+        case ARRAY: {
+            final ArrayValue arr = value.asArray();
+            long size = OBJECT_OVERHEAD * 3 + (long) REF_SIZE * arr.size();
+            for (int i = 0; i < arr.size(); ++i) {
+                size += estimateSize(arr.get(i));
+            }
+            return size;
+        }
+        case MAP: {
+            long size = OBJECT_OVERHEAD * 3;
+            for (Map.Entry<String, FieldValue> e :
+                     value.asMap().getFields().entrySet()) {
+                size += OBJECT_OVERHEAD * 2 + REF_SIZE * 3 +
+                        2L * e.getKey().length() +
+                        estimateSize(e.getValue());
+            }
+            return size;
+        }
+        default:
+            return OBJECT_OVERHEAD + REF_SIZE;
+        }
+    }
+
+    static final class CacheKey {
+
+        private final String queryText;
+
+        private final String namespace;
+
+        private final List<FieldValue> externalVars;
+
+        private final MathContext mathContext;
+
+        /*
+         * Not part of equals/hashCode. The IDs of the tables the query may
+         * access, or null if not known, used to drop the entry on local
+         * writes, and the metadata and write seqNums when the key was
+         * created, used to detect racing invalidation.
+         */
+        private final long[] tableIds;
+        private final int metadataSeqNum;
+        private final long writeSeqNum;
+
+        private CacheKey(String queryText,
+                         String namespace,
+                         long[] tableIds,
+                         FieldValue[] externalVars,
+                         MathContext mathContext,
+                         int metadataSeqNum,
+                         long writeSeqNum) {
+            this.queryText = queryText;
+            this.namespace = namespace;
+            this.tableIds = tableIds;
+            this.externalVars = (externalVars == null ?
+                                 Collections.<FieldValue>emptyList() :
+                                 Arrays.asList(externalVars.clone()));
+            this.mathContext = mathContext;
+            this.metadataSeqNum = metadataSeqNum;
+            this.writeSeqNum = writeSeqNum;
+        }
+
+        /*
+         * Returns true if the query may access the table with the given ID.
+         */
+        boolean accessesTable(long tableId) {
+            if (tableIds == null) {
+                return true;
+            }
+            for (long id : tableIds) {
+                if (id == tableId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((queryText.hashCode() * 31 +
+                     (namespace == null ? 0 : namespace.hashCode())) * 31 +
+                    externalVars.hashCode()) * 31 +
+                   (mathContext == null ? 0 : mathContext.hashCode());
+        }
+
+        @Override
+        public boolean equals(Object other) {
+
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof CacheKey)) {
+                return false;
+            }
+
+            final CacheKey o = (CacheKey) other;
+            return (queryText.equals(o.queryText) &&
+                    (namespace == null ?
+                     o.namespace == null :
+                     namespace.equals(o.namespace)) &&
+                    externalVars.equals(o.externalVars) &&
+                    (mathContext == null ?
+                     o.mathContext == null :
+                     mathContext.equals(o.mathContext)));
+        }
+    }
+
+    private static final class CacheEntry {
+
+        final List<RecordValue> results;
+
+        final long numBytes;
+
+        final int numRequests;
+
+        final long expirationTime;
+
+        CacheEntry(List<RecordValue> results,
+                   long numBytes,
+                   int numRequests,
+                   long expirationTime) {
+            this.results = results;
+            this.numBytes = numBytes;
+            this.numRequests = numRequests;
+            this.expirationTime = expirationTime;
+        }
+    }
+}
@@ -13,7 +13,9 @@
 
 package oracle.kv.impl.api.query;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Set;
@@ -22,6 +24,8 @@ import java.util.logging.Logger;
 import oracle.kv.AsyncExecutionHandle;
 import oracle.kv.FastExternalizableException;
 import oracle.kv.StatementResult;
+import oracle.kv.StoreIteratorException;
+import oracle.kv.impl.api.table.ColumnarBatch;
 import oracle.kv.impl.api.table.FieldValueImpl;
 import oracle.kv.impl.api.table.TableAPIImpl;
 import oracle.kv.impl.api.table.TupleValue;
@@ -30,6 +34,7 @@ import oracle.kv.impl.async.AsyncTableIterator;
 import oracle.kv.impl.query.QueryException;
 import oracle.kv.impl.query.QueryStateException;
 import oracle.kv.impl.query.runtime.PlanIter;
+import oracle.kv.impl.query.runtime.ReceiveIter;
 import oracle.kv.impl.query.runtime.RuntimeControlBlock;
 import oracle.kv.impl.topo.RepGroupId;
 import oracle.kv.query.ExecuteOptions;
@@ -50,8 +55,15 @@ public class QueryStatementResultImpl implements StatementResult {
 
     private final AsyncExecutionHandleImpl executionHandle;
 
+    /* The iterator over the results, null if they are returned in batches */
     private final QueryResultIterator iterator;
 
+    /*
+     * The iterator over the results in columnar batches, null unless the
+     * query asked for them and supports them.
+     */
+    private final ColumnarResultIterator columnarIterator;
+
     private boolean closed;
 
     public QueryStatementResultImpl(TableAPIImpl tableAPI,
@@ -114,13 +126,56 @@ public class QueryStatementResultImpl implements StatementResult {
             ps.getNumRegisters(),
             externalVars);
 
-        this.iterator = new QueryResultIterator(rcb, iter, resultDef);
+        /*
+         * If the query asked for columnar results and its plan returns the
+         * results of the RNs unchanged, iterate over the batches they send.
+         */
+        if (!async &&
+            options != null &&
+            options.getColumnarResults() &&
+            !ps.wrapResultInRecord() &&
+            iter instanceof ReceiveIter &&
+            ((ReceiveIter) iter).supportsColumnarIteration(rcb)) {
+
+            this.iterator = null;
+            this.columnarIterator =
+                new ColumnarResultIterator(rcb, (ReceiveIter) iter);
+            closed = false;
+            return;
+        }
+        columnarIterator = null;
+
+        /*
+         * If the query may use the result cache, look for its results there.
+         * On a miss, the iterator collects the results as they are returned
+         * and adds them to the cache if the query runs to completion.
+         */
+        final QueryResultCache cache = tableAPI.getQueryResultCache();
+        QueryResultCache.CacheKey cacheKey = null;
+        List<RecordValue> cachedResults = null;
+
+        if (cache != null && !async &&
+            QueryResultCache.isCacheable(
+                ps, options,
+                tableAPI.getStore().getDefaultConsistency(),
+                partitions, shards)) {
+            cacheKey = cache.makeKey(ps, externalVars, options);
+            cachedResults = cache.get(cacheKey);
+        }
+
+        this.iterator = new QueryResultIterator(rcb, iter, resultDef,
+                                                cache, cacheKey,
+                                                cachedResults);
         closed = false;
     }
 
     @Override
     public void close() {
-        iterator.close();
+        if (columnarIterator != null) {
+            columnarIterator.close();
+        } else {
+            iterator.close();
+        }
         closed = true;
     }
 
@@ -130,6 +185,9 @@ public class QueryStatementResultImpl implements StatementResult {
             throw new IllegalStateException("Statement result already closed.");
         }
 
+        if (columnarIterator != null) {
+            return statement.getResultDef();
+        }
         return iterator.getResultDef();
     }
 
@@ -147,9 +205,46 @@ public class QueryStatementResultImpl implements StatementResult {
             throw new IllegalStateException("Statement result already closed.");
         }
 
+        if (columnarIterator != null) {
+            return columnarIterator.rowIterator;
+        }
         return iterator;
     }
 
+    /**
+     * Returns whether the results are returned in columnar batches, which
+     * is the case if the query was executed with
+     * ExecuteOptions.setColumnarResults(true) and its results support it.
+     */
+    public boolean hasColumnarResults() {
+        return columnarIterator != null;
+    }
+
+    /**
+     * Returns an iterator over the results in the columnar batches sent by
+     * the servers. The columns of a batch are read with typed getters,
+     * without creating a record for each result. Either this iterator or
+     * the one returned by {@link #iterator} may be used, not both.
+     *
+     * @throws IllegalStateException if the results are not returned in
+     * columnar batches, see {@link #hasColumnarResults}, or the statement
+     * result is closed
+     */
+    public TableIterator<ColumnarBatch> columnarIterator() {
+
+        if (columnarIterator == null) {
+            throw new IllegalStateException(
+                "The results of the query are not returned in columnar " +
+                "batches");
+        }
+
+        if (closed) {
+            throw new IllegalStateException("Statement result already closed.");
+        }
+
+        return columnarIterator;
+    }
+
     public AsyncExecutionHandle getExecutionHandle() {
         return executionHandle;
     }
@@ -181,6 +276,9 @@ public class QueryStatementResultImpl implements StatementResult {
 
     @Override
     public boolean isDone() {
+        if (columnarIterator != null) {
+            return !columnarIterator.rowIterator.hasNext();
+        }
         return !iterator.hasNext();
     }
 
@@ -203,6 +301,9 @@ public class QueryStatementResultImpl implements StatementResult {
      * Returns the KB read during the execution of operation.
      */
     public int getReadKB() {
+        if (columnarIterator != null) {
+            return columnarIterator.rcb.getReadKB();
+        }
         return iterator.getReadKB();
     }
 
@@ -210,6 +311,9 @@ public class QueryStatementResultImpl implements StatementResult {
      * Returns the KB written during the execution of operation.
      */
     public int getWriteKB() {
+        if (columnarIterator != null) {
+            return columnarIterator.rcb.getWriteKB();
+        }
         return iterator.getWriteKB();
     }
 
@@ -217,6 +321,9 @@ public class QueryStatementResultImpl implements StatementResult {
      * Returns the continuation key for the next execution.
      */
     public byte[] getContinuationKey() {
+        if (columnarIterator != null) {
+            return columnarIterator.rcb.getContinuationKey();
+        }
         return iterator.getContinuationKey();
     }
 
@@ -230,15 +337,48 @@ public class QueryStatementResultImpl implements StatementResult {
         private boolean hasNext;
         private boolean hasNextLocal;
 
+        /*
+         * Non-null if the results are served from the result cache. The
+         * query plan is not opened in this case.
+         */
+        private final Iterator<RecordValue> cachedIter;
+
+        /*
+         * The result cache and the key under which the results are stored,
+         * if they are being collected for the cache. Set to null if the
+         * results turn out to be too large to cache.
+         */
+        private QueryResultCache cache;
+        private QueryResultCache.CacheKey cacheKey;
+        private List<RecordValue> collectedResults;
+        private long collectedBytes;
+
         QueryResultIterator(
             RuntimeControlBlock rcb,
             PlanIter iter,
-            RecordDef resultDef) {
+            RecordDef resultDef,
+            QueryResultCache cache,
+            QueryResultCache.CacheKey cacheKey,
+            List<RecordValue> cachedResults) {
 
             this.rcb = rcb;
             rootIter = iter;
             this.resultDef = resultDef;
 
+            if (cachedResults != null) {
+                cachedIter = cachedResults.iterator();
+                hasNext = cachedIter.hasNext();
+                return;
+            }
+
+            cachedIter = null;
+
+            if (cacheKey != null) {
+                this.cache = cache;
+                this.cacheKey = cacheKey;
+                collectedResults = new ArrayList<RecordValue>();
+            }
+
             if (executionHandle != null) {
 
                 /*
@@ -255,6 +395,9 @@ public class QueryStatementResultImpl implements StatementResult {
             try {
                 rootIter.open(rcb);
                 updateHasNext(executionHandle != null);
+                if (!hasNext) {
+                    addToCache();
+                }
             } catch (QueryStateException qse) {
                 /*
                  * Log the exception if a logger is available.
@@ -307,6 +450,12 @@ public class QueryStatementResultImpl implements StatementResult {
                 throw new NoSuchElementException();
             }
 
+            if (cachedIter != null) {
+                final RecordValue record = cachedIter.next();
+                hasNext = cachedIter.hasNext();
+                return record;
+            }
+
             return nextInternal(false /* localOnly */);
         }
 
@@ -349,8 +498,16 @@ public class QueryStatementResultImpl implements StatementResult {
                     record = (RecordValue)resVal;
                 }
 
+                if (collectedResults != null) {
+                    collect(record);
+                }
+
                 updateHasNext(localOnly);
 
+                if (!hasNext) {
+                    addToCache();
+                }
+
             } catch (QueryStateException qse) {
                 /*
                  * Log the exception if a logger is available.
@@ -368,13 +525,57 @@ public class QueryStatementResultImpl implements StatementResult {
             return record;
         }
 
+        /*
+         * Keeps a copy of the given result for the result cache, unless the
+         * collected results have outgrown the cache.
+         */
+        private void collect(RecordValue record) {
+
+            collectedBytes += QueryResultCache.estimateSize(record);
+
+            if (collectedBytes > cache.getMaxBytes()) {
+                collectedResults = null;
+                return;
+            }
+
+            collectedResults.add(record.clone());
+        }
+
+        /*
+         * Called when all the results have been returned. Adds the collected
+         * results, if any, to the result cache.
+         */
+        private void addToCache() {
+
+            if (collectedResults == null) {
+                return;
+            }
+
+            cache.put(cacheKey, collectedResults, collectedBytes,
+                      rcb.getNumRequests(),
+                      rcb.getExecuteOptions().getResultCacheTTL());
+            collectedResults = null;
+        }
+
         @Override
         public Throwable getCloseException() {
+            if (cachedIter != null) {
+                return null;
+            }
             return rootIter.getCloseException(rcb);
         }
 
         @Override
         public void close() {
+
+            /* Results of an incomplete execution must not be cached */
+            collectedResults = null;
+
+            if (cachedIter != null) {
+                hasNext = false;
+                return;
+            }
+
             if (!isClosed()) {
                 rootIter.close(rcb);
                 hasNext = false;
@@ -404,6 +605,9 @@ public class QueryStatementResultImpl implements StatementResult {
 
         @Override
         public boolean isClosed() {
+            if (cachedIter != null) {
+                return !hasNext;
+            }
             return rootIter.isDone(rcb);
         }
 
@@ -429,6 +633,137 @@ public class QueryStatementResultImpl implements StatementResult {
         }
     }
 
+    /**
+     * Iterates over the results of a query in the columnar batches sent by
+     * the RNs. The rows are also available through rowIterator, for callers
+     * of iterator(), which creates a record for each result.
+     */
+    private class ColumnarResultIterator
+            implements TableIterator<ColumnarBatch> {
+
+        private final RuntimeControlBlock rcb;
+
+        private final AsyncTableIterator<ColumnarBatch> batches;
+
+        private final TableIterator<RecordValue> rowIterator =
+            new ColumnarRowIterator();
+
+        ColumnarResultIterator(RuntimeControlBlock rcb, ReceiveIter iter) {
+            this.rcb = rcb;
+            try {
+                batches = iter.columnarIterator(rcb);
+            } catch (QueryStateException qse) {
+                throw new IllegalStateException(qse.toString());
+            } catch (QueryException qe) {
+                throw qe.getIllegalArgument();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                return batches.hasNext();
+            } catch (StoreIteratorException sie) {
+                throw convertException(sie);
+            }
+        }
+
+        @Override
+        public ColumnarBatch next() {
+            try {
+                return batches.next();
+            } catch (StoreIteratorException sie) {
+                throw convertException(sie);
+            }
+        }
+
+        /*
+         * Throws the cause of an exception thrown by the RNs, converting
+         * query exceptions as QueryResultIterator does.
+         */
+        private RuntimeException convertException(StoreIteratorException sie) {
+            final Throwable cause = sie.getCause();
+            if (cause instanceof QueryStateException) {
+                return new IllegalStateException(cause.toString());
+            }
+            if (cause instanceof QueryException) {
+                return ((QueryException) cause).getIllegalArgument();
+            }
+            if (cause instanceof RuntimeException) {
+                return (RuntimeException) cause;
+            }
+            return sie;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            batches.close();
+        }
+
+        @Override
+        public List<DetailedMetrics> getPartitionMetrics() {
+            return batches.getPartitionMetrics();
+        }
+
+        @Override
+        public List<DetailedMetrics> getShardMetrics() {
+            return batches.getShardMetrics();
+        }
+
+        /**
+         * Returns the rows of the batches as records.
+         */
+        private class ColumnarRowIterator
+                implements TableIterator<RecordValue> {
+
+            private ColumnarBatch batch;
+            private int row;
+
+            @Override
+            public boolean hasNext() {
+                return (batch != null && row < batch.getNumRows()) ||
+                    ColumnarResultIterator.this.hasNext();
+            }
+
+            @Override
+            public RecordValue next() {
+                if (batch == null || row >= batch.getNumRows()) {
+                    if (!ColumnarResultIterator.this.hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    batch = ColumnarResultIterator.this.next();
+                    row = 0;
+                }
+                return batch.getRow(row++);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void close() {
+                ColumnarResultIterator.this.close();
+            }
+
+            @Override
+            public List<DetailedMetrics> getPartitionMetrics() {
+                return ColumnarResultIterator.this.getPartitionMetrics();
+            }
+
+            @Override
+            public List<DetailedMetrics> getShardMetrics() {
+                return ColumnarResultIterator.this.getShardMetrics();
+            }
+        }
+    }
+
     private class AsyncExecutionHandleImpl
             extends AsyncIterationHandleImpl<RecordValue>
             implements AsyncExecutionHandle {
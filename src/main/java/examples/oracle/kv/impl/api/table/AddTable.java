@@ -38,6 +38,7 @@ class AddTable extends TableChange {
     private final ResourceOwner owner;
     private final boolean sysTable;
     private final TableLimits limits;
+    private final ValueCompression compression;
 
     AddTable(TableImpl table, int seqNum) {
         super(seqNum);
@@ -56,14 +57,17 @@ class AddTable extends TableChange {
         owner = table.getOwner();
         sysTable = table.isSystemTable();
         limits = (parent == null) ? table.getTableLimits() : null;
+        compression = table.getValueCompression();
     }
 
     @Override
     public boolean apply(TableMetadata md) {
-        md.insertTable(namespace, name, parentName,
-                       primaryKey, primaryKeySizes, shardKey, fields,
-                       ttl, limits, r2compat, schemaId, description, owner,
-                       sysTable);
+        final TableImpl table =
+            md.insertTable(namespace, name, parentName,
+                           primaryKey, primaryKeySizes, shardKey, fields,
+                           ttl, limits, r2compat, schemaId, description, owner,
+                           sysTable);
+        table.setValueCompression(compression);
         return true;
     }
 }
@@ -16,6 +16,7 @@ package oracle.kv.impl.api.table;
 import static oracle.kv.impl.api.table.TableJsonUtils.jsonParserGetDecimalValue;
 
 import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Reader;
 import java.io.StringReader;
 import java.math.BigDecimal;
@@ -96,9 +97,19 @@ public class ArrayValueImpl extends ComplexValueImpl
 
     private FieldDefImpl homogeneousType;
 
+    /*
+     * The elements of an array of INTEGER, LONG, FLOAT or DOUBLE, while they
+     * are stored in primitive form, else null. While it is set, array is
+     * empty. If a value that it cannot store is inserted, which can only
+     * happen through internal methods, the elements are moved to array. See
+     * PrimitiveArray.
+     */
+    private transient PrimitiveArray primitives;
+
     ArrayValueImpl(ArrayDef def) {
         super(def);
         array = new ArrayList<FieldValue>();
+        primitives = PrimitiveArray.create(getElementDef());
     }
 
     /* DPL */
@@ -114,7 +125,7 @@ public class ArrayValueImpl extends ComplexValueImpl
     @Override
     public ArrayValueImpl clone() {
         ArrayValueImpl newArray = new ArrayValueImpl(getDefinition());
-        for (FieldValue val : array) {
+        for (FieldValue val : list()) {
             newArray.add(val.clone());
         }
         newArray.homogeneousType = homogeneousType;
@@ -124,7 +135,7 @@ public class ArrayValueImpl extends ComplexValueImpl
     @Override
     public int hashCode() {
         int code = size();
-        for (FieldValue val : array) {
+        for (FieldValue val : list()) {
             code += val.hashCode();
         }
         return code;
@@ -218,23 +229,23 @@ public class ArrayValueImpl extends ComplexValueImpl
 
     @Override
     public FieldValueImpl get(int index) {
-        return (FieldValueImpl)array.get(index);
+        return (FieldValueImpl)list().get(index);
     }
 
     @Override
     public int size() {
-        return array.size();
+        return list().size();
     }
 
     @Override
     public List<FieldValue> toList() {
-        return Collections.unmodifiableList(array);
+        return Collections.unmodifiableList(list());
     }
 
     @Override
     public ArrayValue add(FieldValue value) {
         value = validate(value, getElementDef());
-        array.add(value);
+        listFor(value).add(value);
         trackHomogeneousType(value);
         return this;
     }
@@ -242,7 +253,7 @@ public class ArrayValueImpl extends ComplexValueImpl
     @Override
     public ArrayValue add(int index, FieldValue value) {
         value = validate(value, getElementDef());
-        array.add(index, value);
+        listFor(value).add(index, value);
         trackHomogeneousType(value);
         return this;
     }
@@ -250,7 +261,7 @@ public class ArrayValueImpl extends ComplexValueImpl
     @Override
     public ArrayValue set(int index, FieldValue value) {
         value = validate(value, getElementDef());
-        array.set(index, value);
+        listFor(value).set(index, value);
         trackHomogeneousType(value);
         return this;
     }
@@ -720,7 +731,7 @@ public class ArrayValueImpl extends ComplexValueImpl
     @Override
     public RecordValue setRecord(int index) {
         RecordValue val = getElementDef().createRecord();
-        array.set(index, val);
+        elements().set(index, val);
         clearHomogeneousType();
         return val;
     }
@@ -728,7 +739,7 @@ public class ArrayValueImpl extends ComplexValueImpl
     @Override
     public RecordValueImpl addRecord() {
         RecordValue val = getElementDef().createRecord();
-        array.add(val);
+        elements().add(val);
         clearHomogeneousType();
         return (RecordValueImpl) val;
     }
@@ -736,7 +747,7 @@ public class ArrayValueImpl extends ComplexValueImpl
     @Override
     public RecordValue addRecord(int index) {
         RecordValue val = getElementDef().createRecord();
-        array.add(index, val);
+        elements().add(index, val);
         clearHomogeneousType();
         return val;
     }
@@ -747,7 +758,7 @@ public class ArrayValueImpl extends ComplexValueImpl
     @Override
     public MapValue setMap(int index) {
         MapValue val = getElementDef().createMap();
-        array.set(index, val);
+        elements().set(index, val);
         clearHomogeneousType();
         return val;
     }
@@ -755,7 +766,7 @@ public class ArrayValueImpl extends ComplexValueImpl
     @Override
     public MapValueImpl addMap() {
         MapValue val = getElementDef().createMap();
-        array.add(val);
+        elements().add(val);
         clearHomogeneousType();
         return (MapValueImpl) val;
     }
@@ -763,7 +774,7 @@ public class ArrayValueImpl extends ComplexValueImpl
     @Override
     public MapValue addMap(int index) {
         MapValue val = getElementDef().createMap();
-        array.add(index, val);
+        elements().add(index, val);
         clearHomogeneousType();
         return val;
     }
@@ -774,7 +785,7 @@ public class ArrayValueImpl extends ComplexValueImpl
     @Override
     public ArrayValue setArray(int index) {
         ArrayValue val = getElementDef().createArray();
-        array.set(index, val);
+        elements().set(index, val);
         clearHomogeneousType();
         return val;
     }
@@ -782,7 +793,7 @@ public class ArrayValueImpl extends ComplexValueImpl
     @Override
     public ArrayValueImpl addArray() {
         ArrayValue val = getElementDef().createArray();
-        array.add(val);
+        elements().add(val);
         clearHomogeneousType();
         return (ArrayValueImpl) val;
     }
@@ -791,7 +802,7 @@ public class ArrayValueImpl extends ComplexValueImpl
     @Override
     public ArrayValue addArray(int index) {
         ArrayValue val = getElementDef().createArray();
-        array.add(index, val);
+        elements().add(index, val);
         clearHomogeneousType();
         return val;
     }
@@ -944,7 +955,7 @@ public class ArrayValueImpl extends ComplexValueImpl
                     break;
                 case JSON:
                 case ANY_JSON_ATOMIC:
-                    array.add(JsonDefImpl.createFromJson(jp, false));
+                    elements().add(JsonDefImpl.createFromJson(jp, false));
                     break;
                 case ANY:
                     throw new IllegalArgumentException(
@@ -1009,7 +1020,7 @@ public class ArrayValueImpl extends ComplexValueImpl
     @Override
     public JsonNode toJsonNode() {
         ArrayNode node = JsonNodeFactory.instance.arrayNode();
-        for (FieldValue value : array) {
+        for (FieldValue value : list()) {
             node.add(((FieldValueImpl)value).toJsonNode());
         }
         return node;
@@ -1018,11 +1029,12 @@ public class ArrayValueImpl extends ComplexValueImpl
     @Override
     public void toStringBuilder(StringBuilder sb) {
         sb.append('[');
-        for (int i = 0; i < array.size(); i++) {
+        final List<FieldValue> elements = list();
+        for (int i = 0; i < elements.size(); i++) {
             if (i > 0) {
                 sb.append(',');
             }
-            FieldValueImpl value = (FieldValueImpl)array.get(i);
+            FieldValueImpl value = (FieldValueImpl)elements.get(i);
             value.toStringBuilder(sb);
         }
         sb.append(']');
@@ -1055,11 +1067,11 @@ public class ArrayValueImpl extends ComplexValueImpl
      */
 
     public void clear() {
-        array.clear();
+        list().clear();
     }
 
     public void remove(int pos) {
-        array.remove(pos);
+        list().remove(pos);
     }
 
     /*
@@ -1072,7 +1084,7 @@ public class ArrayValueImpl extends ComplexValueImpl
             value = FieldDefImpl.doubleDef.createDouble(value.asFloat().get());
         }
         trackHomogeneousType(value);
-        array.add(value);
+        listFor(value).add(value);
         return this;
     }
 
@@ -1083,7 +1095,7 @@ public class ArrayValueImpl extends ComplexValueImpl
             value = FieldDefImpl.doubleDef.createDouble(value.asFloat().get());
         }
         trackHomogeneousType(value);
-        array.add(index, value);
+        listFor(value).add(index, value);
         return this;
     }
 
@@ -1094,14 +1106,58 @@ public class ArrayValueImpl extends ComplexValueImpl
             value = FieldDefImpl.doubleDef.createDouble(value.asFloat().get());
         }
         trackHomogeneousType(value);
-        array.set(index, value);
+        listFor(value).set(index, value);
         return this;
     }
 
     List<FieldValue> getArrayInternal() {
+        return elements();
+    }
+
+    /**
+     * Returns the elements in primitive form, or null if they are not
+     * stored in that form.
+     */
+    PrimitiveArray getPrimitives() {
+        return primitives;
+    }
+
+    /*
+     * Returns the elements, in whichever form they are stored.
+     */
+    private List<FieldValue> list() {
+        return (primitives != null) ? primitives : array;
+    }
+
+    /*
+     * Returns the list that the value can be inserted into, moving the
+     * elements out of primitive form if it cannot store the value.
+     */
+    private List<FieldValue> listFor(FieldValue value) {
+        if (primitives != null && primitives.accepts(value)) {
+            return primitives;
+        }
+        return elements();
+    }
+
+    /*
+     * Returns the elements as a list of values, moving them out of
+     * primitive form if needed.
+     */
+    private List<FieldValue> elements() {
+        if (primitives != null) {
+            array.ensureCapacity(primitives.size());
+            array.addAll(primitives);
+            primitives = null;
+        }
         return array;
     }
 
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        elements();
+        out.defaultWriteObject();
+    }
+
     public FieldDefImpl getElementDef() {
         return ((ArrayDefImpl)fieldDef).getElement();
     }
@@ -1119,7 +1175,7 @@ public class ArrayValueImpl extends ComplexValueImpl
     }
 
     public void addInternal(FieldValue value) {
-        array.add(value);
+        listFor(value).add(value);
     }
 
     /**
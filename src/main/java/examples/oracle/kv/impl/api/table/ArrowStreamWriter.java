@@ -0,0 +1,791 @@
+/*-
+ * Copyright (C) 2011, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This file was distributed by Oracle as part of a version of Oracle NoSQL
+ * Database made available at:
+ *
+ * http://www.oracle.com/technetwork/database/database-technologies/nosqldb/downloads/index.html
+ *
+ * Please see the LICENSE file included in the top-level directory of the
+ * appropriate version of Oracle NoSQL Database for a copy of the license and
+ * additional information.
+ */
+
+package oracle.kv.impl.api.table;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes rows of columns as record batches in the Arrow IPC streaming
+ * format, without depending on the Arrow libraries, so that the output can
+ * be read by any Arrow implementation, and converted to Parquet or other
+ * formats by the tools that support Arrow.
+ *
+ * The values of each column are kept in direct ByteBuffers with the Arrow
+ * memory layout: a validity bitmap, an int32 offsets buffer for variable
+ * length types, and a data buffer. A batch is written by writing its
+ * metadata, which is encoded with FlatBuffers as specified by the Arrow
+ * format, followed by the buffers themselves, so writing a batch to a
+ * FileChannel does not copy the data. The buffers are reused by the next
+ * batch.
+ *
+ * The values of a row are set with the setX methods of the columns, and
+ * the row is added to the batch with {@link #endRow}, which sets the
+ * columns that were not set to null, or discarded with {@link #abortRow}.
+ * Every column is nullable, and only flat columns are supported.
+ *
+ * The stream consists of the schema message, one message per batch, and an
+ * end-of-stream marker written by {@link #finish}. Instances are not thread
+ * safe.
+ */
+public class ArrowStreamWriter {
+
+    /**
+     * The types of columns. The timestamp types store the time since the
+     * Java epoch, in UTC, in the unit of the type.
+     */
+    public enum ColumnType {
+        INT32, INT64, FLOAT32, FLOAT64, BOOL, UTF8, BINARY,
+        TIMESTAMP_SECOND, TIMESTAMP_MILLI, TIMESTAMP_MICRO, TIMESTAMP_NANO;
+
+        boolean isVariableLength() {
+            return this == UTF8 || this == BINARY;
+        }
+
+        /* Returns the size of a value, or 0 for bit-packed and variable */
+        int getWidth() {
+            switch (this) {
+            case INT32:
+            case FLOAT32:
+                return 4;
+            case INT64:
+            case FLOAT64:
+            case TIMESTAMP_SECOND:
+            case TIMESTAMP_MILLI:
+            case TIMESTAMP_MICRO:
+            case TIMESTAMP_NANO:
+                return 8;
+            default:
+                return 0;
+            }
+        }
+    }
+
+    /* The continuation marker that precedes each message */
+    private static final int CONTINUATION = 0xffffffff;
+
+    /* Values of the MetadataVersion and MessageHeader enums */
+    private static final short METADATA_V5 = 4;
+    private static final byte HEADER_SCHEMA = 1;
+    private static final byte HEADER_RECORD_BATCH = 3;
+
+    /* Values of the Type union */
+    private static final byte TYPE_INT = 2;
+    private static final byte TYPE_FLOATING_POINT = 3;
+    private static final byte TYPE_BINARY = 4;
+    private static final byte TYPE_UTF8 = 5;
+    private static final byte TYPE_BOOL = 6;
+    private static final byte TYPE_TIMESTAMP = 10;
+
+    /* Values of the Precision and TimeUnit enums */
+    private static final short PRECISION_SINGLE = 1;
+    private static final short PRECISION_DOUBLE = 2;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final ByteBuffer PADDING =
+        ByteBuffer.allocate(8).asReadOnlyBuffer();
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final WritableByteChannel channel;
+
+    private final Column[] columns;
+
+    private int numRows;
+
+    private boolean wroteSchema;
+
+    private long bytesWritten;
+
+    /**
+     * Creates a writer for columns with the specified names and types.
+     */
+    public ArrowStreamWriter(WritableByteChannel channel,
+                             List<String> names,
+                             List<ColumnType> types) {
+        if (names.size() != types.size()) {
+            throw new IllegalArgumentException(
+                "The number of names and types of the columns differ");
+        }
+        this.channel = channel;
+        columns = new Column[names.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new Column(this, names.get(i), types.get(i));
+        }
+    }
+
+    public int getNumColumns() {
+        return columns.length;
+    }
+
+    public Column getColumn(int pos) {
+        return columns[pos];
+    }
+
+    /**
+     * Returns the number of rows in the current batch.
+     */
+    public int getNumRows() {
+        return numRows;
+    }
+
+    /**
+     * Returns the number of bytes written so far.
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Adds the row whose values were set to the current batch.
+     */
+    public void endRow() {
+        for (Column column : columns) {
+            column.endRow();
+        }
+        numRows++;
+    }
+
+    /**
+     * Discards the values set for the row.
+     */
+    public void abortRow() {
+        for (Column column : columns) {
+            column.isSet = false;
+        }
+    }
+
+    /**
+     * Writes the rows of the current batch, if any, preceded by the schema
+     * if it has not been written, and starts a new batch.
+     */
+    public void writeBatch() throws IOException {
+        writeSchema();
+        if (numRows == 0) {
+            return;
+        }
+
+        /* Lay out the buffers of the body */
+        final List<ByteBuffer> buffers = new ArrayList<ByteBuffer>();
+        for (Column column : columns) {
+            column.addBuffers(buffers);
+        }
+        final ByteBuffer nodes = newBuffer(16 * columns.length);
+        for (Column column : columns) {
+            nodes.putLong(numRows).putLong(column.nullCount);
+        }
+        final ByteBuffer bufferDescs = newBuffer(16 * buffers.size());
+        long bodyLength = 0;
+        for (ByteBuffer buffer : buffers) {
+            bufferDescs.putLong(bodyLength).putLong(buffer.remaining());
+            bodyLength += align8(buffer.remaining());
+        }
+
+        final Table recordBatch = new Table(3)
+            .putLong(0, numRows)
+            .putOffset(1, new StructVector(nodes.array(), columns.length))
+            .putOffset(2, new StructVector(bufferDescs.array(),
+                                           buffers.size()));
+        writeMessage(HEADER_RECORD_BATCH, recordBatch, bodyLength);
+        for (ByteBuffer buffer : buffers) {
+            final int length = buffer.remaining();
+            write(buffer);
+            writePadding(length);
+        }
+
+        for (Column column : columns) {
+            column.clear();
+        }
+        numRows = 0;
+    }
+
+    /**
+     * Writes the current batch, if any, and the end-of-stream marker. The
+     * channel is not closed.
+     */
+    public void finish() throws IOException {
+        writeBatch();
+        final ByteBuffer eos = newBuffer(8);
+        eos.putInt(CONTINUATION).putInt(0);
+        eos.flip();
+        write(eos);
+    }
+
+    private void writeSchema() throws IOException {
+        if (wroteSchema) {
+            return;
+        }
+        final Node[] fields = new Node[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            fields[i] = columns[i].getFieldNode();
+        }
+        final Table schema = new Table(2)
+            .putShort(0, (short) 0 /* little endian */)
+            .putOffset(1, new TableVector(fields));
+        writeMessage(HEADER_SCHEMA, schema, 0);
+        wroteSchema = true;
+    }
+
+    /*
+     * Writes an encapsulated message: the continuation marker, the size of
+     * the metadata, and the metadata, a Message flatbuffer, padded so that
+     * the body that follows is aligned on 8 bytes.
+     */
+    private void writeMessage(byte headerType, Table header, long bodyLength)
+        throws IOException {
+
+        final Table message = new Table(4)
+            .putShort(0, METADATA_V5)
+            .putByte(1, headerType)
+            .putOffset(2, header)
+            .putLong(3, bodyLength);
+        final byte[] metadata = FlatBuffer.finish(message);
+        final int metadataLength = align8(metadata.length);
+        final ByteBuffer prefix = newBuffer(8);
+        prefix.putInt(CONTINUATION).putInt(metadataLength);
+        prefix.flip();
+        write(prefix);
+        write(ByteBuffer.wrap(metadata));
+        writePadding(metadata.length);
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            bytesWritten += channel.write(buffer);
+        }
+    }
+
+    private void writePadding(int length) throws IOException {
+        final int padding = align8(length) - length;
+        if (padding > 0) {
+            final ByteBuffer buffer = PADDING.duplicate();
+            buffer.limit(padding);
+            write(buffer);
+        }
+    }
+
+    private static int align8(int length) {
+        return (length + 7) & ~7;
+    }
+
+    private static long align8(long length) {
+        return (length + 7) & ~7L;
+    }
+
+    private static ByteBuffer newBuffer(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * A column of the current batch.
+     */
+    public static class Column {
+
+        private final ArrowStreamWriter writer;
+
+        private final String name;
+
+        private final ColumnType type;
+
+        /* The validity bitmap, a bit is set if the value is not null */
+        private ByteBuffer validity;
+
+        /* The int32 offsets of variable length values */
+        private ByteBuffer offsets;
+
+        /* The values, bit-packed for BOOL */
+        private ByteBuffer data;
+
+        /* The end of the variable length value of the current row */
+        private int pendingEnd;
+
+        /* Whether the value of the current row was set */
+        private boolean isSet;
+
+        private int nullCount;
+
+        private Column(ArrowStreamWriter writer,
+                       String name,
+                       ColumnType type) {
+            this.writer = writer;
+            this.name = name;
+            this.type = type;
+            validity = allocate(INITIAL_CAPACITY / 8);
+            data = allocate(INITIAL_CAPACITY);
+            if (type.isVariableLength()) {
+                offsets = allocate(INITIAL_CAPACITY);
+                offsets.putInt(0, 0);
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public ColumnType getType() {
+            return type;
+        }
+
+        public void setInt(int value) {
+            checkType(ColumnType.INT32);
+            data = ensureCapacity(data, (row() + 1) * 4);
+            data.putInt(row() * 4, value);
+            isSet = true;
+        }
+
+        /**
+         * Sets the value of an INT64 or timestamp column.
+         */
+        public void setLong(long value) {
+            if (type.getWidth() != 8 || type == ColumnType.FLOAT64) {
+                throw new IllegalStateException(
+                    "Column " + name + " of type " + type +
+                    " cannot be set to a long");
+            }
+            data = ensureCapacity(data, (row() + 1) * 8);
+            data.putLong(row() * 8, value);
+            isSet = true;
+        }
+
+        public void setFloat(float value) {
+            checkType(ColumnType.FLOAT32);
+            data = ensureCapacity(data, (row() + 1) * 4);
+            data.putFloat(row() * 4, value);
+            isSet = true;
+        }
+
+        public void setDouble(double value) {
+            checkType(ColumnType.FLOAT64);
+            data = ensureCapacity(data, (row() + 1) * 8);
+            data.putDouble(row() * 8, value);
+            isSet = true;
+        }
+
+        public void setBoolean(boolean value) {
+            checkType(ColumnType.BOOL);
+            data = ensureCapacity(data, row() / 8 + 1);
+            setBit(data, row(), value);
+            isSet = true;
+        }
+
+        public void setString(String value) {
+            checkType(ColumnType.UTF8);
+            setVariable(value.getBytes(UTF8));
+        }
+
+        /**
+         * Sets the value of a UTF8 or BINARY column. The bytes of a UTF8
+         * value must be valid UTF-8.
+         */
+        public void setBytes(byte[] value) {
+            if (!type.isVariableLength()) {
+                throw new IllegalStateException(
+                    "Column " + name + " of type " + type +
+                    " cannot be set to bytes");
+            }
+            setVariable(value);
+        }
+
+        public void setNull() {
+            isSet = false;
+        }
+
+        private void setVariable(byte[] value) {
+            final int start = offsets.getInt(row() * 4);
+            data = ensureCapacity(data, start + value.length);
+            final ByteBuffer target = data.duplicate();
+            target.position(start);
+            target.put(value);
+            pendingEnd = start + value.length;
+            isSet = true;
+        }
+
+        private int row() {
+            return writer.numRows;
+        }
+
+        private void checkType(ColumnType expected) {
+            if (type != expected) {
+                throw new IllegalStateException(
+                    "Column " + name + " of type " + type +
+                    " cannot be set to a value of type " + expected);
+            }
+        }
+
+        private void endRow() {
+            final int row = row();
+            validity = ensureCapacity(validity, row / 8 + 1);
+            setBit(validity, row, isSet);
+            if (!isSet) {
+                nullCount++;
+                if (type.getWidth() > 0) {
+                    data = ensureCapacity(data, (row + 1) * type.getWidth());
+                } else if (type == ColumnType.BOOL) {
+                    data = ensureCapacity(data, row / 8 + 1);
+                    setBit(data, row, false);
+                }
+            }
+            if (type.isVariableLength()) {
+                offsets = ensureCapacity(offsets, (row + 2) * 4);
+                offsets.putInt((row + 1) * 4,
+                               isSet ? pendingEnd : offsets.getInt(row * 4));
+            }
+            isSet = false;
+        }
+
+        /*
+         * Adds the buffers of the column, in the order of the Arrow layout
+         * of the type. The validity bitmap is omitted if there are no nulls.
+         */
+        private void addBuffers(List<ByteBuffer> buffers) {
+            final int numRows = row();
+            buffers.add(slice(validity,
+                              (nullCount > 0) ? (numRows + 7) / 8 : 0));
+            if (type.isVariableLength()) {
+                buffers.add(slice(offsets, (numRows + 1) * 4));
+                buffers.add(slice(data, offsets.getInt(numRows * 4)));
+            } else if (type == ColumnType.BOOL) {
+                buffers.add(slice(data, (numRows + 7) / 8));
+            } else {
+                buffers.add(slice(data, numRows * type.getWidth()));
+            }
+        }
+
+        private void clear() {
+            nullCount = 0;
+            isSet = false;
+        }
+
+        /*
+         * Returns the Field table that describes the column in the schema.
+         */
+        private Node getFieldNode() {
+            final byte typeType;
+            final Table typeTable;
+            switch (type) {
+            case INT32:
+            case INT64:
+                typeType = TYPE_INT;
+                typeTable = new Table(2)
+                    .putInt(0, (type == ColumnType.INT32) ? 32 : 64)
+                    .putBoolean(1, true);
+                break;
+            case FLOAT32:
+            case FLOAT64:
+                typeType = TYPE_FLOATING_POINT;
+                typeTable = new Table(1)
+                    .putShort(0, (type == ColumnType.FLOAT32) ?
+                              PRECISION_SINGLE : PRECISION_DOUBLE);
+                break;
+            case BOOL:
+                typeType = TYPE_BOOL;
+                typeTable = new Table(0);
+                break;
+            case UTF8:
+                typeType = TYPE_UTF8;
+                typeTable = new Table(0);
+                break;
+            case BINARY:
+                typeType = TYPE_BINARY;
+                typeTable = new Table(0);
+                break;
+            default:
+                typeType = TYPE_TIMESTAMP;
+                typeTable = new Table(2)
+                    .putShort(0, (short) (type.ordinal() -
+                                          ColumnType.TIMESTAMP_SECOND.
+                                          ordinal()))
+                    .putOffset(1, new StringNode("UTC"));
+                break;
+            }
+            return new Table(6)
+                .putOffset(0, new StringNode(name))
+                .putBoolean(1, true)
+                .putByte(2, typeType)
+                .putOffset(3, typeTable)
+                .putOffset(5, new TableVector(new Node[0]));
+        }
+
+        private static ByteBuffer allocate(int capacity) {
+            return ByteBuffer.allocateDirect(capacity)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        private static ByteBuffer ensureCapacity(ByteBuffer buffer,
+                                                 int capacity) {
+            if (capacity <= buffer.capacity()) {
+                return buffer;
+            }
+            final ByteBuffer newBuffer =
+                allocate(Math.max(capacity, buffer.capacity() * 2));
+            final ByteBuffer source = buffer.duplicate();
+            source.clear();
+            newBuffer.put(source);
+            newBuffer.clear();
+            return newBuffer;
+        }
+
+        private static ByteBuffer slice(ByteBuffer buffer, int length) {
+            final ByteBuffer result = buffer.duplicate();
+            result.clear();
+            result.limit(length);
+            return result;
+        }
+
+        private static void setBit(ByteBuffer bitmap, int bit, boolean set) {
+            final int index = bit >>> 3;
+            final int mask = 1 << (bit & 7);
+            final int b = bitmap.get(index);
+            bitmap.put(index, (byte) (set ? (b | mask) : (b & ~mask)));
+        }
+    }
+
+    /*
+     * A minimal FlatBuffers encoder for the Arrow metadata. The objects are
+     * laid out front to back, each table followed by the objects it refers
+     * to, so that all offsets point forward, as FlatBuffers requires.
+     */
+
+    /**
+     * An object of a flatbuffer.
+     */
+    private static abstract class Node {
+
+        /* Writes the object and returns the position offsets refer to */
+        abstract int write(FlatBuffer fb);
+    }
+
+    /**
+     * A table with scalar fields and offsets to other objects.
+     */
+    private static class Table extends Node {
+
+        /* The size and value of the scalar fields, or the referenced node */
+        private final int[] sizes;
+        private final long[] scalars;
+        private final Node[] children;
+
+        Table(int numFields) {
+            sizes = new int[numFields];
+            scalars = new long[numFields];
+            children = new Node[numFields];
+        }
+
+        Table putBoolean(int id, boolean value) {
+            return put(id, 1, value ? 1 : 0);
+        }
+
+        Table putByte(int id, byte value) {
+            return put(id, 1, value);
+        }
+
+        Table putShort(int id, short value) {
+            return put(id, 2, value);
+        }
+
+        Table putInt(int id, int value) {
+            return put(id, 4, value);
+        }
+
+        Table putLong(int id, long value) {
+            return put(id, 8, value);
+        }
+
+        Table putOffset(int id, Node child) {
+            sizes[id] = 4;
+            children[id] = child;
+            return this;
+        }
+
+        private Table put(int id, int size, long value) {
+            sizes[id] = size;
+            scalars[id] = value;
+            return this;
+        }
+
+        @Override
+        int write(FlatBuffer fb) {
+            final int numFields = sizes.length;
+
+            /* The vtable precedes the table */
+            fb.align(2);
+            final int vtablePos = fb.reserve(4 + 2 * numFields);
+
+            /* Lay out the fields by decreasing size, so they are aligned */
+            fb.align(8);
+            final int tablePos = fb.reserve(4);
+            final int[] fieldPos = new int[numFields];
+            for (int size = 8; size >= 1; size /= 2) {
+                for (int id = 0; id < numFields; id++) {
+                    if (sizes[id] != size) {
+                        continue;
+                    }
+                    fb.align(size);
+                    fieldPos[id] = fb.reserve(size);
+                    if (children[id] == null) {
+                        fb.putScalar(fieldPos[id], size, scalars[id]);
+                    }
+                }
+            }
+            final int tableSize = fb.position() - tablePos;
+
+            fb.putScalar(vtablePos, 2, 4 + 2 * numFields);
+            fb.putScalar(vtablePos + 2, 2, tableSize);
+            for (int id = 0; id < numFields; id++) {
+                fb.putScalar(vtablePos + 4 + 2 * id, 2,
+                             (sizes[id] == 0) ? 0 : fieldPos[id] - tablePos);
+            }
+            fb.putScalar(tablePos, 4, tablePos - vtablePos);
+
+            for (int id = 0; id < numFields; id++) {
+                if (children[id] != null) {
+                    final int childPos = children[id].write(fb);
+                    fb.putScalar(fieldPos[id], 4, childPos - fieldPos[id]);
+                }
+            }
+            return tablePos;
+        }
+    }
+
+    /**
+     * A string.
+     */
+    private static class StringNode extends Node {
+
+        private final byte[] bytes;
+
+        StringNode(String value) {
+            bytes = value.getBytes(UTF8);
+        }
+
+        @Override
+        int write(FlatBuffer fb) {
+            fb.align(4);
+            final int pos = fb.reserve(4 + bytes.length + 1);
+            fb.putScalar(pos, 4, bytes.length);
+            fb.putBytes(pos + 4, bytes);
+            return pos;
+        }
+    }
+
+    /**
+     * A vector of tables.
+     */
+    private static class TableVector extends Node {
+
+        private final Node[] elements;
+
+        TableVector(Node[] elements) {
+            this.elements = elements;
+        }
+
+        @Override
+        int write(FlatBuffer fb) {
+            fb.align(4);
+            final int pos = fb.reserve(4 + 4 * elements.length);
+            fb.putScalar(pos, 4, elements.length);
+            for (int i = 0; i < elements.length; i++) {
+                final int elementPos = pos + 4 + 4 * i;
+                fb.putScalar(elementPos, 4,
+                             elements[i].write(fb) - elementPos);
+            }
+            return pos;
+        }
+    }
+
+    /**
+     * A vector of structs whose fields are longs, stored as little endian
+     * bytes.
+     */
+    private static class StructVector extends Node {
+
+        private final byte[] bytes;
+
+        private final int length;
+
+        StructVector(byte[] bytes, int length) {
+            this.bytes = bytes;
+            this.length = length;
+        }
+
+        @Override
+        int write(FlatBuffer fb) {
+
+            /* The elements follow the length and are aligned on 8 bytes */
+            fb.align(8);
+            fb.reserve(4);
+            final int pos = fb.reserve(4);
+            fb.putScalar(pos, 4, length);
+            fb.putBytes(fb.reserve(bytes.length), bytes);
+            return pos;
+        }
+    }
+
+    /**
+     * The bytes of a flatbuffer being written.
+     */
+    private static class FlatBuffer {
+
+        private byte[] bytes = new byte[256];
+
+        private int position;
+
+        /**
+         * Returns the bytes of a flatbuffer whose root is the table.
+         */
+        static byte[] finish(Table root) {
+            final FlatBuffer fb = new FlatBuffer();
+            fb.reserve(4);
+            fb.putScalar(0, 4, root.write(fb));
+            return Arrays.copyOf(fb.bytes, fb.position);
+        }
+
+        int position() {
+            return position;
+        }
+
+        void align(int alignment) {
+            reserve((alignment - (position % alignment)) % alignment);
+        }
+
+        /* Reserves zeroed space and returns its position */
+        int reserve(int length) {
+            final int pos = position;
+            if (pos + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes,
+                                      Math.max(pos + length, bytes.length * 2));
+            }
+            position += length;
+            return pos;
+        }
+
+        /* Stores a little endian scalar */
+        void putScalar(int pos, int size, long value) {
+            for (int i = 0; i < size; i++) {
+                bytes[pos + i] = (byte) (value >>> (8 * i));
+            }
+        }
+
+        void putBytes(int pos, byte[] value) {
+            System.arraycopy(value, 0, bytes, pos, value.length);
+        }
+    }
+}
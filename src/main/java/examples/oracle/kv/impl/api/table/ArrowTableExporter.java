@@ -0,0 +1,492 @@
+/*-
+ * Copyright (C) 2011, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This file was distributed by Oracle as part of a version of Oracle NoSQL
+ * Database made available at:
+ *
+ * http://www.oracle.com/technetwork/database/database-technologies/nosqldb/downloads/index.html
+ *
+ * Please see the LICENSE file included in the top-level directory of the
+ * appropriate version of Oracle NoSQL Database for a copy of the license and
+ * additional information.
+ */
+
+package oracle.kv.impl.api.table;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import oracle.kv.Version;
+import oracle.kv.impl.api.table.ArrowStreamWriter.Column;
+import oracle.kv.impl.api.table.ArrowStreamWriter.ColumnType;
+import oracle.kv.table.FieldDef;
+import oracle.kv.table.PrimaryKey;
+import oracle.kv.table.Table;
+import oracle.kv.table.TableIterator;
+import oracle.kv.table.TableIteratorOptions;
+
+/**
+ * Exports the rows of a table, or of a range of its primary keys, as a
+ * stream of Arrow record batches, with one column per field of the table,
+ * for use by analytics tools that read Arrow or convert it to Parquet.
+ *
+ * The rows are read by a table iterator that decodes them directly into the
+ * column buffers of an {@link ArrowStreamWriter}, so no Row is created, and
+ * the scan is parallelized across the partitions as specified by the
+ * maxConcurrentRequests of the TableIteratorOptions. A batch is written
+ * each time batchRows rows have been read.
+ *
+ * The fields are exported with the following Arrow types:
+ * <ul>
+ * <li>INTEGER, LONG, FLOAT, DOUBLE and BOOLEAN as Int(32), Int(64),
+ * FloatingPoint(SINGLE), FloatingPoint(DOUBLE) and Bool</li>
+ * <li>STRING and ENUM as Utf8, the value of an ENUM being its symbol</li>
+ * <li>BINARY and FIXED_BINARY as Binary</li>
+ * <li>TIMESTAMP as a UTC Timestamp in seconds, milliseconds, microseconds or
+ * nanoseconds, depending on the precision of the field. The export fails
+ * if a timestamp does not fit in its column, which is only possible for
+ * nanoseconds, whose range is from 1677 to 2262</li>
+ * <li>NUMBER as Utf8, the decimal representation of the value</li>
+ * <li>RECORD, MAP, ARRAY and JSON as Utf8, the JSON representation of the
+ * value</li>
+ * </ul>
+ * All columns are nullable. Instances may be used for multiple exports,
+ * but not concurrently.
+ */
+public class ArrowTableExporter {
+
+    /** The default number of rows of a record batch. */
+    public static final int DEFAULT_BATCH_ROWS = 64 * 1024;
+
+    private final TableAPIImpl tableAPI;
+
+    private final TableImpl table;
+
+    private final int batchRows;
+
+    public ArrowTableExporter(TableAPIImpl tableAPI, Table table) {
+        this(tableAPI, table, DEFAULT_BATCH_ROWS);
+    }
+
+    public ArrowTableExporter(TableAPIImpl tableAPI,
+                              Table table,
+                              int batchRows) {
+        if (batchRows <= 0) {
+            throw new IllegalArgumentException(
+                "Batch rows must be positive: " + batchRows);
+        }
+        this.tableAPI = tableAPI;
+        this.table = (TableImpl) table;
+        this.batchRows = batchRows;
+    }
+
+    /**
+     * Writes the rows that match the key, or all the rows of the table if
+     * the key is null, to the channel, as an Arrow IPC stream. The channel
+     * is not closed.
+     *
+     * @return the number of rows written
+     */
+    public long export(PrimaryKey key,
+                       TableIteratorOptions iterateOptions,
+                       WritableByteChannel channel)
+        throws IOException {
+
+        if (key == null) {
+            key = table.createPrimaryKey();
+        } else if (!key.getTable().getFullName().equals(
+                       table.getFullName())) {
+            throw new IllegalArgumentException(
+                "The key is not a key of table " + table.getFullName());
+        }
+
+        final RecordDefImpl rowDef = table.getRowDef();
+        final List<String> names = new ArrayList<String>();
+        final List<ColumnType> types = new ArrayList<ColumnType>();
+        for (int pos = 0; pos < rowDef.getNumFields(); pos++) {
+            names.add(rowDef.getFieldName(pos));
+            types.add(getColumnType(rowDef.getFieldDef(pos)));
+        }
+        final ArrowStreamWriter writer =
+            new ArrowStreamWriter(channel, names, types);
+
+        final ColumnReader reader = new ColumnReader(writer, rowDef);
+        final TableIterator<Void> iter =
+            tableAPI.tableReaderIterator(key, null, iterateOptions, reader);
+        long numRows = 0;
+        try {
+            while (iter.hasNext()) {
+                iter.next();
+                writer.endRow();
+                numRows++;
+                if (writer.getNumRows() >= batchRows) {
+                    writer.writeBatch();
+                }
+            }
+        } finally {
+            iter.close();
+        }
+        writer.finish();
+        return numRows;
+    }
+
+    /**
+     * Returns the type of the column of a field, see the class comment.
+     */
+    static ColumnType getColumnType(FieldDef def) {
+        switch (def.getType()) {
+        case INTEGER:
+            return ColumnType.INT32;
+        case LONG:
+            return ColumnType.INT64;
+        case FLOAT:
+            return ColumnType.FLOAT32;
+        case DOUBLE:
+            return ColumnType.FLOAT64;
+        case BOOLEAN:
+            return ColumnType.BOOL;
+        case BINARY:
+        case FIXED_BINARY:
+            return ColumnType.BINARY;
+        case TIMESTAMP:
+            final int precision = def.asTimestamp().getPrecision();
+            if (precision == 0) {
+                return ColumnType.TIMESTAMP_SECOND;
+            } else if (precision <= 3) {
+                return ColumnType.TIMESTAMP_MILLI;
+            } else if (precision <= 6) {
+                return ColumnType.TIMESTAMP_MICRO;
+            }
+            return ColumnType.TIMESTAMP_NANO;
+        default:
+            return ColumnType.UTF8;
+        }
+    }
+
+    /**
+     * Returns the value of a timestamp in the unit of its column type.
+     *
+     * @throws IllegalArgumentException if the value does not fit in a long,
+     * which is the case for nanosecond timestamps before 1677 or after 2262
+     */
+    static long getTimestampValue(ColumnType type, Timestamp ts) {
+        final long seconds = TimestampUtils.getSeconds(ts);
+        final int nanos = ts.getNanos();
+        try {
+            switch (type) {
+            case TIMESTAMP_SECOND:
+                return seconds;
+            case TIMESTAMP_MILLI:
+                return Math.addExact(Math.multiplyExact(seconds, 1000L),
+                                     nanos / 1000000);
+            case TIMESTAMP_MICRO:
+                return Math.addExact(Math.multiplyExact(seconds, 1000000L),
+                                     nanos / 1000);
+            default:
+                return Math.addExact(
+                    Math.multiplyExact(seconds, 1000000000L), nanos);
+            }
+        } catch (ArithmeticException ae) {
+            throw new IllegalArgumentException(
+                "Timestamp " + ts.toInstant() +
+                " is out of the range of an Arrow " + type + " column", ae);
+        }
+    }
+
+    /**
+     * A ValueReader that sets the values of the fields of a row in the
+     * columns of the writer. The values of the fields exported as JSON
+     * text, and the nested values they contain, are read by a
+     * FieldValueReaderImpl, and the resulting value is converted to JSON
+     * when it is complete. The row is added to the batch by the caller,
+     * after the iterator has returned it, and the values of a row that is
+     * read but not returned are discarded by reset.
+     */
+    private class ColumnReader implements ValueReader<Void> {
+
+        private final ArrowStreamWriter writer;
+
+        /* The columns of the fields exported with their own types */
+        private final Map<String, Column> columns =
+            new HashMap<String, Column>();
+
+        /* The columns of the fields exported as JSON text */
+        private final Map<String, Column> jsonColumns =
+            new HashMap<String, Column>();
+
+        /* Reads the value of the column exported as JSON text */
+        private final FieldValueReaderImpl<FieldValueImpl> jsonReader =
+            new FieldValueReaderImpl<FieldValueImpl>();
+
+        /*
+         * The column whose value is read by jsonReader, or null if the value
+         * is discarded, and the nesting depth in that value.
+         */
+        private Column jsonColumn;
+        private int depth;
+
+        ColumnReader(ArrowStreamWriter writer, RecordDefImpl rowDef) {
+            this.writer = writer;
+            for (int pos = 0; pos < writer.getNumColumns(); pos++) {
+                final Column column = writer.getColumn(pos);
+                final FieldDef def = rowDef.getFieldDef(pos);
+                if (def.isComplex() || def.isJson()) {
+                    jsonColumns.put(column.getName(), column);
+                } else {
+                    columns.put(column.getName(), column);
+                }
+            }
+        }
+
+        /*
+         * Returns whether the value of the named field is read by
+         * jsonReader, which is the case for the values of columns exported
+         * as JSON text, their nested values, and the values of fields that
+         * have no column, which may be added by a newer table version.
+         */
+        private boolean isJson(String name) {
+            if (depth > 0) {
+                return true;
+            }
+            if (columns.containsKey(name)) {
+                return false;
+            }
+            jsonColumn = jsonColumns.get(name);
+            jsonReader.reset();
+            return true;
+        }
+
+        /* Sets the column if the value read by jsonReader is complete */
+        private void endJson() {
+            if (depth == 0 && jsonColumn != null) {
+                jsonColumn.setString(
+                    jsonReader.getValue().toJsonString(false));
+            }
+        }
+
+        @Override
+        public void readInteger(String name, int val) {
+            if (isJson(name)) {
+                jsonReader.readInteger(name, val);
+                endJson();
+                return;
+            }
+            columns.get(name).setInt(val);
+        }
+
+        @Override
+        public void readLong(String name, long val) {
+            if (isJson(name)) {
+                jsonReader.readLong(name, val);
+                endJson();
+                return;
+            }
+            columns.get(name).setLong(val);
+        }
+
+        @Override
+        public void readFloat(String name, float val) {
+            if (isJson(name)) {
+                jsonReader.readFloat(name, val);
+                endJson();
+                return;
+            }
+            columns.get(name).setFloat(val);
+        }
+
+        @Override
+        public void readDouble(String name, double val) {
+            if (isJson(name)) {
+                jsonReader.readDouble(name, val);
+                endJson();
+                return;
+            }
+            columns.get(name).setDouble(val);
+        }
+
+        @Override
+        public void readNumber(String name, byte[] bytes) {
+            if (isJson(name)) {
+                jsonReader.readNumber(name, bytes);
+                endJson();
+                return;
+            }
+            columns.get(name).setString(
+                FieldDefImpl.numberDef.createNumber(bytes).getDecimal()
+                .toString());
+        }
+
+        @Override
+        public void readTimestamp(String name, FieldDef def, byte[] bytes) {
+            if (isJson(name)) {
+                jsonReader.readTimestamp(name, def, bytes);
+                endJson();
+                return;
+            }
+            final Column column = columns.get(name);
+            final Timestamp ts = TimestampUtils.fromBytes(
+                bytes, def.asTimestamp().getPrecision());
+            column.setLong(getTimestampValue(column.getType(), ts));
+        }
+
+        @Override
+        public void readBinary(String name, byte[] bytes) {
+            if (isJson(name)) {
+                jsonReader.readBinary(name, bytes);
+                endJson();
+                return;
+            }
+            columns.get(name).setBytes(bytes);
+        }
+
+        @Override
+        public void readFixedBinary(String name, FieldDef def, byte[] bytes) {
+            if (isJson(name)) {
+                jsonReader.readFixedBinary(name, def, bytes);
+                endJson();
+                return;
+            }
+            columns.get(name).setBytes(bytes);
+        }
+
+        @Override
+        public void readString(String name, String val) {
+            if (isJson(name)) {
+                jsonReader.readString(name, val);
+                endJson();
+                return;
+            }
+            columns.get(name).setString(val);
+        }
+
+        @Override
+        public void readBoolean(String name, boolean val) {
+            if (isJson(name)) {
+                jsonReader.readBoolean(name, val);
+                endJson();
+                return;
+            }
+            columns.get(name).setBoolean(val);
+        }
+
+        @Override
+        public void readNull(String name) {
+            if (depth > 0) {
+                jsonReader.readNull(name);
+                return;
+            }
+            Column column = columns.get(name);
+            if (column == null) {
+                column = jsonColumns.get(name);
+            }
+            if (column != null) {
+                column.setNull();
+            }
+        }
+
+        @Override
+        public void readJsonNull(String name) {
+            if (isJson(name)) {
+                jsonReader.readJsonNull(name);
+                endJson();
+            }
+        }
+
+        @Override
+        public void readEmpty(String name) {
+            readNull(name);
+        }
+
+        @Override
+        public void readEnum(String name, FieldDef def, int index) {
+            if (isJson(name)) {
+                jsonReader.readEnum(name, def, index);
+                endJson();
+                return;
+            }
+            columns.get(name).setString(
+                ((EnumDefImpl) def.asEnum()).getValues()[index]);
+        }
+
+        @Override
+        public void startRecord(String name, FieldDef def) {
+            isJson(name);
+            jsonReader.startRecord(name, def);
+            depth++;
+        }
+
+        @Override
+        public void endRecord() {
+            jsonReader.endRecord();
+            depth--;
+            endJson();
+        }
+
+        @Override
+        public void startMap(String name, FieldDef def) {
+            isJson(name);
+            jsonReader.startMap(name, def);
+            depth++;
+        }
+
+        @Override
+        public void endMap() {
+            jsonReader.endMap();
+            depth--;
+            endJson();
+        }
+
+        @Override
+        public void startArray(String name, FieldDef def, FieldDef elemDef) {
+            isJson(name);
+            jsonReader.startArray(name, def, elemDef);
+            depth++;
+        }
+
+        @Override
+        public void endArray() {
+            jsonReader.endArray();
+            depth--;
+            endJson();
+        }
+
+        @Override
+        public Void getValue() {
+            return null;
+        }
+
+        @Override
+        public Table getTable() {
+            return table;
+        }
+
+        @Override
+        public void setTableVersion(int tableVersion) {
+        }
+
+        @Override
+        public void setExpirationTime(long expirationTime) {
+        }
+
+        @Override
+        public void setVersion(Version version) {
+        }
+
+        @Override
+        public void reset() {
+            writer.abortRow();
+            jsonReader.reset();
+            jsonColumn = null;
+            depth = 0;
+        }
+
+        @Override
+        public void setValue(Void value) {
+        }
+    }
+}
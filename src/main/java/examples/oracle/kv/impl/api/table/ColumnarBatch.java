@@ -0,0 +1,712 @@
+/*-
+ * Copyright (C) 2011, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This file was distributed by Oracle as part of a version of Oracle NoSQL
+ * Database made available at:
+ *
+ * http://www.oracle.com/technetwork/database/database-technologies/nosqldb/downloads/index.html
+ *
+ * Please see the LICENSE file included in the top-level directory of the
+ * appropriate version of Oracle NoSQL Database for a copy of the license and
+ * additional information.
+ */
+
+package oracle.kv.impl.api.table;
+
+import static oracle.kv.impl.util.SerializationUtil.readNonNullSequenceLength;
+import static oracle.kv.impl.util.SerializationUtil.readNonNullString;
+import static oracle.kv.impl.util.SerializationUtil.readPackedInt;
+import static oracle.kv.impl.util.SerializationUtil.readPackedLong;
+import static oracle.kv.impl.util.SerializationUtil.writeNonNullSequenceLength;
+import static oracle.kv.impl.util.SerializationUtil.writeNonNullString;
+import static oracle.kv.impl.util.SerializationUtil.writePackedInt;
+import static oracle.kv.impl.util.SerializationUtil.writePackedLong;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import oracle.kv.impl.util.FastExternalizable;
+import oracle.kv.table.FieldDef.Type;
+
+/**
+ * A batch of query results stored by column rather than by row. The results
+ * are records with the same definition, and each field of the definition is
+ * stored in a {@link Column}: the values of INTEGER, LONG, FLOAT, DOUBLE and
+ * BOOLEAN fields in a primitive array, the values of STRING fields as codes
+ * into a dictionary of the distinct strings of the batch, and the values of
+ * other fields as FieldValueImpl instances. The NULLs of the primitive and
+ * string columns are kept in a bitmap.
+ *
+ * A batch is used as the wire format of the results of a query batch when
+ * the client asks for it, see ExecuteOptions.setColumnarResults. It is more
+ * compact than the row format, because the record definition, the field
+ * types and the repeated strings are written once per batch, and it lets a
+ * client that reads the results by column, for analytics, do so without
+ * creating a record per result. The results can also be materialized as
+ * records, see {@link #getRows}.
+ *
+ * @see #writeFastExternal FastExternalizable format
+ */
+public class ColumnarBatch implements FastExternalizable {
+
+    /* The kinds of columns */
+    private static final int GENERIC = 0;
+    private static final int INTEGER = 1;
+    private static final int LONG = 2;
+    private static final int FLOAT = 3;
+    private static final int DOUBLE = 4;
+    private static final int BOOLEAN = 5;
+    private static final int STRING = 6;
+
+    private final RecordDefImpl def;
+
+    private final int numRows;
+
+    private final Column[] columns;
+
+    private ColumnarBatch(RecordDefImpl def, int numRows) {
+        this.def = def;
+        this.numRows = numRows;
+        columns = new Column[def.getNumFields()];
+    }
+
+    /**
+     * Returns whether the results of a query can be stored in a batch,
+     * which is the case if the result definition is a record and none of
+     * the results is NULL. Like the row format, the batch assumes that the
+     * results conform to the result definition.
+     */
+    public static boolean isSupported(FieldDefImpl resultDef,
+                                      List<FieldValueImpl> results) {
+        if (!resultDef.isRecord()) {
+            return false;
+        }
+        for (FieldValueImpl result : results) {
+            if (!result.isRecord()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates a batch from query results, which must be supported, see
+     * {@link #isSupported}.
+     */
+    public static ColumnarBatch create(RecordDefImpl def,
+                                       List<FieldValueImpl> results) {
+        final ColumnarBatch batch = new ColumnarBatch(def, results.size());
+        for (int i = 0; i < batch.columns.length; i++) {
+            batch.columns[i] = new Column(batch, i, results);
+        }
+        return batch;
+    }
+
+    /**
+     * FastExternalizable constructor. The definition of the records is
+     * known to the reader, and not serialized with the batch.
+     */
+    public ColumnarBatch(RecordDefImpl def,
+                         DataInput in,
+                         short serialVersion) throws IOException {
+        this(def, readNonNullSequenceLength(in));
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new Column(this, i, in, serialVersion);
+        }
+    }
+
+    /**
+     * Writes this object to the output stream. Format:
+     * <ol>
+     * <li> ({@link
+     *      oracle.kv.impl.util.SerializationUtil#writeNonNullSequenceLength
+     *      non-null sequence length}) {@link #getNumRows numRows}
+     * <li> For each field of the record definition, in order, the column,
+     *      see {@link Column#writeFastExternal}
+     * </ol>
+     */
+    @Override
+    public void writeFastExternal(DataOutput out, short serialVersion)
+        throws IOException {
+
+        writeNonNullSequenceLength(out, numRows);
+        for (Column column : columns) {
+            column.writeFastExternal(out, serialVersion);
+        }
+    }
+
+    public RecordDefImpl getDefinition() {
+        return def;
+    }
+
+    public int getNumRows() {
+        return numRows;
+    }
+
+    public int getNumColumns() {
+        return columns.length;
+    }
+
+    public Column getColumn(int pos) {
+        return columns[pos];
+    }
+
+    /**
+     * Returns the column of a field of the records.
+     *
+     * @throws IllegalArgumentException if there is no such field
+     */
+    public Column getColumn(String fieldName) {
+        return columns[def.getFieldPos(fieldName)];
+    }
+
+    /**
+     * Returns a record with the values of a row.
+     */
+    public RecordValueImpl getRow(int row) {
+        checkRow(row);
+        final RecordValueImpl record = def.createRecord();
+        for (int i = 0; i < columns.length; i++) {
+            final FieldValueImpl value = columns[i].getValue(row);
+            if (value != null) {
+                record.putInternal(i, value);
+            }
+        }
+        return record;
+    }
+
+    /**
+     * Returns the rows of the batch as a list of records, which are created
+     * when they are accessed.
+     */
+    public List<FieldValueImpl> getRows() {
+        return new AbstractList<FieldValueImpl>() {
+
+            @Override
+            public FieldValueImpl get(int index) {
+                return getRow(index);
+            }
+
+            @Override
+            public int size() {
+                return numRows;
+            }
+        };
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= numRows) {
+            throw new IndexOutOfBoundsException(
+                "Row: " + row + ", Rows: " + numRows);
+        }
+    }
+
+    /**
+     * The values of a field of the records of a batch. The typed getters
+     * return the value of a row in a column of the corresponding type,
+     * without creating a FieldValue, and throw ClassCastException if the
+     * column has another type. Their result is unspecified if the value is
+     * NULL, see {@link #isNull}.
+     */
+    public static class Column {
+
+        private final ColumnarBatch batch;
+
+        private final int pos;
+
+        private final int kind;
+
+        /* The NULLs of a primitive or string column, or null if none */
+        private byte[] nulls;
+
+        private int[] ints;
+        private long[] longs;
+        private float[] floats;
+        private double[] doubles;
+        private byte[] booleans;
+
+        /*
+         * The strings of a string column: the codes of the rows, and the
+         * distinct strings, whose values are created when needed and
+         * shared by the rows.
+         */
+        private int[] codes;
+        private String[] dictionary;
+        private SharedStringValue[] dictionaryValues;
+
+        private FieldValueImpl[] values;
+
+        private Column(ColumnarBatch batch, int pos, int kind) {
+            this.batch = batch;
+            this.pos = pos;
+            this.kind = kind;
+            final int numRows = batch.numRows;
+            switch (kind) {
+            case INTEGER:
+                ints = new int[numRows];
+                break;
+            case LONG:
+                longs = new long[numRows];
+                break;
+            case FLOAT:
+                floats = new float[numRows];
+                break;
+            case DOUBLE:
+                doubles = new double[numRows];
+                break;
+            case BOOLEAN:
+                booleans = new byte[bitmapLength(numRows)];
+                break;
+            case STRING:
+                codes = new int[numRows];
+                break;
+            default:
+                values = new FieldValueImpl[numRows];
+                break;
+            }
+        }
+
+        /*
+         * Creates the column of a field from query results. A field whose
+         * type has a primitive or string column is stored as a generic one
+         * if a value has another type, such as EMPTY.
+         */
+        private Column(ColumnarBatch batch,
+                       int pos,
+                       List<FieldValueImpl> results) {
+            this(batch, pos, getKind(batch.def.getFieldDef(pos), pos,
+                                     results));
+            final Map<String, Integer> dictionaryCodes =
+                (kind == STRING) ? new HashMap<String, Integer>() : null;
+            final List<String> strings =
+                (kind == STRING) ? new ArrayList<String>() : null;
+
+            int row = 0;
+            for (FieldValueImpl result : results) {
+                final FieldValueImpl value =
+                    ((RecordValueImpl) result).get(pos);
+                if (kind == GENERIC) {
+                    values[row++] = value;
+                    continue;
+                }
+                if (value.isNull()) {
+                    if (nulls == null) {
+                        nulls = new byte[bitmapLength(batch.numRows)];
+                    }
+                    setBit(nulls, row++);
+                    continue;
+                }
+                switch (kind) {
+                case INTEGER:
+                    ints[row] = value.getInt();
+                    break;
+                case LONG:
+                    longs[row] = value.getLong();
+                    break;
+                case FLOAT:
+                    floats[row] = value.getFloat();
+                    break;
+                case DOUBLE:
+                    doubles[row] = value.getDouble();
+                    break;
+                case BOOLEAN:
+                    if (value.getBoolean()) {
+                        setBit(booleans, row);
+                    }
+                    break;
+                default:
+                    final String string = value.getString();
+                    Integer code = dictionaryCodes.get(string);
+                    if (code == null) {
+                        code = strings.size();
+                        dictionaryCodes.put(string, code);
+                        strings.add(string);
+                    }
+                    codes[row] = code;
+                    break;
+                }
+                row++;
+            }
+            if (kind == STRING) {
+                dictionary = strings.toArray(new String[strings.size()]);
+            }
+        }
+
+        /* FastExternalizable constructor */
+        private Column(ColumnarBatch batch,
+                       int pos,
+                       DataInput in,
+                       short serialVersion) throws IOException {
+            this(batch, pos, in.readByte());
+            final int numRows = batch.numRows;
+            final FieldDefImpl fieldDef = getDefinition();
+
+            if (kind == GENERIC) {
+                final FieldDefImpl valDef =
+                    fieldDef.isWildcard() ? null : fieldDef;
+                for (int row = 0; row < numRows; row++) {
+                    values[row] = (FieldValueImpl) FieldValueSerialization.
+                        readFieldValue(valDef, in, serialVersion);
+                }
+                return;
+            }
+
+            if (in.readBoolean()) {
+                nulls = new byte[bitmapLength(numRows)];
+                in.readFully(nulls);
+            }
+            if (kind == BOOLEAN) {
+                in.readFully(booleans);
+                return;
+            }
+            if (kind == STRING) {
+                dictionary = new String[readPackedInt(in)];
+                for (int i = 0; i < dictionary.length; i++) {
+                    dictionary[i] = readNonNullString(in, serialVersion);
+                }
+            }
+            for (int row = 0; row < numRows; row++) {
+                if (isNull(row)) {
+                    continue;
+                }
+                switch (kind) {
+                case INTEGER:
+                    ints[row] = readPackedInt(in);
+                    break;
+                case LONG:
+                    longs[row] = readPackedLong(in);
+                    break;
+                case FLOAT:
+                    floats[row] = in.readFloat();
+                    break;
+                case DOUBLE:
+                    doubles[row] = in.readDouble();
+                    break;
+                default:
+                    final int code = readPackedInt(in);
+                    if (code < 0 || code >= dictionary.length) {
+                        throw new IOException(
+                            "Invalid string code " + code + " in column " +
+                            getName());
+                    }
+                    codes[row] = code;
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Writes this object to the output stream. Format:
+         * <ol>
+         * <li> ({@code byte}) <i>column kind</i>
+         * <li> For a generic column, for each row, {@link
+         *      FieldValueSerialization#writeFieldValue
+         *      writeFieldValue(value, } {@link FieldDefImpl#isWildcard
+         *      fieldDef.isWildcard())}
+         * <li> Otherwise:
+         *   <ol type="a">
+         *   <li> ({@link DataOutput#writeBoolean boolean}) <i>whether the
+         *        column has NULLs</i>
+         *   <li> <i>[Optional]</i> ({@code byte[]}) <i>the NULL bitmap, one
+         *        bit per row</i> // if the column has NULLs
+         *   <li> For a BOOLEAN column, ({@code byte[]}) <i>the value bitmap,
+         *        one bit per row</i>
+         *   <li> For a STRING column, ({@link
+         *        oracle.kv.impl.util.SerializationUtil#writePackedInt packed
+         *        int}) <i>dictionary size</i>, followed by the distinct
+         *        strings as ({@link
+         *        oracle.kv.impl.util.SerializationUtil#writeNonNullString
+         *        non-null String})
+         *   <li> For each non-NULL row of a column of another type, the
+         *        value as a packed int (INTEGER and STRING codes), packed
+         *        long (LONG), {@code float} (FLOAT) or {@code double}
+         *        (DOUBLE)
+         *   </ol>
+         * </ol>
+         */
+        void writeFastExternal(DataOutput out, short serialVersion)
+            throws IOException {
+
+            out.writeByte(kind);
+            final int numRows = batch.numRows;
+
+            if (kind == GENERIC) {
+                final boolean writeValDef = getDefinition().isWildcard();
+                for (int row = 0; row < numRows; row++) {
+                    FieldValueSerialization.writeFieldValue(values[row],
+                                                            writeValDef,
+                                                            out,
+                                                            serialVersion);
+                }
+                return;
+            }
+
+            out.writeBoolean(nulls != null);
+            if (nulls != null) {
+                out.write(nulls);
+            }
+            if (kind == BOOLEAN) {
+                out.write(booleans);
+                return;
+            }
+            if (kind == STRING) {
+                writePackedInt(out, dictionary.length);
+                for (String string : dictionary) {
+                    writeNonNullString(out, serialVersion, string);
+                }
+            }
+            for (int row = 0; row < numRows; row++) {
+                if (isNull(row)) {
+                    continue;
+                }
+                switch (kind) {
+                case INTEGER:
+                    writePackedInt(out, ints[row]);
+                    break;
+                case LONG:
+                    writePackedLong(out, longs[row]);
+                    break;
+                case FLOAT:
+                    out.writeFloat(floats[row]);
+                    break;
+                case DOUBLE:
+                    out.writeDouble(doubles[row]);
+                    break;
+                default:
+                    writePackedInt(out, codes[row]);
+                    break;
+                }
+            }
+        }
+
+        public String getName() {
+            return batch.def.getFieldName(pos);
+        }
+
+        public FieldDefImpl getDefinition() {
+            return batch.def.getFieldDef(pos);
+        }
+
+        /**
+         * Returns the type of the values of the column, if they are stored
+         * in primitive or string form, else null.
+         */
+        public Type getType() {
+            switch (kind) {
+            case INTEGER:
+                return Type.INTEGER;
+            case LONG:
+                return Type.LONG;
+            case FLOAT:
+                return Type.FLOAT;
+            case DOUBLE:
+                return Type.DOUBLE;
+            case BOOLEAN:
+                return Type.BOOLEAN;
+            case STRING:
+                return Type.STRING;
+            default:
+                return null;
+            }
+        }
+
+        /**
+         * Returns whether the value of a row is NULL, or missing.
+         */
+        public boolean isNull(int row) {
+            batch.checkRow(row);
+            if (kind == GENERIC) {
+                return values[row] == null || values[row].isNull();
+            }
+            return nulls != null && getBit(nulls, row);
+        }
+
+        public int getInt(int row) {
+            checkType(INTEGER);
+            batch.checkRow(row);
+            return ints[row];
+        }
+
+        public long getLong(int row) {
+            checkType(LONG);
+            batch.checkRow(row);
+            return longs[row];
+        }
+
+        public float getFloat(int row) {
+            checkType(FLOAT);
+            batch.checkRow(row);
+            return floats[row];
+        }
+
+        public double getDouble(int row) {
+            checkType(DOUBLE);
+            batch.checkRow(row);
+            return doubles[row];
+        }
+
+        public boolean getBoolean(int row) {
+            checkType(BOOLEAN);
+            batch.checkRow(row);
+            return getBit(booleans, row);
+        }
+
+        public String getString(int row) {
+            checkType(STRING);
+            return isNull(row) ? null : dictionary[codes[row]];
+        }
+
+        /**
+         * Returns the dictionary code of the string of a row, which can be
+         * used to group or compare the rows of a string column without
+         * comparing strings.
+         */
+        public int getStringCode(int row) {
+            checkType(STRING);
+            batch.checkRow(row);
+            return codes[row];
+        }
+
+        /**
+         * Returns the distinct strings of a string column, indexed by their
+         * codes.
+         */
+        public String[] getDictionary() {
+            checkType(STRING);
+            return dictionary.clone();
+        }
+
+        /**
+         * Returns the value of a row, creating it if the column stores the
+         * values in primitive form, or null if the value is missing. The
+         * values of a string column are shared by the rows with the same
+         * string, so they cannot be modified with setString; clone a value
+         * to get one that can be modified.
+         */
+        public FieldValueImpl getValue(int row) {
+            if (kind == GENERIC) {
+                batch.checkRow(row);
+                return values[row];
+            }
+            if (isNull(row)) {
+                return NullValueImpl.getInstance();
+            }
+            final FieldDefImpl fieldDef = getDefinition();
+            switch (kind) {
+            case INTEGER:
+                return (FieldValueImpl) fieldDef.createInteger(ints[row]);
+            case LONG:
+                return (FieldValueImpl) fieldDef.createLong(longs[row]);
+            case FLOAT:
+                return (FieldValueImpl) fieldDef.createFloat(floats[row]);
+            case DOUBLE:
+                return (FieldValueImpl) fieldDef.createDouble(doubles[row]);
+            case BOOLEAN:
+                return (FieldValueImpl) fieldDef.createBoolean(
+                    getBit(booleans, row));
+            default:
+                if (dictionaryValues == null) {
+                    dictionaryValues =
+                        new SharedStringValue[dictionary.length];
+                }
+                final int code = codes[row];
+                if (dictionaryValues[code] == null) {
+                    dictionaryValues[code] = new SharedStringValue(
+                        dictionary[code], (StringDefImpl) fieldDef);
+                }
+                return dictionaryValues[code];
+            }
+        }
+
+        private void checkType(int expectedKind) {
+            if (kind != expectedKind) {
+                throw new ClassCastException(
+                    "Column " + getName() + " is not of type " +
+                    getKindName(expectedKind));
+            }
+        }
+
+        /*
+         * Returns the kind of column for a field of the specified type,
+         * GENERIC if it has no primitive or string column.
+         */
+        private static int getKind(FieldDefImpl fieldDef) {
+            switch (fieldDef.getType()) {
+            case INTEGER:
+                return INTEGER;
+            case LONG:
+                return LONG;
+            case FLOAT:
+                return FLOAT;
+            case DOUBLE:
+                return DOUBLE;
+            case BOOLEAN:
+                return BOOLEAN;
+            case STRING:
+                return STRING;
+            default:
+                return GENERIC;
+            }
+        }
+
+        /*
+         * Returns the kind of column for a field of query results, GENERIC
+         * if a value is missing or does not have the type of the field.
+         */
+        private static int getKind(FieldDefImpl fieldDef,
+                                   int pos,
+                                   List<FieldValueImpl> results) {
+            final int kind = getKind(fieldDef);
+            if (kind == GENERIC) {
+                return kind;
+            }
+            final Type type = fieldDef.getType();
+            for (FieldValueImpl result : results) {
+                final FieldValueImpl value =
+                    ((RecordValueImpl) result).get(pos);
+                if (value == null ||
+                    (!value.isNull() && value.getType() != type)) {
+                    return GENERIC;
+                }
+            }
+            return kind;
+        }
+
+        private static String getKindName(int kind) {
+            switch (kind) {
+            case INTEGER:
+                return "INTEGER";
+            case LONG:
+                return "LONG";
+            case FLOAT:
+                return "FLOAT";
+            case DOUBLE:
+                return "DOUBLE";
+            case BOOLEAN:
+                return "BOOLEAN";
+            case STRING:
+                return "STRING";
+            default:
+                return "GENERIC";
+            }
+        }
+    }
+
+    private static int bitmapLength(int numBits) {
+        return (numBits + 7) >>> 3;
+    }
+
+    private static void setBit(byte[] bitmap, int bit) {
+        bitmap[bit >>> 3] |= (byte) (1 << (bit & 7));
+    }
+
+    private static boolean getBit(byte[] bitmap, int bit) {
+        return (bitmap[bit >>> 3] & (1 << (bit & 7))) != 0;
+    }
+}
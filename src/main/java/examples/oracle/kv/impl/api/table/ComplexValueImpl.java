@@ -174,31 +174,35 @@ public abstract class ComplexValueImpl extends FieldValueImpl {
         boolean exact,
         boolean addMissingFields) {
 
-        JsonParser jp = null;
-
+        final JsonParser jp;
         try {
             jp = TableJsonUtils.createJsonParser(jsonInput);
-            /*move to START_OBJECT or START_ARRAY*/
-            if (jp.nextToken() == null) {
-                return;
-            }
-
-            complexValue.addJsonFields(jp, null, exact, addMissingFields);
+        } catch (IOException ioe) {
+            throw new IllegalArgumentException(
+                ("Failed to parse JSON input: " + ioe.getMessage()), ioe);
+        }
+        populateFromJson(complexValue, jp, exact, addMissingFields);
+    }
 
-            complexValue.validate();
+    /**
+     * Populate the given complex value from a JSON doc (which is given as a
+     * string). The string is parsed directly, without first being encoded
+     * into bytes. See the Reader variant for the meaning of exact.
+     */
+    public static void createFromJson(
+        ComplexValueImpl complexValue,
+        String jsonInput,
+        boolean exact,
+        boolean addMissingFields) {
 
+        final JsonParser jp;
+        try {
+            jp = TableJsonUtils.createJsonParser(jsonInput);
         } catch (IOException ioe) {
             throw new IllegalArgumentException(
                 ("Failed to parse JSON input: " + ioe.getMessage()), ioe);
-        } finally {
-            if (jp != null) {
-                try {
-                    jp.close();
-                } catch (IOException ignored) {
-                    /* ignore failures on close */
-                }
-            }
         }
+        populateFromJson(complexValue, jp, exact, addMissingFields);
     }
 
     /**
@@ -227,10 +231,29 @@ public abstract class ComplexValueImpl extends FieldValueImpl {
         boolean exact,
         boolean addMissingFields) {
 
-        JsonParser jp = null;
-
+        final JsonParser jp;
         try {
             jp = TableJsonUtils.createJsonParser(jsonInput);
+        } catch (IOException ioe) {
+            throw new IllegalArgumentException(
+                ("Failed to parse JSON input: " + ioe.getMessage()), ioe);
+        }
+        populateFromJson(complexValue, jp, exact, addMissingFields);
+    }
+
+    /**
+     * Populate the given complex value from the tokens of a JSON parser,
+     * which is closed on return. The value is built in a single pass over
+     * the tokens, each mapped directly onto the type of the target field,
+     * without building an intermediate JsonNode tree.
+     */
+    private static void populateFromJson(
+        ComplexValueImpl complexValue,
+        JsonParser jp,
+        boolean exact,
+        boolean addMissingFields) {
+
+        try {
             /* move to START_OBJECT or START_ARRAY */
             if (jp.nextToken() == null) {
                 return;
@@ -244,12 +267,10 @@ public abstract class ComplexValueImpl extends FieldValueImpl {
             throw new IllegalArgumentException(
                 ("Failed to parse JSON input: " + ioe.getMessage()), ioe);
         } finally {
-            if (jp != null) {
-                try {
-                    jp.close();
-                } catch (IOException ignored) {
-                    /* ignore failures on close */
-                }
+            try {
+                jp.close();
+            } catch (IOException ignored) {
+                /* ignore failures on close */
             }
         }
     }
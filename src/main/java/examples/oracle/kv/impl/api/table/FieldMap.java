@@ -57,6 +57,15 @@ import org.codehaus.jackson.node.ObjectNode;
  * Note: fieldPositions does case-insensitive comparisons of the stored field
  * names, in order to implement the semantics of case-insensitive field names.
  *
+ * positionIndex:
+ * A PositionIndex, an open-addressing hash table over the case-folded field
+ * names, which is what lookups by field name use. With wide records, the
+ * string comparisons of the log(n) steps of a fieldPositions lookup are a
+ * noticeable cost of every get or put by name. The index is built on first
+ * use and discarded whenever the fields change, so it costs nothing while a
+ * FieldMap is being built, and a lookup is a hash of the name plus, usually,
+ * a single comparison.
+ *
  * Note: FieldMap is @Persistent but the comparator is not saved with the
  * object. This is not a problem because in all cases a new FieldMap is
  * constructed from the raw Map when the deserialized FieldMap is used so
@@ -97,6 +106,8 @@ public class FieldMap implements Cloneable, Serializable {
 
     private transient Map<String, Integer> fieldPositions;
 
+    private transient volatile PositionIndex positionIndex;
+
     public FieldMap() {
         fieldNames = new ArrayList<String>();
         fieldProperties = new ArrayList<FieldMapEntry>();
@@ -221,6 +232,7 @@ public class FieldMap implements Cloneable, Serializable {
         }
 
         fields.clear();
+        positionIndex = null;
     }
 
     Map<String, Integer> getFieldPositions() {
@@ -236,8 +248,8 @@ public class FieldMap implements Cloneable, Serializable {
     }
 
     FieldMapEntry getFieldMapEntry(String name) {
-        Integer pos = fieldPositions.get(name);
-        return (pos != null ? fieldProperties.get(pos) : null);
+        int pos = getPositionIndex().get(name);
+        return (pos >= 0 ? fieldProperties.get(pos) : null);
     }
 
     FieldMapEntry getFieldMapEntry(int pos) {
@@ -249,16 +261,25 @@ public class FieldMap implements Cloneable, Serializable {
     }
 
     boolean exists(String name) {
-        return fieldPositions.containsKey(name);
+        return getPositionIndex().get(name) >= 0;
     }
 
     int getFieldPos(String name) {
-        Integer pos = fieldPositions.get(name);
-        if (pos == null) {
+        int pos = getPositionIndex().get(name);
+        if (pos < 0) {
             throw new IllegalArgumentException(
                 "There is no field with name " + name);
         }
-        return pos.intValue();
+        return pos;
+    }
+
+    private PositionIndex getPositionIndex() {
+        PositionIndex index = positionIndex;
+        if (index == null) {
+            index = new PositionIndex(fieldNames);
+            positionIndex = index;
+        }
+        return index;
     }
 
     FieldDefImpl getFieldDef(int pos) {
@@ -287,6 +308,7 @@ public class FieldMap implements Cloneable, Serializable {
         for (int i = 0; i < fieldProperties.size(); ++i) {
             fieldPositions.put(fieldProperties.get(i).getFieldName(), i);
         }
+        positionIndex = null;
     }
 
     void put(FieldMapEntry fme) {
@@ -299,6 +321,7 @@ public class FieldMap implements Cloneable, Serializable {
 
         fieldProperties.add(fme);
         fieldNames.add(fme.getFieldName());
+        positionIndex = null;
     }
 
     public void put(
@@ -321,6 +344,7 @@ public class FieldMap implements Cloneable, Serializable {
         assert(fme != null);
 
         fieldNames.remove(pos.intValue());
+        positionIndex = null;
 
         /*
          * Adjust the positions stored in fieldPositions: subtract 1 from all
@@ -581,4 +605,68 @@ public class FieldMap implements Cloneable, Serializable {
         }
         return requiredSerialVersion;
     }
+
+    /**
+     * An immutable, open-addressing hash table mapping field names to their
+     * positions. Names are hashed and compared case-insensitively, with the
+     * same semantics as FieldComparator: two names match if their characters
+     * are equal after Character.toUpperCase followed by
+     * Character.toLowerCase, which is what String.compareToIgnoreCase
+     * compares. The table is at most half full, so probe sequences are
+     * short.
+     */
+    private static final class PositionIndex {
+
+        private final String[] names;
+        private final int[] positions;
+        private final int mask;
+
+        PositionIndex(List<String> fieldNames) {
+            int capacity = 4;
+            while (capacity < fieldNames.size() * 2) {
+                capacity <<= 1;
+            }
+            names = new String[capacity];
+            positions = new int[capacity];
+            mask = capacity - 1;
+
+            for (int pos = 0; pos < fieldNames.size(); ++pos) {
+                final String name = fieldNames.get(pos);
+                int i = hash(name) & mask;
+                while (names[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                names[i] = name;
+                positions[i] = pos;
+            }
+        }
+
+        /**
+         * Returns the position of the field with the specified name, or -1
+         * if there is no such field.
+         */
+        int get(String name) {
+            int i = hash(name) & mask;
+            String candidate;
+            while ((candidate = names[i]) != null) {
+                if (candidate == name ||
+                    candidate.compareToIgnoreCase(name) == 0) {
+                    return positions[i];
+                }
+                i = (i + 1) & mask;
+            }
+            return -1;
+        }
+
+        private static int hash(String name) {
+            int h = 0;
+            for (int i = 0; i < name.length(); ++i) {
+                h = 31 * h +
+                    Character.toLowerCase(
+                        Character.toUpperCase(name.charAt(i)));
+            }
+            /* Spread the high bits, since only the low bits are used */
+            return h ^ (h >>> 16);
+        }
+    }
 }
@@ -950,8 +950,8 @@ public abstract class FieldValueImpl
             ArrayValueImpl arr = (ArrayValueImpl)this;
             ArrayValueImpl newarr = ((ArrayDefImpl)targetDef).createArray();
 
-            for (FieldValue e : arr.getArrayInternal()) {
-                FieldValueImpl elem = (FieldValueImpl)e;
+            for (int i = 0; i < arr.size(); i++) {
+                FieldValueImpl elem = arr.get(i);
                 newarr.addInternal(elem.castToSuperType(elemDef));
             }
             return newarr;
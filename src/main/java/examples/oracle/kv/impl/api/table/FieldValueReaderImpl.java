@@ -26,6 +26,7 @@ import java.util.Stack;
 
 import oracle.kv.Version;
 import oracle.kv.table.FieldDef;
+import oracle.kv.table.FieldDef.Type;
 import oracle.kv.table.Table;
 
 /*
@@ -37,6 +38,9 @@ class FieldValueReaderImpl<T extends FieldValueImpl>
     private Stack<ComplexValueImpl> complexValues;
     FieldValueImpl value;
 
+    /* The dictionary of shared strings, or null */
+    private ValueDictionary dictionary;
+
     FieldValueReaderImpl() {
         this(null);
     }
@@ -48,21 +52,41 @@ class FieldValueReaderImpl<T extends FieldValueImpl>
 
     @Override
     public void readInteger(String name, int val) {
+        final PrimitiveArray primitives = getPrimitives(Type.INTEGER);
+        if (primitives != null) {
+            primitives.addInt(val);
+            return;
+        }
         setFieldValue(name, integerDef.createInteger(val));
     }
 
     @Override
     public void readLong(String name, long val) {
+        final PrimitiveArray primitives = getPrimitives(Type.LONG);
+        if (primitives != null) {
+            primitives.addLong(val);
+            return;
+        }
         setFieldValue(name, longDef.createLong(val));
     }
 
     @Override
     public void readFloat(String name, float val) {
+        final PrimitiveArray primitives = getPrimitives(Type.FLOAT);
+        if (primitives != null) {
+            primitives.addFloat(val);
+            return;
+        }
         setFieldValue(name, floatDef.createFloat(val));
     }
 
     @Override
     public void readDouble(String name, double val) {
+        final PrimitiveArray primitives = getPrimitives(Type.DOUBLE);
+        if (primitives != null) {
+            primitives.addDouble(val);
+            return;
+        }
         setFieldValue(name, doubleDef.createDouble(val));
     }
 
@@ -91,7 +115,9 @@ class FieldValueReaderImpl<T extends FieldValueImpl>
 
     @Override
     public void readString(String name, String val) {
-        setFieldValue(name, stringDef.createString(val));
+        setFieldValue(name, (dictionary != null) ?
+                      dictionary.getStringValue(val) :
+                      stringDef.createString(val));
     }
 
     @Override
@@ -159,6 +185,22 @@ class FieldValueReaderImpl<T extends FieldValueImpl>
         popComplexValue();
     }
 
+    /**
+     * Sets the dictionary used to share the strings of the values read, or
+     * null to not share them.
+     */
+    void setDictionary(ValueDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Sets a field to a value that was deserialized as a whole, such as a
+     * JSON document in IndexedJson format.
+     */
+    void readFieldValue(String name, FieldValueImpl fieldValue) {
+        setFieldValue(name, fieldValue);
+    }
+
     private void setFieldValue(String name, FieldValueImpl fieldValue) {
         if (value == null) {
             value = fieldValue;
@@ -179,13 +221,34 @@ class FieldValueReaderImpl<T extends FieldValueImpl>
         if (curVal.isRecord()) {
             curVal.asRecord().put(name, fieldValue);
         } else if (curVal.isMap()) {
-            curVal.asMap().put(name, fieldValue);
+            curVal.asMap().put((dictionary != null) ?
+                               dictionary.getName(name) : name,
+                               fieldValue);
         } else {
             assert(curVal.isArray());
             curVal.asArray().add(fieldValue);
         }
     }
 
+    /*
+     * Returns the elements of the array being read if they are stored in
+     * primitive form with the specified type, so that an element of that
+     * type can be added without creating a value, else null.
+     */
+    private PrimitiveArray getPrimitives(Type type) {
+        if (complexValues == null || complexValues.isEmpty()) {
+            return null;
+        }
+        final ComplexValueImpl curVal = complexValues.peek();
+        if (!curVal.isArray()) {
+            return null;
+        }
+        final PrimitiveArray primitives =
+            ((ArrayValueImpl) curVal).getPrimitives();
+        return (primitives != null && primitives.getType() == type) ?
+            primitives : null;
+    }
+
     private void pushComplexValue(ComplexValueImpl fieldValue) {
         if (complexValues == null) {
             complexValues = new Stack<ComplexValueImpl>();
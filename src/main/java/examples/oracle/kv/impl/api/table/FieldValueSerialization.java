@@ -636,6 +636,35 @@ public class FieldValueSerialization {
         int size = array.size();
         SerializationUtil.writeNonNullSequenceLength(out, size);
 
+        /*
+         * Write elements stored in primitive form without creating values.
+         * Their type is not a wildcard, so no value kinds are written.
+         */
+        final PrimitiveArray primitives =
+            (array instanceof ArrayValueImpl) ?
+            ((ArrayValueImpl) array).getPrimitives() : null;
+        if (primitives != null) {
+            for (int i = 0; i < size; i++) {
+                switch (primitives.getType()) {
+                case INTEGER:
+                    SerializationUtil.writePackedInt(out,
+                                                     primitives.getInt(i));
+                    break;
+                case LONG:
+                    SerializationUtil.writePackedLong(out,
+                                                      primitives.getLong(i));
+                    break;
+                case FLOAT:
+                    out.writeFloat(primitives.getFloat(i));
+                    break;
+                default:
+                    out.writeDouble(primitives.getDouble(i));
+                    break;
+                }
+            }
+            return;
+        }
+
         Iterator<FieldValueSerializer> iter = array.iterator();
         while(iter.hasNext()) {
             FieldValueSerializer fieldVal = iter.next();
@@ -658,8 +687,22 @@ public class FieldValueSerialization {
         DataInput in,
         short serialVersion) throws IOException {
 
-        ValueReader<FieldValueImpl> reader =
+        return readFieldValue(def, in, serialVersion, null);
+    }
+
+    /**
+     * Reads a value, sharing its strings through the dictionary, if it is
+     * not null.
+     */
+    public static FieldValue readFieldValue(
+        FieldDef def,
+        DataInput in,
+        short serialVersion,
+        ValueDictionary dictionary) throws IOException {
+
+        FieldValueReaderImpl<FieldValueImpl> reader =
             new FieldValueReaderImpl<FieldValueImpl>();
+        reader.setDictionary(dictionary);
         readFieldValue(reader, null, def, in, serialVersion);
         return reader.getValue();
     }
@@ -670,8 +713,23 @@ public class FieldValueSerialization {
         DataInput in,
         short serialVersion) throws IOException {
 
-        ValueReader<FieldValueImpl> reader =
+        return readNonNullFieldValue(def, valKind, in, serialVersion, null);
+    }
+
+    /**
+     * Reads a non-null value, sharing its strings through the dictionary, if
+     * it is not null.
+     */
+    public static FieldValue readNonNullFieldValue(
+        FieldDef def,
+        FieldDef.Type valKind,
+        DataInput in,
+        short serialVersion,
+        ValueDictionary dictionary) throws IOException {
+
+        FieldValueReaderImpl<FieldValueImpl> reader =
             new FieldValueReaderImpl<FieldValueImpl>();
+        reader.setDictionary(dictionary);
         readNonNullFieldValue(reader, null, def, valKind, in, serialVersion);
         return reader.getValue();
     }
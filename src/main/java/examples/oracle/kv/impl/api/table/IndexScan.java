@@ -109,6 +109,9 @@ public class IndexScan {
 
         Direction dir = (tio != null ? tio.getDirection() : Direction.FORWARD);
 
+        /* Share the repeated strings of the rows, if enabled */
+        final ValueDictionary dictionary = ValueDictionary.createIfEnabled();
+
         return new ShardScanIterator<Row>(tableAPI.getStore(),
                                           options,
                                           dir,
@@ -136,7 +139,8 @@ public class IndexScan {
 
             @Override
             protected void convertResult(Result result, List<Row> rows) {
-                convertResultRows(tableAPI, table, targetTables, result, rows);
+                convertResultRows(tableAPI, table, targetTables, result, rows,
+                                  dictionary);
             }
 
             @Override
@@ -470,7 +474,8 @@ public class IndexScan {
 
         @Override
         void convertResult(Result result) {
-            convertResultRows(apiImpl, table, targetTables, result, rows);
+            convertResultRows(apiImpl, table, targetTables, result, rows,
+                              ValueDictionary.createIfEnabled());
         }
     }
 
@@ -532,11 +537,13 @@ public class IndexScan {
                                           TableImpl table,
                                           TargetTables targetTables,
                                           Result result,
-                                          List<Row> rows) {
+                                          List<Row> rows,
+                                          ValueDictionary dictionary) {
 
         final List<ResultIndexRows> indexRowList = result.getIndexRowList();
         for (ResultIndexRows indexRow : indexRowList) {
-            Row converted = convertRow(apiImpl, targetTables, table, indexRow);
+            Row converted = convertRow(apiImpl, targetTables, table, indexRow,
+                                       dictionary);
             rows.add(converted);
         }
     }
@@ -547,7 +554,8 @@ public class IndexScan {
     private static Row convertRow(TableAPIImpl apiImpl,
                                   TargetTables targetTables,
                                   TableImpl table,
-                                  ResultIndexRows rowResult) {
+                                  ResultIndexRows rowResult,
+                                  ValueDictionary dictionary) {
         /*
          * If ancestor table returns may be involved, start at the
          * top level table of this hierarchy.
@@ -573,7 +581,8 @@ public class IndexScan {
                 vv,
                 fullKey,
                 rowResult.getExpirationTime(),
-                false);
+                false,
+                dictionary);
         return row;
     }
 
@@ -0,0 +1,617 @@
+/*-
+ * Copyright (C) 2011, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This file was distributed by Oracle as part of a version of Oracle NoSQL
+ * Database made available at:
+ *
+ * http://www.oracle.com/technetwork/database/database-technologies/nosqldb/downloads/index.html
+ *
+ * Please see the LICENSE file included in the top-level directory of the
+ * appropriate version of Oracle NoSQL Database for a copy of the license and
+ * additional information.
+ */
+
+package oracle.kv.impl.api.table;
+
+import static oracle.kv.impl.api.table.FieldDefImpl.booleanDef;
+import static oracle.kv.impl.api.table.FieldDefImpl.doubleDef;
+import static oracle.kv.impl.api.table.FieldDefImpl.floatDef;
+import static oracle.kv.impl.api.table.FieldDefImpl.integerDef;
+import static oracle.kv.impl.api.table.FieldDefImpl.longDef;
+import static oracle.kv.impl.api.table.FieldDefImpl.numberDef;
+import static oracle.kv.impl.api.table.FieldDefImpl.stringDef;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import oracle.kv.impl.api.table.ValueSerializer.ArrayValueSerializer;
+import oracle.kv.impl.api.table.ValueSerializer.FieldValueSerializer;
+import oracle.kv.impl.api.table.ValueSerializer.MapValueSerializer;
+import oracle.kv.table.FieldValue;
+
+import com.sleepycat.util.PackedInteger;
+
+/**
+ * An indexed binary format for the values of JSON columns, which supports
+ * reading a field of a document without deserializing the whole document.
+ *
+ * The values of JSON columns are normally serialized with
+ * FieldValueSerialization, which writes maps and arrays as sequences of
+ * entries, so a document must be read from the start to find a field in it.
+ * In this format each object starts with a table of the offsets of its keys,
+ * which are sorted, and of its values, so a field is found by a binary search
+ * of the keys, and a path such as doc.a.b is read in time proportional to
+ * its length.
+ *
+ * Objects are deserialized into MapValueImpl instances that keep a reference
+ * to the serialized object, see LazyObject, and only deserialize the entries
+ * that are accessed by MapValueImpl.get, until an operation needs all of
+ * them. Path navigation by the query processor (FieldStepIter) and the
+ * extraction of index keys for JSON paths both access maps through get, so
+ * they only deserialize the objects on the path. Arrays are deserialized
+ * eagerly, but the objects they contain are not.
+ *
+ * Format: a document is written as the MARKER byte, which is distinct from
+ * the first byte of any value written by FieldValueSerialization, followed
+ * by the document's value. A value is a tag byte followed by:
+ * <ul>
+ * <li> NULL, FALSE, TRUE: nothing
+ * <li> INTEGER: ({@link PackedInteger#writeInt packed int})
+ * <li> LONG: ({@link PackedInteger#writeLong packed long})
+ * <li> FLOAT: ({@code int}) the float bits, big-endian
+ * <li> DOUBLE: ({@code long}) the double bits, big-endian
+ * <li> NUMBER: (packed int) length, the number bytes
+ * <li> STRING: (packed int) length, the UTF-8 bytes
+ * <li> OBJECT, OBJECT_LARGE: (packed int) number of entries N, N key
+ *      offsets, N value offsets, the keys, each a packed int length and the
+ *      UTF-8 bytes, the values. Keys are sorted by their UTF-8 bytes.
+ * <li> ARRAY, ARRAY_LARGE: (packed int) number of elements N, ({@code byte})
+ *      1 if the array is homogeneous, else 0, N element offsets, the elements
+ * </ul>
+ * Offsets are relative to the end of the offset table, and are 2 byte
+ * big-endian unsigned integers, or 4 bytes for the LARGE variants, which
+ * are used when the keys and values take more than 64KB.
+ *
+ * Values written in this format cannot be read by earlier releases, so
+ * JSON columns are only written in it if WRITE_PROPERTY is set to true,
+ * which should only be done once all clients and servers have been
+ * upgraded. Values written before, or with the property unset, remain in
+ * the FieldValueSerialization format. Both formats are always readable.
+ */
+final class IndexedJson {
+
+    /**
+     * The name of the system property that enables writing JSON columns in
+     * this format.
+     */
+    static final String WRITE_PROPERTY = "oracle.kv.table.indexedJson";
+
+    /*
+     * Whether JSON columns are written in this format. It is only read once,
+     * but may be changed by tests.
+     */
+    static volatile boolean writeEnabled = Boolean.getBoolean(WRITE_PROPERTY);
+
+    /*
+     * The first byte of a document in this format. FieldValueSerialization
+     * writes type ordinals, which are not negative, or -1 to -4.
+     */
+    private static final byte MARKER = -5;
+
+    private static final byte NULL = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+    private static final byte INTEGER = 3;
+    private static final byte LONG = 4;
+    private static final byte FLOAT = 5;
+    private static final byte DOUBLE = 6;
+    private static final byte NUMBER = 7;
+    private static final byte STRING = 8;
+    private static final byte OBJECT = 9;
+    private static final byte OBJECT_LARGE = 10;
+    private static final byte ARRAY = 11;
+    private static final byte ARRAY_LARGE = 12;
+
+    /* The max size of the keys and values of an object with 2 byte offsets */
+    private static final int SMALL_LIMIT = 0xffff;
+
+    private IndexedJson() {
+    }
+
+    /**
+     * Returns whether the serialized JSON value is in this format.
+     */
+    static boolean isIndexed(byte[] bytes) {
+        return bytes.length > 0 && bytes[0] == MARKER;
+    }
+
+    /*
+     * Serialization
+     */
+
+    /**
+     * Serializes the value of a JSON column, returning null if it should be
+     * serialized with FieldValueSerialization instead. That is the case for
+     * atomic values and nulls, which gain nothing from this format, and for
+     * values that contain types that JSON documents created by the API do
+     * not contain.
+     */
+    static byte[] serialize(FieldValueSerializer value) {
+        if (value == null ||
+            value.isNull() ||
+            value.isEMPTY() ||
+            value.isJsonNull() ||
+            (value.getType() != FieldDefImpl.Type.MAP &&
+             value.getType() != FieldDefImpl.Type.ARRAY)) {
+            return null;
+        }
+        final Output out = new Output();
+        out.writeByte(MARKER);
+        return out.writeValue(value) ? out.toByteArray() : null;
+    }
+
+    /**
+     * A growable buffer that writes values in this format.
+     */
+    private static class Output {
+        private byte[] buf = new byte[256];
+        private int pos;
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, pos);
+        }
+
+        /*
+         * Returns false if the value contains an unsupported type.
+         */
+        boolean writeValue(FieldValueSerializer value) {
+            if (value.isJsonNull()) {
+                writeByte(NULL);
+                return true;
+            }
+            if (value.isNull() || value.isEMPTY()) {
+                return false;
+            }
+            switch (value.getType()) {
+            case BOOLEAN:
+                writeByte(value.getBoolean() ? TRUE : FALSE);
+                return true;
+            case INTEGER:
+                writeByte(INTEGER);
+                ensure(PackedInteger.MAX_LENGTH);
+                pos = PackedInteger.writeInt(buf, pos, value.getInt());
+                return true;
+            case LONG:
+                writeByte(LONG);
+                ensure(PackedInteger.MAX_LONG_LENGTH);
+                pos = PackedInteger.writeLong(buf, pos, value.getLong());
+                return true;
+            case FLOAT:
+                writeByte(FLOAT);
+                writeFixed(Float.floatToIntBits(value.getFloat()), 4);
+                return true;
+            case DOUBLE: {
+                writeByte(DOUBLE);
+                final long bits = Double.doubleToLongBits(value.getDouble());
+                writeFixed((int) (bits >>> 32), 4);
+                writeFixed((int) bits, 4);
+                return true;
+            }
+            case NUMBER:
+                writeByte(NUMBER);
+                writeBytes(value.getNumberBytes());
+                return true;
+            case STRING:
+                writeByte(STRING);
+                writeBytes(value.getString().getBytes(StandardCharsets.UTF_8));
+                return true;
+            case MAP:
+                return writeObject(value.asMapValueSerializer());
+            case ARRAY:
+                return writeArray(value.asArrayValueSerializer());
+            default:
+                return false;
+            }
+        }
+
+        private boolean writeObject(MapValueSerializer map) {
+            if (!FieldDefImpl.mapJsonDef.equals(map.getDefinition())) {
+                return false;
+            }
+
+            final int n = map.size();
+            final KeyAndValue[] entries = new KeyAndValue[n];
+            final Iterator<Entry<String, FieldValueSerializer>> iter =
+                map.iterator();
+            for (int i = 0; i < n; i++) {
+                final Entry<String, FieldValueSerializer> e = iter.next();
+                entries[i] = new KeyAndValue(
+                    e.getKey().getBytes(StandardCharsets.UTF_8),
+                    e.getValue());
+            }
+            Arrays.sort(entries);
+
+            /*
+             * Write the keys and values after space for the largest header,
+             * then move them down once the size of the offsets is known.
+             */
+            final int start = pos;
+            final int maxHeader =
+                1 + PackedInteger.getWriteIntLength(n) + (n * 2 * 4);
+            ensure(maxHeader);
+            pos += maxHeader;
+            final int dataStart = pos;
+            final int[] offsets = new int[n * 2];
+            for (int i = 0; i < n; i++) {
+                offsets[i] = pos - dataStart;
+                writeBytes(entries[i].key);
+            }
+            for (int i = 0; i < n; i++) {
+                offsets[n + i] = pos - dataStart;
+                if (!writeValue(entries[i].value)) {
+                    return false;
+                }
+            }
+            writeHeader(start, dataStart,
+                        (pos - dataStart > SMALL_LIMIT) ? OBJECT_LARGE : OBJECT,
+                        n, -1, offsets);
+            return true;
+        }
+
+        private boolean writeArray(ArrayValueSerializer array) {
+            if (!FieldDefImpl.arrayJsonDef.equals(array.getDefinition())) {
+                return false;
+            }
+
+            final int n = array.size();
+            final boolean homogeneous =
+                (array instanceof ArrayValueImpl) &&
+                ((ArrayValueImpl) array).isHomogeneous();
+            final int start = pos;
+            final int maxHeader =
+                1 + PackedInteger.getWriteIntLength(n) + 1 + (n * 4);
+            ensure(maxHeader);
+            pos += maxHeader;
+            final int dataStart = pos;
+            final int[] offsets = new int[n];
+            final Iterator<FieldValueSerializer> iter = array.iterator();
+            for (int i = 0; i < n; i++) {
+                offsets[i] = pos - dataStart;
+                if (!writeValue(iter.next())) {
+                    return false;
+                }
+            }
+            writeHeader(start, dataStart,
+                        (pos - dataStart > SMALL_LIMIT) ? ARRAY_LARGE : ARRAY,
+                        n, homogeneous ? 1 : 0, offsets);
+            return true;
+        }
+
+        /*
+         * Writes the header of an object or array at start, moving the data
+         * written at dataStart to follow it. Flags is only written if it is
+         * not negative.
+         */
+        private void writeHeader(int start,
+                                 int dataStart,
+                                 byte tag,
+                                 int n,
+                                 int flags,
+                                 int[] offsets) {
+            final int width = offsetWidth(tag);
+            final int headerLen = 1 + PackedInteger.getWriteIntLength(n) +
+                ((flags >= 0) ? 1 : 0) + (offsets.length * width);
+            final int dataLen = pos - dataStart;
+            System.arraycopy(buf, dataStart, buf, start + headerLen, dataLen);
+            pos = start;
+            writeByte(tag);
+            pos = PackedInteger.writeInt(buf, pos, n);
+            if (flags >= 0) {
+                writeByte((byte) flags);
+            }
+            for (int offset : offsets) {
+                writeFixed(offset, width);
+            }
+            pos += dataLen;
+        }
+
+        void writeByte(byte b) {
+            ensure(1);
+            buf[pos++] = b;
+        }
+
+        private void writeBytes(byte[] bytes) {
+            ensure(PackedInteger.MAX_LENGTH + bytes.length);
+            pos = PackedInteger.writeInt(buf, pos, bytes.length);
+            System.arraycopy(bytes, 0, buf, pos, bytes.length);
+            pos += bytes.length;
+        }
+
+        private void writeFixed(int value, int width) {
+            ensure(width);
+            for (int shift = (width - 1) * 8; shift >= 0; shift -= 8) {
+                buf[pos++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void ensure(int len) {
+            if (pos + len > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + len));
+            }
+        }
+    }
+
+    /**
+     * An object entry, ordered by the unsigned bytes of its UTF-8 key.
+     */
+    private static class KeyAndValue implements Comparable<KeyAndValue> {
+        final byte[] key;
+        final FieldValueSerializer value;
+
+        KeyAndValue(byte[] key, FieldValueSerializer value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public int compareTo(KeyAndValue other) {
+            return IndexImpl.compareUnsignedBytes(key, other.key);
+        }
+    }
+
+    /*
+     * Deserialization
+     */
+
+    /**
+     * Deserializes the value of a JSON column into a ValueReader. If the
+     * reader builds FieldValueImpl instances, objects are deserialized
+     * lazily, otherwise the whole value is passed to the reader.
+     */
+    static void read(ValueReader<?> reader, String fieldName, byte[] bytes) {
+        if (reader instanceof FieldValueReaderImpl) {
+            ((FieldValueReaderImpl<?>) reader).readFieldValue(
+                fieldName, readValue(bytes, 1));
+        } else {
+            readEvents(reader, fieldName, bytes, 1);
+        }
+    }
+
+    /**
+     * Deserializes the value at the specified offset.
+     */
+    private static FieldValueImpl readValue(byte[] b, int off) {
+        switch (b[off]) {
+        case NULL:
+            return NullJsonValueImpl.getInstance();
+        case FALSE:
+            return booleanDef.createBoolean(false);
+        case TRUE:
+            return booleanDef.createBoolean(true);
+        case INTEGER:
+            return integerDef.createInteger(PackedInteger.readInt(b, off + 1));
+        case LONG:
+            return longDef.createLong(PackedInteger.readLong(b, off + 1));
+        case FLOAT:
+            return floatDef.createFloat(
+                Float.intBitsToFloat(readFixed(b, off + 1, 4)));
+        case DOUBLE:
+            return doubleDef.createDouble(Double.longBitsToDouble(
+                ((long) readFixed(b, off + 1, 4) << 32) |
+                (readFixed(b, off + 5, 4) & 0xffffffffL)));
+        case NUMBER:
+            return numberDef.createNumber(readBytes(b, off + 1));
+        case STRING:
+            return stringDef.createString(readString(b, off + 1));
+        case OBJECT:
+        case OBJECT_LARGE:
+            return new MapValueImpl(new LazyObject(b, off));
+        case ARRAY:
+        case ARRAY_LARGE: {
+            final ArrayValueImpl array =
+                FieldDefImpl.arrayJsonDef.createArray();
+            final int n = PackedInteger.readInt(b, off + 1);
+            final int flagsOff = off + 1 + PackedInteger.getReadIntLength(b,
+                                                                  off + 1);
+            final int width = offsetWidth(b[off]);
+            final int table = flagsOff + 1;
+            final int dataStart = table + (n * width);
+
+            /* add tracks whether the array is homogeneous */
+            for (int i = 0; i < n; i++) {
+                array.add(readValue(
+                    b, dataStart + readFixed(b, table + (i * width), width)));
+            }
+            return array;
+        }
+        default:
+            throw new IllegalStateException(
+                "Invalid indexed JSON tag: " + b[off]);
+        }
+    }
+
+    /**
+     * Passes the value at the specified offset to the reader.
+     */
+    private static void readEvents(ValueReader<?> reader,
+                                   String fieldName,
+                                   byte[] b,
+                                   int off) {
+        switch (b[off]) {
+        case OBJECT:
+        case OBJECT_LARGE: {
+            final LazyObject obj = new LazyObject(b, off);
+            reader.startMap(fieldName, FieldDefImpl.mapJsonDef);
+            for (int i = 0; i < obj.n; i++) {
+                readEvents(reader, readString(b, obj.keyOffset(i)),
+                           b, obj.valueOffset(i));
+            }
+            reader.endMap();
+            break;
+        }
+        case ARRAY:
+        case ARRAY_LARGE: {
+            final int n = PackedInteger.readInt(b, off + 1);
+            final int flagsOff = off + 1 + PackedInteger.getReadIntLength(b,
+                                                                  off + 1);
+            final int width = offsetWidth(b[off]);
+            final int table = flagsOff + 1;
+            final int dataStart = table + (n * width);
+            FieldDefImpl elemDef = null;
+            if (b[flagsOff] != 0 && n > 0) {
+                elemDef = readValue(b, dataStart + readFixed(b, table, width)).
+                    getDefinition();
+            }
+            reader.startArray(fieldName, FieldDefImpl.arrayJsonDef, elemDef);
+            for (int i = 0; i < n; i++) {
+                readEvents(reader, null, b,
+                           dataStart + readFixed(b, table + (i * width),
+                                                 width));
+            }
+            reader.endArray();
+            break;
+        }
+        case NULL:
+            reader.readJsonNull(fieldName);
+            break;
+        case FALSE:
+        case TRUE:
+            reader.readBoolean(fieldName, b[off] == TRUE);
+            break;
+        case INTEGER:
+            reader.readInteger(fieldName, PackedInteger.readInt(b, off + 1));
+            break;
+        case LONG:
+            reader.readLong(fieldName, PackedInteger.readLong(b, off + 1));
+            break;
+        case FLOAT:
+            reader.readFloat(fieldName,
+                             Float.intBitsToFloat(readFixed(b, off + 1, 4)));
+            break;
+        case DOUBLE:
+            reader.readDouble(fieldName, Double.longBitsToDouble(
+                ((long) readFixed(b, off + 1, 4) << 32) |
+                (readFixed(b, off + 5, 4) & 0xffffffffL)));
+            break;
+        case NUMBER:
+            reader.readNumber(fieldName, readBytes(b, off + 1));
+            break;
+        case STRING:
+            reader.readString(fieldName, readString(b, off + 1));
+            break;
+        default:
+            throw new IllegalStateException(
+                "Invalid indexed JSON tag: " + b[off]);
+        }
+    }
+
+    /**
+     * A serialized object, which provides access to its entries by key
+     * without deserializing the others. Instances are immutable.
+     */
+    static final class LazyObject {
+        private final byte[] b;
+        private final int n;
+        private final int width;
+        private final int table;
+        private final int dataStart;
+
+        LazyObject(byte[] b, int off) {
+            this.b = b;
+            n = PackedInteger.readInt(b, off + 1);
+            width = offsetWidth(b[off]);
+            table = off + 1 + PackedInteger.getReadIntLength(b, off + 1);
+            dataStart = table + (n * 2 * width);
+        }
+
+        int size() {
+            return n;
+        }
+
+        /**
+         * Returns the deserialized value of the entry with the specified
+         * key, or null if there is none.
+         */
+        FieldValueImpl get(String key) {
+            final byte[] k = key.getBytes(StandardCharsets.UTF_8);
+            int low = 0;
+            int high = n - 1;
+            while (low <= high) {
+                final int mid = (low + high) >>> 1;
+                final int cmp = compareKey(keyOffset(mid), k);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return readValue(b, valueOffset(mid));
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Deserializes the entries into the map, skipping keys that are
+         * already present.
+         */
+        void readEntries(Map<String, FieldValue> map) {
+            for (int i = 0; i < n; i++) {
+                final String key = readString(b, keyOffset(i));
+                if (!map.containsKey(key)) {
+                    map.put(key, readValue(b, valueOffset(i)));
+                }
+            }
+        }
+
+        int keyOffset(int i) {
+            return dataStart + readFixed(b, table + (i * width), width);
+        }
+
+        int valueOffset(int i) {
+            return dataStart + readFixed(b, table + ((n + i) * width), width);
+        }
+
+        /*
+         * Compares the key at the offset with k, as unsigned bytes.
+         */
+        private int compareKey(int off, byte[] k) {
+            final int len = PackedInteger.readInt(b, off);
+            final int start = off + PackedInteger.getReadIntLength(b, off);
+            final int min = Math.min(len, k.length);
+            for (int i = 0; i < min; i++) {
+                final int cmp = (b[start + i] & 0xff) - (k[i] & 0xff);
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            return len - k.length;
+        }
+    }
+
+    private static int offsetWidth(byte tag) {
+        return (tag == OBJECT_LARGE || tag == ARRAY_LARGE) ? 4 : 2;
+    }
+
+    private static int readFixed(byte[] b, int off, int width) {
+        int value = 0;
+        for (int i = 0; i < width; i++) {
+            value = (value << 8) | (b[off + i] & 0xff);
+        }
+        return value;
+    }
+
+    private static byte[] readBytes(byte[] b, int off) {
+        final int len = PackedInteger.readInt(b, off);
+        final int start = off + PackedInteger.getReadIntLength(b, off);
+        return Arrays.copyOfRange(b, start, start + len);
+    }
+
+    private static String readString(byte[] b, int off) {
+        final int len = PackedInteger.readInt(b, off);
+        final int start = off + PackedInteger.getReadIntLength(b, off);
+        return new String(b, start, len, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,360 @@
+/*-
+ * Copyright (C) 2011, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This file was distributed by Oracle as part of a version of Oracle NoSQL
+ * Database made available at:
+ *
+ * http://www.oracle.com/technetwork/database/database-technologies/nosqldb/downloads/index.html
+ *
+ * Please see the LICENSE file included in the top-level directory of the
+ * appropriate version of Oracle NoSQL Database for a copy of the license and
+ * additional information.
+ */
+
+package oracle.kv.impl.api.table;
+
+import java.util.Arrays;
+
+/**
+ * A pure Java implementation of the LZ4 block format, used to compress row
+ * values. It favors speed over ratio: a single hash table lookup finds
+ * match candidates, and matches are extended greedily.
+ *
+ * A block is a sequence of sequences, each made of a token byte, whose high
+ * 4 bits are the literal length and whose low 4 bits are the match length
+ * minus MIN_MATCH, the extra literal length bytes if the literal length is
+ * 15 or more, the literals, a 2 byte little-endian offset of the match, and
+ * the extra match length bytes. The last sequence only has literals. The
+ * uncompressed length is not stored in the block, it must be known to the
+ * caller.
+ *
+ * Compression may use a preset dictionary: content that is logically
+ * prepended to the input, so that matches may refer to it. The same
+ * dictionary must be supplied to decompress. Only the last MAX_OFFSET bytes
+ * of a dictionary can be referenced.
+ */
+final class LZCompressor {
+
+    static final int MAX_OFFSET = 65535;
+
+    private static final int MIN_MATCH = 4;
+
+    /* The last bytes of the input are always literals */
+    private static final int LAST_LITERALS = 5;
+
+    /* No match may start in the last MF_LIMIT bytes of the input */
+    private static final int MF_LIMIT = 12;
+
+    private static final int HASH_LOG = 12;
+
+    private static final int RUN_MASK = 15;
+
+    private static final byte[] NO_BYTES = new byte[0];
+
+    /* The hash table is reused by each thread, it is 16KB */
+    private static final ThreadLocal<int[]> hashTables =
+        new ThreadLocal<int[]>() {
+            @Override
+            protected int[] initialValue() {
+                return new int[1 << HASH_LOG];
+            }
+        };
+
+    private LZCompressor() {
+    }
+
+    /**
+     * A preset dictionary prepared for compression: the usable end of the
+     * dictionary, and the hash table of its positions. Copying the hash
+     * table to compress an input costs the same for any dictionary size,
+     * while hashing the dictionary costs up to MAX_OFFSET steps.
+     *
+     * Instances are immutable, and are built once for each dictionary.
+     */
+    static final class Dictionary {
+
+        private final byte[] bytes;
+
+        private final int[] hashTable;
+
+        Dictionary(byte[] dict) {
+            final int dictLen = Math.min(dict.length, MAX_OFFSET);
+            bytes = Arrays.copyOfRange(dict, dict.length - dictLen,
+                                       dict.length);
+            hashTable = new int[1 << HASH_LOG];
+            Arrays.fill(hashTable, -1);
+            for (int p = 0; p + MIN_MATCH <= dictLen; p++) {
+                hashTable[hash(readInt(bytes, p))] = p;
+            }
+        }
+    }
+
+    /**
+     * Returns the max compressed length of input of the specified length.
+     */
+    static int maxCompressedLength(int length) {
+        return length + (length / 255) + 16;
+    }
+
+    /**
+     * Compresses len bytes of src, starting at off, into dst, starting at
+     * dstOff.
+     *
+     * @param dict the prepared preset dictionary, or null
+     * @return the position in dst following the compressed data, or -1 if
+     * dst is too small
+     */
+    static int compress(Dictionary dict,
+                        byte[] src,
+                        int off,
+                        int len,
+                        byte[] dst,
+                        int dstOff) {
+
+        /*
+         * Positions are those of the concatenation of the usable end of the
+         * dictionary and the input, without building it: position p is in
+         * the dictionary if it is less than its length, and at p + shift in
+         * src otherwise. Only the input part is emitted.
+         */
+        final byte[] dictBytes = (dict == null) ? NO_BYTES : dict.bytes;
+        final int base = dictBytes.length;
+        final int shift = off - base;
+        final int end = base + len;
+
+        /*
+         * Start from the hash table of the dictionary, which was built when
+         * the dictionary was prepared.
+         */
+        final int[] table = hashTables.get();
+        if (dict == null) {
+            Arrays.fill(table, -1);
+        } else {
+            System.arraycopy(dict.hashTable, 0, table, 0, table.length);
+        }
+
+        final int matchLimit = end - LAST_LITERALS;
+        final int mfLimit = end - MF_LIMIT;
+        int anchor = base;
+        int p = base;
+        int out = dstOff;
+
+        while (p < mfLimit) {
+            final int seq = readInt(src, p + shift);
+            final int h = hash(seq);
+            int ref = table[h];
+            table[h] = p;
+            if (ref < 0 || p - ref > MAX_OFFSET ||
+                readInt(dictBytes, src, shift, ref) != seq) {
+                /* Skip faster through incompressible data */
+                p += 1 + ((p - anchor) >>> 6);
+                continue;
+            }
+
+            /* Extend the match backwards, then forwards */
+            while (p > anchor && ref > 0 &&
+                   src[p - 1 + shift] ==
+                   byteAt(dictBytes, src, shift, ref - 1)) {
+                p--;
+                ref--;
+            }
+            int matchLen = MIN_MATCH;
+            while (p + matchLen < matchLimit &&
+                   byteAt(dictBytes, src, shift, ref + matchLen) ==
+                   src[p + matchLen + shift]) {
+                matchLen++;
+            }
+
+            out = writeSequence(src, anchor + shift, p - anchor, p - ref,
+                                matchLen, dst, out);
+            if (out < 0) {
+                return -1;
+            }
+            p += matchLen;
+            anchor = p;
+
+            if (p < mfLimit) {
+                table[hash(readInt(src, p - 2 + shift))] = p - 2;
+            }
+        }
+
+        return writeSequence(src, anchor + shift, end - anchor, 0, 0,
+                             dst, out);
+    }
+
+    /**
+     * Decompresses len bytes of src, starting at off, into dst, which must
+     * be exactly the size of the uncompressed data.
+     *
+     * @param dict the preset dictionary used to compress, or null
+     * @throws IllegalStateException if the data is corrupt
+     */
+    static void decompress(byte[] dict,
+                           byte[] src,
+                           int off,
+                           int len,
+                           byte[] dst) {
+        final int end = off + len;
+        final int dictLen =
+            (dict == null) ? 0 : Math.min(dict.length, MAX_OFFSET);
+        int ip = off;
+        int op = 0;
+
+        try {
+            while (true) {
+                final int token = src[ip++] & 0xff;
+
+                int literalLen = token >>> 4;
+                if (literalLen == RUN_MASK) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xff;
+                        literalLen += b;
+                    } while (b == 255);
+                }
+                System.arraycopy(src, ip, dst, op, literalLen);
+                ip += literalLen;
+                op += literalLen;
+                if (ip >= end) {
+                    break;
+                }
+
+                final int offset =
+                    (src[ip] & 0xff) | ((src[ip + 1] & 0xff) << 8);
+                ip += 2;
+                int matchLen = token & RUN_MASK;
+                if (matchLen == RUN_MASK) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xff;
+                        matchLen += b;
+                    } while (b == 255);
+                }
+                matchLen += MIN_MATCH;
+
+                if (offset == 0 || offset > op + dictLen) {
+                    throw new IllegalStateException(
+                        "Invalid match offset: " + offset);
+                }
+                int ref = op - offset;
+                if (ref < 0) {
+                    /* The match starts in the dictionary */
+                    final int n = Math.min(-ref, matchLen);
+                    System.arraycopy(dict, dict.length + ref, dst, op, n);
+                    op += n;
+                    matchLen -= n;
+                    ref = 0;
+                }
+                if (op - ref >= matchLen) {
+                    System.arraycopy(dst, ref, dst, op, matchLen);
+                    op += matchLen;
+                } else {
+                    /* Overlapping copy, repeats the last bytes */
+                    for (int i = 0; i < matchLen; i++) {
+                        dst[op++] = dst[ref + i];
+                    }
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalStateException("Compressed data is corrupt", e);
+        }
+
+        if (op != dst.length || ip != end) {
+            throw new IllegalStateException(
+                "Compressed data is corrupt, uncompressed length is " + op +
+                " expected " + dst.length);
+        }
+    }
+
+    /**
+     * Writes a sequence of literalLen literals from in, starting at
+     * literalOff, followed by a match, unless matchLen is 0.
+     *
+     * @return the position in dst following the sequence, or -1 if dst is
+     * too small
+     */
+    private static int writeSequence(byte[] in,
+                                     int literalOff,
+                                     int literalLen,
+                                     int offset,
+                                     int matchLen,
+                                     byte[] dst,
+                                     int out) {
+
+        final int needed = 1 + literalLen + (literalLen / 255) + 1 +
+            ((matchLen == 0) ? 0 : 2 + (matchLen / 255) + 1);
+        if (out + needed > dst.length) {
+            return -1;
+        }
+
+        final int tokenPos = out++;
+        int token;
+        if (literalLen >= RUN_MASK) {
+            token = RUN_MASK << 4;
+            out = writeLength(literalLen - RUN_MASK, dst, out);
+        } else {
+            token = literalLen << 4;
+        }
+        System.arraycopy(in, literalOff, dst, out, literalLen);
+        out += literalLen;
+
+        if (matchLen != 0) {
+            dst[out++] = (byte) offset;
+            dst[out++] = (byte) (offset >>> 8);
+            final int ml = matchLen - MIN_MATCH;
+            if (ml >= RUN_MASK) {
+                token |= RUN_MASK;
+                out = writeLength(ml - RUN_MASK, dst, out);
+            } else {
+                token |= ml;
+            }
+        }
+        dst[tokenPos] = (byte) token;
+        return out;
+    }
+
+    private static int writeLength(int len, byte[] dst, int out) {
+        while (len >= 255) {
+            dst[out++] = (byte) 255;
+            len -= 255;
+        }
+        dst[out++] = (byte) len;
+        return out;
+    }
+
+    private static int readInt(byte[] b, int p) {
+        return (b[p] & 0xff) |
+            ((b[p + 1] & 0xff) << 8) |
+            ((b[p + 2] & 0xff) << 16) |
+            ((b[p + 3] & 0xff) << 24);
+    }
+
+    /*
+     * Returns the byte at position p of the concatenation of dict and the
+     * input in src, as described in compress.
+     */
+    private static byte byteAt(byte[] dict, byte[] src, int shift, int p) {
+        return (p < dict.length) ? dict[p] : src[p + shift];
+    }
+
+    /*
+     * Returns the int at position p of the concatenation of dict and the
+     * input in src, which may span both.
+     */
+    private static int readInt(byte[] dict, byte[] src, int shift, int p) {
+        if (p >= dict.length) {
+            return readInt(src, p + shift);
+        }
+        if (p + 4 <= dict.length) {
+            return readInt(dict, p);
+        }
+        return (byteAt(dict, src, shift, p) & 0xff) |
+            ((byteAt(dict, src, shift, p + 1) & 0xff) << 8) |
+            ((byteAt(dict, src, shift, p + 2) & 0xff) << 16) |
+            ((byteAt(dict, src, shift, p + 3) & 0xff) << 24);
+    }
+
+    private static int hash(int seq) {
+        return (seq * -1640531535) >>> (32 - HASH_LOG);
+    }
+}
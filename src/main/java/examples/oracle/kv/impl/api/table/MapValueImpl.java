@@ -16,6 +16,7 @@ package oracle.kv.impl.api.table;
 import static oracle.kv.impl.api.table.TableJsonUtils.jsonParserGetDecimalValue;
 
 import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Reader;
 import java.io.StringReader;
 import java.math.BigDecimal;
@@ -67,11 +68,26 @@ public class MapValueImpl extends ComplexValueImpl
 
     private final Map<String, FieldValue> fields;
 
+    /*
+     * The serialized form of a JSON object whose entries have not all been
+     * deserialized, or null. While it is set, fields only holds the entries
+     * that were accessed by get. See IndexedJson.
+     */
+    private transient volatile IndexedJson.LazyObject lazyObject;
+
     MapValueImpl(MapDef def) {
         super(def);
         fields = new TreeMap<String, FieldValue>();
     }
 
+    /**
+     * Creates a JSON map whose entries are deserialized when accessed.
+     */
+    MapValueImpl(IndexedJson.LazyObject lazyObject) {
+        this(FieldDefImpl.mapJsonDef);
+        this.lazyObject = lazyObject;
+    }
+
     /* DPL */
     private MapValueImpl() {
         super(null);
@@ -85,7 +101,7 @@ public class MapValueImpl extends ComplexValueImpl
     @Override
     public MapValueImpl clone() {
         MapValueImpl map = new MapValueImpl(getDefinition());
-        for (Entry<String, FieldValue> entry : fields.entrySet()) {
+        for (Entry<String, FieldValue> entry : fields().entrySet()) {
             map.put(entry.getKey(), entry.getValue().clone());
         }
         return map;
@@ -94,7 +110,7 @@ public class MapValueImpl extends ComplexValueImpl
     @Override
     public int hashCode() {
         int code = size();
-        for (Entry<String, FieldValue> entry : fields.entrySet()) {
+        for (Entry<String, FieldValue> entry : fields().entrySet()) {
             code += entry.getKey().hashCode() + entry.getValue().hashCode();
         }
         return code;
@@ -116,7 +132,7 @@ public class MapValueImpl extends ComplexValueImpl
                 getElementDef().equals(otherValue.getElementDef()) &&
                 getDefinition().equals(otherValue.getDefinition())) {
 
-                for (Entry<String, FieldValue> entry : fields.entrySet()) {
+                for (Entry<String, FieldValue> entry : fields().entrySet()) {
                     if (!entry.getValue().
                         equals(otherValue.get(entry.getKey()))) {
                         return false;
@@ -152,8 +168,9 @@ public class MapValueImpl extends ComplexValueImpl
             assert fields instanceof TreeMap;
             assert otherImpl.fields instanceof TreeMap;
 
-            Iterator<String> keyIter = fields.keySet().iterator();
-            Iterator<String> otherIter = otherImpl.fields.keySet().iterator();
+            Iterator<String> keyIter = fields().keySet().iterator();
+            Iterator<String> otherIter =
+                otherImpl.fields().keySet().iterator();
 
             while (keyIter.hasNext() && otherIter.hasNext()) {
                 String key = keyIter.next();
@@ -165,8 +182,8 @@ public class MapValueImpl extends ComplexValueImpl
                 /*
                  * Keys are equal, values must exist.
                  */
-                FieldValue val = fields.get(key);
-                FieldValue otherVal = otherImpl.fields.get(key);
+                FieldValue val = fields().get(key);
+                FieldValue otherVal = otherImpl.fields().get(key);
                 int valCompare = val.compareTo(otherVal);
                 if (valCompare != 0) {
                     return valCompare;
@@ -213,7 +230,8 @@ public class MapValueImpl extends ComplexValueImpl
 
     @Override
     public int size() {
-        return fields.size();
+        final IndexedJson.LazyObject lazy = lazyObject;
+        return (lazy != null) ? lazy.size() : fields.size();
     }
 
     @Override
@@ -223,11 +241,14 @@ public class MapValueImpl extends ComplexValueImpl
 
     @Override
     public FieldValue remove(String fieldName) {
-        return fields.remove(fieldName);
+        return fields().remove(fieldName);
     }
 
     @Override
     public FieldValueImpl get(String fieldName) {
+        if (lazyObject != null) {
+            return getLazy(fieldName);
+        }
         return (FieldValueImpl)fields.get(fieldName);
     }
 
@@ -311,7 +332,7 @@ public class MapValueImpl extends ComplexValueImpl
             throw new IllegalArgumentException(
                 "Cannot insert a JSON null into a non-JSON map");
         }
-        fields.put(name, NullJsonValueImpl.getInstance());
+        fields().put(name, NullJsonValueImpl.getInstance());
         return this;
     }
 
@@ -319,7 +340,7 @@ public class MapValueImpl extends ComplexValueImpl
      * This is only used internally for queries involving indexes on map keys
      */
     MapValue putNull(String name) {
-        fields.put(name, NullValueImpl.getInstance());
+        fields().put(name, NullValueImpl.getInstance());
         return this;
     }
 
@@ -344,28 +365,28 @@ public class MapValueImpl extends ComplexValueImpl
     @Override
     public MapValue put(String fieldName, FieldValue value) {
         value = validate(value, getElementDef());
-        fields.put(fieldName, value);
+        fields().put(fieldName, value);
         return this;
     }
 
     @Override
     public RecordValueImpl putRecord(String fieldName) {
         RecordValue val = getElementDef().createRecord();
-        fields.put(fieldName, val);
+        fields().put(fieldName, val);
         return (RecordValueImpl) val;
     }
 
     @Override
     public MapValueImpl putMap(String fieldName) {
         MapValue val = getElementDef().createMap();
-        fields.put(fieldName, val);
+        fields().put(fieldName, val);
         return (MapValueImpl) val;
     }
 
     @Override
     public ArrayValueImpl putArray(String fieldName) {
         ArrayValue val = getElementDef().createArray();
-        fields.put(fieldName, val);
+        fields().put(fieldName, val);
         return (ArrayValueImpl) val;
     }
 
@@ -393,7 +414,7 @@ public class MapValueImpl extends ComplexValueImpl
 
     @Override
     public Map<String, FieldValue> getMap() {
-        return fields;
+        return fields();
     }
 
     /**
@@ -531,7 +552,7 @@ public class MapValueImpl extends ComplexValueImpl
 
     @Override
     public FieldValueImpl getFieldValue(String fieldName) {
-        return (FieldValueImpl)fields.get(fieldName);
+        return get(fieldName);
     }
 
     /**
@@ -540,7 +561,7 @@ public class MapValueImpl extends ComplexValueImpl
     @Override
     public JsonNode toJsonNode() {
         ObjectNode node = JsonNodeFactory.instance.objectNode();
-        for (Entry<String, FieldValue> entry : fields.entrySet()) {
+        for (Entry<String, FieldValue> entry : fields().entrySet()) {
             node.put(entry.getKey(),
                      ((FieldValueImpl)entry.getValue()).toJsonNode());
         }
@@ -551,7 +572,7 @@ public class MapValueImpl extends ComplexValueImpl
     public void toStringBuilder(StringBuilder sb) {
         sb.append('{');
         int i = 0;
-        for (Entry<String, FieldValue> entry : fields.entrySet()) {
+        for (Entry<String, FieldValue> entry : fields().entrySet()) {
             String key = entry.getKey();
             FieldValueImpl val = (FieldValueImpl)entry.getValue();
             if (val != null) {
@@ -591,10 +612,49 @@ public class MapValueImpl extends ComplexValueImpl
      * local methods
      */
 
+    /**
+     * Returns the map of entries, deserializing the remaining entries of a
+     * lazy map first. Used by all methods other than get and size.
+     */
+    private Map<String, FieldValue> fields() {
+        if (lazyObject != null) {
+            materialize();
+        }
+        return fields;
+    }
+
+    private synchronized void materialize() {
+        if (lazyObject != null) {
+            lazyObject.readEntries(fields);
+            lazyObject = null;
+        }
+    }
+
+    /**
+     * Returns an entry of a lazy map, deserializing only that entry. It is
+     * cached, so that changes to a complex value are not lost.
+     */
+    private synchronized FieldValueImpl getLazy(String fieldName) {
+        FieldValueImpl value = (FieldValueImpl)fields.get(fieldName);
+        if (value == null && lazyObject != null) {
+            value = lazyObject.get(fieldName);
+            if (value != null) {
+                fields.put(fieldName, value);
+            }
+        }
+        return value;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        fields();
+        out.defaultWriteObject();
+    }
+
     /**
      * Clears the map.
      */
     void clearMap() {
+        lazyObject = null;
         fields.clear();
     }
 
@@ -606,7 +666,7 @@ public class MapValueImpl extends ComplexValueImpl
         if (getDefinition().getType() != value.getType()) {
             value = validate(value, getElementDef());
         }
-        fields.put(fieldName, value);
+        fields().put(fieldName, value);
         return this;
     }
 
@@ -615,11 +675,11 @@ public class MapValueImpl extends ComplexValueImpl
     }
 
     public Map<String, FieldValue> getFieldsInternal() {
-        return fields;
+        return fields();
     }
 
     public Set<String> getFieldNames() {
-        return fields.keySet();
+        return fields().keySet();
     }
 
     /**
@@ -627,7 +687,7 @@ public class MapValueImpl extends ComplexValueImpl
      * stored as an integer index into the enumeration values in indexes.
      */
     MapValue putEnum(String name, int index) {
-        fields.put(name, ((EnumDefImpl)getElementDef()).createEnum(index));
+        fields().put(name, ((EnumDefImpl)getElementDef()).createEnum(index));
         return this;
     }
 
@@ -0,0 +1,301 @@
+/*-
+ * Copyright (C) 2011, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This file was distributed by Oracle as part of a version of Oracle NoSQL
+ * Database made available at:
+ *
+ * http://www.oracle.com/technetwork/database/database-technologies/nosqldb/downloads/index.html
+ *
+ * Please see the LICENSE file included in the top-level directory of the
+ * appropriate version of Oracle NoSQL Database for a copy of the license and
+ * additional information.
+ */
+
+package oracle.kv.impl.api.table;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+
+import oracle.kv.table.FieldDef;
+import oracle.kv.table.FieldValue;
+
+/**
+ * The elements of an array of INTEGER, LONG, FLOAT or DOUBLE, stored in an
+ * array of the primitive type rather than as one FieldValueImpl per element.
+ *
+ * ArrayValueImpl uses it for arrays whose element type is one of these, so
+ * that an array of N doubles, for example, takes 8 * N bytes, instead of N
+ * DoubleValueImpl instances plus N references. It presents the elements as
+ * a List of FieldValue, creating the value of an element each time it is
+ * accessed; atomic values are immutable, so the copies are indistinguishable
+ * from the originals, other than by identity. Serialization and
+ * deserialization use the typed accessors, so that they create no values.
+ *
+ * Only values of the element type are accepted, see {@link #accepts}.
+ * Instances are not thread safe, like ArrayValueImpl.
+ */
+final class PrimitiveArray extends AbstractList<FieldValue> {
+
+    private static final int INITIAL_CAPACITY = 10;
+
+    private final FieldDefImpl elementDef;
+
+    private final FieldDef.Type type;
+
+    /* The elements, only the array for the element type is non-null */
+    private int[] ints;
+    private long[] longs;
+    private float[] floats;
+    private double[] doubles;
+
+    private int size;
+
+    private PrimitiveArray(FieldDefImpl elementDef) {
+        this.elementDef = elementDef;
+        type = elementDef.getType();
+        switch (type) {
+        case INTEGER:
+            ints = new int[INITIAL_CAPACITY];
+            break;
+        case LONG:
+            longs = new long[INITIAL_CAPACITY];
+            break;
+        case FLOAT:
+            floats = new float[INITIAL_CAPACITY];
+            break;
+        case DOUBLE:
+            doubles = new double[INITIAL_CAPACITY];
+            break;
+        default:
+            throw new IllegalStateException("Unexpected type: " + type);
+        }
+    }
+
+    /**
+     * Returns an empty instance for elements of the specified type, or null
+     * if the type does not have a primitive representation.
+     */
+    static PrimitiveArray create(FieldDefImpl elementDef) {
+        switch (elementDef.getType()) {
+        case INTEGER:
+        case LONG:
+        case FLOAT:
+        case DOUBLE:
+            return new PrimitiveArray(elementDef);
+        default:
+            return null;
+        }
+    }
+
+    FieldDef.Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns whether the value can be stored in this array, which is the
+     * case if it has the element type.
+     */
+    boolean accepts(FieldValue value) {
+        return value.getType() == type;
+    }
+
+    int getInt(int index) {
+        checkIndex(index);
+        return ints[index];
+    }
+
+    long getLong(int index) {
+        checkIndex(index);
+        return longs[index];
+    }
+
+    float getFloat(int index) {
+        checkIndex(index);
+        return floats[index];
+    }
+
+    double getDouble(int index) {
+        checkIndex(index);
+        return doubles[index];
+    }
+
+    /*
+     * The addX methods append an element without creating a value. They are
+     * used by deserialization, and do not validate the element against the
+     * element type, since it was validated when it was serialized.
+     */
+
+    void addInt(int value) {
+        makeRoom(size);
+        ints[size++] = value;
+    }
+
+    void addLong(long value) {
+        makeRoom(size);
+        longs[size++] = value;
+    }
+
+    void addFloat(float value) {
+        makeRoom(size);
+        floats[size++] = value;
+    }
+
+    void addDouble(double value) {
+        makeRoom(size);
+        doubles[size++] = value;
+    }
+
+    /*
+     * List methods
+     */
+
+    @Override
+    public FieldValueImpl get(int index) {
+        checkIndex(index);
+        switch (type) {
+        case INTEGER:
+            return (FieldValueImpl)elementDef.createInteger(ints[index]);
+        case LONG:
+            return (FieldValueImpl)elementDef.createLong(longs[index]);
+        case FLOAT:
+            return (FieldValueImpl)elementDef.createFloat(floats[index]);
+        default:
+            return (FieldValueImpl)elementDef.createDouble(doubles[index]);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public FieldValue set(int index, FieldValue value) {
+        checkAccepts(value);
+        final FieldValue old = get(index);
+        store(index, value);
+        return old;
+    }
+
+    @Override
+    public void add(int index, FieldValue value) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException(
+                "Index: " + index + ", Size: " + size);
+        }
+        checkAccepts(value);
+        makeRoom(index);
+        size++;
+        store(index, value);
+        modCount++;
+    }
+
+    @Override
+    public FieldValue remove(int index) {
+        final FieldValue old = get(index);
+        final int moved = size - index - 1;
+        if (moved > 0) {
+            final Object data = data();
+            System.arraycopy(data, index + 1, data, index, moved);
+        }
+        size--;
+        modCount++;
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        modCount++;
+    }
+
+    private void checkAccepts(FieldValue value) {
+        if (!accepts(value)) {
+            throw new ClassCastException(
+                "Value of type " + value.getType() +
+                " cannot be stored in an array of " + type);
+        }
+    }
+
+    /*
+     * Stores the value of an element, which must have the element type.
+     */
+    private void store(int index, FieldValue value) {
+        switch (type) {
+        case INTEGER:
+            ints[index] = value.asInteger().get();
+            break;
+        case LONG:
+            longs[index] = value.asLong().get();
+            break;
+        case FLOAT:
+            floats[index] = value.asFloat().get();
+            break;
+        default:
+            doubles[index] = value.asDouble().get();
+            break;
+        }
+    }
+
+    /*
+     * Makes room for one more element at the index, growing the array if
+     * needed and moving the elements that follow the index up by one.
+     */
+    private void makeRoom(int index) {
+        Object data = data();
+        final int capacity = capacity();
+        if (size == capacity) {
+            final int newCapacity = capacity + (capacity >> 1) + 1;
+            switch (type) {
+            case INTEGER:
+                data = ints = Arrays.copyOf(ints, newCapacity);
+                break;
+            case LONG:
+                data = longs = Arrays.copyOf(longs, newCapacity);
+                break;
+            case FLOAT:
+                data = floats = Arrays.copyOf(floats, newCapacity);
+                break;
+            default:
+                data = doubles = Arrays.copyOf(doubles, newCapacity);
+                break;
+            }
+        }
+        if (index < size) {
+            System.arraycopy(data, index, data, index + 1, size - index);
+        }
+    }
+
+    private Object data() {
+        switch (type) {
+        case INTEGER:
+            return ints;
+        case LONG:
+            return longs;
+        case FLOAT:
+            return floats;
+        default:
+            return doubles;
+        }
+    }
+
+    private int capacity() {
+        switch (type) {
+        case INTEGER:
+            return ints.length;
+        case LONG:
+            return longs.length;
+        case FLOAT:
+            return floats.length;
+        default:
+            return doubles.length;
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(
+                "Index: " + index + ", Size: " + size);
+        }
+    }
+}
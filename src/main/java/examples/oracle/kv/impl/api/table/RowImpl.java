@@ -325,4 +325,8 @@ public class RowImpl extends RecordValueImpl implements Row, RowSerializer {
     ValueReader<RowImpl> initRowReader() {
         return table.initRowReader(this);
     }
+
+    ValueReader<RowImpl> initRowReader(ValueDictionary dictionary) {
+        return table.initRowReader(this, dictionary);
+    }
 }
@@ -0,0 +1,52 @@
+/*-
+ * Copyright (C) 2011, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This file was distributed by Oracle as part of a version of Oracle NoSQL
+ * Database made available at:
+ *
+ * http://www.oracle.com/technetwork/database/database-technologies/nosqldb/downloads/index.html
+ *
+ * Please see the LICENSE file included in the top-level directory of the
+ * appropriate version of Oracle NoSQL Database for a copy of the license and
+ * additional information.
+ */
+
+package oracle.kv.impl.api.table;
+
+/**
+ * A string value that is shared by many rows, such as the values returned
+ * by a ValueDictionary or by the string columns of a ColumnarBatch. Since
+ * a change to a shared value would silently change every row that refers
+ * to it, it cannot be modified with setString. Its clone is a new, mutable
+ * value that may be modified instead.
+ */
+class SharedStringValue extends StringValueImpl {
+
+    private static final long serialVersionUID = 1L;
+
+    private final StringDefImpl theTypeDef;
+
+    SharedStringValue(String value, StringDefImpl def) {
+        super(value);
+        theTypeDef = def;
+        if (def.hasMin() || def.hasMax()) {
+            def.validateValue(value);
+        }
+    }
+
+    @Override
+    public StringValueImpl clone() {
+        return theTypeDef.createString(value);
+    }
+
+    @Override
+    public StringDefImpl getDefinition() {
+        return theTypeDef;
+    }
+
+    @Override
+    public void setString(String v) {
+        throw new UnsupportedOperationException(
+            "Cannot modify a shared string value, modify a copy instead");
+    }
+}
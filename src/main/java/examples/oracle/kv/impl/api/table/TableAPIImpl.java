@@ -16,6 +16,7 @@ package oracle.kv.impl.api.table;
 import static java.util.Collections.singletonList;
 import static oracle.kv.impl.util.ObjectUtil.checkNull;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -44,6 +45,7 @@ import oracle.kv.OperationExecutionException;
 import oracle.kv.OperationResult;
 import oracle.kv.ResultHandler;
 import oracle.kv.ReturnValueVersion;
+import oracle.kv.StatementResult;
 import oracle.kv.Value;
 import oracle.kv.ValueVersion;
 import oracle.kv.Version;
@@ -60,6 +62,9 @@ import oracle.kv.impl.api.ops.Put;
 import oracle.kv.impl.api.ops.Result;
 import oracle.kv.impl.api.ops.ResultKey;
 import oracle.kv.impl.api.ops.ResultKeyValueVersion;
+import oracle.kv.impl.api.query.HashJoinIterator;
+import oracle.kv.impl.api.query.PreparedStatementImpl;
+import oracle.kv.impl.api.query.QueryResultCache;
 import oracle.kv.impl.api.table.ValueSerializer.RowSerializer;
 import oracle.kv.impl.async.AsyncIterationHandleImpl;
 import oracle.kv.impl.async.AsyncTableIterator;
@@ -68,6 +73,8 @@ import oracle.kv.impl.query.runtime.QueryKeyRange;
 import oracle.kv.impl.topo.PartitionId;
 import oracle.kv.impl.topo.RepGroupId;
 import oracle.kv.impl.util.contextlogger.LogContext;
+import oracle.kv.query.ExecuteOptions;
+import oracle.kv.query.PreparedStatement;
 import oracle.kv.table.FieldRange;
 import oracle.kv.table.IndexKey;
 import oracle.kv.table.KeyPair;
@@ -75,6 +82,7 @@ import oracle.kv.table.MultiGetResult;
 import oracle.kv.table.MultiRowOptions;
 import oracle.kv.table.PrimaryKey;
 import oracle.kv.table.ReadOptions;
+import oracle.kv.table.RecordValue;
 import oracle.kv.table.ReturnRow;
 import oracle.kv.table.Row;
 import oracle.kv.table.Table;
@@ -131,14 +139,31 @@ public class TableAPIImpl implements TableAPI {
      */
     private TableMetadataHelper metadataHelper;
 
+    /*
+     * The cache of query results, or null if it is disabled. See
+     * ExecuteOptions.setResultCacheTTL().
+     */
+    private final QueryResultCache queryResultCache;
+
+    /*
+     * The sizes of the values written to tables that have value compression
+     * enabled.
+     */
+    private final ValueCompressionStats compressionStats =
+        new ValueCompressionStats();
+
     /*
      * This must be public for KVStoreImpl to use it.
      */
-    public TableAPIImpl(KVStoreImpl store) {
+    public TableAPIImpl(KVStoreImpl store, long queryResultCacheMaxBytes) {
         this.store = store;
-        opFactory = new OpFactory(store.getOperationFactory());
+        opFactory = new OpFactory(store.getOperationFactory(),
+                                  compressionStats);
         fetchedTables = new ConcurrentHashMap<String, TableImpl>();
         metadataSeqNum = 0;
+        queryResultCache = (queryResultCacheMaxBytes > 0 ?
+                            new QueryResultCache(queryResultCacheMaxBytes) :
+                            null);
     }
 
     /*
@@ -162,6 +187,21 @@ public class TableAPIImpl implements TableAPI {
         return store.getDispatcher().getTableById(store, tableId);
     }
 
+    /**
+     * Returns the query result cache, or null if it is disabled.
+     */
+    public QueryResultCache getQueryResultCache() {
+        return queryResultCache;
+    }
+
+    /**
+     * Returns the statistics of the values written to tables that have value
+     * compression enabled.
+     */
+    public ValueCompressionStats getValueCompressionStats() {
+        return compressionStats;
+    }
+
     /**
      * Sets the TableMetadataCallback handler.
      *
@@ -209,6 +249,9 @@ public class TableAPIImpl implements TableAPI {
      * {@link TableMetadataCallback#metadataChanged}.
      */
     public void metadataNotification(int remoteSeqNum) {
+        if (queryResultCache != null) {
+            queryResultCache.metadataChanged(remoteSeqNum);
+        }
         if (metadataCallback != null && remoteSeqNum > metadataSeqNum) {
             synchronized(this) {
                 if (remoteSeqNum > metadataSeqNum) {
@@ -222,6 +265,25 @@ public class TableAPIImpl implements TableAPI {
         }
     }
 
+    /**
+     * Notifies the query result cache, if any, that a write operation made
+     * through this store handle has completed, so that the cached results
+     * of the queries on the tables it wrote are dropped.
+     */
+    public void writeNotification(InternalOperation op) {
+        if (queryResultCache == null) {
+            return;
+        }
+        final long[] tableIds = op.getTableIds();
+        if (tableIds != null) {
+            for (long tableId : tableIds) {
+                queryResultCache.tableWritten(tableId);
+            }
+            return;
+        }
+        queryResultCache.tableWritten(op.getTableId());
+    }
+
     /*
      * Note: the 2 getTables() interfaces are generally discouraged as they
      * pull the entire TableMetadata object from a server into a client.
@@ -306,6 +368,32 @@ public class TableAPIImpl implements TableAPI {
             false, reader);
     }
 
+    /**
+     * Reads the row with the specified primary key, passing its fields to
+     * the reader rather than creating a Row. Primitive fields are passed as
+     * they are decoded, so no FieldValue instances are created for them. On
+     * return the reader holds the row if this method returns true, and has
+     * been reset otherwise.
+     *
+     * Internal use only
+     *
+     * Public for use by applications that decode rows into their own
+     * structures
+     *
+     * @return true if the row exists
+     */
+    public boolean get(PrimaryKey rowKeyArg,
+                       ReadOptions readOptions,
+                       ValueReader<?> reader)
+        throws FaultException {
+
+        final PrimaryKeyImpl rowKey = (PrimaryKeyImpl)rowKeyArg;
+        final Result result = getInternal(rowKey, readOptions, null);
+        reader.reset();
+        createRowFromGetResult(result, rowKey, reader);
+        return result.getSuccess();
+    }
+
     /**
      * Internal use only
      *
@@ -471,7 +559,7 @@ public class TableAPIImpl implements TableAPI {
                                    LogContext lc) {
         TableImpl table = (TableImpl)row.getTable();
         Key key = table.createKeyInternal(row, false);
-        Value value = table.createValueInternal(row);
+        Value value = table.createValueInternal(row, compressionStats);
         return store.makePutRequest(key, value, rvv,
                                     table.getId(),
                                     getDurability(writeOptions),
@@ -545,7 +633,7 @@ public class TableAPIImpl implements TableAPI {
                                            LogContext lc) {
         TableImpl table = (TableImpl)row.getTable();
         final Key key = table.createKeyInternal(row, false);
-        final Value value = table.createValueInternal(row);
+        final Value value = table.createValueInternal(row, compressionStats);
 
         return store.makePutIfAbsentRequest(key, value, rvv,
                                             table.getId(),
@@ -610,7 +698,7 @@ public class TableAPIImpl implements TableAPI {
                                             LogContext lc) {
         TableImpl table = (TableImpl)row.getTable();
         final Key key = table.createKeyInternal(row, false);
-        final Value value = table.createValueInternal(row);
+        final Value value = table.createValueInternal(row, compressionStats);
 
         return store.makePutIfPresentRequest(key, value, rvv,
                                              table.getId(),
@@ -683,7 +771,7 @@ public class TableAPIImpl implements TableAPI {
 
         TableImpl table = (TableImpl) row.getTable();
         final Key key = table.createKeyInternal(row, false);
-        final Value value = table.createValueInternal(row);
+        final Value value = table.createValueInternal(row, compressionStats);
         return store.makePutIfVersionRequest(key, value, matchVersion, rvv,
                                              table.getId(),
                                              getDurability(writeOptions),
@@ -984,6 +1072,114 @@ public class TableAPIImpl implements TableAPI {
                              null);
     }
 
+    /**
+     * Returns an iterator over the rows matching the primary key that passes
+     * the fields of each row to the reader rather than creating Rows, so
+     * scans that feed the application's own structures do not create
+     * RowImpl or FieldValue instances for primitive fields.
+     *
+     * Each row is read into the reader, after resetting it, when the
+     * iterator advances to it, and next() returns the reader's getValue().
+     * A row is therefore only valid until the next call to hasNext() or
+     * next(). Rows are read in the thread that calls those methods.
+     *
+     * Ancestor and child tables may not be included, since the reader
+     * handles the rows of a single table.
+     *
+     * Internal use only
+     *
+     * Public for use by applications that decode rows into their own
+     * structures
+     */
+    public <T> TableIterator<T> tableReaderIterator(
+        PrimaryKey rowKey,
+        MultiRowOptions getOptions,
+        TableIteratorOptions iterateOptions,
+        ValueReader<T> reader) throws FaultException {
+
+        final Table table = rowKey.getTable();
+        final TableKey key = TableKey.createKey(table, rowKey, true);
+
+        if (getOptions != null) {
+            if ((getOptions.getIncludedParentTables() != null &&
+                 !getOptions.getIncludedParentTables().isEmpty()) ||
+                (getOptions.getIncludedChildTables() != null &&
+                 !getOptions.getIncludedChildTables().isEmpty())) {
+                throw new IllegalArgumentException
+                    ("Ancestor and child tables cannot be included when " +
+                     "reading rows with a ValueReader");
+            }
+            validateMultiRowOptions(getOptions, table, false);
+        }
+        return TableScan.createTableReaderIterator(this, key, getOptions,
+                                                   iterateOptions, reader);
+    }
+
+    /**
+     * Returns the equi-join of the results of two queries, evaluated at the
+     * client by a {@link HashJoinIterator}. This supports joins that cannot
+     * be expressed with the NESTED TABLES clause, such as joins between
+     * unrelated tables or on non-key columns, with one distributed scan per
+     * query rather than one get per row of the outer table.
+     *
+     * The build query should be the one with the smaller result. Its
+     * results are held in memory, up to options.getMaxMemoryMB(), and both
+     * results are spilled to temporary files in spillDir, or in the default
+     * temporary directory if it is null, if they need more. Each result of
+     * the join is a record with two fields, buildName and probeName, that
+     * hold the joined results of the two queries.
+     *
+     * The iterator must be closed if it is not read to the end, so that
+     * the temporary files are deleted.
+     *
+     * Internal use only
+     *
+     * Public for use by applications that need joins that the query
+     * language does not support
+     */
+    public TableIterator<RecordValue> executeJoin(String buildQuery,
+                                                  String buildName,
+                                                  String[] buildKeyFields,
+                                                  String probeQuery,
+                                                  String probeName,
+                                                  String[] probeKeyFields,
+                                                  ExecuteOptions options,
+                                                  File spillDir)
+        throws FaultException {
+
+        if (options == null) {
+            options = new ExecuteOptions();
+        }
+
+        final StatementResult build = executeJoinInput(buildQuery, options);
+        StatementResult probe = null;
+        try {
+            probe = executeJoinInput(probeQuery, options);
+            return new HashJoinIterator(build, buildName, buildKeyFields,
+                                        probe, probeName, probeKeyFields,
+                                        options.getMaxMemoryMB() *
+                                        1024L * 1024L,
+                                        spillDir);
+        } catch (RuntimeException re) {
+            build.close();
+            if (probe != null) {
+                probe.close();
+            }
+            throw re;
+        }
+    }
+
+    private StatementResult executeJoinInput(String query,
+                                             ExecuteOptions options) {
+
+        final PreparedStatement ps = store.prepare(query, options);
+        if (!(ps instanceof PreparedStatementImpl)) {
+            throw new IllegalArgumentException(
+                "The input of a join must be a query: " + query);
+        }
+        return store.executeSync(ps, options);
+    }
+
     private AsyncTableIterator<Row> tableIterator(
         PrimaryKey rowKey,
         MultiRowOptions getOptions,
@@ -1989,7 +2185,21 @@ public class TableAPIImpl implements TableAPI {
                                    RowImpl row,
                                    long expirationTime,
                                    boolean keyOnly) {
-        ValueReader<RowImpl> reader = row.initRowReader();
+        return getRowFromValueVersion(vv, row, expirationTime, keyOnly,
+                                      (ValueDictionary) null);
+    }
+
+    /**
+     * Creates a Row from the Value as above, sharing the strings of the row
+     * through the dictionary, if it is not null. The dictionary is shared by
+     * the rows of a result set, see ValueDictionary.
+     */
+    RowImpl getRowFromValueVersion(ValueVersion vv,
+                                   RowImpl row,
+                                   long expirationTime,
+                                   boolean keyOnly,
+                                   ValueDictionary dictionary) {
+        ValueReader<RowImpl> reader = row.initRowReader(dictionary);
         getRowFromValueVersion(vv, row, expirationTime, keyOnly, reader);
         return reader.getValue();
     }
@@ -2047,6 +2257,32 @@ public class TableAPIImpl implements TableAPI {
         }
     }
 
+    /**
+     * Reads a row of the table from its binary key and value into the
+     * reader, with a retry in the case of a TableVersionException.
+     */
+    boolean readRowFromBytes(TableImpl table,
+                             byte[] keyBytes,
+                             ValueVersion vv,
+                             long expirationTime,
+                             ValueReader<?> reader) {
+        try {
+            return table.readRowFromBytes(keyBytes, vv, expirationTime,
+                                          reader);
+        } catch (TableVersionException tve) {
+            final int requiredVersion = tve.getRequiredVersion();
+            assert requiredVersion > table.getTableVersion();
+            reader.reset();
+
+            /* See getRowFromValueVersion */
+            TableImpl newTable = fetchTable(table.getFullName(),
+                                            requiredVersion);
+            newTable = (TableImpl)newTable.getVersion(table.getTableVersion());
+            return newTable.readRowFromBytes(keyBytes, vv, expirationTime,
+                                             reader);
+        }
+    }
+
     TableImpl fetchTable(String tableName, int tableVersion) {
         TableImpl table = fetchedTables.get(tableName);
         if (table != null && table.numTableVersions() >= tableVersion) {
@@ -2218,9 +2454,12 @@ public class TableAPIImpl implements TableAPI {
      */
     public static class OpFactory implements TableOperationFactory {
         private final OperationFactoryImpl factory;
+        private final ValueCompressionStats compressionStats;
 
-        private OpFactory(final OperationFactoryImpl factory) {
+        private OpFactory(final OperationFactoryImpl factory,
+                          final ValueCompressionStats compressionStats) {
             this.factory = factory;
+            this.compressionStats = compressionStats;
         }
 
         @Override
@@ -2244,7 +2483,7 @@ public class TableAPIImpl implements TableAPI {
                 ReturnRowImpl.mapChoice(prevReturn);
             TableImpl table = (TableImpl)row.getTable();
             Key key = table.createKeyInternal(row, false);
-            Value value = table.createValueInternal(row);
+            Value value = table.createValueInternal(row, compressionStats);
             Operation op = factory.createPut(key, value, choice,
                                              abortIfUnsuccessful,
                                              table.getId());
@@ -2271,7 +2510,7 @@ public class TableAPIImpl implements TableAPI {
                 ReturnRowImpl.mapChoice(prevReturn);
             TableImpl table = (TableImpl)row.getTable();
             Key key = table.createKeyInternal(row, false);
-            Value value = table.createValueInternal(row);
+            Value value = table.createValueInternal(row, compressionStats);
             Operation op = factory.createPutIfAbsent(key, value, choice,
                                                      abortIfUnsuccessful,
                                                      table.getId());
@@ -2298,7 +2537,7 @@ public class TableAPIImpl implements TableAPI {
                 ReturnRowImpl.mapChoice(prevReturn);
             TableImpl table = (TableImpl)row.getTable();
             Key key = table.createKeyInternal(row, false);
-            Value value = table.createValueInternal(row);
+            Value value = table.createValueInternal(row, compressionStats);
             Operation op = factory.createPutIfPresent(key, value, choice,
                                                      abortIfUnsuccessful,
                                                      table.getId());
@@ -2328,7 +2567,7 @@ public class TableAPIImpl implements TableAPI {
                 ReturnRowImpl.mapChoice(prevReturn);
             TableImpl table = (TableImpl)row.getTable();
             Key key = table.createKeyInternal(row, false);
-            Value value = table.createValueInternal(row);
+            Value value = table.createValueInternal(row, compressionStats);
             Operation op = factory.createPutIfVersion(key, value,
                                                       versionMatch, choice,
                                                       abortIfUnsuccessful,
@@ -2522,6 +2761,7 @@ public class TableAPIImpl implements TableAPI {
         if (hasAncestorTables) {
             t = t.getTopLevelTable();
         }
+        final ValueDictionary dictionary = ValueDictionary.createIfEnabled();
 
         for (ResultKeyValueVersion rkvv : result.getKeyValueVersionList()) {
             RowImpl row = t.createRowFromKeyBytes(rkvv.getKeyBytes());
@@ -2531,7 +2771,8 @@ public class TableAPIImpl implements TableAPI {
                 list.add(getRowFromValueVersion(vv,
                                                 row,
                                                 rkvv.getExpirationTime(),
-                                                false));
+                                                false,
+                                                dictionary));
             }
         }
         return list;
@@ -69,6 +69,8 @@ public class TableBuilder extends TableBuilderBase {
 
     private boolean sysTable;
 
+    private ValueCompression compression;
+
     private TableBuilder(
         String namespace,
         String name,
@@ -196,6 +198,19 @@ public class TableBuilder extends TableBuilderBase {
         return sysTable;
     }
 
+    public ValueCompression getValueCompression() {
+        return compression;
+    }
+
+    /**
+     * Sets the value compression settings of the table, or null if values
+     * should not be compressed, which is the default.
+     */
+    public TableBuilderBase setValueCompression(ValueCompression value) {
+        this.compression = value;
+        return this;
+    }
+
     /**
      * Table-only methods
      */
@@ -335,21 +350,23 @@ public class TableBuilder extends TableBuilderBase {
             }
         }
 
-        return TableImpl.createTable(namespace,
-                                     getName(),
-                                     parent,
-                                     getPrimaryKey(),
-                                     getPrimaryKeySizes(),
-                                     getShardKey(),
-                                     fields,
-                                     r2compat,
-                                     schemaId,
-                                     getDescription(),
-                                     true,
-                                     owner,
-                                     ttl,
-                                     null, // limits
-                                     sysTable);
+        final TableImpl table = TableImpl.createTable(namespace,
+                                                      getName(),
+                                                      parent,
+                                                      getPrimaryKey(),
+                                                      getPrimaryKeySizes(),
+                                                      getShardKey(),
+                                                      fields,
+                                                      r2compat,
+                                                      schemaId,
+                                                      getDescription(),
+                                                      true,
+                                                      owner,
+                                                      ttl,
+                                                      null, // limits
+                                                      sysTable);
+        table.setValueCompression(compression);
+        return table;
     }
 
     @Override
@@ -17,6 +17,7 @@ import static oracle.kv.impl.api.table.TableJsonUtils.FIELDS;
 import static oracle.kv.impl.api.table.TableJsonUtils.NAME;
 import static oracle.kv.impl.util.SerialVersion.NAMESPACE_VERSION;
 import static oracle.kv.impl.util.SerialVersion.TTL_SERIAL_VERSION;
+import static oracle.kv.impl.util.SerialVersion.VALUE_COMPRESSION_VERSION;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -28,6 +29,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -198,6 +200,14 @@ public class TableImpl implements Table, MetadataInfo, Ownable,
      */
     private TableLimits limits = null;
 
+    /*
+     * Value compression settings. If this field is non-null, row values of
+     * this table are compressed as described in ValueCompression. It is only
+     * set when the table is created, and is null for tables created by
+     * earlier releases.
+     */
+    private ValueCompression compression = null;
+
     /*
      * transient, cached values
      */
@@ -394,6 +404,7 @@ public class TableImpl implements Table, MetadataInfo, Ownable,
      *  parent
      *  primaryKey, shardKey
      *  limits
+     *  compression
      *  indexes (they are immutable)
      */
     private TableImpl(TableImpl t) {
@@ -412,6 +423,7 @@ public class TableImpl implements Table, MetadataInfo, Ownable,
         owner = t.owner;
         sysTable = t.sysTable;
         limits = t.limits;
+        compression = t.compression;
 
         children = new TreeMap<String, Table>(FieldComparator.instance);
         for (Table table : t.children.values()) {
@@ -761,8 +773,16 @@ public class TableImpl implements Table, MetadataInfo, Ownable,
 
     @Override
     public Row createRowFromJson(String jsonInput, boolean exact) {
-        return createRowFromJson
-            (new ByteArrayInputStream(jsonInput.getBytes()), exact);
+
+        RowImpl row = createRow();
+
+        /*
+         * Parse the string directly, rather than encoding it into bytes in
+         * the platform charset and decoding them again.
+         */
+        ComplexValueImpl.createFromJson(row, jsonInput, exact,
+                                        false /*addMissingFields*/);
+        return row;
     }
 
     @Override
@@ -782,8 +802,10 @@ public class TableImpl implements Table, MetadataInfo, Ownable,
     @Override
     public PrimaryKeyImpl createPrimaryKeyFromJson(String jsonInput,
                                                    boolean exact) {
-        return createPrimaryKeyFromJson
-            (new ByteArrayInputStream(jsonInput.getBytes()), exact);
+        PrimaryKeyImpl key = createPrimaryKey();
+        ComplexValueImpl.createFromJson(key, jsonInput, exact,
+                                        false /*addMissingFields*/);
+        return key;
     }
 
     @Override
@@ -1369,6 +1391,32 @@ public class TableImpl implements Table, MetadataInfo, Ownable,
         return false;
     }
 
+    /**
+     * Deserializes a row of this table from its binary key and value,
+     * passing the fields to the reader rather than creating a RowImpl. The
+     * key must belong to this table, not to an ancestor or child table. The
+     * reader's getTable() method must return this table, and the reader
+     * should have been reset by the caller.
+     *
+     * @return true if the record is a row of this table, false otherwise
+     *
+     * @throws TableVersionException if the value was written with a table
+     * version that is newer than this table
+     */
+    public boolean readRowFromBytes(byte[] keyBytes,
+                                    ValueVersion vv,
+                                    long expirationTime,
+                                    ValueReader<?> reader) {
+
+        reader.setTableVersion(getTableVersion());
+        if (!initRowFromKeyBytes(keyBytes, -1, /*initPos*/
+                                 getRowDef(), reader)) {
+            return false;
+        }
+        reader.setExpirationTime(expirationTime);
+        return readRowFromValueVersion(reader, vv);
+    }
+
     /**
      * This method is used by the query runtime code. It is used by the
      * initRowFromBytes() method above, in which case the row param is a
@@ -1540,13 +1588,61 @@ public class TableImpl implements Table, MetadataInfo, Ownable,
     }
 
     public Value createValueInternal(RowSerializer row) {
+        return createValueInternal(row, null);
+    }
+
+    /**
+     * Serializes the non-key fields of a row without compression, even if
+     * the table has value compression enabled. This is used by export,
+     * which writes values in the uncompressed form.
+     */
+    public Value createUncompressedValue(RowSerializer row) {
+        final short opSerialVersion = (testCurrentSerialVersion != 0) ?
+                testCurrentSerialVersion : SerialVersion.CURRENT;
+        return createValueInternal(row, opSerialVersion, null, null);
+    }
+
+    /**
+     * Returns the compressed form of an uncompressed value of this table,
+     * if the table has value compression enabled and the value compresses,
+     * otherwise returns the value itself. This is used by import, which
+     * reads values in the uncompressed form.
+     *
+     * @param value the value, starting with the table version byte
+     */
+    public byte[] compressValue(byte[] value) {
+        if (compression == null || value.length == 0 ||
+            ValueCompression.isCompressed(value[0])) {
+            return value;
+        }
+        final byte[] compressed =
+            compression.compress(value[0], value, 1, value.length - 1);
+        return (compressed != null) ? compressed : value;
+    }
+
+    /**
+     * Serializes the non-key fields of a row, compressing the value if the
+     * table has value compression enabled.
+     *
+     * @param stats the statistics to update if the table has value
+     * compression enabled, or null
+     */
+    public Value createValueInternal(RowSerializer row,
+                                     ValueCompressionStats stats) {
         final short opSerialVersion = (testCurrentSerialVersion != 0) ?
                 testCurrentSerialVersion : SerialVersion.CURRENT;
-        return createValueInternal(row, opSerialVersion);
+        return createValueInternal(row, opSerialVersion, compression, stats);
     }
 
+    /*
+     * Values are only compressed if valueCompression is non-null. It is null
+     * when a value is serialized for a client that predates compression.
+     */
     @SuppressWarnings("deprecation")
-    private Value createValueInternal(RowSerializer row, short opSerialVersion) {
+    private Value createValueInternal(RowSerializer row,
+                                      short opSerialVersion,
+                                      ValueCompression valueCompression,
+                                      ValueCompressionStats stats) {
 
         Format valFormat = getValueFormat(opSerialVersion);
 
@@ -1555,48 +1651,70 @@ public class TableImpl implements Table, MetadataInfo, Ownable,
         }
 
         boolean isAvro = (schemaId != 0 && getTableVersion() == 1);
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
 
         /*
-         * If this is a normal table, write the table/schema version to the
-         * stream.
-         *
-         * If this is a table that overlays R2 (Avro) data and it has not been
-         * evolved (which excludes direct KV access) then it must be
-         * written using the AVRO Value.Format in order to be readable by
-         * a pure key/value application doing mixed access.
-         * Evolved R2 table overlays will have a table version > 1.
+         * Serialize into the thread's reusable buffer and encoder, so that
+         * the only allocation per row is the resulting byte array.
          */
-        if (!isAvro) {
-            int writeVersion = getTableVersion();
-            outputStream.write(writeVersion);
-            if (row instanceof RowImpl) {
-                setTableVersion((RowImpl) row);
-            }
-        } else {
-            final int size =
-                PackedInteger.getWriteSortedIntLength(schemaId);
-            final byte[] buf = new byte[size];
-            /* Copy in the schema ID. */
-            PackedInteger.writeSortedInt(buf, 0, schemaId);
-            outputStream.write(buf, 0, size);
-            if (row instanceof RowImpl) {
-                ((RowImpl) row).setTableVersion(1);
+        final ValueOutputBuffer outputStream = ValueOutputBuffer.acquire();
+        try {
+            /*
+             * If this is a normal table, write the table/schema version to
+             * the stream.
+             *
+             * If this is a table that overlays R2 (Avro) data and it has not
+             * been evolved (which excludes direct KV access) then it must be
+             * written using the AVRO Value.Format in order to be readable by
+             * a pure key/value application doing mixed access.
+             * Evolved R2 table overlays will have a table version > 1.
+             */
+            if (!isAvro) {
+                int writeVersion = getTableVersion();
+                outputStream.write(writeVersion);
+                if (row instanceof RowImpl) {
+                    setTableVersion((RowImpl) row);
+                }
+            } else {
+                final int size =
+                    PackedInteger.getWriteSortedIntLength(schemaId);
+                final byte[] buf = new byte[size];
+                /* Copy in the schema ID. */
+                PackedInteger.writeSortedInt(buf, 0, schemaId);
+                outputStream.write(buf, 0, size);
+                if (row instanceof RowImpl) {
+                    ((RowImpl) row).setTableVersion(1);
+                }
             }
-        }
-
-        Encoder e = TableJsonUtils.getEncoderFactory().
-            binaryEncoder(outputStream, null);
 
-        try {
+            final Encoder e = outputStream.getEncoder();
             writeAvroRecord(e, row, true, valFormat);
             e.flush();
+
+            /*
+             * Compress the Avro data that follows the table version byte.
+             * R2 compatible values must remain readable by KV applications,
+             * so they are never compressed.
+             */
+            if (valueCompression != null && !isAvro) {
+                final int size = outputStream.size();
+                final byte[] compressed = valueCompression.compress(
+                    getTableVersion(), outputStream.getBuffer(), 1, size - 1);
+                if (stats != null) {
+                    stats.record(size, (compressed != null) ?
+                                 compressed.length : size);
+                }
+                if (compressed != null) {
+                    return Value.internalCreateValue(compressed, valFormat);
+                }
+            }
             return Value.internalCreateValue
                 (outputStream.toByteArray(),
                  isAvro ? Value.Format.AVRO : valFormat);
         } catch (IOException ioe) {
             throw new IllegalCommandException("Failed to serialize Avro: " +
                                               ioe);
+        } finally {
+            outputStream.release();
         }
     }
 
@@ -1651,8 +1769,11 @@ public class TableImpl implements Table, MetadataInfo, Ownable,
                  */
                 return true;
             }
+            final boolean compressed = (format != Value.Format.AVRO &&
+                ValueCompression.isCompressed(data[offset]));
             int tableVersion = (format == Value.Format.AVRO ? 1
-                                : data[offset]);
+                                : ValueCompression.getTableVersion(
+                                    data[offset]));
             rowReader.setTableVersion(tableVersion);
             /*
              * If table versions don't match get the writer schema unless
@@ -1678,9 +1799,15 @@ public class TableImpl implements Table, MetadataInfo, Ownable,
 
                 /*
                  * If a "normal" table, or operating on the client side (offset
-                 * 0), move the offset past table version byte.
+                 * 0), move the offset past table version byte. A compressed
+                 * value is decompressed, and decoded from the start of the
+                 * uncompressed data.
                  */
-                if (!(format == Value.Format.AVRO) || offset == 0) {
+                if (compressed) {
+                    data = ValueCompression.decompress(compression, data,
+                                                       offset);
+                    offset = 0;
+                } else if (!(format == Value.Format.AVRO) || offset == 0) {
                     offset += 1;
                 }
                 Decoder decoder =
@@ -1839,6 +1966,51 @@ public class TableImpl implements Table, MetadataInfo, Ownable,
         limits = newLimits.hasLimits() ? newLimits : null;
     }
 
+    /**
+     * Returns the value compression settings of this table, or null if
+     * values are not compressed.
+     */
+    public ValueCompression getValueCompression() {
+        return compression;
+    }
+
+    /**
+     * Sets the value compression settings of this table, or clears them if
+     * newCompression is null. Values written before the change remain
+     * readable, unless the dictionary is changed, so this should only be
+     * called when the table is created.
+     */
+    public void setValueCompression(ValueCompression newCompression) {
+        if (newCompression != null && r2compat) {
+            throw new IllegalCommandException("Cannot compress the values " +
+                                              "of R2 compatible table " +
+                                              name);
+        }
+        compression = newCompression;
+    }
+
+    /**
+     * Builds a value compression dictionary for this table from sample rows,
+     * for use when creating a table with the same schema. The rows are
+     * serialized without compression and passed to
+     * ValueCompression.trainDictionary.
+     *
+     * @param rows sample rows of this table
+     * @param maxSize the max size of the dictionary
+     * @return the dictionary, or null if the rows have no content in common
+     */
+    public byte[] trainCompressionDictionary(Collection<? extends Row> rows,
+                                             int maxSize) {
+        final List<byte[]> samples = new ArrayList<byte[]>(rows.size());
+        for (Row row : rows) {
+            final Value value =
+                createValueInternal((RowSerializer) row,
+                                    SerialVersion.CURRENT, null, null);
+            samples.add(value.getValue());
+        }
+        return ValueCompression.trainDictionary(samples, maxSize);
+    }
+
     /**
      * Validates the new limits. The rules are:
      *  1) cannot set child table limits below the number of existing child
@@ -3599,6 +3771,33 @@ public class TableImpl implements Table, MetadataInfo, Ownable,
         encoder.writeArrayStart();
         encoder.setItemCount(arrayValue.size());
 
+        /* Write elements stored in primitive form without creating values */
+        final PrimitiveArray primitives =
+            (arrayValue instanceof ArrayValueImpl) ?
+            ((ArrayValueImpl) arrayValue).getPrimitives() : null;
+        if (primitives != null) {
+            final int size = primitives.size();
+            for (int i = 0; i < size; i++) {
+                encoder.startItem();
+                switch (primitives.getType()) {
+                case INTEGER:
+                    encoder.writeInt(primitives.getInt(i));
+                    break;
+                case LONG:
+                    encoder.writeLong(primitives.getLong(i));
+                    break;
+                case FLOAT:
+                    encoder.writeFloat(primitives.getFloat(i));
+                    break;
+                default:
+                    encoder.writeDouble(primitives.getDouble(i));
+                    break;
+                }
+            }
+            encoder.writeArrayEnd();
+            return;
+        }
+
         Iterator<FieldValueSerializer> iter = arrayValue.iterator();
         while(iter.hasNext()) {
             encoder.startItem();
@@ -3618,6 +3817,20 @@ public class TableImpl implements Table, MetadataInfo, Ownable,
                                       short jsonSerialVersion)
         throws IOException {
 
+        /*
+         * Write maps and arrays in the indexed format if it is enabled and
+         * the value format is recent enough. Older value formats are read by
+         * clients that predate it.
+         */
+        if (jsonSerialVersion == SerialVersion.CURRENT &&
+            IndexedJson.writeEnabled) {
+            final byte[] bytes = IndexedJson.serialize(fieldValue);
+            if (bytes != null) {
+                encoder.writeBytes(bytes);
+                return;
+            }
+        }
+
         final ByteArrayOutputStream baos = new ByteArrayOutputStream();
         final DataOutput out = new DataOutputStream(baos);
         FieldValueSerialization.writeFieldValueInternal(fieldValue, true, out,
@@ -3634,6 +3847,11 @@ public class TableImpl implements Table, MetadataInfo, Ownable,
                                         short jsonSerialVersion)
         throws IOException {
 
+        if (IndexedJson.isIndexed(bytes)) {
+            IndexedJson.read(reader, fieldName, bytes);
+            return;
+        }
+
         final ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
         final DataInput din = new DataInputStream(bais);
         FieldValueSerialization.readFieldValue(reader, fieldName, null,
@@ -3719,7 +3937,8 @@ public class TableImpl implements Table, MetadataInfo, Ownable,
 
         /* Do re-serialization work */
         RowImpl row = createRowFromBytes(keyBytes, valBytes, false);
-        Value oldVal = createValueInternal(row, targetSerialVersion);
+        Value oldVal = createValueInternal(row, targetSerialVersion,
+                                           null, null);
         return oldVal.toByteArray();
     }
 
@@ -3753,13 +3972,24 @@ public class TableImpl implements Table, MetadataInfo, Ownable,
      * value is needed to convert to older Format.TABLE if the request is from
      * older client which don't support Format.TABLE_V1 format, and the input
      * non empty value is in format of Format.TABLE_V1.
+     *
+     * A compressed value also needs to be converted, to an uncompressed one,
+     * if the request is from an older client which can't decompress values.
      */
     static boolean needConvertToOldFormat(short opSerialVersion,
                                           byte[] valBytes) {
 
-        return opSerialVersion < SerialVersion.VALUE_FORMAT_TABLE_V1_VERSION &&
-               (valBytes != null && valBytes.length > 0) &&
-               Value.Format.fromFirstByte(valBytes[0]) == Format.TABLE_V1;
+        if (valBytes == null || valBytes.length == 0) {
+            return false;
+        }
+        if (opSerialVersion < SerialVersion.VALUE_FORMAT_TABLE_V1_VERSION &&
+            Value.Format.fromFirstByte(valBytes[0]) == Format.TABLE_V1) {
+            return true;
+        }
+        return opSerialVersion < VALUE_COMPRESSION_VERSION &&
+               valBytes.length > 1 &&
+               Value.Format.isTableFormat(valBytes[0]) &&
+               ValueCompression.isCompressed(valBytes[1]);
     }
 
     /**
@@ -3882,6 +4112,10 @@ public class TableImpl implements Table, MetadataInfo, Ownable,
             requiredSerialVersion = (short)Math.max(requiredSerialVersion,
                                                     NAMESPACE_VERSION);
         }
+        if (compression != null) {
+            requiredSerialVersion = (short)Math.max(requiredSerialVersion,
+                                                    VALUE_COMPRESSION_VERSION);
+        }
         return requiredSerialVersion;
 
     }
@@ -3920,10 +4154,21 @@ public class TableImpl implements Table, MetadataInfo, Ownable,
         return testCurrentSerialVersion;
     }
 
-    @SuppressWarnings("unchecked")
     ValueReader<RowImpl> initRowReader(RowImpl value) {
+        return initRowReader(value, null);
+    }
+
+    /**
+     * Returns a reader for a row that shares the strings it reads through
+     * the dictionary, if it is not null.
+     */
+    @SuppressWarnings("unchecked")
+    ValueReader<RowImpl> initRowReader(RowImpl value,
+                                       ValueDictionary dictionary) {
         RowImpl row = (value != null) ? value : createRow();
-        ValueReader<?> reader = new RowReaderImpl(row);
+        RowReaderImpl rowReader = new RowReaderImpl(row);
+        rowReader.setDictionary(dictionary);
+        ValueReader<?> reader = rowReader;
         return (ValueReader<RowImpl>)reader;
     }
 
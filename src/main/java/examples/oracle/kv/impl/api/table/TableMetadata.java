@@ -130,6 +130,31 @@ public class TableMetadata implements TableMetadataHelper,
                               String description,
                               ResourceOwner owner,
                               boolean sysTable) {
+        return addTable(namespace, name, parentName,
+                        primaryKey, primaryKeySizes, shardKey, fieldMap, ttl,
+                        limits, r2compat, schemaId, description, owner,
+                        sysTable, null);
+    }
+
+    /**
+     * Adds a table whose row values are compressed with the specified
+     * settings, or are not compressed if compression is null.
+     */
+    public TableImpl addTable(String namespace,
+                              String name,
+                              String parentName,
+                              List<String> primaryKey,
+                              List<Integer> primaryKeySizes,
+                              List<String> shardKey,
+                              FieldMap fieldMap,
+                              TimeToLive ttl,
+                              TableLimits limits,
+                              boolean r2compat,
+                              int schemaId,
+                              String description,
+                              ResourceOwner owner,
+                              boolean sysTable,
+                              ValueCompression compression) {
         final TableImpl table = insertTable(namespace, name, parentName,
                                             primaryKey, primaryKeySizes,
                                             shardKey,
@@ -138,6 +163,7 @@ public class TableMetadata implements TableMetadataHelper,
                                             r2compat, schemaId,
                                             description,
                                             owner, sysTable);
+        table.setValueCompression(compression);
         addTableChange(table);
         return table;
     }
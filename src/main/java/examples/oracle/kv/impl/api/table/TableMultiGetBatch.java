@@ -155,6 +155,9 @@ class TableMultiGetBatch {
      */
     AsyncTableIterator<Row> createIterator() {
 
+        /* Share the repeated strings of the rows, if enabled */
+        final ValueDictionary dictionary = ValueDictionary.createIfEnabled();
+
         final BulkGetIterator<PrimaryKey, Row> getIterator =
             new BulkGetIterator<PrimaryKey, Row>(store,
                                                  primaryKeyIterators,
@@ -208,7 +211,8 @@ class TableMultiGetBatch {
                             vv,
                             row,
                             entry.getExpirationTime(),
-                            false);
+                            false,
+                            dictionary);
                         elementList.add(row);
                     }
                 }
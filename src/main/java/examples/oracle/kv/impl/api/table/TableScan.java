@@ -48,6 +48,7 @@ import oracle.kv.table.MultiGetResult;
 import oracle.kv.table.MultiRowOptions;
 import oracle.kv.table.PrimaryKey;
 import oracle.kv.table.Row;
+import oracle.kv.table.TableIterator;
 import oracle.kv.table.TableIteratorOptions;
 
 import com.sleepycat.util.PackedInteger;
@@ -112,6 +113,9 @@ public class TableScan {
                                               iterHandleNotifier);
         }
 
+        /* Share the repeated strings of the rows, if enabled */
+        final ValueDictionary dictionary = ValueDictionary.createIfEnabled();
+
         return new PartitionScanIterator<Row>(apiImpl.getStore(), options,
                                               params, iterHandleNotifier) {
             @Override
@@ -128,7 +132,7 @@ public class TableScan {
 
                 convertTableRowResults(apiImpl, key.getTable(), targetTables,
                                        result.getKeyValueVersionList(),
-                                       elementList);
+                                       elementList, dictionary);
             }
 
             @Override
@@ -142,6 +146,127 @@ public class TableScan {
         };
     }
 
+    /**
+     * Creates a table iterator that reads the fields of each row into a
+     * ValueReader rather than creating Rows. The raw keys and values
+     * returned by the scan are only decoded when the iterator advances, in
+     * the caller's thread, so the reader is never used concurrently.
+     *
+     * @param apiImpl
+     * @param key
+     * @param getOptions
+     * @param iterateOptions
+     * @param reader
+     *
+     * @return a table iterator
+     */
+    static <T> TableIterator<T>
+        createTableReaderIterator(final TableAPIImpl apiImpl,
+                                  final TableKey key,
+                                  final MultiRowOptions getOptions,
+                                  final TableIteratorOptions iterateOptions,
+                                  final ValueReader<T> reader) {
+
+        return new ReaderTableIterator<T>(
+            apiImpl, key.getTable(),
+            createTableRecordIterator(apiImpl, key, getOptions,
+                                      iterateOptions),
+            reader);
+    }
+
+    /**
+     * Creates a table iterator returning the undecoded records of rows.
+     */
+    private static TableIterator<ResultKeyValueVersion>
+        createTableRecordIterator(final TableAPIImpl apiImpl,
+                                  final TableKey key,
+                                  final MultiRowOptions getOptions,
+                                  final TableIteratorOptions iterateOptions) {
+
+        final TargetTables targetTables =
+            TableAPIImpl.makeTargetTables(key.getTable(), getOptions);
+
+        ExecuteOptions options = new ExecuteOptions();
+        if (iterateOptions != null) {
+            options.setMaxConcurrentRequests(
+                            iterateOptions.getMaxConcurrentRequests());
+        }
+
+        final StoreIteratorParams params = new StoreIteratorParams(
+            TableAPIImpl.getDirection(iterateOptions, key),
+            TableAPIImpl.getBatchSize(iterateOptions),
+            key.getKeyBytes(),
+            TableAPIImpl.makeKeyRange(key, getOptions),
+            Depth.PARENT_AND_DESCENDANTS,
+            TableAPIImpl.getConsistency(iterateOptions),
+            TableAPIImpl.getTimeout(iterateOptions),
+            TableAPIImpl.getTimeoutUnit(iterateOptions));
+
+        /*
+         * If the major key is complete do single-partition iteration.
+         */
+        if (key.getMajorKeyComplete()) {
+            final KVStoreImpl store = apiImpl.getStore();
+            final byte[] parentKeyBytes =
+                store.getKeySerializer().toByteArray(key.getKey());
+            final PartitionId partitionId =
+                store.getDispatcher().getPartitionId(parentKeyBytes);
+
+            return new MultiGetIteratorWrapper<ResultKeyValueVersion>(
+                store, partitionId, params, null) {
+                @Override
+                TableIterate createOp() {
+                    return new TableIterate(params, targetTables, true,
+                                            resumeKey,
+                                            1 /* emptyReadFactor */);
+                }
+
+                @Override
+                ResultKeyValueVersion[] processResult(Result result) {
+                    moreElements = result.hasMoreElements();
+                    final List<ResultKeyValueVersion> byteKeyResults =
+                        result.getKeyValueVersionList();
+                    if (byteKeyResults.isEmpty()) {
+                        assert !moreElements;
+                        return null;
+                    }
+                    resumeKey = byteKeyResults.
+                        get(byteKeyResults.size() - 1).getKeyBytes();
+                    return byteKeyResults.toArray(
+                        new ResultKeyValueVersion[byteKeyResults.size()]);
+                }
+            };
+        }
+
+        return new PartitionScanIterator<ResultKeyValueVersion>(
+            apiImpl.getStore(), options, params) {
+            @Override
+            protected TableIterate generateGetterOp(byte[] resumeKey) {
+                return new TableIterate(params,
+                                        targetTables,
+                                        key.getMajorKeyComplete(),
+                                        resumeKey,
+                                        1 /* emptyReadFactor */);
+            }
+
+            @Override
+            protected void convertResult(
+                Result result,
+                List<ResultKeyValueVersion> elementList) {
+
+                elementList.addAll(result.getKeyValueVersionList());
+            }
+
+            @Override
+            protected int compare(ResultKeyValueVersion one,
+                                  ResultKeyValueVersion two) {
+                /* Scans return rows sorted by their binary keys */
+                return IndexImpl.compareUnsignedBytes(one.getKeyBytes(),
+                                                      two.getKeyBytes());
+            }
+        };
+    }
+
     /**
      * Returns a batch of rows associated with the specified partial primary
      * key and a continuation key if has more elements to read, if no more
@@ -194,7 +319,8 @@ public class TableScan {
         @Override
         void convertToResults(Result result) {
             convertTableRowResults(apiImpl, key.getTable(), targetTables,
-                                   result.getKeyValueVersionList(), rows);
+                                   result.getKeyValueVersionList(), rows,
+                                   ValueDictionary.createIfEnabled());
         }
     }
 
@@ -426,14 +552,16 @@ public class TableScan {
 
     /**
      * Common routine to convert a list of ResultKeyValueVersion objects into
-     * Rows and add them to the input List of Row.
+     * Rows and add them to the input List of Row, sharing their strings
+     * through the dictionary, if it is not null.
      */
     private static void
         convertTableRowResults(TableAPIImpl apiImpl,
                                TableImpl table,
                                TargetTables targetTables,
                                final List<ResultKeyValueVersion> byteKeyResults,
-                               List<Row> rowResults) {
+                               List<Row> rowResults,
+                               ValueDictionary dictionary) {
 
         if (byteKeyResults.isEmpty()) {
             return;
@@ -443,19 +571,22 @@ public class TableScan {
          * Convert byte[] keys and values to Row objects.
          */
         for (ResultKeyValueVersion entry : byteKeyResults) {
-            rowResults.add(convertToRow(apiImpl, entry, table, targetTables));
+            rowResults.add(convertToRow(apiImpl, entry, table, targetTables,
+                                        dictionary));
         }
     }
 
     /**
      * Common routine to convert a list of ResultKeyValueVersion into an array
-     * of Row.
+     * of Row, sharing their strings through the dictionary, if it is not
+     * null.
      */
     private static Row[]
         convertTableRowResults(TableAPIImpl apiImpl,
                                TableImpl table,
                                TargetTables targetTables,
-                               final List<ResultKeyValueVersion> byteKeyResults) {
+                               final List<ResultKeyValueVersion> byteKeyResults,
+                               ValueDictionary dictionary) {
 
         if (byteKeyResults.isEmpty()) {
             return null;
@@ -467,7 +598,8 @@ public class TableScan {
         Row[] rows = new Row[byteKeyResults.size()];
         int i = 0;
         for (ResultKeyValueVersion entry : byteKeyResults) {
-            rows[i++] = convertToRow(apiImpl, entry, table, targetTables);
+            rows[i++] = convertToRow(apiImpl, entry, table, targetTables,
+                                     dictionary);
         }
         return rows;
     }
@@ -478,7 +610,8 @@ public class TableScan {
     private static Row convertToRow(TableAPIImpl apiImpl,
                                     final ResultKeyValueVersion rkvv,
                                     TableImpl table,
-                                    TargetTables targetTables) {
+                                    TargetTables targetTables,
+                                    ValueDictionary dictionary) {
         /*
          * If there are ancestor tables, start looking at the top
          * of the hierarchy to catch them.
@@ -496,7 +629,8 @@ public class TableScan {
             return apiImpl.getRowFromValueVersion(vv,
                                                   fullKey,
                                                   rkvv.getExpirationTime(),
-                                                  false);
+                                                  false,
+                                                  dictionary);
         }
         return null;
     }
@@ -589,6 +723,7 @@ public class TableScan {
         }
 
         final TableImpl table = key.getTable();
+        final ValueDictionary dictionary = ValueDictionary.createIfEnabled();
 
         return new MultiGetIteratorWrapper<Row>(store, partitionId, params,
                                                 iterHandleNotifier) {
@@ -610,7 +745,7 @@ public class TableScan {
                 resumeKey =
                     byteKeyResults.get(byteKeyResults.size() - 1).getKeyBytes();
                 return convertTableRowResults(apiImpl, table, targetTables,
-                                              byteKeyResults);
+                                              byteKeyResults, dictionary);
             }
         };
     }
@@ -670,6 +805,75 @@ public class TableScan {
         };
     }
 
+    /**
+     * A table iterator that reads the records returned by an iterator of
+     * undecoded records into a ValueReader.
+     */
+    private static class ReaderTableIterator<T> implements TableIterator<T> {
+
+        private final TableAPIImpl apiImpl;
+        private final TableImpl table;
+        private final TableIterator<ResultKeyValueVersion> records;
+        private final ValueReader<T> reader;
+
+        /* Whether the reader holds a row not yet returned by next() */
+        private boolean haveRow;
+
+        ReaderTableIterator(TableAPIImpl apiImpl,
+                            TableImpl table,
+                            TableIterator<ResultKeyValueVersion> records,
+                            ValueReader<T> reader) {
+            this.apiImpl = apiImpl;
+            this.table = table;
+            this.records = records;
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!haveRow && records.hasNext()) {
+                final ResultKeyValueVersion rkvv = records.next();
+                final Version version = rkvv.getVersion();
+                assert version != null;
+                reader.reset();
+                haveRow = apiImpl.readRowFromBytes(
+                    table, rkvv.getKeyBytes(),
+                    new ValueVersion(rkvv.getValue(), version),
+                    rkvv.getExpirationTime(), reader);
+            }
+            return haveRow;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            haveRow = false;
+            return reader.getValue();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            records.close();
+        }
+
+        @Override
+        public List<DetailedMetrics> getPartitionMetrics() {
+            return records.getPartitionMetrics();
+        }
+
+        @Override
+        public List<DetailedMetrics> getShardMetrics() {
+            return records.getShardMetrics();
+        }
+    }
+
     /**
      * Wrapper class for ParallelScanIterator when it is a single-partition
      * iteration.
@@ -0,0 +1,411 @@
+/*-
+ * Copyright (C) 2011, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This file was distributed by Oracle as part of a version of Oracle NoSQL
+ * Database made available at:
+ *
+ * http://www.oracle.com/technetwork/database/database-technologies/nosqldb/downloads/index.html
+ *
+ * Please see the LICENSE file included in the top-level directory of the
+ * appropriate version of Oracle NoSQL Database for a copy of the license and
+ * additional information.
+ */
+
+package oracle.kv.impl.api.table;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import com.sleepycat.persist.model.Persistent;
+import com.sleepycat.util.PackedInteger;
+
+/**
+ * The value compression settings of a table. When a table has settings,
+ * row values whose serialized size is at least the threshold are compressed
+ * with LZCompressor, using the table's dictionary, if any, when they are
+ * created, and are decompressed transparently when rows are deserialized,
+ * on clients as well as on RNs, for index key extraction and queries.
+ *
+ * A compressed value keeps the TABLE value format. Its first byte, which
+ * holds the table version, has COMPRESSED_FLAG set. Table versions are less
+ * than 128, so the flag is never set in an uncompressed value. The rest of
+ * the value is:
+ * <ol>
+ * <li> ({@code byte}) the dictionary ID, NO_DICTIONARY or TABLE_DICTIONARY
+ * <li> ({@link PackedInteger#writeInt packed int}) the uncompressed length
+ * <li> the compressed Avro data
+ * </ol>
+ * Values that do not get smaller are stored uncompressed.
+ *
+ * A dictionary helps to compress small values that are similar to each
+ * other, such as JSON documents with the same field names. One can be
+ * built from sample values with {@link #trainDictionary}. Only the last
+ * MAX_DICTIONARY_SIZE bytes of a dictionary are used.
+ *
+ * Values written by this release cannot be read by earlier releases. A
+ * table with compression requires SerialVersion.VALUE_COMPRESSION_VERSION,
+ * so the admin only creates it once the store has been upgraded, and RNs
+ * return the values of the table uncompressed to clients older than that
+ * version, as described in TableImpl.needConvertToOldFormat.
+ *
+ * Instances are immutable.
+ */
+@Persistent
+public class ValueCompression implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The default min size, in bytes, of values that are compressed. */
+    public static final int DEFAULT_THRESHOLD = 1024;
+
+    /** The max useful size of a dictionary. */
+    public static final int MAX_DICTIONARY_SIZE = LZCompressor.MAX_OFFSET;
+
+    /* The flag set in the table version byte of a compressed value */
+    static final int COMPRESSED_FLAG = 0x80;
+
+    /* The dictionary IDs stored in compressed values */
+    private static final int NO_DICTIONARY = 0;
+    private static final int TABLE_DICTIONARY = 1;
+
+    /* The sizes of shingles and segments used to train dictionaries */
+    private static final int SHINGLE_SIZE = 8;
+    private static final int SEGMENT_SIZE = 64;
+
+    private /*final*/ int threshold;
+
+    private /*final*/ byte[] dictionary;
+
+    /* The dictionary prepared for compression, built when first needed */
+    private transient volatile LZCompressor.Dictionary preparedDictionary;
+
+    /**
+     * Creates compression settings.
+     *
+     * @param threshold the min size, in bytes, of the serialized values that
+     * are compressed
+     * @param dictionary the dictionary, or null
+     */
+    public ValueCompression(int threshold, byte[] dictionary) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException(
+                "Compression threshold must not be negative: " + threshold);
+        }
+        this.threshold = threshold;
+        this.dictionary = ((dictionary == null) || (dictionary.length == 0)) ?
+            null : dictionary.clone();
+    }
+
+    /*
+     * No-arg ctor for use by DPL.
+     */
+    @SuppressWarnings("unused")
+    private ValueCompression() {
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Returns the dictionary, or null if there is none.
+     */
+    public byte[] getDictionary() {
+        return (dictionary == null) ? null : dictionary.clone();
+    }
+
+    /**
+     * Returns whether the table version byte of a value indicates that it is
+     * compressed.
+     */
+    public static boolean isCompressed(byte versionByte) {
+        return (versionByte & COMPRESSED_FLAG) != 0;
+    }
+
+    /**
+     * Returns the table version stored in the table version byte of a
+     * value.
+     */
+    public static int getTableVersion(byte versionByte) {
+        return versionByte & (COMPRESSED_FLAG - 1);
+    }
+
+    /**
+     * Returns the compressed form of a value, or null if the value should be
+     * stored uncompressed, because it is smaller than the threshold or does
+     * not compress.
+     *
+     * @param tableVersion the table version of the value
+     * @param data the serialized Avro data of the value
+     * @param off the offset of the data
+     * @param len the length of the data
+     */
+    byte[] compress(int tableVersion, byte[] data, int off, int len) {
+        if (len < threshold || tableVersion >= COMPRESSED_FLAG) {
+            return null;
+        }
+
+        /*
+         * Only accept a result that is smaller than the uncompressed value,
+         * so the compressed data must fit in the remainder of an array of
+         * the same size.
+         */
+        final byte[] result = new byte[1 + len];
+        int pos = 0;
+        result[pos++] = (byte) (tableVersion | COMPRESSED_FLAG);
+        result[pos++] = (byte) ((dictionary != null) ?
+                                TABLE_DICTIONARY : NO_DICTIONARY);
+        if (pos + PackedInteger.getWriteIntLength(len) >= result.length) {
+            return null;
+        }
+        pos = PackedInteger.writeInt(result, pos, len);
+        final int end = LZCompressor.compress(getPreparedDictionary(),
+                                              data, off, len, result, pos);
+        if (end < 0 || end == result.length) {
+            return null;
+        }
+        return Arrays.copyOf(result, end);
+    }
+
+    /**
+     * Returns the dictionary prepared for compression, or null if there is
+     * no dictionary. It is built on first use, since instances are also
+     * created by deserialization, and may be built more than once by
+     * concurrent callers, which is harmless.
+     */
+    private LZCompressor.Dictionary getPreparedDictionary() {
+        if (dictionary == null) {
+            return null;
+        }
+        LZCompressor.Dictionary dict = preparedDictionary;
+        if (dict == null) {
+            dict = new LZCompressor.Dictionary(dictionary);
+            preparedDictionary = dict;
+        }
+        return dict;
+    }
+
+    /**
+     * Returns the uncompressed Avro data of a compressed value.
+     *
+     * @param compression the compression settings of the table, or null
+     * @param data the value
+     * @param off the offset of the table version byte in data
+     *
+     * @throws IllegalStateException if the value is corrupt, or uses a
+     * dictionary that the table does not have
+     */
+    public static byte[] decompress(ValueCompression compression,
+                                    byte[] data,
+                                    int off) {
+        int pos = off + 1;
+        final int dictionaryId = data[pos++];
+        final byte[] dict;
+        if (dictionaryId == NO_DICTIONARY) {
+            dict = null;
+        } else if (dictionaryId == TABLE_DICTIONARY &&
+                   compression != null &&
+                   compression.dictionary != null) {
+            dict = compression.dictionary;
+        } else {
+            throw new IllegalStateException(
+                "Compressed value uses unknown dictionary " + dictionaryId);
+        }
+        final int len = PackedInteger.readInt(data, pos);
+        pos += PackedInteger.getReadIntLength(data, pos);
+
+        final byte[] result = new byte[len];
+        LZCompressor.decompress(dict, data, pos, data.length - pos, result);
+        return result;
+    }
+
+    /**
+     * Returns the uncompressed form of a value, with the table version byte
+     * followed by the Avro data, or the value itself if it is not
+     * compressed. This is the form used outside of the store, by export and
+     * import, since the dictionary of the table may differ between stores.
+     *
+     * @param compression the compression settings of the table, or null
+     * @param value the value, starting with the table version byte
+     *
+     * @throws IllegalStateException if the value is corrupt, or uses a
+     * dictionary that the table does not have
+     */
+    public static byte[] uncompressValue(ValueCompression compression,
+                                         byte[] value) {
+        if (value.length == 0 || !isCompressed(value[0])) {
+            return value;
+        }
+        final byte[] data = decompress(compression, value, 0);
+        final byte[] result = new byte[1 + data.length];
+        result[0] = (byte) getTableVersion(value[0]);
+        System.arraycopy(data, 0, result, 1, data.length);
+        return result;
+    }
+
+    /**
+     * Builds a compression dictionary from sample values, such as the
+     * serialized values of representative rows, returned by
+     * TableImpl.trainCompressionDictionary. The dictionary consists of the
+     * fixed-size segments of the samples that contain the most content
+     * found in other samples, chosen greedily so that each chosen segment
+     * adds new content, with the most useful segments last.
+     *
+     * @param samples the sample values
+     * @param maxSize the max size of the dictionary, at most
+     * MAX_DICTIONARY_SIZE
+     * @return the dictionary, or null if the samples have no content in
+     * common
+     */
+    public static byte[] trainDictionary(Collection<byte[]> samples,
+                                         int maxSize) {
+        if (maxSize <= 0 || maxSize > MAX_DICTIONARY_SIZE) {
+            throw new IllegalArgumentException(
+                "Dictionary size must be between 1 and " +
+                MAX_DICTIONARY_SIZE + ": " + maxSize);
+        }
+
+        /* Count the samples in which each shingle occurs */
+        final Map<Long, Integer> counts = new HashMap<Long, Integer>();
+        for (byte[] sample : samples) {
+            final Set<Long> seen = new HashSet<Long>();
+            for (int i = 0; i + SHINGLE_SIZE <= sample.length; i++) {
+                final Long shingle = shingle(sample, i);
+                if (seen.add(shingle)) {
+                    final Integer count = counts.get(shingle);
+                    counts.put(shingle, (count == null) ? 1 : count + 1);
+                }
+            }
+        }
+
+        /* Score the distinct segments of the samples */
+        final PriorityQueue<Segment> queue = new PriorityQueue<Segment>();
+        final Set<ByteBuffer> distinct = new HashSet<ByteBuffer>();
+        for (byte[] sample : samples) {
+            for (int off = 0; off < sample.length; off += SEGMENT_SIZE) {
+                final int len = Math.min(SEGMENT_SIZE, sample.length - off);
+                if (len < SHINGLE_SIZE ||
+                    !distinct.add(ByteBuffer.wrap(sample, off, len))) {
+                    continue;
+                }
+                final Segment segment = new Segment(sample, off, len);
+                segment.score(counts);
+                if (segment.score > 0) {
+                    queue.add(segment);
+                }
+            }
+        }
+
+        /*
+         * Choose segments greedily. Once a segment is chosen its shingles no
+         * longer count, so a segment's score is recomputed before it is
+         * chosen, and it is put back if it is no longer the best.
+         */
+        final List<Segment> chosen = new ArrayList<Segment>();
+        int size = 0;
+        while (!queue.isEmpty() && size < maxSize) {
+            final Segment segment = queue.poll();
+            final long oldScore = segment.score;
+            segment.score(counts);
+            if (segment.score <= 0) {
+                continue;
+            }
+            if (segment.score < oldScore && !queue.isEmpty() &&
+                segment.score < queue.peek().score) {
+                queue.add(segment);
+                continue;
+            }
+            chosen.add(segment);
+            size += segment.len;
+            for (int i = segment.off;
+                 i + SHINGLE_SIZE <= segment.off + segment.len; i++) {
+                counts.remove(shingle(segment.data, i));
+            }
+        }
+        if (chosen.isEmpty()) {
+            return null;
+        }
+
+        /* Put the best segments last, the first may be truncated */
+        final byte[] dict = new byte[Math.min(size, maxSize)];
+        int pos = dict.length;
+        for (Segment segment : chosen) {
+            final int len = Math.min(segment.len, pos);
+            pos -= len;
+            System.arraycopy(segment.data, segment.off + segment.len - len,
+                             dict, pos, len);
+        }
+        return dict;
+    }
+
+    private static long shingle(byte[] data, int off) {
+        long v = 0;
+        for (int i = 0; i < SHINGLE_SIZE; i++) {
+            v = (v << 8) | (data[off + i] & 0xff);
+        }
+        return v;
+    }
+
+    /**
+     * A segment of a sample, scored by the number of other samples that
+     * share each of its shingles. Segments with higher scores come first.
+     */
+    private static class Segment implements Comparable<Segment> {
+        final byte[] data;
+        final int off;
+        final int len;
+        long score;
+
+        Segment(byte[] data, int off, int len) {
+            this.data = data;
+            this.off = off;
+            this.len = len;
+        }
+
+        void score(Map<Long, Integer> counts) {
+            score = 0;
+            for (int i = off; i + SHINGLE_SIZE <= off + len; i++) {
+                final Integer count = counts.get(shingle(data, i));
+                if (count != null) {
+                    score += count - 1;
+                }
+            }
+        }
+
+        @Override
+        public int compareTo(Segment other) {
+            return Long.compare(other.score, score);
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof ValueCompression)) {
+            return false;
+        }
+        final ValueCompression other = (ValueCompression) obj;
+        return threshold == other.threshold &&
+            Arrays.equals(dictionary, other.dictionary);
+    }
+
+    @Override
+    public int hashCode() {
+        return threshold * 31 + Arrays.hashCode(dictionary);
+    }
+
+    @Override
+    public String toString() {
+        return "ValueCompression[threshold=" + threshold +
+            " dictionarySize=" +
+            ((dictionary == null) ? 0 : dictionary.length) + "]";
+    }
+}
@@ -0,0 +1,64 @@
+/*-
+ * Copyright (C) 2011, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This file was distributed by Oracle as part of a version of Oracle NoSQL
+ * Database made available at:
+ *
+ * http://www.oracle.com/technetwork/database/database-technologies/nosqldb/downloads/index.html
+ *
+ * Please see the LICENSE file included in the top-level directory of the
+ * appropriate version of Oracle NoSQL Database for a copy of the license and
+ * additional information.
+ */
+
+package oracle.kv.impl.api.table;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the row values written by a client to tables that have value
+ * compression enabled, and their sizes before and after compression. Values
+ * that were left uncompressed count with the same size before and after.
+ * See ValueCompression.
+ */
+public class ValueCompressionStats {
+
+    private final AtomicLong values = new AtomicLong();
+    private final AtomicLong compressedValues = new AtomicLong();
+    private final AtomicLong uncompressedBytes = new AtomicLong();
+    private final AtomicLong storedBytes = new AtomicLong();
+
+    /**
+     * Records a value.
+     *
+     * @param uncompressedSize the size of the serialized value
+     * @param storedSize the size of the value as stored, which is less than
+     * uncompressedSize if the value was compressed
+     */
+    void record(int uncompressedSize, int storedSize) {
+        values.incrementAndGet();
+        if (storedSize < uncompressedSize) {
+            compressedValues.incrementAndGet();
+        }
+        uncompressedBytes.addAndGet(uncompressedSize);
+        storedBytes.addAndGet(storedSize);
+    }
+
+    public long getValues(boolean clear) {
+        return (clear ? values.getAndSet(0) : values.get());
+    }
+
+    public long getCompressedValues(boolean clear) {
+        return (clear ? compressedValues.getAndSet(0) :
+                compressedValues.get());
+    }
+
+    public long getUncompressedBytes(boolean clear) {
+        return (clear ? uncompressedBytes.getAndSet(0) :
+                uncompressedBytes.get());
+    }
+
+    public long getStoredBytes(boolean clear) {
+        return (clear ? storedBytes.getAndSet(0) : storedBytes.get());
+    }
+}
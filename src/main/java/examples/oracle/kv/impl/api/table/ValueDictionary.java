@@ -0,0 +1,135 @@
+/*-
+ * Copyright (C) 2011, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This file was distributed by Oracle as part of a version of Oracle NoSQL
+ * Database made available at:
+ *
+ * http://www.oracle.com/technetwork/database/database-technologies/nosqldb/downloads/index.html
+ *
+ * Please see the LICENSE file included in the top-level directory of the
+ * appropriate version of Oracle NoSQL Database for a copy of the license and
+ * additional information.
+ */
+
+package oracle.kv.impl.api.table;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A bounded dictionary of string values and map keys that is shared by the
+ * rows or query results decoded by an iterator, or by a multiGet or query
+ * batch, so that equal strings that occur in many of them, such as the
+ * values of low-cardinality columns and the keys of JSON documents, are
+ * held in memory once. This reduces the retained heap of large result sets
+ * that are held in memory, at the cost of a hash lookup per string.
+ *
+ * Only strings of at most MAX_STRING_LENGTH characters are interned, since
+ * longer strings are rarely repeated. Once the dictionary holds maxEntries
+ * strings, new strings are no longer added, so a high-cardinality column
+ * only costs the lookups. The other immutable values, nulls, booleans and
+ * EMPTY, are always shared.
+ *
+ * The string values held by the dictionary are shared by all the rows that
+ * contain them, so they are SharedStringValue instances, which cannot be
+ * modified with setString.
+ *
+ * Decoding with a dictionary is optional. It is enabled by setting the
+ * system property INTERN_PROPERTY to true, in which case
+ * {@link #createIfEnabled} returns a new dictionary. Instances are thread
+ * safe, since a parallel scan decodes results in multiple threads.
+ */
+public class ValueDictionary {
+
+    /**
+     * The name of the system property that enables decoding with a
+     * dictionary.
+     */
+    public static final String INTERN_PROPERTY =
+        "oracle.kv.table.internStrings";
+
+    /** The default max number of strings held by a dictionary. */
+    public static final int DEFAULT_MAX_ENTRIES = 4096;
+
+    /* The max length of the strings that are interned */
+    static final int MAX_STRING_LENGTH = 64;
+
+    /*
+     * Whether decoding with a dictionary is enabled. It is only read once,
+     * but may be changed by tests.
+     */
+    static volatile boolean enabled = Boolean.getBoolean(INTERN_PROPERTY);
+
+    private final int maxEntries;
+
+    private final ConcurrentMap<String, SharedStringValue> values =
+        new ConcurrentHashMap<String, SharedStringValue>();
+
+    private final ConcurrentMap<String, String> names =
+        new ConcurrentHashMap<String, String>();
+
+    public ValueDictionary(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException(
+                "Max entries must be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns a new dictionary if decoding with a dictionary is enabled,
+     * else null.
+     */
+    public static ValueDictionary createIfEnabled() {
+        return enabled ? new ValueDictionary(DEFAULT_MAX_ENTRIES) : null;
+    }
+
+    /**
+     * Returns a string value for the string, which is shared if the string
+     * is in the dictionary or can be added to it.
+     */
+    StringValueImpl getStringValue(String value) {
+        if (value.length() > MAX_STRING_LENGTH) {
+            return FieldDefImpl.stringDef.createString(value);
+        }
+        final SharedStringValue result = values.get(value);
+        if (result != null) {
+            return result;
+        }
+        if (size() >= maxEntries) {
+            return FieldDefImpl.stringDef.createString(value);
+        }
+        final SharedStringValue shared =
+            new SharedStringValue(value, FieldDefImpl.stringDef);
+        final SharedStringValue existing = values.putIfAbsent(value, shared);
+        return (existing != null) ? existing : shared;
+    }
+
+    /**
+     * Returns the shared instance of a map key or field name, if it is in
+     * the dictionary or can be added to it, else the name itself.
+     */
+    String getName(String name) {
+        if (name == null || name.length() > MAX_STRING_LENGTH) {
+            return name;
+        }
+        final String result = names.get(name);
+        if (result != null) {
+            return result;
+        }
+        if (size() < maxEntries) {
+            final String existing = names.putIfAbsent(name, name);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Returns the number of strings in the dictionary.
+     */
+    int size() {
+        return values.size() + names.size();
+    }
+}
@@ -0,0 +1,158 @@
+/*-
+ * Copyright (C) 2011, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This file was distributed by Oracle as part of a version of Oracle NoSQL
+ * Database made available at:
+ *
+ * http://www.oracle.com/technetwork/database/database-technologies/nosqldb/downloads/index.html
+ *
+ * Please see the LICENSE file included in the top-level directory of the
+ * appropriate version of Oracle NoSQL Database for a copy of the license and
+ * additional information.
+ */
+
+package oracle.kv.impl.api.table;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.apache.avro.io.BinaryEncoder;
+
+/**
+ * A per-thread, growable output buffer and Avro encoder used to serialize
+ * row values.
+ *
+ * Serializing a row used to allocate a ByteArrayOutputStream, whose buffer
+ * grows by copying, and a new buffered BinaryEncoder, with its own 2KB
+ * buffer, for every row, and then to copy the result out of the stream.
+ * With this class the buffer and the encoder are allocated once per thread
+ * and reused, so serializing a row allocates only the resulting byte array.
+ *
+ * Unlike ByteArrayOutputStream, writes are not synchronized, since instances
+ * are confined to a thread. A buffer that grows beyond MAX_RETAINED_SIZE to
+ * serialize a large row is dropped after use, so that a thread does not hold
+ * on to a large array indefinitely.
+ */
+class ValueOutputBuffer extends OutputStream {
+
+    private static final int INITIAL_SIZE = 1024;
+
+    /* The largest buffer that is kept for reuse */
+    private static final int MAX_RETAINED_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<ValueOutputBuffer> buffers =
+        new ThreadLocal<ValueOutputBuffer>() {
+            @Override
+            protected ValueOutputBuffer initialValue() {
+                return new ValueOutputBuffer();
+            }
+        };
+
+    private byte[] buf = new byte[INITIAL_SIZE];
+    private int count;
+
+    /* The encoder last used with this buffer, reused by the next row */
+    private BinaryEncoder encoder;
+
+    /*
+     * Whether the encoder may hold buffered bytes that were not flushed,
+     * because serialization failed. Such an encoder is not reused, since
+     * reconfiguring it would flush the stale bytes into the buffer.
+     */
+    private boolean encoderDirty;
+
+    /* Whether the buffer is in use by the current thread */
+    private boolean inUse;
+
+    private ValueOutputBuffer() {
+    }
+
+    /**
+     * Returns an empty buffer for the current thread. The caller must call
+     * {@link #release} when done with it. If the thread's buffer is already
+     * in use, which only happens if serialization is reentered, a new buffer
+     * is returned.
+     */
+    static ValueOutputBuffer acquire() {
+        final ValueOutputBuffer b = buffers.get();
+        if (b.inUse) {
+            final ValueOutputBuffer nested = new ValueOutputBuffer();
+            nested.inUse = true;
+            return nested;
+        }
+        b.inUse = true;
+        b.count = 0;
+        return b;
+    }
+
+    /**
+     * Makes the buffer available for reuse by the current thread.
+     */
+    void release() {
+        inUse = false;
+        if (encoderDirty) {
+            encoder = null;
+            encoderDirty = false;
+        }
+        if (buf.length > MAX_RETAINED_SIZE) {
+            buf = new byte[INITIAL_SIZE];
+        }
+        count = 0;
+    }
+
+    /**
+     * Returns a binary encoder that writes to this buffer, reusing the one
+     * returned by the previous call if possible.
+     */
+    BinaryEncoder getEncoder() {
+        encoder = TableJsonUtils.getEncoderFactory().
+            binaryEncoder(this, encoder);
+        encoderDirty = true;
+        return encoder;
+    }
+
+    /**
+     * Returns a copy of the bytes written to the buffer. The caller must
+     * have flushed the encoder.
+     */
+    byte[] toByteArray() {
+        encoderDirty = false;
+        return Arrays.copyOf(buf, count);
+    }
+
+    /**
+     * Returns the buffer itself, of which the first {@link #size} bytes are
+     * valid, for use until the next write or release. The caller must have
+     * flushed the encoder.
+     */
+    byte[] getBuffer() {
+        encoderDirty = false;
+        return buf;
+    }
+
+    /**
+     * Returns the number of bytes written to the buffer.
+     */
+    int size() {
+        return count;
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(1);
+        buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensureCapacity(len);
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
+    }
+
+    private void ensureCapacity(int len) {
+        if (count + len > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + len));
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/*-
+ * Copyright (C) 2011, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This file was distributed by Oracle as part of a version of Oracle NoSQL
+ * Database made available at:
+ *
+ * http://www.oracle.com/technetwork/database/database-technologies/nosqldb/downloads/index.html
+ *
+ * Please see the LICENSE file included in the top-level directory of the
+ * appropriate version of Oracle NoSQL Database for a copy of the license and
+ * additional information.
+ */
+
+package oracle.kv.impl.measurement;
+
+import java.io.Serializable;
+
+/**
+ * An immutable histogram of request latencies, in microseconds, produced by
+ * a LatencyRecorder. Unlike the JE Latency class, whose percentiles are
+ * computed from a millisecond histogram and are lost when latencies are
+ * rolled up, histograms can be merged without loss, so percentiles remain
+ * accurate when combined across intervals, operations, or nodes.
+ *
+ * Values are recorded in log-linear buckets, as in HdrHistogram: values
+ * below SUB_BUCKETS are recorded exactly, and each larger power of 2 range
+ * is divided into SUB_BUCKETS equal buckets. Reported percentiles are the
+ * midpoint of a bucket, so their relative error is at most
+ * 1 / (2 * SUB_BUCKETS), which is under 1%. Values above MAX_VALUE are
+ * recorded in the last bucket, though the max is always exact.
+ *
+ * Only non-empty buckets are stored, which keeps the serialized form small.
+ */
+public class LatencyHistogram implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /* The number of bits used to divide each power of 2 range */
+    private static final int SUB_BUCKET_BITS = 6;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int SUB_BUCKET_MASK = SUB_BUCKETS - 1;
+
+    /** The largest value, in microseconds, recorded in its own bucket. */
+    static final long MAX_VALUE = (1L << 32) - 1;
+
+    /** The number of buckets needed to cover values up to MAX_VALUE. */
+    static final int NUM_BUCKETS = bucketIndex(MAX_VALUE) + 1;
+
+    public static final LatencyHistogram EMPTY =
+        new LatencyHistogram(new int[0], new long[0], 0, 0, 0, 0);
+
+    /* The indices of the non-empty buckets, in increasing order */
+    private final int[] buckets;
+
+    /* The counts of the non-empty buckets */
+    private final long[] counts;
+
+    private final long totalCount;
+    private final long totalMicros;
+    private final long minMicros;
+    private final long maxMicros;
+
+    LatencyHistogram(int[] buckets,
+                     long[] counts,
+                     long totalCount,
+                     long totalMicros,
+                     long minMicros,
+                     long maxMicros) {
+        this.buckets = buckets;
+        this.counts = counts;
+        this.totalCount = totalCount;
+        this.totalMicros = totalMicros;
+        this.minMicros = minMicros;
+        this.maxMicros = maxMicros;
+    }
+
+    /**
+     * Returns the index of the bucket that records the value.
+     */
+    static int bucketIndex(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (micros < 0) ? 0 : (int) micros;
+        }
+        if (micros > MAX_VALUE) {
+            micros = MAX_VALUE;
+        }
+        final int exp = 63 - Long.numberOfLeadingZeros(micros);
+        final int shift = exp - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) +
+            (int) ((micros >>> shift) & SUB_BUCKET_MASK);
+    }
+
+    /**
+     * Returns the value reported for values recorded in the bucket: the
+     * midpoint of the values covered by the bucket.
+     */
+    static long bucketValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        final long low =
+            ((long) (SUB_BUCKETS | (index & SUB_BUCKET_MASK))) << shift;
+        return low + (((1L << shift) - 1) >>> 1);
+    }
+
+    /**
+     * Returns the number of recorded requests.
+     */
+    public long getCount() {
+        return totalCount;
+    }
+
+    /**
+     * Returns the minimum latency in microseconds, or 0 if empty.
+     */
+    public long getMinMicros() {
+        return minMicros;
+    }
+
+    /**
+     * Returns the maximum latency in microseconds, or 0 if empty.
+     */
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+
+    /**
+     * Returns the average latency in microseconds, or 0 if empty.
+     */
+    public double getAverageMicros() {
+        return (totalCount == 0) ? 0 : ((double) totalMicros) / totalCount;
+    }
+
+    /**
+     * Returns the latency, in microseconds, at or below which the specified
+     * percentage of requests completed, or 0 if empty.
+     *
+     * @param percent the percentile, for example 99.9
+     */
+    public long getPercentileMicros(double percent) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil((percent / 100.0) * totalCount);
+        if (rank < 1) {
+            rank = 1;
+        }
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                final long value = bucketValue(buckets[i]);
+                return Math.max(minMicros, Math.min(value, maxMicros));
+            }
+        }
+        return maxMicros;
+    }
+
+    /**
+     * Returns a histogram that combines the values recorded in this
+     * histogram and the other one. Neither histogram is modified.
+     */
+    public LatencyHistogram merge(LatencyHistogram other) {
+        if (other.totalCount == 0) {
+            return this;
+        }
+        if (totalCount == 0) {
+            return other;
+        }
+
+        int[] mergedBuckets =
+            new int[buckets.length + other.buckets.length];
+        long[] mergedCounts = new long[mergedBuckets.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < buckets.length || j < other.buckets.length) {
+            if (j == other.buckets.length ||
+                (i < buckets.length && buckets[i] < other.buckets[j])) {
+                mergedBuckets[n] = buckets[i];
+                mergedCounts[n++] = counts[i++];
+            } else if (i == buckets.length ||
+                       other.buckets[j] < buckets[i]) {
+                mergedBuckets[n] = other.buckets[j];
+                mergedCounts[n++] = other.counts[j++];
+            } else {
+                mergedBuckets[n] = buckets[i];
+                mergedCounts[n++] = counts[i++] + other.counts[j++];
+            }
+        }
+        if (n < mergedBuckets.length) {
+            final int[] b = new int[n];
+            final long[] c = new long[n];
+            System.arraycopy(mergedBuckets, 0, b, 0, n);
+            System.arraycopy(mergedCounts, 0, c, 0, n);
+            mergedBuckets = b;
+            mergedCounts = c;
+        }
+
+        return new LatencyHistogram(mergedBuckets, mergedCounts,
+                                    totalCount + other.totalCount,
+                                    totalMicros + other.totalMicros,
+                                    Math.min(minMicros, other.minMicros),
+                                    Math.max(maxMicros, other.maxMicros));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%,d min=%,d avg=%,.1f 50th=%,d " +
+                             "95th=%,d 99th=%,d 99.9th=%,d 99.99th=%,d " +
+                             "max=%,d us",
+                             totalCount,
+                             minMicros,
+                             getAverageMicros(),
+                             getPercentileMicros(50),
+                             getPercentileMicros(95),
+                             getPercentileMicros(99),
+                             getPercentileMicros(99.9),
+                             getPercentileMicros(99.99),
+                             maxMicros);
+    }
+}
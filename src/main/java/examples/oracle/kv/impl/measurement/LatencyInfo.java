@@ -39,6 +39,14 @@ public class LatencyInfo implements Serializable {
     private final Latency latency;
     private boolean hasBeenRolledUp = false;
 
+    /*
+     * The microsecond histogram of the request latencies, or null if not
+     * available, for example for measurements from older nodes, or rollups
+     * that include them. Unlike the Latency percentiles, the histogram
+     * percentiles remain accurate when rolled up.
+     */
+    private LatencyHistogram histogram;
+
     /* The time span covered by this measurement */
     private long startMillis;
     private long endMillis;
@@ -47,10 +55,19 @@ public class LatencyInfo implements Serializable {
                        long startMillis, 
                        long endMillis, 
                        Latency latency) {
+        this(perfType, startMillis, endMillis, latency, null);
+    }
+
+    public LatencyInfo(PerfStatType perfType,
+                       long startMillis,
+                       long endMillis,
+                       Latency latency,
+                       LatencyHistogram histogram) {
         perfStatId = perfType.getId();
         this.startMillis = startMillis;
         this.endMillis = endMillis;
         this.latency = latency;
+        this.histogram = histogram;
     }
 
     /**
@@ -62,6 +79,7 @@ public class LatencyInfo implements Serializable {
         this.startMillis = other.startMillis;
         this.endMillis = other.endMillis;
         this.latency = other.latency.clone();
+        this.histogram = other.histogram;
     }
 
     public long getThroughputPerSec() {
@@ -129,6 +147,18 @@ public class LatencyInfo implements Serializable {
         /* Only do a rollup if there is data, otherwise it will fail */
         if (other.latency.getTotalOps() != 0 &&
             other.latency.getTotalRequests() != 0) {
+
+            /*
+             * The histogram is only accurate if every measurement with data
+             * that was rolled up had one.
+             */
+            if (latency.getTotalRequests() == 0) {
+                histogram = other.histogram;
+            } else if ((histogram != null) && (other.histogram != null)) {
+                histogram = histogram.merge(other.histogram);
+            } else {
+                histogram = null;
+            }
             latency.rollup(other.latency);
         }
         if (other.startMillis < startMillis) {
@@ -150,7 +180,8 @@ public class LatencyInfo implements Serializable {
         /*
          * If this measurement has been rolled up, the 95th and 99th are
          * always zero, since those cannot be combined without the original
-         * LatencyStat histogram. Omit those from the display.
+         * LatencyStat histogram. Omit those from the display, and display
+         * the microsecond histogram percentiles instead, if available.
          */
         String latencyVals =
             "perSec=" + getThroughputPerSec() +
@@ -165,6 +196,9 @@ public class LatencyInfo implements Serializable {
                 latencyVals += " overflow=" + latency.getRequestsOverflow();
             }
         }
+        if ((histogram != null) && (histogram.getCount() > 0)) {
+            latencyVals += " (" + histogram + ")";
+        }
 
         return type +
         " (" + FormatUtils.formatTime(endMillis) + ") " + latencyVals;
@@ -181,4 +215,11 @@ public class LatencyInfo implements Serializable {
     public Latency getLatency() {
         return latency;
     }
+
+    /**
+     * Returns the microsecond latency histogram, or null if not available.
+     */
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
 }
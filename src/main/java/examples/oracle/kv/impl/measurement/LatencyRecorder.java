@@ -0,0 +1,106 @@
+/*-
+ * Copyright (C) 2011, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This file was distributed by Oracle as part of a version of Oracle NoSQL
+ * Database made available at:
+ *
+ * http://www.oracle.com/technetwork/database/database-technologies/nosqldb/downloads/index.html
+ *
+ * Please see the LICENSE file included in the top-level directory of the
+ * appropriate version of Oracle NoSQL Database for a copy of the license and
+ * additional information.
+ */
+
+package oracle.kv.impl.measurement;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records request latencies into a log-linear bucketed histogram, and
+ * produces LatencyHistogram snapshots of them. Recording is safe for
+ * concurrent use, and costs a few uncontended atomic updates. See
+ * LatencyHistogram for a description of the buckets.
+ *
+ * As with LatencyStat, a snapshot taken while latencies are being recorded
+ * may not reflect some of the concurrently recorded values, or may include
+ * them only in part.
+ */
+public class LatencyRecorder {
+
+    private final AtomicLongArray buckets =
+        new AtomicLongArray(LatencyHistogram.NUM_BUCKETS);
+    private final AtomicLong totalMicros = new AtomicLong();
+    private final AtomicLong minMicros = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * Records the latency of a request.
+     *
+     * @param latencyNanos the latency in nanoseconds
+     */
+    public void record(long latencyNanos) {
+        final long micros = latencyNanos / 1000;
+        buckets.incrementAndGet(LatencyHistogram.bucketIndex(micros));
+        totalMicros.addAndGet(micros);
+
+        long min = minMicros.get();
+        while (micros < min && !minMicros.compareAndSet(min, micros)) {
+            min = minMicros.get();
+        }
+        long max = maxMicros.get();
+        while (micros > max && !maxMicros.compareAndSet(max, micros)) {
+            max = maxMicros.get();
+        }
+    }
+
+    /**
+     * Returns a snapshot of the latencies recorded since the recorder was
+     * created or last cleared.
+     */
+    public LatencyHistogram snapshot() {
+        return createHistogram(false);
+    }
+
+    /**
+     * Returns a snapshot of the latencies recorded since the recorder was
+     * created or last cleared, and clears it.
+     */
+    public LatencyHistogram snapshotAndClear() {
+        return createHistogram(true);
+    }
+
+    private LatencyHistogram createHistogram(boolean clear) {
+        int size = 0;
+        final long[] values = new long[LatencyHistogram.NUM_BUCKETS];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = clear ? buckets.getAndSet(i, 0) : buckets.get(i);
+            if (values[i] != 0) {
+                size++;
+            }
+        }
+        final long total = clear ? totalMicros.getAndSet(0) :
+            totalMicros.get();
+        final long min = clear ? minMicros.getAndSet(Long.MAX_VALUE) :
+            minMicros.get();
+        final long max = clear ? maxMicros.getAndSet(0) : maxMicros.get();
+
+        if (size == 0) {
+            return LatencyHistogram.EMPTY;
+        }
+
+        final int[] indices = new int[size];
+        final long[] counts = new long[size];
+        long count = 0;
+        int n = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != 0) {
+                indices[n] = i;
+                counts[n++] = values[i];
+                count += values[i];
+            }
+        }
+        return new LatencyHistogram(indices, counts, count, total,
+                                    (min == Long.MAX_VALUE) ? 0 : min, max);
+    }
+}
@@ -131,7 +131,14 @@ public enum PerfStatType {
         MULTI_GET_BATCH_CUM (1320, false, "BulkGet"),
         MULTI_GET_BATCH_KEYS_CUM (1321, false, "BulkGetKeys"),
         MULTI_GET_BATCH_TABLE_CUM (1322, false, "BulkGetTable"),
-        MULTI_GET_BATCH_TABLE_KEYS_CUM (1323, false, "BulkGetTableKeys");
+        MULTI_GET_BATCH_TABLE_KEYS_CUM (1323, false, "BulkGetTableKeys"),
+
+        /*
+         * Per-table stats, for all the operations on a single table. These
+         * are reported separately, keyed by table, and so are not part of
+         * the detailed or summary stats, and have no parent.
+         */
+        TABLE_OP_INT (1400, true, "TableOperations");
 
 
     /** Catalog of all perf stat types. */
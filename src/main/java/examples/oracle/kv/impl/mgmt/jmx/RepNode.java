@@ -62,6 +62,7 @@ public class RepNode
     private State replicationState;
     private String opMetricString;
     private String envMetricString;
+    private String hotKeyMetricString;
     private ObjectName oName;
     long notifySequence = 1L;
 
@@ -89,6 +90,8 @@ public class RepNode
         NOTIFY_RN_TABLE_METRIC = "oracle.kv.repnode.tablemetric";
     public static final String
         NOTIFY_RN_JVM_STATS = "oracle.kv.repnode.jvmstats";
+    public static final String
+        NOTIFY_RN_HOT_KEY_METRIC = "oracle.kv.repnode.hotkeymetric";
 
     public RepNode(RepNodeParams rnp, MBeanServer server, StorageNode sn) {
         this.server = server;
@@ -218,7 +221,11 @@ public class RepNode
             new MBeanNotificationInfo(
                 new String[]{RepNode.NOTIFY_RN_JVM_STATS},
                 Notification.class.getName(),
-                "New RepNode JVM stats are available")
+                "New RepNode JVM stats are available"),
+            new MBeanNotificationInfo(
+                new String[]{RepNode.NOTIFY_RN_HOT_KEY_METRIC},
+                Notification.class.getName(),
+                "New RepNode hot partition and key metrics are available")
         };
     }
 
@@ -351,6 +358,18 @@ public class RepNode
             sn.sendProxyNotification(notification);
         }
 
+        final String rnHotKeyStr = packet.toHotKeyJsonString();
+        if (rnHotKeyStr != null && !rnHotKeyStr.isEmpty()) {
+            hotKeyMetricString = rnHotKeyStr;
+            notification = new Notification
+                (NOTIFY_RN_HOT_KEY_METRIC, oName, notifySequence++,
+                 System.currentTimeMillis(),
+                 "New hot partition and key metrics for this RepNode.");
+            notification.setUserData(rnHotKeyStr);
+            sendNotification(notification);
+            sn.sendProxyNotification(notification);
+        }
+
         final String rnTableStr = packet.toTableJsonString();
         if (rnTableStr != null && !rnTableStr.isEmpty()) {
             notification = new Notification
@@ -760,4 +779,9 @@ public class RepNode
     public String getEnvMetric() {
         return envMetricString;
     }
+
+    @Override
+    public String getHotKeyMetric() {
+        return hotKeyMetricString;
+    }
 }
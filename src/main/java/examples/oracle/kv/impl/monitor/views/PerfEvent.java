@@ -14,9 +14,13 @@
 package oracle.kv.impl.monitor.views;
 
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import oracle.kv.impl.measurement.LatencyInfo;
 import oracle.kv.impl.measurement.RepEnvStats;
+import oracle.kv.impl.rep.monitor.HotKeyStats;
 import oracle.kv.impl.topo.ResourceId;
 import oracle.kv.impl.util.FormatUtils;
 
@@ -59,6 +63,19 @@ public class PerfEvent implements Serializable {
     private final long commitLagThreshold;
     private final boolean lagExceeded;
 
+    /*
+     * Interval stats of the busiest tables, by table name, busiest first.
+     * Null if the event was created by an older version.
+     */
+    private final Map<String, LatencyInfo> tableLatencies;
+
+    /*
+     * The most frequently accessed partitions and keys in the interval.
+     * Null if there were none, or if the event was created by an older
+     * version.
+     */
+    private final HotKeyStats hotKeyStats;
+
     public PerfEvent(ResourceId resourceId,
                      LatencyInfo singleInt,
                      LatencyInfo singleCum,
@@ -67,12 +84,16 @@ public class PerfEvent implements Serializable {
                      long commitLagThreshold,
                      LatencyInfo multiInt,
                      LatencyInfo multiCum,
-                     final RepEnvStats repEnvStats) {
+                     final RepEnvStats repEnvStats,
+                     Map<String, LatencyInfo> tableLatencies,
+                     HotKeyStats hotKeyStats) {
         this.singleInt = singleInt;
         this.singleCum = singleCum;
         this.multiInt = multiInt;
         this.multiCum = multiCum;
         this.resourceId = resourceId;
+        this.tableLatencies = tableLatencies;
+        this.hotKeyStats = hotKeyStats;
 
         assert singleInt != null;
         assert singleCum != null;
@@ -161,6 +182,101 @@ public class PerfEvent implements Serializable {
     //   *234567890 yy-mm-dd xx:xx:xx 1234567 12345678901 123456 12345678901 123456 123456 123456 123456 123456   12345678901 123456789012345 123456 123456789012345 123456 123456 123456 123456 123456
 
 
+    public static final String TABLE_HEADER = eol +
+        "Resource   Time yy-mm-dd UTC Table                             TotalOps PerSec    TotalReq    Min    Max    Avg   95th   99th";
+    //   *234567890 yy-mm-dd xx:xx:xx 12345678901234567890123456789012 12345678901 123456 12345678901 123456 123456 123456 123456 123456
+
+    /**
+     * Print the interval stats of the busiest tables, one line per table,
+     * in the format described by TABLE_HEADER. Returns an empty string if
+     * there are no table stats.
+     */
+    public String getTableColumnFormatted() {
+        final StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, LatencyInfo> e :
+                 getTableLatencies().entrySet()) {
+            final LatencyInfo info = e.getValue();
+            final Latency lat = info.getLatency();
+            if (sb.length() > 0) {
+                sb.append(eol);
+            }
+            sb.append(String.format
+                ("%-10s %17s %-32s %11d %6d %11d %6d %6d %6.1f %6d %6d",
+                 resourceId,
+                 FormatUtils.formatPerfTime(info.getEnd()),
+                 e.getKey(),
+                 lat.getTotalOps(),
+                 info.getThroughputPerSec(),
+                 lat.getTotalRequests(),
+                 lat.getMin(),
+                 lat.getMax(),
+                 lat.getAvg(),
+                 lat.get95thPercent(),
+                 lat.get99thPercent()));
+        }
+        return sb.toString();
+    }
+
+    public static final String HOT_KEY_HEADER = eol +
+        "Resource   Time yy-mm-dd UTC Op    Partition Key Hash               Count";
+    //   *234567890 yy-mm-dd xx:xx:xx 12345 123456789 1234567890123456 12345678901
+
+    /**
+     * Print the hot partitions and keys of this event, one line per
+     * partition or key, in the format described by HOT_KEY_HEADER. Returns
+     * an empty string if there are no hot key stats.
+     */
+    public String getHotKeyColumnFormatted() {
+        return formatHotKeys(resourceId, singleInt.getEnd(), hotKeyStats);
+    }
+
+    /**
+     * Print the hot partitions and keys of a RepNode, one line per
+     * partition or key, in the format described by HOT_KEY_HEADER. Key
+     * entries have a key hash, partition entries do not. Returns an empty
+     * string if the stats are null or empty.
+     */
+    public static String formatHotKeys(ResourceId resourceId,
+                                       long time,
+                                       HotKeyStats stats) {
+        final StringBuilder sb = new StringBuilder();
+        if ((stats == null) || stats.isEmpty()) {
+            return "";
+        }
+        final String timeString = FormatUtils.formatPerfTime(time);
+        formatHotKeys(sb, resourceId, timeString, "read",
+                      stats.getReadPartitions());
+        formatHotKeys(sb, resourceId, timeString, "read",
+                      stats.getReadKeys());
+        formatHotKeys(sb, resourceId, timeString, "write",
+                      stats.getWritePartitions());
+        formatHotKeys(sb, resourceId, timeString, "write",
+                      stats.getWriteKeys());
+        return sb.toString();
+    }
+
+    private static void formatHotKeys(StringBuilder sb,
+                                      ResourceId resourceId,
+                                      String time,
+                                      String label,
+                                      List<HotKeyStats.Entry> entries) {
+        for (HotKeyStats.Entry e : entries) {
+            if (sb.length() > 0) {
+                sb.append(eol);
+            }
+            sb.append(String.format
+                ("%-10s %17s %-5s %9d %-16s %11d",
+                 resourceId,
+                 time,
+                 label,
+                 e.getPartitionId(),
+                 (e.getKeyHash() == 0) ?
+                 "-" :
+                 Long.toHexString(e.getKeyHash()),
+                 e.getCount()));
+        }
+    }
+
     /**
      * Print the single/multi interval/cumulative stats in a way suitable for
      * the .perf file.
@@ -306,6 +422,24 @@ public class PerfEvent implements Serializable {
         return resourceId;
     }
 
+    /**
+     * Returns the interval stats of the busiest tables, by table name,
+     * busiest first. Never returns null.
+     */
+    public Map<String, LatencyInfo> getTableLatencies() {
+        return (tableLatencies == null) ?
+            Collections.<String, LatencyInfo>emptyMap() :
+            tableLatencies;
+    }
+
+    /**
+     * Returns the most frequently accessed partitions and keys in the
+     * interval, or null if there are none.
+     */
+    public HotKeyStats getHotKeyStats() {
+        return hotKeyStats;
+    }
+
     /** Never returns null. */
     public LatencyInfo getSingleInt() {
         return singleInt;
@@ -109,7 +109,9 @@ public class PerfView implements View {
                  admin.getThroughputFloor(resourceId),
                  admin.getCommitLagThreshold(resourceId),
                  multiInterval, multiCumulative,
-                 repStats);
+                 repStats,
+                 statsPacket.getTableLatencies(),
+                 statsPacket.getHotKeyStats());
 
             for (ViewListener<PerfEvent> listener : listeners) {
                 listener.newInfo(resourceId, event);
@@ -135,6 +137,23 @@ public class PerfView implements View {
                                                    repStats));
         }
 
+        /*
+         * Hot partitions and keys are logged to the .stat files as well, so
+         * that they are available after the Admin has moved on to newer
+         * events.
+         */
+        final String hotKeys =
+            PerfEvent.formatHotKeys(resourceId, statsPacket.getEnd(),
+                                    statsPacket.getHotKeyStats());
+        if (!hotKeys.isEmpty()) {
+            envStatLogger.info(resourceId + " (" +
+                               FormatUtils.formatTime(
+                                   statsPacket.getStart()) + " -> " +
+                               FormatUtils.formatTime(
+                                   statsPacket.getEnd()) + ")" +
+                               PerfEvent.HOT_KEY_HEADER + "\n" + hotKeys);
+        }
+
         final List<ConciseStats> otherStats = statsPacket.getOtherStats();
         if (otherStats != null) {
             for (ConciseStats stats : otherStats) {
@@ -1429,7 +1429,10 @@ public class ParameterState {
 
     /**
      * The maximum number of threads in the thread pool the async request
-     * handler uses to execute incoming requests.
+     * handler uses to execute incoming requests. Requests that arrive when
+     * all the threads are busy wait in the request queue, so the request
+     * queue and its priorities only take effect if this is set to a finite
+     * value. The default places no limit.
      */
     public static final String RN_RH_ASYNC_EXEC_MAX_THREADS =
         "rnRHAsyncExecMaxThreads";
@@ -1459,6 +1462,97 @@ public class ParameterState {
                       EnumSet.of(Info.REPNODE,
                                  Info.POLICY, Info.HIDDEN, Info.NORESTART)); }
 
+    /**
+     * If true, and the JVM supports virtual threads (Java 21 and later), the
+     * async request handler starts a new virtual thread for each request
+     * rather than using a pool of platform threads, so that requests blocked
+     * waiting for locks or replica acknowledgments do not each hold a
+     * platform thread. The number of requests executing concurrently is
+     * limited by RN_RH_ASYNC_EXEC_MAX_VIRTUAL_REQUESTS rather than by
+     * RN_RH_ASYNC_EXEC_MAX_THREADS, and additional requests wait in the
+     * request queue. Ignored on earlier Java versions.
+     */
+    public static final String RN_RH_ASYNC_EXEC_VIRTUAL_THREADS =
+        "rnRHAsyncExecVirtualThreads";
+    public static final String RN_RH_ASYNC_EXEC_VIRTUAL_THREADS_DEFAULT =
+        "false";
+    static { putState(RN_RH_ASYNC_EXEC_VIRTUAL_THREADS,
+                      RN_RH_ASYNC_EXEC_VIRTUAL_THREADS_DEFAULT,
+                      Type.BOOLEAN,
+                      EnumSet.of(Info.REPNODE, Info.POLICY, Info.HIDDEN),
+                      Scope.STORE); }
+
+    /**
+     * The maximum number of async requests executing concurrently when
+     * requests are executed on virtual threads. Virtual threads are cheap,
+     * so this is much larger than a useful number of platform threads, and
+     * only serves to keep a flood of requests from exhausting memory.
+     * Requests that arrive when this many are executing wait in the request
+     * queue.
+     */
+    public static final String RN_RH_ASYNC_EXEC_MAX_VIRTUAL_REQUESTS =
+        "rnRHAsyncExecMaxVirtualRequests";
+    public static final String RN_RH_ASYNC_EXEC_MAX_VIRTUAL_REQUESTS_DEFAULT =
+        "10000";
+    static { putState(RN_RH_ASYNC_EXEC_MAX_VIRTUAL_REQUESTS,
+                      RN_RH_ASYNC_EXEC_MAX_VIRTUAL_REQUESTS_DEFAULT,
+                      Type.INT,
+                      EnumSet.of(Info.REPNODE,
+                                 Info.POLICY, Info.HIDDEN, Info.NORESTART),
+                      Scope.STORE,
+                      1, Integer.MAX_VALUE,
+                      null); }
+
+    /**
+     * The maximum number of async requests that may wait for a thread once
+     * all the threads in the async request handler thread pool are busy.
+     * Requests that arrive when the queue is full are rejected.
+     */
+    public static final String RN_RH_ASYNC_EXEC_QUEUE_SIZE =
+        "rnRHAsyncExecQueueSize";
+    public static final String RN_RH_ASYNC_EXEC_QUEUE_SIZE_DEFAULT = "1000";
+    static { putState(RN_RH_ASYNC_EXEC_QUEUE_SIZE,
+                      RN_RH_ASYNC_EXEC_QUEUE_SIZE_DEFAULT,
+                      Type.INT,
+                      EnumSet.of(Info.REPNODE,
+                                 Info.POLICY, Info.HIDDEN, Info.NORESTART),
+                      Scope.STORE,
+                      0, Integer.MAX_VALUE,
+                      null); }
+
+    /**
+     * The maximum amount of time an async request may wait in the queue of
+     * the async request handler thread pool. Requests that wait longer are
+     * rejected without being executed. A value of 0 means that requests are
+     * only rejected once they have waited longer than their own timeout.
+     */
+    public static final String RN_RH_ASYNC_EXEC_MAX_QUEUE_WAIT =
+        "rnRHAsyncExecMaxQueueWait";
+    public static final String RN_RH_ASYNC_EXEC_MAX_QUEUE_WAIT_DEFAULT =
+        "0 SECONDS";
+    static { putState(RN_RH_ASYNC_EXEC_MAX_QUEUE_WAIT,
+                      RN_RH_ASYNC_EXEC_MAX_QUEUE_WAIT_DEFAULT,
+                      Type.DURATION,
+                      EnumSet.of(Info.REPNODE,
+                                 Info.POLICY, Info.HIDDEN, Info.NORESTART)); }
+
+    /**
+     * The port of the HTTP server that exposes RN metrics in the OpenMetrics
+     * text format, for scraping by Prometheus and compatible systems. A value
+     * of 0 disables the server. The server does not authenticate requests,
+     * so on a secure store it only listens on the loopback address, and
+     * metrics can only be scraped from the RN's own host.
+     */
+    public static final String RN_METRICS_HTTP_PORT = "rnMetricsHttpPort";
+    public static final String RN_METRICS_HTTP_PORT_DEFAULT = "0";
+    static { putState(RN_METRICS_HTTP_PORT,
+                      RN_METRICS_HTTP_PORT_DEFAULT,
+                      Type.INT,
+                      EnumSet.of(Info.REPNODE, Info.HIDDEN),
+                      Scope.SERVICE,
+                      0, 65535,
+                      null); }
+
     /*
      * RepNode socket configuration parameters associated with RN's monitor
      * interface.
@@ -2486,6 +2580,23 @@ public class ParameterState {
                                  Info.POLICY),
                       Scope.STORE); }
 
+    /**
+     * The port of the HTTP server that exposes SN metrics in the OpenMetrics
+     * text format, for scraping by Prometheus and compatible systems. A value
+     * of 0 disables the server. As with RN_METRICS_HTTP_PORT, the server does
+     * not authenticate requests, so on a secure store it only listens on the
+     * loopback address.
+     */
+    public static final String SN_METRICS_HTTP_PORT = "snMetricsHttpPort";
+    public static final String SN_METRICS_HTTP_PORT_DEFAULT = "0";
+    static { putState(SN_METRICS_HTTP_PORT,
+                      SN_METRICS_HTTP_PORT_DEFAULT,
+                      Type.INT,
+                      EnumSet.of(Info.SNA, Info.HIDDEN),
+                      Scope.SERVICE,
+                      0, 65535,
+                      null); }
+
     public static final String SN_COMMENT = "comment";
     public static final String SN_COMMENT_DEFAULT = "";
     static { putState(SN_COMMENT,
@@ -3255,6 +3366,40 @@ public class ParameterState {
                   EnumSet.of(Info.REPNODE, Info.POLICY, Info.NORESTART),
                   Scope.STORE); }
 
+    /*
+     * The max number of partitions an RN populates concurrently when a new
+     * index is added. A value of 1 populates one partition at a time, using
+     * the maintenance thread only. Read at the start of every population
+     * pass, so changes take effect without a restart.
+     */
+    public static final String RN_INDEX_POPULATE_THREADS =
+        "rnIndexPopulateThreads";
+    public static final String RN_INDEX_POPULATE_THREADS_DEFAULT = "1";
+    static { putState(RN_INDEX_POPULATE_THREADS,
+                      RN_INDEX_POPULATE_THREADS_DEFAULT,
+                      Type.INT,
+                      EnumSet.of(Info.REPNODE, Info.POLICY, Info.HIDDEN,
+                                 Info.NORESTART),
+                      Scope.STORE,
+                      1, 64, null); }
+
+    /*
+     * If true, the records of each index population batch are buffered and
+     * inserted into the new index in index key order, rather than in
+     * primary key order. The sort is local to a batch, at most 1000 records
+     * or 8 MB, so the inserts of one batch are clustered, but successive
+     * batches still insert across the whole key range of the index.
+     */
+    public static final String RN_INDEX_POPULATE_SORTED =
+        "rnIndexPopulateSorted";
+    public static final String RN_INDEX_POPULATE_SORTED_DEFAULT = "false";
+    static { putState(RN_INDEX_POPULATE_SORTED,
+                      RN_INDEX_POPULATE_SORTED_DEFAULT,
+                      Type.BOOLEAN,
+                      EnumSet.of(Info.REPNODE, Info.POLICY, Info.HIDDEN,
+                                 Info.NORESTART),
+                      Scope.STORE); }
+
     /**
      * Class methods
      */
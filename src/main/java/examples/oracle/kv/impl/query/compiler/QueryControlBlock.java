@@ -13,7 +13,9 @@
 
 package oracle.kv.impl.query.compiler;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 
 import oracle.kv.impl.api.KVStoreImpl;
 import oracle.kv.impl.api.query.PreparedStatementImpl.DistributionKind;
@@ -29,6 +31,7 @@ import oracle.kv.impl.query.runtime.ReceiveIter;
 import oracle.kv.impl.util.CommonLoggerUtils;
 import oracle.kv.query.PrepareCallback;
 import oracle.kv.table.FieldRange;
+import oracle.kv.table.Table;
 
 /**
  * The query control block.
@@ -199,6 +202,38 @@ public class QueryControlBlock {
         return 0L;
     }
 
+    /**
+     * Returns the IDs of all the tables in the hierarchy of the target
+     * table, which includes every table the query may access, or null if
+     * there is no target table.
+     */
+    public long[] getTargetTableHierarchyIds() {
+        if (theTargetTable == null) {
+            return null;
+        }
+        final List<Long> ids = new ArrayList<Long>();
+        addTableIds(theTargetTable.getTopLevelTable(), ids);
+        final long[] result = new long[ids.size()];
+        for (int i = 0; i < result.length; ++i) {
+            result[i] = ids.get(i);
+        }
+        return result;
+    }
+
+    private static void addTableIds(TableImpl table, List<Long> ids) {
+        ids.add(table.getId());
+        for (Table child : table.getChildTables().values()) {
+            addTableIds((TableImpl) child, ids);
+        }
+    }
+
+    /**
+     * Returns the text of the query.
+     */
+    public String getQueryText() {
+        return new String(theQueryString);
+    }
+
     public String getTargetTableName() {
         if (theTargetTable != null) {
             return theTargetTable.getFullName();
@@ -250,6 +285,23 @@ public class QueryControlBlock {
         return null;
     }
 
+    /**
+     * Returns true if the query is an UPDATE statement.
+     */
+    public boolean isUpdate() {
+
+        if (theRootExpr == null) {
+            return false;
+        }
+
+        if (theRootExpr.getKind() == ExprKind.UPDATE_ROW) {
+            return true;
+        }
+
+        return (theRootExpr.getKind() == ExprKind.RECEIVE &&
+                ((ExprReceive)theRootExpr).getIsUpdate());
+    }
+
     void setHasSort(boolean hasSort) {
         this.hasSort = hasSort;
     }
@@ -0,0 +1,205 @@
+/*-
+ * Copyright (C) 2011, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This file was distributed by Oracle as part of a version of Oracle NoSQL
+ * Database made available at:
+ *
+ * http://www.oracle.com/technetwork/database/database-technologies/nosqldb/downloads/index.html
+ *
+ * Please see the LICENSE file included in the top-level directory of the
+ * appropriate version of Oracle NoSQL Database for a copy of the license and
+ * additional information.
+ */
+
+package oracle.kv.impl.query.runtime;
+
+import java.util.Arrays;
+
+/**
+ * A compact set of binary primary keys, used by ReceiveIter to eliminate
+ * duplicate results of multi-key index scans.
+ *
+ * A HashSet<BinaryValueImpl> costs about 100 bytes per key on top of the key
+ * bytes (the HashMap entry, the BinaryValueImpl, and the byte[] header). This
+ * set instead appends the keys to a single byte arena, each preceded by its
+ * length, and indexes them with an open-addressing table of int offsets, so
+ * the overhead is 8 bytes per slot of the table plus 4 bytes per key. The
+ * memory used by the set is known exactly, which allows it to be charged
+ * against the memory limit of the query.
+ *
+ * Instances are not thread-safe.
+ */
+final class PrimKeySet {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final int INITIAL_ARENA_SIZE = 16 * 1024;
+
+    /* Fixed overhead of the set object and its three arrays */
+    private static final int FIXED_OVERHEAD = 16 + 3 * 16 + 8;
+
+    /*
+     * The offsets of the keys in the arena, plus 1. A zero entry is an empty
+     * slot. The length of the table is always a power of 2.
+     */
+    private int[] theSlots;
+
+    /* The hash codes of the keys, parallel to theSlots */
+    private int[] theHashes;
+
+    private byte[] theArena;
+
+    private int theArenaSize;
+
+    private int theSize;
+
+    PrimKeySet() {
+        theSlots = new int[INITIAL_CAPACITY];
+        theHashes = new int[INITIAL_CAPACITY];
+        theArena = new byte[INITIAL_ARENA_SIZE];
+    }
+
+    /**
+     * Adds the key to the set. Returns true if the key was not already in
+     * the set.
+     */
+    boolean add(byte[] key) {
+
+        final int hash = hash(key);
+        final int mask = theSlots.length - 1;
+
+        int pos = hash & mask;
+
+        while (theSlots[pos] != 0) {
+            if (theHashes[pos] == hash && equalsAt(theSlots[pos] - 1, key)) {
+                return false;
+            }
+            pos = (pos + 1) & mask;
+        }
+
+        theSlots[pos] = append(key) + 1;
+        theHashes[pos] = hash;
+        ++theSize;
+
+        /* Keep the load factor under 0.5 */
+        if (theSize * 2 > theSlots.length) {
+            rehash(theSlots.length * 2);
+        }
+
+        return true;
+    }
+
+    int size() {
+        return theSize;
+    }
+
+    /**
+     * Returns the number of bytes of heap memory used by the set.
+     */
+    long getMemory() {
+        return FIXED_OVERHEAD +
+               8L * theSlots.length +
+               theArena.length;
+    }
+
+    /**
+     * Removes all the keys and shrinks the set to its initial capacity.
+     */
+    void clear() {
+        if (theSlots.length == INITIAL_CAPACITY) {
+            Arrays.fill(theSlots, 0);
+        } else {
+            theSlots = new int[INITIAL_CAPACITY];
+            theHashes = new int[INITIAL_CAPACITY];
+        }
+        if (theArena.length != INITIAL_ARENA_SIZE) {
+            theArena = new byte[INITIAL_ARENA_SIZE];
+        }
+        theArenaSize = 0;
+        theSize = 0;
+    }
+
+    private int append(byte[] key) {
+
+        final int needed = theArenaSize + 4 + key.length;
+
+        if (needed < 0) {
+            throw new IllegalStateException(
+                "Too many primary keys to eliminate duplicates");
+        }
+
+        if (needed > theArena.length) {
+            int newLength = theArena.length * 2;
+            while (newLength > 0 && newLength < needed) {
+                newLength *= 2;
+            }
+            theArena = Arrays.copyOf(theArena,
+                                     (newLength > 0 ?
+                                      newLength : Integer.MAX_VALUE - 8));
+        }
+
+        final int offset = theArenaSize;
+        final int len = key.length;
+
+        theArena[offset] = (byte) (len >>> 24);
+        theArena[offset + 1] = (byte) (len >>> 16);
+        theArena[offset + 2] = (byte) (len >>> 8);
+        theArena[offset + 3] = (byte) len;
+        System.arraycopy(key, 0, theArena, offset + 4, len);
+
+        theArenaSize = needed;
+        return offset;
+    }
+
+    private int lengthAt(int offset) {
+        return ((theArena[offset] & 0xff) << 24) |
+               ((theArena[offset + 1] & 0xff) << 16) |
+               ((theArena[offset + 2] & 0xff) << 8) |
+               (theArena[offset + 3] & 0xff);
+    }
+
+    private boolean equalsAt(int offset, byte[] key) {
+
+        if (lengthAt(offset) != key.length) {
+            return false;
+        }
+
+        final int start = offset + 4;
+        for (int i = 0; i < key.length; ++i) {
+            if (theArena[start + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash(int newCapacity) {
+
+        final int[] oldSlots = theSlots;
+        final int[] oldHashes = theHashes;
+        final int mask = newCapacity - 1;
+
+        theSlots = new int[newCapacity];
+        theHashes = new int[newCapacity];
+
+        for (int i = 0; i < oldSlots.length; ++i) {
+
+            if (oldSlots[i] == 0) {
+                continue;
+            }
+
+            int pos = oldHashes[i] & mask;
+            while (theSlots[pos] != 0) {
+                pos = (pos + 1) & mask;
+            }
+            theSlots[pos] = oldSlots[i];
+            theHashes[pos] = oldHashes[i];
+        }
+    }
+
+    private static int hash(byte[] key) {
+        /* Spread the bits, since the low bits select the slot */
+        final int h = Arrays.hashCode(key);
+        return h ^ (h >>> 16);
+    }
+}
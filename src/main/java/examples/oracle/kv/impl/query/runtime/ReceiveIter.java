@@ -25,7 +25,6 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -47,8 +46,8 @@ import oracle.kv.impl.api.ops.TableQuery;
 import oracle.kv.impl.api.parallelscan.PartitionScanIterator;
 import oracle.kv.impl.api.parallelscan.ShardScanIterator;
 import oracle.kv.impl.api.query.PreparedStatementImpl.DistributionKind;
-import oracle.kv.impl.api.table.BinaryValueImpl;
 import oracle.kv.impl.api.table.BooleanValueImpl;
+import oracle.kv.impl.api.table.ColumnarBatch;
 import oracle.kv.impl.api.table.FieldDefImpl;
 import oracle.kv.impl.api.table.FieldValueImpl;
 import oracle.kv.impl.api.table.NullValueImpl;
@@ -99,14 +98,23 @@ public class ReceiveIter extends PlanIter {
 
         Throwable theRemoteResultsIterCloseException;
 
-        HashSet<BinaryValueImpl> thePrimKeysSet;
+        final RuntimeControlBlock theRCB;
 
-        ReceiveIterState(PartitionId pid, boolean eliminateIndexDups) {
+        PrimKeySet thePrimKeysSet;
 
+        /* The memory of thePrimKeysSet charged to the RCB so far */
+        long thePrimKeysSetMemory;
+
+        ReceiveIterState(
+            RuntimeControlBlock rcb,
+            PartitionId pid,
+            boolean eliminateIndexDups) {
+
+            theRCB = rcb;
             thePartitionId = pid;
 
             if (eliminateIndexDups) {
-                thePrimKeysSet = new HashSet<BinaryValueImpl>(1000);
+                thePrimKeysSet = new PrimKeySet();
             }
         }
 
@@ -139,6 +147,69 @@ public class ReceiveIter extends PlanIter {
             }
             if (thePrimKeysSet != null) {
                 thePrimKeysSet.clear();
+                theRCB.incMemoryConsumption(-thePrimKeysSetMemory, null);
+                thePrimKeysSetMemory = 0;
+            }
+        }
+    }
+
+    /*
+     * Converts the results of a batch received from an RN into the elements
+     * returned by a parallel scan iterator.
+     */
+    private interface ResultConverter<E> {
+
+        /* Returns whether to ask the RNs for results in columnar form */
+        boolean isColumnar();
+
+        void convertResult(QueryResult result, List<E> elementList);
+    }
+
+    /* Returns the results as rows, for the query plan */
+    private static final ResultConverter<FieldValueImpl> ROW_CONVERTER =
+        new ResultConverter<FieldValueImpl>() {
+
+            @Override
+            public boolean isColumnar() {
+                return false;
+            }
+
+            @Override
+            public void convertResult(QueryResult result,
+                                      List<FieldValueImpl> elementList) {
+
+                List<FieldValueImpl> queryResults = result.getQueryResults();
+
+                // TODO: try to avoid this useless loop
+                for (FieldValueImpl res : queryResults) {
+                    elementList.add(res);
+                }
+            }
+        };
+
+    /*
+     * Returns each non-empty batch of results as a ColumnarBatch. The batch
+     * is built at the client only if the RN does not support columnar
+     * results and returned rows.
+     */
+    private class BatchConverter implements ResultConverter<ColumnarBatch> {
+
+        @Override
+        public boolean isColumnar() {
+            return true;
+        }
+
+        @Override
+        public void convertResult(QueryResult result,
+                                  List<ColumnarBatch> elementList) {
+
+            ColumnarBatch batch = result.getColumnarResults();
+            if (batch == null) {
+                batch = ColumnarBatch.create((RecordDefImpl)theInputType,
+                                             result.getQueryResults());
+            }
+            if (batch.getNumRows() > 0) {
+                elementList.add(batch);
             }
         }
     }
@@ -408,6 +479,48 @@ public class ReceiveIter extends PlanIter {
         return (theSortFieldPositions != null);
     }
 
+    /**
+     * Returns whether the results of the query, when this ReceiveIter is the
+     * root of its plan, can be returned in columnar batches by
+     * columnarIterator. This is the case if the results are records that
+     * are never NULL, the client does not sort them or eliminate duplicates,
+     * and the query runs on all partitions or shards without a size limit.
+     */
+    public boolean supportsColumnarIteration(RuntimeControlBlock rcb) {
+        return theInputType.isRecord() &&
+               !theMayReturnNULL &&
+               !doesSort() &&
+               thePrimKeyPositions == null &&
+               theDistributionKind != DistributionKind.SINGLE_PARTITION &&
+               rcb.getMaxReadKB() == 0 &&
+               !rcb.getUseBatchSizeAsLimit();
+    }
+
+    /**
+     * Executes the query, when this ReceiveIter is the root of its plan, and
+     * returns an iterator over its results in the columnar batches sent by
+     * the RNs, without creating a record for each result. This is used
+     * instead of open and next, and the iterator must be closed by the
+     * caller.
+     *
+     * @throws QueryStateException if the query is not supported, see
+     * supportsColumnarIteration
+     */
+    public AsyncTableIterator<ColumnarBatch> columnarIterator(
+        RuntimeControlBlock rcb) {
+
+        if (!supportsColumnarIteration(rcb)) {
+            throw new QueryStateException(
+                "The results of the query cannot be returned in " +
+                "columnar form");
+        }
+
+        if (theDistributionKind == DistributionKind.ALL_PARTITIONS) {
+            return scanAllPartitions(rcb, new BatchConverter());
+        }
+        return scanAllShards(rcb, new BatchConverter());
+    }
+
     @Override
     public void setIterationHandleNotifier(
         IterationHandleNotifier iterHandleNotifier) {
@@ -519,6 +632,18 @@ public class ReceiveIter extends PlanIter {
             return new SequentialPartitionsIterator(rcb, null/*partitions*/);
         }
 
+        return scanAllPartitions(rcb, ROW_CONVERTER);
+    }
+
+    /**
+     * Execute the child plan of this ReceiveIter on all partitions in
+     * parallel, returning the elements produced by the converter from the
+     * results of each batch.
+     */
+    private <E> AsyncTableIterator<E> scanAllPartitions(
+        final RuntimeControlBlock rcb,
+        final ResultConverter<E> converter) {
+
         ExecuteOptions options = rcb.getExecuteOptions();
 
         /*
@@ -544,7 +669,7 @@ public class ReceiveIter extends PlanIter {
                 rcb.getTimeUnit(),
                 rcb.getPartitionSet());
 
-        return new PartitionScanIterator<FieldValueImpl>(
+        return new PartitionScanIterator<E>(
             rcb.getStore(), options, params, theAsyncIterHandleNotifier) {
 
             @Override
@@ -562,18 +687,13 @@ public class ReceiveIter extends PlanIter {
             @Override
             protected void convertResult(
                 Result result,
-                List<FieldValueImpl> elementList) {
+                List<E> elementList) {
 
-                List<FieldValueImpl> queryResults = result.getQueryResults();
-
-                // TODO: try to avoid this useless loop
-                for (FieldValueImpl res : queryResults) {
-                    elementList.add(res);
-                }
+                converter.convertResult((QueryResult)result, elementList);
             }
 
             @Override
-            protected int compare(FieldValueImpl one, FieldValueImpl two) {
+            protected int compare(E one, E two) {
                 throw new QueryStateException("Unexpected call");
             }
 
@@ -603,7 +723,10 @@ public class ReceiveIter extends PlanIter {
                         0, /* maxCurrentReadKB */
                         0, /* maxReadKB*/
                         theResumeInfo,
-                        1 /* emptyReadFactor */);
+                        1, /* emptyReadFactor */
+                        converter.isColumnar());
+
+                    rcb.tallyRequest();
 
                     return storeImpl.makeReadRequest(
                         op,
@@ -690,6 +813,18 @@ public class ReceiveIter extends PlanIter {
             return new SequentialShardsIterator(rcb);
         }
 
+        return scanAllShards(rcb, ROW_CONVERTER);
+    }
+
+    /**
+     * Execute the child plan of this ReceiveIter on all shards in parallel,
+     * returning the elements produced by the converter from the results of
+     * each batch.
+     */
+    private <E> AsyncTableIterator<E> scanAllShards(
+        final RuntimeControlBlock rcb,
+        final ResultConverter<E> converter) {
+
         ExecuteOptions options = rcb.getExecuteOptions();
 
         /*
@@ -703,7 +838,7 @@ public class ReceiveIter extends PlanIter {
                          Direction.FORWARD :
                          Direction.UNORDERED);
 
-        return new ShardScanIterator<FieldValueImpl>(
+        return new ShardScanIterator<E>(
              rcb.getStore(), options, dir, rcb.getShardSet(),
              theAsyncIterHandleNotifier) {
 
@@ -722,16 +857,13 @@ public class ReceiveIter extends PlanIter {
             @Override
             protected void convertResult(
                 Result result,
-                List<FieldValueImpl> elementList) {
+                List<E> elementList) {
 
-                List<FieldValueImpl> queryResults = result.getQueryResults();
-                for (FieldValueImpl res : queryResults) {
-                    elementList.add(res);
-                }
+                converter.convertResult((QueryResult)result, elementList);
             }
 
             @Override
-            protected int compare(FieldValueImpl one, FieldValueImpl two) {
+            protected int compare(E one, E two) {
                 throw new QueryStateException("Unexpected call");
             }
 
@@ -761,7 +893,10 @@ public class ReceiveIter extends PlanIter {
                         0, /* maxCurrentReadKB */
                         0, /* maxReadKB */
                         theResumeInfo,
-                        1 /* emptyReadFactor */);
+                        1, /* emptyReadFactor */
+                        converter.isColumnar());
+
+                    rcb.tallyRequest();
 
                     return storeImpl.makeReadRequest(
                         op,
@@ -892,7 +1027,7 @@ public class ReceiveIter extends PlanIter {
         }
 
         ReceiveIterState state =
-            new ReceiveIterState(pid, (thePrimKeyPositions != null));
+            new ReceiveIterState(rcb, pid, (thePrimKeyPositions != null));
 
         rcb.setState(theStatePos, state);
 
@@ -960,11 +1095,18 @@ public class ReceiveIter extends PlanIter {
 
                 /* Eliminate index duplicates */
                 if (thePrimKeyPositions != null) {
-                    BinaryValueImpl binPrimKey = createBinaryPrimKey(res);
+                    byte[] binPrimKey = createBinaryPrimKey(res);
                     boolean added = state.thePrimKeysSet.add(binPrimKey);
                     if (!added) {
                         continue;
                     }
+
+                    long mem = state.thePrimKeysSet.getMemory();
+                    if (mem != state.thePrimKeysSetMemory) {
+                        long delta = mem - state.thePrimKeysSetMemory;
+                        state.thePrimKeysSetMemory = mem;
+                        rcb.incMemoryConsumption(delta, theLocation);
+                    }
                 }
 
                 break;
@@ -1031,7 +1173,7 @@ public class ReceiveIter extends PlanIter {
         return state.theRemoteResultsIterCloseException;
     }
 
-    private BinaryValueImpl createBinaryPrimKey(FieldValueImpl result) {
+    private byte[] createBinaryPrimKey(FieldValueImpl result) {
 
         final ByteArrayOutputStream baos = new ByteArrayOutputStream();
         final DataOutput out = new DataOutputStream(baos);
@@ -1056,8 +1198,7 @@ public class ReceiveIter extends PlanIter {
                 e.getMessage());
         }
 
-        byte[] bytes = baos.toByteArray();
-        return FieldDefImpl.binaryDef.createBinary(bytes);
+        return baos.toByteArray();
     }
 
     private void writeValue(DataOutput out, FieldValueImpl val, int i)
@@ -1792,7 +1933,8 @@ public class ReceiveIter extends PlanIter {
                         theMaxReadKB,
                         theRCB.getMaxReadKB(),
                         theResumeInfo,
-                        theEmptyReadFactor);
+                        theEmptyReadFactor,
+                        false /* columnarResults */);
 
             final Consistency consistency = theRCB.getConsistency();
             final Durability durability = theRCB.getDurability();
@@ -1800,6 +1942,8 @@ public class ReceiveIter extends PlanIter {
             final TimeUnit timeUnit = theRCB.getTimeUnit();
             final KVStoreImpl store = theRCB.getStore();
 
+            theRCB.tallyRequest();
+
             if (thePid != null) {
 
                 if (theIsUpdate) {
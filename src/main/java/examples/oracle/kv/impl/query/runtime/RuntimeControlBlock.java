@@ -26,6 +26,7 @@ import oracle.kv.impl.api.KVStoreImpl;
 import oracle.kv.impl.api.ops.TableQuery;
 import oracle.kv.impl.api.table.FieldValueImpl;
 import oracle.kv.impl.api.table.TableMetadataHelper;
+import oracle.kv.impl.query.QueryException;
 import oracle.kv.impl.topo.RepGroupId;
 import oracle.kv.impl.util.UserDataControl;
 import oracle.kv.query.ExecuteOptions;
@@ -112,6 +113,20 @@ public class RuntimeControlBlock {
 
     private final AtomicInteger theWriteKB;
 
+    /*
+     * The number of requests sent to RNs during the execution of a query.
+     * Not applicable to the server RCBs.
+     */
+    private final AtomicInteger theNumRequests;
+
+    /*
+     * The number of bytes currently held by the query operators, and the
+     * max allowed. Not applicable to the server RCBs.
+     */
+    private long theMemoryConsumption;
+
+    private final long theMaxMemoryConsumption;
+
     /* The total number of records returned */
     private int theResultSize;
 
@@ -200,6 +215,12 @@ public class RuntimeControlBlock {
 
         theReadKB = new AtomicInteger();
         theWriteKB = new AtomicInteger();
+        theNumRequests = new AtomicInteger();
+
+        theMaxMemoryConsumption = (theExecuteOptions != null ?
+                                   theExecuteOptions.getMaxMemoryMB() *
+                                   1024L * 1024L :
+                                   Long.MAX_VALUE);
     }
 
     boolean isServerRCB() {
@@ -351,6 +372,37 @@ public class RuntimeControlBlock {
         return theWriteKB.get();
     }
 
+    void tallyRequest() {
+        theNumRequests.incrementAndGet();
+    }
+
+    public int getNumRequests() {
+        return theNumRequests.get();
+    }
+
+    /**
+     * Adds the given number of bytes to the memory consumed by the query,
+     * or releases memory if the value is negative. Throws QueryException if
+     * the max memory set in the ExecuteOptions is exceeded.
+     */
+    void incMemoryConsumption(long bytes, QueryException.Location loc) {
+
+        theMemoryConsumption += bytes;
+
+        if (theMemoryConsumption > theMaxMemoryConsumption) {
+            throw new QueryException(
+                "The query consumed more than the maximum allowed memory " +
+                "at the client. Consumed " + theMemoryConsumption +
+                " bytes, max allowed " + theMaxMemoryConsumption +
+                " bytes. Use ExecuteOptions.setMaxMemoryMB() to raise " +
+                "the limit.", loc);
+        }
+    }
+
+    public long getMemoryConsumption() {
+        return theMemoryConsumption;
+    }
+
     public void tallyResultSize(int size) {
         theResultSize += size;
     }
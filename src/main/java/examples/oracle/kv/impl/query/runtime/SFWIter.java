@@ -418,6 +418,21 @@ public class SFWIter extends PlanIter {
             --state.theOffset;
         }
 
+        /*
+         * At the server, if this is the last result allowed by the (pushed)
+         * limit, mark the iterator as done now rather than in the next call.
+         * This way, the TableQueryHandler can tell the client that there are
+         * no more results in this partition/shard even if the current batch
+         * is full, and the client does not send another request just to get
+         * an empty batch back. For a top-N query with N a multiple of the
+         * batch size, this saves a round trip per partition/shard.
+         */
+        if (rcb.isServerRCB() &&
+            state.theNumResults >= state.theLimit &&
+            !state.isDone()) {
+            state.done();
+        }
+
         return true;
     }
 
@@ -1021,10 +1021,6 @@ class TableScannerFactory {
 
         void initIndexRange() {
 
-            if (theScanner != null) {
-                theScanner.close();
-            }
-
             IndexKeyImpl key = (IndexKeyImpl)theKeys[theCurrentIndexRange];
             FieldRange range = theRanges[theCurrentIndexRange];
 
@@ -1059,6 +1055,20 @@ class TableScannerFactory {
 
             theOpHandler.verifyTableAccess(theOp);
 
+            /*
+             * All the ranges are on the same index and are scanned in
+             * order, so after the 1st range the cursor is kept open and
+             * just repositioned at the start of the next range.
+             */
+            if (theScanner != null) {
+                theScanner.resetRange(theOp,
+                                      indexRange,
+                                      theResumeInfo.getSecResumeKey(),
+                                      theResumeInfo.getPrimResumeKey(),
+                                      theResumeInfo.getMoveAfterResumeKey());
+                return;
+            }
+
             /*
              * Create a key-only scanner using dirty reads. This means that
              * in order to use the record, it must be locked, and if the data
@@ -1480,10 +1490,6 @@ class TableScannerFactory {
         @Override
         void initIndexRange() {
 
-            if (theSecScanner != null) {
-                theSecScanner.close();
-            }
-
             if (theScanner != null) {
                 theScanner.close();
             }
@@ -1516,6 +1522,16 @@ class TableScannerFactory {
 
             theSecOpHandler.verifyTableAccess(theSecOp);
 
+            /* Reuse the index cursor across ranges, as above */
+            if (theSecScanner != null) {
+                theSecScanner.resetRange(theSecOp,
+                                         indexRange,
+                                         theResumeInfo.getSecResumeKey(),
+                                         theResumeInfo.getPrimResumeKey(),
+                                         false /*MoveAfterResumeKey*/);
+                return;
+            }
+
             /*
              * Create a key-only scanner using dirty reads. This means that
              * in order to use the record, it must be locked, and if the data
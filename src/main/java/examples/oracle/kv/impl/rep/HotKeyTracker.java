@@ -0,0 +1,143 @@
+/*-
+ * Copyright (C) 2011, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This file was distributed by Oracle as part of a version of Oracle NoSQL
+ * Database made available at:
+ *
+ * http://www.oracle.com/technetwork/database/database-technologies/nosqldb/downloads/index.html
+ *
+ * Please see the LICENSE file included in the top-level directory of the
+ * appropriate version of Oracle NoSQL Database for a copy of the license and
+ * additional information.
+ */
+
+package oracle.kv.impl.rep;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import oracle.kv.Key;
+import oracle.kv.impl.api.ops.InternalOperation;
+import oracle.kv.impl.api.ops.MultiKeyOperation;
+import oracle.kv.impl.api.ops.SingleKeyOperation;
+import oracle.kv.impl.rep.monitor.HotKeyStats;
+import oracle.kv.impl.topo.PartitionId;
+import oracle.kv.impl.util.HeavyHitterSketch;
+import oracle.kv.impl.util.HeavyHitterSketch.HeavyHitter;
+
+/**
+ * Tracks the most frequently accessed partitions and keys of a RepNode, for
+ * reads and writes separately, using constant memory heavy hitter sketches.
+ * Keys are tracked by a hash of their major path, for operations that target
+ * a single major path. The sketches are replaced each stats interval, when
+ * OperationsStatsTracker collects them.
+ */
+public class HotKeyTracker {
+
+    /* The number of counters per row of the Count-Min sketches */
+    private static final int SKETCH_WIDTH = 1024;
+
+    /* The number of hot partitions and keys reported */
+    private static final int TOP_K = 10;
+
+    private volatile Sketches sketches = new Sketches();
+
+    /**
+     * Records an operation.
+     *
+     * @param op the operation
+     * @param partitionId the partition targeted by the request, which is the
+     * null partition for multi-partition requests
+     * @param isWrite whether the request is a write
+     */
+    public void track(InternalOperation op,
+                      PartitionId partitionId,
+                      boolean isWrite) {
+
+        if (partitionId.isNull()) {
+            return;
+        }
+
+        final Sketches s = sketches;
+        final int pid = partitionId.getPartitionId();
+        final byte[] keyBytes = getKeyBytes(op);
+
+        if (isWrite) {
+            s.writePartitions.add(pid, pid);
+            if (keyBytes != null) {
+                s.writeKeys.add(hashMajorPath(keyBytes), pid);
+            }
+        } else {
+            s.readPartitions.add(pid, pid);
+            if (keyBytes != null) {
+                s.readKeys.add(hashMajorPath(keyBytes), pid);
+            }
+        }
+    }
+
+    /**
+     * Returns the stats collected since the last call and starts a new
+     * interval.
+     */
+    public HotKeyStats getAndReset() {
+        final Sketches s = sketches;
+        sketches = new Sketches();
+        return new HotKeyStats(s.readPartitions.getTotal(),
+                               s.writePartitions.getTotal(),
+                               toEntries(s.readPartitions, false),
+                               toEntries(s.writePartitions, false),
+                               toEntries(s.readKeys, true),
+                               toEntries(s.writeKeys, true));
+    }
+
+    private static List<HotKeyStats.Entry> toEntries(HeavyHitterSketch sketch,
+                                                     boolean isKey) {
+        final List<HeavyHitter> top = sketch.getTopK();
+        final List<HotKeyStats.Entry> entries =
+            new ArrayList<HotKeyStats.Entry>(top.size());
+        for (HeavyHitter h : top) {
+            entries.add(new HotKeyStats.Entry(isKey ? h.getItem() : 0,
+                                              h.getAttr(),
+                                              h.getCount()));
+        }
+        return entries;
+    }
+
+    /**
+     * Returns the key whose major path the operation targets, or null if it
+     * does not target a single key or parent key.
+     */
+    private static byte[] getKeyBytes(InternalOperation op) {
+        if (op instanceof SingleKeyOperation) {
+            return ((SingleKeyOperation) op).getKeyBytes();
+        }
+        if (op instanceof MultiKeyOperation) {
+            return ((MultiKeyOperation) op).getParentKey();
+        }
+        return null;
+    }
+
+    /**
+     * Returns a 64-bit FNV-1a hash of the major path of the key.
+     */
+    private static long hashMajorPath(byte[] keyBytes) {
+        final int len = Key.getMajorPathLength(keyBytes);
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < len; i++) {
+            h ^= keyBytes[i] & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private static class Sketches {
+        final HeavyHitterSketch readPartitions =
+            new HeavyHitterSketch(SKETCH_WIDTH, TOP_K);
+        final HeavyHitterSketch writePartitions =
+            new HeavyHitterSketch(SKETCH_WIDTH, TOP_K);
+        final HeavyHitterSketch readKeys =
+            new HeavyHitterSketch(SKETCH_WIDTH, TOP_K);
+        final HeavyHitterSketch writeKeys =
+            new HeavyHitterSketch(SKETCH_WIDTH, TOP_K);
+    }
+}
@@ -14,6 +14,10 @@
 package oracle.kv.impl.rep;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -26,11 +30,16 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import oracle.kv.impl.admin.param.RepNodeParams;
+import oracle.kv.impl.api.AsyncQueueStats;
 import oracle.kv.impl.api.RequestHandlerImpl;
 import oracle.kv.impl.api.ops.InternalOperation.OpCode;
+import oracle.kv.impl.api.table.TableImpl;
+import oracle.kv.impl.fault.RNUnavailableException;
 import oracle.kv.impl.measurement.EnvStats;
 import oracle.kv.impl.measurement.JVMStats;
+import oracle.kv.impl.measurement.LatencyHistogram;
 import oracle.kv.impl.measurement.LatencyInfo;
+import oracle.kv.impl.measurement.LatencyRecorder;
 import oracle.kv.impl.measurement.PerfStatType;
 import oracle.kv.impl.measurement.RepEnvStats;
 import oracle.kv.impl.measurement.ReplicationState;
@@ -47,6 +56,10 @@ import oracle.kv.impl.util.KVThreadFactory;
 import oracle.kv.impl.util.RateLimitingLogger;
 import oracle.kv.impl.util.ScheduleStart;
 import oracle.kv.impl.util.server.LoggerUtils;
+import oracle.kv.impl.util.sklogger.CustomGauge;
+import oracle.kv.impl.util.sklogger.CustomGauge.GaugeCalculator;
+import oracle.kv.impl.util.sklogger.CustomGauge.GaugeResult;
+import oracle.kv.impl.util.sklogger.MetricRegistry;
 import oracle.kv.impl.util.sklogger.PerfQuantile;
 
 import com.sleepycat.je.EnvironmentFailureException;
@@ -76,6 +89,11 @@ public class OperationsStatsTracker {
      */
     private volatile SummarizingStatsTracker tracker;
 
+    /*
+     * Tracks per-table latencies. Replaced along with the tracker above.
+     */
+    private volatile TableStatsTracker tableStatsTracker;
+
     /* Timestamp for the start of all operation tracking. */
     private long trackingStart;
     /* Timestamp for the end of the last collection period. */
@@ -111,6 +129,9 @@ public class OperationsStatsTracker {
     private static final String WATCHER_NAME =
         OperationsStatsTracker.class.getName();
 
+    /** The name of the request gauges metric. */
+    private static final String REQUEST_GAUGE_NAME = "rnRequests";
+
     /**
      * Encapsulates the logger used by this class. When this logger is used,
      * for each type of PerfEvent, the rate at which this logger writes
@@ -122,6 +143,15 @@ public class OperationsStatsTracker {
     /** Maintain the history needed to track JVM stats. */
     private final JVMStats.Tracker jvmStatsTracker = new JVMStats.Tracker();
 
+    /** Tracks the most frequently accessed partitions and keys. */
+    private final HotKeyTracker hotKeyTracker = new HotKeyTracker();
+
+    /**
+     * The metrics exposed by the RN's metrics HTTP server. Holds the
+     * aggregated perf metric of the current tracker, and request gauges.
+     */
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
     /**
      */
     public OperationsStatsTracker(RepNodeService repNodeService,
@@ -141,6 +171,8 @@ public class OperationsStatsTracker {
         collector = new ScheduledThreadPoolExecutor(1, factory);
         globalParamsListener = new GlobalParamsListener();
         rnParamsListener = new RNParamsListener();
+        metricRegistry.register(
+            new CustomGauge(REQUEST_GAUGE_NAME, new RequestGauges()));
         initialize(rnParamsMap, globalParamsMap);
     }
 
@@ -150,6 +182,7 @@ public class OperationsStatsTracker {
      */
     public OperationsStatsTracker() {
         tracker = new SummarizingStatsTracker(null, 0, 0, 0, 1000);
+        tableStatsTracker = new TableStatsTracker(1000);
         monitorBuffer = null;
         collector = null;
         collectorFuture = null;
@@ -183,6 +216,13 @@ public class OperationsStatsTracker {
              ParameterUtils.getThreadDumpIntervalMillis(rnParamsMap),
              rnParamsMap.get(ParameterState.SP_THREAD_DUMP_MAX).asInt(),
              ParameterUtils.getMaxTrackedLatencyMillis(rnParamsMap));
+        tableStatsTracker = new TableStatsTracker(
+            ParameterUtils.getMaxTrackedLatencyMillis(rnParamsMap));
+
+        /* Expose the new tracker's aggregated perf metric */
+        final PerfQuantile aggregatedPerf = tracker.getAggregatedPerf();
+        metricRegistry.unregister(aggregatedPerf.getStatsName());
+        metricRegistry.register(aggregatedPerf);
 
         DurationParameter dp =
             (DurationParameter) globalParamsMap.getOrDefault(
@@ -199,6 +239,22 @@ public class OperationsStatsTracker {
         return tracker;
     }
 
+    public TableStatsTracker getTableStatsTracker() {
+        return tableStatsTracker;
+    }
+
+    public HotKeyTracker getHotKeyTracker() {
+        return hotKeyTracker;
+    }
+
+    /**
+     * Returns the registry of the metrics exposed by the RN's metrics HTTP
+     * server.
+     */
+    public MetricRegistry getMetricRegistry() {
+        return metricRegistry;
+    }
+
     synchronized public void newRNParameters(ParameterMap oldMap,
                                              ParameterMap newMap) {
 
@@ -268,32 +324,42 @@ public class OperationsStatsTracker {
              */
             packet.add(new LatencyInfo(op.getIntervalMetric(),
                                        useStart, useEnd,
-                                       stat.calculate()));
+                                       stat.calculate(),
+                                       tracker.collectIntervalHistogram(op)));
 
             stat = tracker.getCumulativeLatency().get(op);
             packet.add(new LatencyInfo(op.getCumulativeMetric(),
                                        trackingStart, useEnd,
-                                       stat.calculate()));
+                                       stat.calculate(),
+                                       tracker.getCumulativeHistogram(op)));
         }
 
         /* Add the summary stats. */
         LatencyInfo latencyInfo =
             new LatencyInfo(PerfStatType.USER_SINGLE_OP_INT,
                             useStart, useEnd,
-                            tracker.getSingleOpsIntervalStat());
+                            tracker.getSingleOpsIntervalStat(),
+                            tracker.collectIntervalHistogram(
+                                PerfStatType.USER_SINGLE_OP_INT));
         packet.add(latencyInfo);
         latencyInfo = new LatencyInfo(PerfStatType.USER_SINGLE_OP_CUM,
                                       trackingStart, useEnd,
-                                      tracker.getSingleOpsCumulativeStat());
+                                      tracker.getSingleOpsCumulativeStat(),
+                                      tracker.getCumulativeHistogram(
+                                          PerfStatType.USER_SINGLE_OP_INT));
         packet.add(latencyInfo);
 
         latencyInfo = new LatencyInfo(PerfStatType.USER_MULTI_OP_INT,
                                       useStart, useEnd,
-                                      tracker.getMultiOpsIntervalStat());
+                                      tracker.getMultiOpsIntervalStat(),
+                                      tracker.collectIntervalHistogram(
+                                          PerfStatType.USER_MULTI_OP_INT));
         packet.add(latencyInfo);
         latencyInfo = new LatencyInfo(PerfStatType.USER_MULTI_OP_CUM,
                                       trackingStart, useEnd,
-                                      tracker.getMultiOpsCumulativeStat());
+                                      tracker.getMultiOpsCumulativeStat(),
+                                      tracker.getCumulativeHistogram(
+                                          PerfStatType.USER_MULTI_OP_INT));
         packet.add(latencyInfo);
 
         Latency latency =
@@ -301,58 +367,77 @@ public class OperationsStatsTracker {
                                            WATCHER_NAME);
         latencyInfo = new LatencyInfo(PerfStatType.USER_SINGLE_READ_INT,
                                       useStart, useEnd,
-                                      latency);
+                                      latency,
+                                      tracker.collectIntervalHistogram(
+                                          PerfStatType.USER_SINGLE_READ_INT));
         packet.add(latencyInfo);
 
         latency = tracker.getAggregatedCumulativeStat(DataRequest.READ_SINGLE);
         latencyInfo = new LatencyInfo(PerfStatType.USER_SINGLE_READ_CUM,
                                       trackingStart, useEnd,
-                                      latency);
+                                      latency,
+                                      tracker.getCumulativeHistogram(
+                                          PerfStatType.USER_SINGLE_READ_INT));
         packet.add(latencyInfo);
 
         latency = tracker.getAggregatedIntervalStat(DataRequest.WRITE_SINGLE,
                                                  WATCHER_NAME);
         latencyInfo = new LatencyInfo(PerfStatType.USER_SINGLE_WRITE_INT,
                                       useStart, useEnd,
-                                      latency);
+                                      latency,
+                                      tracker.collectIntervalHistogram(
+                                          PerfStatType.USER_SINGLE_WRITE_INT));
         packet.add(latencyInfo);
 
         latency = tracker.getAggregatedCumulativeStat(DataRequest.WRITE_SINGLE);
         latencyInfo = new LatencyInfo(PerfStatType.USER_SINGLE_WRITE_CUM,
                                       trackingStart, useEnd,
-                                      latency);
+                                      latency,
+                                      tracker.getCumulativeHistogram(
+                                          PerfStatType.USER_SINGLE_WRITE_INT));
         packet.add(latencyInfo);
 
         latency = tracker.getAggregatedIntervalStat(DataRequest.READ_MULTI,
                                                     WATCHER_NAME);
         latencyInfo = new LatencyInfo(PerfStatType.USER_MULTI_READ_INT,
                                       useStart, useEnd,
-                                      latency);
+                                      latency,
+                                      tracker.collectIntervalHistogram(
+                                          PerfStatType.USER_MULTI_READ_INT));
         packet.add(latencyInfo);
 
         latency = tracker.getAggregatedCumulativeStat(DataRequest.READ_MULTI);
         latencyInfo = new LatencyInfo(PerfStatType.USER_MULTI_READ_CUM,
                                       trackingStart, useEnd,
-                                      latency);
+                                      latency,
+                                      tracker.getCumulativeHistogram(
+                                          PerfStatType.USER_MULTI_READ_INT));
         packet.add(latencyInfo);
 
         latency = tracker.getAggregatedIntervalStat(DataRequest.WRITE_MULTI,
                                                     WATCHER_NAME);
         latencyInfo = new LatencyInfo(PerfStatType.USER_MULTI_WRITE_INT,
                                       useStart, useEnd,
-                                      latency);
+                                      latency,
+                                      tracker.collectIntervalHistogram(
+                                          PerfStatType.USER_MULTI_WRITE_INT));
         packet.add(latencyInfo);
 
         latency = tracker.getAggregatedCumulativeStat(DataRequest.WRITE_MULTI);
         latencyInfo = new LatencyInfo(PerfStatType.USER_MULTI_WRITE_CUM,
                                       trackingStart, useEnd,
-                                      latency);
+                                      latency,
+                                      tracker.getCumulativeHistogram(
+                                          PerfStatType.USER_MULTI_WRITE_INT));
         packet.add(latencyInfo);
 
         /* Get the table throughput and size stats */
         packet.set
             (repNodeService.getRepNode().getTableManager().getTableInfo());
 
+        /* Get the latency stats of the busiest tables */
+        packet.setTableLatencies(getTableLatencies(useStart, useEnd));
+
         packet.add
             (new ReplicationState(useStart, useEnd, getReplicationState()));
 
@@ -394,6 +479,14 @@ public class OperationsStatsTracker {
 
         packet.setActiveRequests(reqHandler.getActiveRequests());
         packet.setTotalRequests(reqHandler.getAndResetTotalRequests());
+        final AsyncQueueStats queueStats =
+            reqHandler.getAndResetAsyncQueueStats();
+        packet.setAsyncQueueStats(queueStats.getQueueDepth(),
+                                  queueStats.getAvgQueueWaitMs(),
+                                  queueStats.getMaxQueueWaitMs(),
+                                  queueStats.getNumRejected(),
+                                  queueStats.getNumShed());
+        packet.setHotKeyStats(hotKeyTracker.getAndReset());
 
         lastEnd = useEnd;
 
@@ -407,6 +500,34 @@ public class OperationsStatsTracker {
         logger.fine(packet.toString());
     }
 
+    /**
+     * Returns the interval latencies of the busiest tables, keyed by table
+     * name qualified by its namespace, if any, so that tables with the same
+     * name in different namespaces are reported separately. Tables that no longer exist, or cannot be looked up because the
+     * table metadata is not available yet, are identified by table ID.
+     */
+    private Map<String, LatencyInfo> getTableLatencies(long useStart,
+                                                       long useEnd) {
+        final Map<Long, LatencyInfo> byId =
+            tableStatsTracker.collect(useStart, useEnd);
+        final Map<String, LatencyInfo> byName =
+            new LinkedHashMap<String, LatencyInfo>(byId.size());
+        for (Entry<Long, LatencyInfo> e : byId.entrySet()) {
+            TableImpl table = null;
+            try {
+                table = repNodeService.getRepNode().getTableManager().
+                    getTable(e.getKey());
+            } catch (RNUnavailableException rue) {
+                /* Table metadata not yet initialized */
+            }
+            byName.put((table == null ?
+                        e.getKey().toString() :
+                        table.getNamespaceName()),
+                       e.getValue());
+        }
+        return byName;
+    }
+
     private State getReplicationState() {
         State state = State.UNKNOWN;
         try {
@@ -450,6 +571,23 @@ public class OperationsStatsTracker {
      * Collector threads are named KVAgentMonitorCollector and log uncaught
      * exceptions to the monitor logger.
      */
+    /**
+     * Reports the current request handler gauges, which are not reset by
+     * stats collection.
+     */
+    private class RequestGauges implements GaugeCalculator {
+
+        @Override
+        public List<GaugeResult> getValuesList() {
+            final RequestHandlerImpl reqHandler =
+                repNodeService.getReqHandler();
+            final Map<String, Object> values = new HashMap<String, Object>();
+            values.put("activeRequests", reqHandler.getActiveRequests());
+            values.put("asyncQueueDepth", reqHandler.getAsyncQueueDepth());
+            return Collections.singletonList(new GaugeResult(values));
+        }
+    }
+
     private class CollectorThreadFactory extends KVThreadFactory {
         private final RepNodeId repNodeId;
 
@@ -475,6 +613,10 @@ public class OperationsStatsTracker {
      * - Also use a PerfQuantile to track requests aggregated
      * read/write-single/multiple metrics
      *
+     * - Request latencies are also recorded in microsecond histograms, per
+     * op type and per summary stat, whose percentiles, unlike those of the
+     * LatencyStats, are accurate to within 1% and can be rolled up.
+     *
      * - NOP ops are excluded.
      */
     public static class SummarizingStatsTracker extends StatsTracker<OpCode> {
@@ -492,6 +634,14 @@ public class OperationsStatsTracker {
          */
         private PerfQuantile aggregatedPerf;
 
+        /** The latency histograms of each op type. */
+        private final Map<OpCode, Histograms> opHistograms =
+            new EnumMap<OpCode, Histograms>(OpCode.class);
+
+        /** The latency histograms of each interval summary stat. */
+        private final Map<PerfStatType, Histograms> summaryHistograms =
+            new EnumMap<PerfStatType, Histograms>(PerfStatType.class);
+
         public SummarizingStatsTracker(Logger stackTraceLogger,
                                        int activeThreadThreshold,
                                        long threadDumpIntervalMillis,
@@ -516,6 +666,13 @@ public class OperationsStatsTracker {
             for(DataRequest type : DataRequest.values()) {
                 aggregatedPerf.labels(type.getValue());
             }
+
+            for (OpCode op : OpCode.values()) {
+                opHistograms.put(op, new Histograms());
+            }
+            for (PerfStatType type : PerfStatType.getSummaryStats()) {
+                summaryHistograms.put(type, new Histograms());
+            }
         }
 
         /**
@@ -535,10 +692,16 @@ public class OperationsStatsTracker {
 
             long elapsed = System.nanoTime() - startTime;
             long avgElapsed = elapsed / numRecords;
+            opHistograms.get(opType).interval.record(elapsed);
             PerfStatType ptype = opType.getIntervalMetric();
             for (PerfStatType parent = ptype.getParent(); parent != null;
                     parent = parent.getParent()) {
 
+                final Histograms histograms = summaryHistograms.get(parent);
+                if (histograms != null) {
+                    histograms.interval.record(elapsed);
+                }
+
                 if (parent.equals(PerfStatType.USER_SINGLE_OP_INT)) {
                     singleOpsInterval.set(elapsed);
                     singleOpsCumulative.set(elapsed);
@@ -605,6 +768,57 @@ public class OperationsStatsTracker {
         public PerfQuantile getAggregatedPerf() {
             return aggregatedPerf;
         }
+
+        /**
+         * Returns the latency histogram of the op type for the current
+         * interval, and starts a new interval.
+         */
+        public LatencyHistogram collectIntervalHistogram(OpCode op) {
+            return opHistograms.get(op).collectInterval();
+        }
+
+        /**
+         * Returns the latency histogram of the op type for all intervals
+         * collected so far.
+         */
+        public LatencyHistogram getCumulativeHistogram(OpCode op) {
+            return opHistograms.get(op).cumulative;
+        }
+
+        /**
+         * Returns the latency histogram of the interval summary stat for the
+         * current interval, and starts a new interval.
+         */
+        public LatencyHistogram
+            collectIntervalHistogram(PerfStatType summaryType) {
+            return summaryHistograms.get(summaryType).collectInterval();
+        }
+
+        /**
+         * Returns the latency histogram of the interval summary stat for all
+         * intervals collected so far.
+         */
+        public LatencyHistogram
+            getCumulativeHistogram(PerfStatType summaryType) {
+            return summaryHistograms.get(summaryType).cumulative;
+        }
+
+        /**
+         * The interval and cumulative latency histograms of an op type or
+         * summary stat. The cumulative histogram is the merge of all
+         * collected intervals.
+         */
+        private static class Histograms {
+            final LatencyRecorder interval = new LatencyRecorder();
+            volatile LatencyHistogram cumulative = LatencyHistogram.EMPTY;
+
+            /* Only called by pushStats, which is synchronized */
+            LatencyHistogram collectInterval() {
+                final LatencyHistogram histogram = interval.snapshotAndClear();
+                cumulative = cumulative.merge(histogram);
+                return histogram;
+            }
+        }
     }
 
     /**
@@ -82,6 +82,7 @@ import oracle.kv.impl.util.registry.ClientSocketFactory;
 import oracle.kv.impl.util.registry.RegistryUtils;
 import oracle.kv.impl.util.registry.ServerSocketFactory;
 import oracle.kv.impl.util.server.LoggerUtils;
+import oracle.kv.impl.util.sklogger.MetricsHttpServer;
 
 import com.sleepycat.je.EnvironmentFailureException;
 import com.sleepycat.je.rep.ReplicatedEnvironment;
@@ -150,6 +151,11 @@ public class RepNodeService
      */
     private OperationsStatsTracker opStatsTracker;
 
+    /**
+     * The HTTP server that exposes metrics, or null if not enabled.
+     */
+    private MetricsHttpServer metricsServer;
+
     /**
      * Parameter change tracker
      */
@@ -566,6 +572,8 @@ public class RepNodeService
                 keyStatsCollector.startup();
                 checkStopRequestedDuringStart();
 
+                startMetricsServer();
+
                 logger.info("Started RepNodeService");
             } catch (RemoteException re) {
                 statusTracker.update(ServiceStatus.ERROR_NO_RESTART);
@@ -575,6 +583,33 @@ public class RepNodeService
         }
     }
 
+    /**
+     * Starts the metrics HTTP server if a port is configured. Failing to
+     * start it is logged, but does not prevent the RN from starting. The
+     * server is not authenticated, so on a secure store it only listens on
+     * the loopback address.
+     */
+    private void startMetricsServer() {
+        final int port = params.getRepNodeParams().getMetricsHttpPort();
+        if (port == 0) {
+            return;
+        }
+        final SecurityParams sp = params.getSecurityParams();
+        try {
+            metricsServer = new MetricsHttpServer(
+                opStatsTracker.getMetricRegistry(),
+                MetricsHttpServer.getListenHost(
+                    params.getStorageNodeParams().getHostname(),
+                    (sp != null) && sp.isSecure()),
+                port, logger);
+            metricsServer.start();
+        } catch (IOException e) {
+            logger.warning("Unable to start metrics HTTP server on port " +
+                           port + ": " + e);
+            metricsServer = null;
+        }
+    }
+
     private void checkStopRequestedDuringStart() {
         if (stopRequested) {
             throw new IllegalStateException(
@@ -663,6 +698,11 @@ public class RepNodeService
                  */
                 keyStatsCollector.shutdown();
 
+                /* Stop serving metrics */
+                if (metricsServer != null) {
+                    metricsServer.stop();
+                }
+
                 /*
                  * Stop the login handler first, so we are no longer
                  * accepting requests.
@@ -0,0 +1,141 @@
+/*-
+ * Copyright (C) 2011, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This file was distributed by Oracle as part of a version of Oracle NoSQL
+ * Database made available at:
+ *
+ * http://www.oracle.com/technetwork/database/database-technologies/nosqldb/downloads/index.html
+ *
+ * Please see the LICENSE file included in the top-level directory of the
+ * appropriate version of Oracle NoSQL Database for a copy of the license and
+ * additional information.
+ */
+
+package oracle.kv.impl.rep;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import oracle.kv.impl.api.ops.InternalOperation;
+import oracle.kv.impl.measurement.LatencyInfo;
+import oracle.kv.impl.measurement.PerfStatType;
+
+import com.sleepycat.utilint.Latency;
+import com.sleepycat.utilint.LatencyStat;
+
+/**
+ * Tracks interval latency and operation counts per table. To bound memory,
+ * at most MAX_TRACKED_TABLES tables are tracked at a time, and only the
+ * TOP_TABLES busiest tables are reported each interval. Tables that were
+ * idle during an interval, or were not among the busiest, stop being tracked
+ * at the end of the interval, which makes room for other busy tables.
+ */
+public class TableStatsTracker {
+
+    /** The max number of tables tracked at a time. */
+    static final int MAX_TRACKED_TABLES = 100;
+
+    /** The max number of tables reported each interval. */
+    static final int TOP_TABLES = 20;
+
+    private final int maxTrackedLatencyMillis;
+
+    private final ConcurrentHashMap<Long, LatencyStat> stats =
+        new ConcurrentHashMap<Long, LatencyStat>();
+
+    public TableStatsTracker(int maxTrackedLatencyMillis) {
+        this.maxTrackedLatencyMillis = maxTrackedLatencyMillis;
+    }
+
+    /**
+     * Records a completed operation. Non-table operations are ignored. An
+     * operation that accesses more than one table is charged to the first.
+     */
+    public void markFinish(InternalOperation op,
+                           long startNs,
+                           int numRecords) {
+
+        if (numRecords == 0) {
+            return;
+        }
+
+        long tableId = op.getTableId();
+        if (tableId == 0) {
+            final long[] tableIds = op.getTableIds();
+            if (tableIds == null || tableIds.length == 0) {
+                return;
+            }
+            tableId = tableIds[0];
+        }
+
+        LatencyStat stat = stats.get(tableId);
+        if (stat == null) {
+            if (stats.size() >= MAX_TRACKED_TABLES) {
+                return;
+            }
+            stat = new LatencyStat(maxTrackedLatencyMillis);
+            final LatencyStat prev = stats.putIfAbsent(tableId, stat);
+            if (prev != null) {
+                stat = prev;
+            }
+        }
+
+        stat.set(numRecords, System.nanoTime() - startNs);
+    }
+
+    /**
+     * Returns the interval stats of the busiest tables, busiest first, keyed
+     * by table ID, and starts a new interval.
+     */
+    public Map<Long, LatencyInfo> collect(long startMillis, long endMillis) {
+
+        final List<Map.Entry<Long, Latency>> latencies =
+            new ArrayList<Map.Entry<Long, Latency>>(stats.size());
+
+        final Iterator<Map.Entry<Long, LatencyStat>> iter =
+            stats.entrySet().iterator();
+        while (iter.hasNext()) {
+            final Map.Entry<Long, LatencyStat> e = iter.next();
+            final Latency latency = e.getValue().calculate();
+            e.getValue().clear();
+            if (latency.getTotalOps() == 0) {
+                iter.remove();
+                continue;
+            }
+            latencies.add(
+                new SimpleImmutableEntry<Long, Latency>(e.getKey(), latency));
+        }
+
+        Collections.sort(latencies,
+                         new Comparator<Map.Entry<Long, Latency>>() {
+            @Override
+            public int compare(Map.Entry<Long, Latency> e1,
+                               Map.Entry<Long, Latency> e2) {
+                return Long.compare(e2.getValue().getTotalOps(),
+                                    e1.getValue().getTotalOps());
+            }
+        });
+
+        final Map<Long, LatencyInfo> result =
+            new LinkedHashMap<Long, LatencyInfo>();
+        for (int i = 0; i < latencies.size(); i++) {
+            final Map.Entry<Long, Latency> e = latencies.get(i);
+            if (i < TOP_TABLES) {
+                result.put(e.getKey(),
+                           new LatencyInfo(PerfStatType.TABLE_OP_INT,
+                                           startMillis, endMillis,
+                                           e.getValue()));
+            } else {
+                stats.remove(e.getKey());
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,173 @@
+/*-
+ * Copyright (C) 2011, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This file was distributed by Oracle as part of a version of Oracle NoSQL
+ * Database made available at:
+ *
+ * http://www.oracle.com/technetwork/database/database-technologies/nosqldb/downloads/index.html
+ *
+ * Please see the LICENSE file included in the top-level directory of the
+ * appropriate version of Oracle NoSQL Database for a copy of the license and
+ * additional information.
+ */
+
+package oracle.kv.impl.rep.monitor;
+
+import java.io.Serializable;
+import java.util.List;
+
+import oracle.kv.impl.util.JsonUtils;
+
+import org.codehaus.jackson.node.ArrayNode;
+import org.codehaus.jackson.node.ObjectNode;
+
+/**
+ * The most frequently accessed partitions and keys of a RepNode during a
+ * stats interval, for reads and writes separately. Keys are identified by a
+ * 64-bit hash of their major path, which is the shard key for table rows,
+ * together with the partition they belong to, so that the actual key can be
+ * found by the application without the RN having to report user data.
+ *
+ * Counts are estimates that may exceed, but never fall below, the actual
+ * number of accesses.
+ */
+public class HotKeyStats implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long readOps;
+    private final long writeOps;
+    private final List<Entry> readPartitions;
+    private final List<Entry> writePartitions;
+    private final List<Entry> readKeys;
+    private final List<Entry> writeKeys;
+
+    public HotKeyStats(long readOps,
+                       long writeOps,
+                       List<Entry> readPartitions,
+                       List<Entry> writePartitions,
+                       List<Entry> readKeys,
+                       List<Entry> writeKeys) {
+        this.readOps = readOps;
+        this.writeOps = writeOps;
+        this.readPartitions = readPartitions;
+        this.writePartitions = writePartitions;
+        this.readKeys = readKeys;
+        this.writeKeys = writeKeys;
+    }
+
+    /** Returns the number of read requests tracked. */
+    public long getReadOps() {
+        return readOps;
+    }
+
+    /** Returns the number of write requests tracked. */
+    public long getWriteOps() {
+        return writeOps;
+    }
+
+    /** Returns the most read partitions, most frequent first. */
+    public List<Entry> getReadPartitions() {
+        return readPartitions;
+    }
+
+    /** Returns the most written partitions, most frequent first. */
+    public List<Entry> getWritePartitions() {
+        return writePartitions;
+    }
+
+    /** Returns the most read keys, most frequent first. */
+    public List<Entry> getReadKeys() {
+        return readKeys;
+    }
+
+    /** Returns the most written keys, most frequent first. */
+    public List<Entry> getWriteKeys() {
+        return writeKeys;
+    }
+
+    /** Returns true if no requests were tracked. */
+    public boolean isEmpty() {
+        return (readOps == 0) && (writeOps == 0);
+    }
+
+    /**
+     * Adds the stats to the specified JSON object.
+     */
+    void addTo(ObjectNode jsonRoot) {
+        jsonRoot.put("Read_Ops", readOps);
+        jsonRoot.put("Write_Ops", writeOps);
+        addPartitions(jsonRoot.putArray("Hot_Read_Partitions"),
+                      readPartitions);
+        addPartitions(jsonRoot.putArray("Hot_Write_Partitions"),
+                      writePartitions);
+        addKeys(jsonRoot.putArray("Hot_Read_Keys"), readKeys);
+        addKeys(jsonRoot.putArray("Hot_Write_Keys"), writeKeys);
+    }
+
+    private static void addPartitions(ArrayNode array, List<Entry> entries) {
+        for (Entry e : entries) {
+            final ObjectNode node = JsonUtils.createObjectNode();
+            node.put("Partition", e.getPartitionId());
+            node.put("Count", e.getCount());
+            array.add(node);
+        }
+    }
+
+    private static void addKeys(ArrayNode array, List<Entry> entries) {
+        for (Entry e : entries) {
+            final ObjectNode node = JsonUtils.createObjectNode();
+            node.put("Key_Hash", Long.toHexString(e.getKeyHash()));
+            node.put("Partition", e.getPartitionId());
+            node.put("Count", e.getCount());
+            array.add(node);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "HotKeyStats[readOps=" + readOps +
+            " writeOps=" + writeOps +
+            " readPartitions=" + readPartitions +
+            " writePartitions=" + writePartitions +
+            " readKeys=" + readKeys +
+            " writeKeys=" + writeKeys + "]";
+    }
+
+    /**
+     * A frequently accessed partition or key.
+     */
+    public static class Entry implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long keyHash;
+        private final int partitionId;
+        private final long count;
+
+        public Entry(long keyHash, int partitionId, long count) {
+            this.keyHash = keyHash;
+            this.partitionId = partitionId;
+            this.count = count;
+        }
+
+        /** Returns the key hash, or 0 for a partition entry. */
+        public long getKeyHash() {
+            return keyHash;
+        }
+
+        public int getPartitionId() {
+            return partitionId;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            return (keyHash == 0 ? "" : Long.toHexString(keyHash) + "@") +
+                "P" + partitionId + ":" + count;
+        }
+    }
+}
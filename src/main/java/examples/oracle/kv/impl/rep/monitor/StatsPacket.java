@@ -19,6 +19,7 @@ import java.text.DateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,6 +31,7 @@ import oracle.kv.impl.measurement.ConciseStats;
 import oracle.kv.impl.measurement.EnvStats;
 import oracle.kv.impl.measurement.JVMStats;
 import oracle.kv.impl.measurement.JVMStats.CollectorInfo;
+import oracle.kv.impl.measurement.LatencyHistogram;
 import oracle.kv.impl.measurement.LatencyInfo;
 import oracle.kv.impl.measurement.Measurement;
 import oracle.kv.impl.measurement.PerfStatType;
@@ -105,6 +107,16 @@ public class StatsPacket implements Measurement, Serializable {
     private int activeRequests;
     private int totalRequests;
 
+    /* Async request queue stats, zero if received from an older version */
+    private int asyncQueueDepth;
+    private long asyncAvgQueueWaitMs;
+    private long asyncMaxQueueWaitMs;
+    private long asyncRejectedRequests;
+    private long asyncShedRequests;
+
+    /* Hot partitions and keys, null if received from an older version */
+    private HotKeyStats hotKeyStats;
+
     /* To act as tags for aggregating */
     private final String resource;
     private final String shard;
@@ -118,6 +130,12 @@ public class StatsPacket implements Measurement, Serializable {
      */
     private Set<TableInfo> tableInfo;
 
+    /*
+     * Interval latencies of the busiest tables, by table name, busiest
+     * first. Null if receiving stats packet from older version store.
+     */
+    private Map<String, LatencyInfo> tableLatencies;
+
     public StatsPacket(long start, long end, String resource, String shard) {
         this.start = start;
         this.end = end;
@@ -181,6 +199,71 @@ public class StatsPacket implements Measurement, Serializable {
         this.totalRequests = totalRequests;
     }
 
+    /**
+     * Returns the number of async requests waiting for a thread at the end
+     * of the interval.
+     */
+    public int getAsyncQueueDepth() {
+        return asyncQueueDepth;
+    }
+
+    /**
+     * Returns the average time in milliseconds async requests waited for a
+     * thread during the interval.
+     */
+    public long getAsyncAvgQueueWaitMs() {
+        return asyncAvgQueueWaitMs;
+    }
+
+    /**
+     * Returns the maximum time in milliseconds an async request waited for
+     * a thread during the interval.
+     */
+    public long getAsyncMaxQueueWaitMs() {
+        return asyncMaxQueueWaitMs;
+    }
+
+    /**
+     * Returns the number of async requests that were rejected during the
+     * interval because the request queue was full.
+     */
+    public long getAsyncRejectedRequests() {
+        return asyncRejectedRequests;
+    }
+
+    /**
+     * Returns the number of async requests that were shed during the
+     * interval, without being executed, because they waited too long in the
+     * request queue.
+     */
+    public long getAsyncShedRequests() {
+        return asyncShedRequests;
+    }
+
+    public void setAsyncQueueStats(int queueDepth,
+                                   long avgQueueWaitMs,
+                                   long maxQueueWaitMs,
+                                   long rejectedRequests,
+                                   long shedRequests) {
+        asyncQueueDepth = queueDepth;
+        asyncAvgQueueWaitMs = avgQueueWaitMs;
+        asyncMaxQueueWaitMs = maxQueueWaitMs;
+        asyncRejectedRequests = rejectedRequests;
+        asyncShedRequests = shedRequests;
+    }
+
+    /**
+     * Returns the most frequently accessed partitions and keys during the
+     * interval, or null if not available.
+     */
+    public HotKeyStats getHotKeyStats() {
+        return hotKeyStats;
+    }
+
+    public void setHotKeyStats(HotKeyStats hotKeyStats) {
+        this.hotKeyStats = hotKeyStats;
+    }
+
     public LatencyInfo get(PerfStatType perfType) {
         return latencies.get(perfType.getId());
     }
@@ -195,6 +278,20 @@ public class StatsPacket implements Measurement, Serializable {
         return tableInfo;
     }
 
+    /**
+     * Gets the interval latencies of the busiest tables, keyed by table
+     * name, busiest first. If no information is available null is returned.
+     *
+     * @return the map of table latencies or null
+     */
+    public Map<String, LatencyInfo> getTableLatencies() {
+        return tableLatencies;
+    }
+
+    public void setTableLatencies(Map<String, LatencyInfo> tableLatencies) {
+        this.tableLatencies = tableLatencies;
+    }
+
     @Override
     public long getStart() {
         return start;
@@ -425,9 +522,19 @@ public class StatsPacket implements Measurement, Serializable {
                     latency.get95thPercent());
                 jsonRoot.put(type.toString() + "_99th",
                     latency.get99thPercent());
+                final LatencyHistogram histogram = latencyInfo.getHistogram();
+                if (histogram != null) {
+                    addHistogram(jsonRoot, type.toString(), histogram);
+                }
             }
             jsonRoot.put("Active_Requests", getActiveRequests());
             jsonRoot.put("Total_Requests", getTotalRequests());
+            jsonRoot.put("Async_Queue_Depth", getAsyncQueueDepth());
+            jsonRoot.put("Async_Queue_Avg_Wait_Ms", getAsyncAvgQueueWaitMs());
+            jsonRoot.put("Async_Queue_Max_Wait_Ms", getAsyncMaxQueueWaitMs());
+            jsonRoot.put("Async_Rejected_Requests",
+                         getAsyncRejectedRequests());
+            jsonRoot.put("Async_Shed_Requests", getAsyncShedRequests());
             ObjectWriter writer = JsonUtils.createWriter(false);
             return writer.writeValueAsString(jsonRoot);
         } catch (Exception e) {
@@ -435,6 +542,24 @@ public class StatsPacket implements Measurement, Serializable {
         }
     }
 
+    /**
+     * Adds the microsecond latencies of the histogram to the JSON object.
+     */
+    private static void addHistogram(ObjectNode jsonRoot,
+                                     String prefix,
+                                     LatencyHistogram histogram) {
+        jsonRoot.put(prefix + "_Min_Us", histogram.getMinMicros());
+        jsonRoot.put(prefix + "_Max_Us", histogram.getMaxMicros());
+        jsonRoot.put(prefix + "_Avg_Us", histogram.getAverageMicros());
+        jsonRoot.put(prefix + "_50th_Us", histogram.getPercentileMicros(50));
+        jsonRoot.put(prefix + "_95th_Us", histogram.getPercentileMicros(95));
+        jsonRoot.put(prefix + "_99th_Us", histogram.getPercentileMicros(99));
+        jsonRoot.put(prefix + "_99_9th_Us",
+                     histogram.getPercentileMicros(99.9));
+        jsonRoot.put(prefix + "_99_99th_Us",
+                     histogram.getPercentileMicros(99.99));
+    }
+
     public String toExceptionsJsonString() {
         try {
             final ObjectNode jsonRoot = createJsonHeader();
@@ -461,6 +586,22 @@ public class StatsPacket implements Measurement, Serializable {
         }
     }
 
+    public String toHotKeyJsonString() {
+        if ((hotKeyStats == null) ||
+            (hotKeyStats.getReadOps() == 0 &&
+             hotKeyStats.getWriteOps() == 0)) {
+            return "";
+        }
+        try {
+            final ObjectNode jsonRoot = createJsonHeader();
+            hotKeyStats.addTo(jsonRoot);
+            ObjectWriter writer = JsonUtils.createWriter(false);
+            return writer.writeValueAsString(jsonRoot);
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
     public String toEnvJsonString() {
         final Collection<StatGroup> groups = new ArrayList<StatGroup>();
         if (repEnvStats != null) {
@@ -501,13 +642,18 @@ public class StatsPacket implements Measurement, Serializable {
     }
 
     public String toTableJsonString() {
-        if ((tableInfo == null) || tableInfo.isEmpty()) {
+        final boolean hasInfo = (tableInfo != null) && !tableInfo.isEmpty();
+        final boolean hasLatencies =
+            (tableLatencies != null) && !tableLatencies.isEmpty();
+        if (!hasInfo && !hasLatencies) {
             return "";
         }
         try {
             final ObjectNode jsonRoot = createJsonHeader();
             final ArrayNode tableArray = jsonRoot.putArray("Tables");
-            for (TableInfo info : tableInfo) {
+            for (TableInfo info : (hasInfo ?
+                                   tableInfo :
+                                   Collections.<TableInfo>emptySet())) {
                 final ObjectNode tableNode = JsonUtils.createObjectNode();
                 tableNode.put("Table_Name", info.getTableName());
                 tableNode.put("Read_KB", info.getReadKB());
@@ -527,6 +673,25 @@ public class StatsPacket implements Measurement, Serializable {
                               info.getSizeExceptions());
                 tableArray.add(tableNode);
             }
+            if (hasLatencies) {
+                final ArrayNode latencyArray =
+                    jsonRoot.putArray("Table_Latencies");
+                for (Entry<String, LatencyInfo> e :
+                         tableLatencies.entrySet()) {
+                    final Latency latency = e.getValue().getLatency();
+                    final ObjectNode node = JsonUtils.createObjectNode();
+                    node.put("Table_Name", e.getKey());
+                    node.put("TotalOps", latency.getTotalOps());
+                    node.put("TotalReq", latency.getTotalRequests());
+                    node.put("PerSec", e.getValue().getThroughputPerSec());
+                    node.put("Min", latency.getMin());
+                    node.put("Max", latency.getMax());
+                    node.put("Avg", latency.getAvg());
+                    node.put("95th", latency.get95thPercent());
+                    node.put("99th", latency.get99thPercent());
+                    latencyArray.add(node);
+                }
+            }
             ObjectWriter writer = JsonUtils.createWriter(false);
             return writer.writeValueAsString(jsonRoot);
         } catch (Exception e) {
@@ -0,0 +1,192 @@
+/*-
+ * Copyright (C) 2011, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This file was distributed by Oracle as part of a version of Oracle NoSQL
+ * Database made available at:
+ *
+ * http://www.oracle.com/technetwork/database/database-technologies/nosqldb/downloads/index.html
+ *
+ * Please see the LICENSE file included in the top-level directory of the
+ * appropriate version of Oracle NoSQL Database for a copy of the license and
+ * additional information.
+ */
+
+package oracle.kv.impl.rep.table;
+
+import java.util.IdentityHashMap;
+
+import oracle.kv.impl.api.table.RowImpl;
+import oracle.kv.impl.api.table.TableImpl;
+
+/**
+ * A per-thread cache of the rows most recently deserialized for index key
+ * extraction.
+ *
+ * When a record is written, JE calls the key creator of every secondary DB
+ * associated with the primary DB, one after the other, in the writing
+ * thread and with the same key and data byte arrays. When an existing record
+ * is updated, JE calls each key creator twice, first with the old data and
+ * then with the new data, so the calls alternate between the two images.
+ * Without this cache each IndexKeyCreator deserializes the record into a
+ * RowImpl on its own, so a table with N indexes decodes every written value
+ * N times, or 2N times for an update. With it, each image is decoded once
+ * per table and shared by the key creators, which only read it. The cache
+ * holds two records, so that the old and the new image of an update are
+ * both kept while JE alternates between them.
+ *
+ * Rows are only cached while the thread executes an operation, between
+ * calls to {@link #begin} and {@link #end}, and the cache is cleared when the
+ * operation ends, so it does not retain the last record written by the
+ * thread. Within an operation, a cached row is used only if the key and
+ * data arrays are the same instances as the ones it was decoded from, which
+ * is the case for the calls JE makes for the same record, and only for the
+ * same TableImpl instance, so a table metadata change invalidates it. The
+ * contents of the arrays are not compared: the arrays of the records
+ * written by an operation are not reused for other records, and since the
+ * cache is cleared by end, an array that is reused by a later operation is
+ * never matched. Outside an operation, rows are decoded without caching.
+ */
+public class DecodedRowCache {
+
+    private static final ThreadLocal<DecodedRowCache> cache =
+        new ThreadLocal<DecodedRowCache>() {
+            @Override
+            protected DecodedRowCache initialValue() {
+                return new DecodedRowCache();
+            }
+        };
+
+    /*
+     * The two most recently used records, typically the old and new images
+     * of an updated record.
+     */
+    private final CachedRecord[] records = {
+        new CachedRecord(), new CachedRecord()
+    };
+
+    /* The index in records of the most recently used record */
+    private int lastUsed;
+
+    /* The number of nested operations being executed by the thread */
+    private int depth;
+
+    private DecodedRowCache() {
+    }
+
+    /**
+     * Starts caching rows in the current thread, for the execution of an
+     * operation. Each call must be followed by a call to {@link #end}.
+     */
+    public static void begin() {
+        cache.get().depth++;
+    }
+
+    /**
+     * Ends the execution of an operation in the current thread, clearing
+     * the cache when the outermost operation ends.
+     */
+    public static void end() {
+        final DecodedRowCache c = cache.get();
+        if (--c.depth == 0) {
+            for (CachedRecord record : c.records) {
+                record.clear();
+            }
+        }
+    }
+
+    /**
+     * Returns the row of the specified table deserialized from the
+     * specified key and data, or null if the record is not a row of the
+     * table. The returned row must not be modified.
+     *
+     * @param keyOnly true if the caller only needs the primary key fields
+     */
+    static RowImpl getRow(TableImpl table,
+                          byte[] keyBytes,
+                          byte[] dataBytes,
+                          boolean keyOnly) {
+
+        if (dataBytes == null) {
+            return table.createRowFromBytes(keyBytes, null, keyOnly);
+        }
+
+        final DecodedRowCache c = cache.get();
+        if (c.depth == 0) {
+            return table.createRowFromBytes(keyBytes, dataBytes, keyOnly);
+        }
+        final IdentityHashMap<TableImpl, RowImpl> rows =
+            c.getRecord(keyBytes, dataBytes).rows;
+
+        final RowImpl row = rows.get(table);
+        if (row != null) {
+            return row;
+        }
+
+        /*
+         * Key-only decoding is cheap, don't pay for a full decode that
+         * may not be shared.
+         */
+        if (keyOnly) {
+            return table.createRowFromBytes(keyBytes, dataBytes, true);
+        }
+
+        if (rows.containsKey(table)) {
+            return null;
+        }
+
+        final RowImpl newRow =
+            table.createRowFromBytes(keyBytes, dataBytes, false);
+        rows.put(table, newRow);
+        return newRow;
+    }
+
+    /*
+     * Returns the cached record for the specified key and data, replacing
+     * the least recently used record if neither matches.
+     */
+    private CachedRecord getRecord(byte[] keyBytes, byte[] dataBytes) {
+
+        for (int i = 0; i < records.length; i++) {
+            if (records[i].matches(keyBytes, dataBytes)) {
+                lastUsed = i;
+                return records[i];
+            }
+        }
+
+        lastUsed = (lastUsed + 1) % records.length;
+        final CachedRecord record = records[lastUsed];
+        record.set(keyBytes, dataBytes);
+        return record;
+    }
+
+    /**
+     * A record and the rows decoded from it.
+     */
+    private static class CachedRecord {
+
+        private byte[] keyBytes;
+        private byte[] dataBytes;
+
+        /*
+         * The rows decoded from the record, by table. A null value means the
+         * record does not belong to the table. Only full rows are cached.
+         */
+        final IdentityHashMap<TableImpl, RowImpl> rows =
+            new IdentityHashMap<>(4);
+
+        boolean matches(byte[] otherKeyBytes, byte[] otherDataBytes) {
+            return (otherKeyBytes == keyBytes) &&
+                (otherDataBytes == dataBytes);
+        }
+
+        void set(byte[] newKeyBytes, byte[] newDataBytes) {
+            keyBytes = newKeyBytes;
+            dataBytes = newDataBytes;
+            rows.clear();
+        }
+
+        void clear() {
+            set(null, null);
+        }
+    }
+}
@@ -23,6 +23,7 @@ import com.sleepycat.je.SecondaryMultiKeyCreator;
 
 import oracle.kv.IndexKeySizeLimitException;
 import oracle.kv.impl.api.table.IndexImpl;
+import oracle.kv.impl.api.table.RowImpl;
 import oracle.kv.impl.api.table.TableLimits;
 
 /**
@@ -81,10 +82,19 @@ public class IndexKeyCreator implements SecondaryKeyCreator,
                                       DatabaseEntry key,
                                       DatabaseEntry data,
                                       DatabaseEntry result) {
-        byte[] res =
-            index.extractIndexKey(key.getData(),
-                                  (data != null ? data.getData() : null),
-                                  keyOnly);
+        /*
+         * The row is shared with the key creators of the other indexes on
+         * the table, see DecodedRowCache.
+         */
+        final RowImpl row =
+            DecodedRowCache.getRow(index.getTableImpl(),
+                                   key.getData(),
+                                   (data != null ? data.getData() : null),
+                                   keyOnly);
+        if (row == null) {
+            return false;
+        }
+        byte[] res = index.serializeIndexKey(row, -1);
         if (res != null) {
             checkKeySizeLimit(res.length);
             result.setData(res);
@@ -110,10 +120,15 @@ public class IndexKeyCreator implements SecondaryKeyCreator,
          *
          * If the extra object allocations show up in profiling then something
          * can be done.
+         *
+         * The row itself is shared with the key creators of the other
+         * indexes on the table, see DecodedRowCache.
          */
-        List<byte[]> res = index.extractIndexKeys(key.getData(),
-                                                  data.getData(),
-                                                  keyOnly);
+        List<byte[]> res = index.extractIndexKeys(
+            DecodedRowCache.getRow(index.getTableImpl(),
+                                   key.getData(),
+                                   data.getData(),
+                                   keyOnly));
         if (res != null) {
             int length = 0;
             for (byte[] bytes : res) {
@@ -20,12 +20,20 @@ import static oracle.kv.impl.rep.RNTaskCoordinator.KV_INDEX_CREATION_TASK;
 import static oracle.kv.impl.rep.table.SecondaryInfoMap.CLEANER_CONFIG;
 import static oracle.kv.impl.rep.table.SecondaryInfoMap.SECONDARY_INFO_CONFIG;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -56,6 +64,7 @@ import oracle.kv.impl.rep.table.SecondaryInfoMap.SecondaryInfo;
 import oracle.kv.impl.topo.PartitionId;
 import oracle.kv.impl.topo.Topology;
 import oracle.kv.impl.util.DatabaseUtils;
+import oracle.kv.impl.util.KVThreadFactory;
 import oracle.kv.impl.util.TxnUtil;
 import oracle.kv.table.PrimaryKey;
 import oracle.kv.table.Table;
@@ -113,6 +122,25 @@ public class MaintenanceThread extends StoppableThread {
     /* Number of records read from the primary during each populate call. */
     public static final int POPULATE_BATCH_SIZE = 100;
 
+    /*
+     * When partitions are populated concurrently, the batch size of each
+     * partition is adjusted between POPULATE_BATCH_SIZE and this value,
+     * aiming for batches that take about POPULATE_BATCH_TARGET_MS.
+     */
+    private static final int MAX_POPULATE_BATCH_SIZE = 1000;
+    private static final long POPULATE_BATCH_TARGET_MS = 200L;
+
+    /*
+     * The max number of bytes of primary records buffered by a population
+     * batch that inserts in index key order. The batch ends early if it is
+     * reached. Together with MAX_POPULATE_BATCH_SIZE, this bounds the window
+     * within which index inserts are sorted.
+     */
+    private static final long MAX_SORTED_BATCH_BYTES = 8L * 1024L * 1024L;
+
+    /* The outcome of a concurrent population pass */
+    private enum PopulatePass { CONTINUE, WAIT_FOR_TARGET_IDLE, DONE }
+
     /*
      * Number of records read from a secondary DB partition in a transaction
      * when cleaning after a partition migration.
@@ -154,7 +182,21 @@ public class MaintenanceThread extends StoppableThread {
      * callers who start the thread to wait.
      */
     private MaintenanceThread oldThread;
-    
+
+    /*
+     * The pool used to populate partitions concurrently. It is created when
+     * needed and shut down at the end of secondary population. Only accessed
+     * by this thread.
+     */
+    private ExecutorService populateExecutor = null;
+
+    /*
+     * The current batch size of each partition being populated concurrently.
+     * Only accessed by this thread.
+     */
+    private final Map<PartitionId, Integer> populateBatchSizes =
+        new HashMap<>();
+
     MaintenanceThread(MaintenanceThread oldThread,
                       TableManager tableManager,
                       RepNode repNode,
@@ -708,6 +750,23 @@ public class MaintenanceThread extends StoppableThread {
      */
     private void populateSecondary(Database infoDb)
             throws InterruptedException {
+        try {
+            populateSecondaryInternal(infoDb);
+        } finally {
+            if (populateExecutor != null) {
+                /*
+                 * Don't interrupt the workers, JE operations must not be
+                 * interrupted. Their batches are short.
+                 */
+                populateExecutor.shutdown();
+                populateExecutor = null;
+            }
+            populateBatchSizes.clear();
+        }
+    }
+
+    private void populateSecondaryInternal(Database infoDb)
+            throws InterruptedException {
         logger.info("Running secondary population");
 
         final OperationHandler oh =
@@ -775,6 +834,27 @@ public class MaintenanceThread extends StoppableThread {
                     }
                     waitForTargetIdle = false;
                 }
+
+                /*
+                 * If configured, populate several partitions at once. The
+                 * parameter is read on every pass so that it can be changed
+                 * while the population is running.
+                 */
+                final int numThreads =
+                    repNode.getRepNodeParams().getIndexPopulateThreads();
+                if (numThreads > 1) {
+                    final PopulatePass pass =
+                        populateConcurrently(infoDb, opHandler,
+                                             numThreads, permitLeaseMs);
+                    if (pass == PopulatePass.DONE) {
+                        return;
+                    }
+                    if (pass == PopulatePass.WAIT_FOR_TARGET_IDLE) {
+                        waitForTargetIdle = true;
+                    }
+                    continue;
+                }
+
                 txn = repEnv.beginTransaction(null, SECONDARY_INFO_CONFIG);
 
                 final SecondaryInfoMap infoMap =
@@ -859,14 +939,24 @@ public class MaintenanceThread extends StoppableThread {
                     return;
                 }
                 try {
-                    final boolean more =
-                        populate(table,
-                                 opHandler,
-                                 txn,
-                                 info.getCurrentPartition(),
-                                 info.getLastKey());
+                    final IndexImpl sortIndex = getSortIndex(table, dbName);
+
+                    /*
+                     * Sorted batches are larger, so that more of the index
+                     * inserts are sorted together. The sort is still local
+                     * to the batch.
+                     */
+                    final PartitionBatch batch =
+                        new PartitionBatch(info.getCurrentPartition(),
+                                           info.getLastKey(),
+                                           (sortIndex == null) ?
+                                           POPULATE_BATCH_SIZE :
+                                           MAX_POPULATE_BATCH_SIZE);
+                    batch.sortIndex = sortIndex;
+                    populate(table, opHandler, txn, batch);
+                    info.addPopulated(batch.numPopulated);
                     info.completePass();
-                    if (!more) {
+                    if (!batch.more) {
                             logger.log(Level.FINE, "Finished partition for {0}",
                                    info);
                         info.completeCurrentPartition();
@@ -960,6 +1050,11 @@ public class MaintenanceThread extends StoppableThread {
         assert info.needsPopulating();
         assert info.getCurrentPartition() == null;
 
+        /* First resume any partition left by a concurrent population */
+        if (info.resumeActivePartition()) {
+            return true;
+        }
+
         /* Loop to find a partition that needs processing. */
         for (PartitionId partition : repNode.getPartitions()) {
             if (!info.isCompleted(partition)) {
@@ -994,29 +1089,24 @@ public class MaintenanceThread extends StoppableThread {
     }
 
     /**
-     * Processes records for the specified table from the specified partition.
-     * If the bytes in lastKey is not null then use that to start the
-     * iteration. Returns true if there are more records to read from the
-     * partition. If true is returned the bytes in lastKey are set to the
-     * key of the last record read.
+     * Processes records for the specified table from the partition of the
+     * specified batch. If the bytes in the batch lastKey is not null then use
+     * that to start the iteration. On return, batch.more is true if there are
+     * more records to read from the partition, in which case the bytes in
+     * lastKey are set to the key of the last record read, and
+     * batch.numPopulated is set to the number of records processed.
      *
      * @param table the source table
      * @param opHandler the internal operation handler
      * @param txn current transaction
-     * @param partitionId the source partition
-     * @param lastKey a key to start the iteration on input, set to the
-     *                last key read on output
-     * @param db the secondary DB to populate
-     * @return true if there are more records to process
-     * @throws InterruptedException if the wait for a Permit is interrupted
+     * @param batch the partition, start key, and size of the batch
      */
-    private boolean populate(TableImpl table,
-                             TableIterateHandlerInternal opHandler,
-                             Transaction txn,
-                             PartitionId partitionId,
-                             DatabaseEntry lastKey) {
+    private void populate(TableImpl table,
+                          TableIterateHandlerInternal opHandler,
+                          Transaction txn,
+                          PartitionBatch batch) {
 
-        final byte[] resumeKey = lastKey.getData();
+        final byte[] resumeKey = batch.lastKey.getData();
 
         final PrimaryKey pkey = table.createPrimaryKey();
         final TableKey tkey = TableKey.createKey(table, pkey, true);
@@ -1029,7 +1119,7 @@ public class MaintenanceThread extends StoppableThread {
             new TableIterate(tkey.getKeyBytes(),
                              targetTables,
                              tkey.getMajorKeyComplete(),
-                             POPULATE_BATCH_SIZE,
+                             batch.batchSize,
                              resumeKey);
 
         /*
@@ -1042,7 +1132,462 @@ public class MaintenanceThread extends StoppableThread {
             tc.checkAccess(true, true);
             op.setThroughputTracker(tc, Consistency.NONE_REQUIRED);
         }
-        return opHandler.populate(op, txn, partitionId, lastKey);
+        opHandler.populate(op, txn, batch);
+    }
+
+    /**
+     * Performs one pass of concurrent population: up to numThreads
+     * partitions of the next secondary to populate are each processed by a
+     * batch running in its own transaction on the population pool. One
+     * task coordinator permit is held for each batch. The permit of the
+     * first batch is the one held by the caller; if additional permits are
+     * not available, fewer partitions are processed.
+     *
+     * The SecondaryInfo is updated in separate transactions before and
+     * after the batches, so the batches don't serialize on it. If the RN
+     * fails after a batch commits but before its progress is recorded, the
+     * batch is repeated. This is harmless, since the secondary is in
+     * incremental population mode.
+     */
+    private PopulatePass populateConcurrently(
+        Database infoDb,
+        TableIterateHandlerInternal opHandler,
+        int numThreads,
+        long permitLeaseMs) throws InterruptedException {
+
+        final List<Permit> extraPermits = new ArrayList<>();
+        Transaction txn = null;
+
+        try {
+            txn = repEnv.beginTransaction(null, SECONDARY_INFO_CONFIG);
+
+            SecondaryInfoMap infoMap =
+                SecondaryInfoMap.fetch(infoDb, txn, LockMode.RMW);
+            final Entry<String, SecondaryInfo> entry =
+                infoMap.getNextSecondaryToPopulate();
+            /* If no more, we are finally done */
+            if (entry == null) {
+                logger.info("Completed populating secondary database(s)");
+                return PopulatePass.DONE;
+            }
+            SecondaryInfo info = entry.getValue();
+            final String dbName = entry.getKey();
+
+            final SecondaryDatabase db = tableManager.getSecondaryDb(dbName);
+
+            /* See populateSecondaryInternal() */
+            if (db == null) {
+                info.completePass();
+                infoMap.persist(infoDb, txn);
+                txn.commit();
+                txn = null;
+                return PopulatePass.CONTINUE;
+            }
+
+            /* Top up the set of partitions being populated */
+            final Map<PartitionId, byte[]> active =
+                info.getActivePartitions();
+            for (PartitionId partition : repNode.getPartitions()) {
+                if (active.size() >= numThreads) {
+                    break;
+                }
+                if (!active.containsKey(partition) &&
+                    !info.isCompleted(partition)) {
+                    active.put(partition, null);
+                }
+            }
+
+            if (active.isEmpty()) {
+                /* See setCurrentPartition() */
+                if (!tableManager.isBusyMaintenance()) {
+                    return PopulatePass.WAIT_FOR_TARGET_IDLE;
+                }
+                logger.log(Level.INFO, "Finished populating {0} {1}",
+                           new Object[]{dbName, info});
+                db.endIncrementalPopulation();
+                info.donePopulation();
+                infoMap.persist(infoDb, txn);
+                txn.commit();
+                txn = null;
+                return PopulatePass.CONTINUE;
+            }
+
+            final String tableName =
+                TableManager.getTableName(db.getDatabaseName());
+            final String namespace =
+                TableManager.getNamespace(db.getDatabaseName());
+            final TableImpl table = tableManager.getTable(namespace,
+                                                          tableName);
+            if (table == null) {
+                logger.log(Level.WARNING,
+                           "Failed to populate {0}, missing table {1}",
+                           new Object[]{info,
+                                        TableMetadata.makeNamespaceName(
+                                            namespace, tableName)});
+                return PopulatePass.DONE;
+            }
+
+            infoMap.persist(infoDb, txn);
+            txn.commit();
+            txn = null;
+
+            final int numWorkers = Math.min(numThreads, active.size());
+            while (extraPermits.size() < numWorkers - 1) {
+                final Permit permit = taskCoordinator.
+                    acquirePermit(KV_INDEX_CREATION_TASK,
+                                  0 /* timeout */,
+                                  permitLeaseMs,
+                                  TimeUnit.MILLISECONDS);
+                if (permit.isDeficit()) {
+                    permit.releasePermit();
+                    break;
+                }
+                extraPermits.add(permit);
+            }
+
+            final IndexImpl sortIndex = getSortIndex(table, dbName);
+            final List<PartitionBatch> batches = new ArrayList<>();
+            for (Entry<PartitionId, byte[]> e : active.entrySet()) {
+                if (batches.size() > extraPermits.size()) {
+                    break;
+                }
+                final Integer batchSize = populateBatchSizes.get(e.getKey());
+                batches.add(new PartitionBatch(
+                    e.getKey(),
+                    (e.getValue() == null) ?
+                        new DatabaseEntry() : new DatabaseEntry(e.getValue()),
+                    (batchSize == null) ? POPULATE_BATCH_SIZE : batchSize));
+                batches.get(batches.size() - 1).sortIndex = sortIndex;
+            }
+
+            runBatches(table, opHandler, batches);
+
+            for (Permit permit : extraPermits) {
+                permit.releasePermit();
+            }
+            extraPermits.clear();
+
+            /* Record the progress */
+            txn = repEnv.beginTransaction(null, SECONDARY_INFO_CONFIG);
+            infoMap = SecondaryInfoMap.fetch(infoDb, txn, LockMode.RMW);
+            info = infoMap.getSecondaryInfo(dbName);
+
+            /* The index may have been dropped, or failed, meanwhile */
+            if ((info == null) || !info.needsPopulating()) {
+                txn.commit();
+                txn = null;
+                return PopulatePass.CONTINUE;
+            }
+
+            final Map<PartitionId, byte[]> current =
+                info.getActivePartitions();
+            PopulatePass result = PopulatePass.CONTINUE;
+            RuntimeException retryException = null;
+            long numPopulated = 0;
+
+            for (PartitionBatch batch : batches) {
+                final PartitionId partition = batch.partitionId;
+                final RuntimeException re = batch.error;
+
+                if (re == null) {
+                    numPopulated += batch.numPopulated;
+                    if (batch.more) {
+                        current.put(partition, batch.lastKey.getData());
+                        populateBatchSizes.put(partition,
+                                               nextBatchSize(batch));
+                    } else {
+                        logger.log(Level.FINE,
+                                   "Finished partition {0} for {1}",
+                                   new Object[]{partition, info});
+                        info.completeActivePartition(partition);
+                        populateBatchSizes.remove(partition);
+                    }
+                    continue;
+                }
+
+                /*
+                 * Errors are handled as in populateSecondaryInternal(). A
+                 * moved partition is marked complete.
+                 */
+                if (re instanceof IncorrectRoutingException ||
+                    (re instanceof IllegalStateException &&
+                     partitionMoved(partition))) {
+                    logger.log(Level.FINE, "Finished partition {0} for " +
+                               "{1}, partition no longer in this shard",
+                               new Object[]{partition, info});
+                    info.completeActivePartition(partition);
+                    populateBatchSizes.remove(partition);
+                } else if (re instanceof RNUnavailableException) {
+                    logger.log(Level.INFO, "Index population failed " +
+                               "on {0}: {1} populate will be retried",
+                               new Object[]{dbName, re.getMessage()});
+                    result = PopulatePass.DONE;
+                } else if (re instanceof DatabaseException) {
+                    /* Let run() decide whether to retry */
+                    if (retryException == null) {
+                        retryException = re;
+                    }
+                } else {
+                    info.setErrorString(re.getClass().getSimpleName() +
+                                        " " + re.getMessage());
+                    logger.log(Level.WARNING, "Index population failed " +
+                               "on {0}: {1}", new Object[]{dbName, info});
+                    result = PopulatePass.DONE;
+                    break;
+                }
+            }
+
+            info.addPopulated(numPopulated);
+            info.completePass();
+            infoMap.persist(infoDb, txn);
+            txn.commit();
+            txn = null;
+
+            logger.log(Level.FINE, "Populated {0} records in {1} " +
+                       "partitions for {2}",
+                       new Object[]{numPopulated, batches.size(), info});
+
+            if (retryException != null) {
+                throw retryException;
+            }
+            return result;
+        } finally {
+            for (Permit permit : extraPermits) {
+                permit.releasePermit();
+            }
+            TxnUtil.abort(txn);
+        }
+    }
+
+    /**
+     * Runs the batches on the population pool and waits for them to
+     * complete. Exceptions thrown by a batch are saved in the batch.
+     */
+    private void runBatches(final TableImpl table,
+                            final TableIterateHandlerInternal opHandler,
+                            List<PartitionBatch> batches)
+        throws InterruptedException {
+
+        if (populateExecutor == null) {
+            populateExecutor = Executors.newCachedThreadPool(
+                new KVThreadFactory(" index population", logger));
+        }
+
+        final List<Future<?>> futures = new ArrayList<>(batches.size());
+        for (final PartitionBatch batch : batches) {
+            futures.add(populateExecutor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    runBatch(table, opHandler, batch);
+                    return null;
+                }
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException ee) {
+                throw new IllegalStateException(
+                    "Unexpected failure populating a partition: " +
+                    ee.getCause(), ee.getCause());
+            }
+        }
+    }
+
+    private void runBatch(TableImpl table,
+                          TableIterateHandlerInternal opHandler,
+                          PartitionBatch batch) {
+        final long startMs = System.currentTimeMillis();
+        Transaction txn = null;
+        try {
+            txn = repEnv.beginTransaction(null, SECONDARY_INFO_CONFIG);
+            populate(table, opHandler, txn, batch);
+            txn.commit();
+            txn = null;
+        } catch (RuntimeException re) {
+            batch.error = re;
+        } finally {
+            TxnUtil.abort(txn);
+            batch.elapsedMs = System.currentTimeMillis() - startMs;
+        }
+    }
+
+    /**
+     * Returns the index to order population batches by, or null if batches
+     * are populated in primary key order.
+     */
+    private IndexImpl getSortIndex(TableImpl table, String dbName) {
+        if (!repNode.getRepNodeParams().getIndexPopulateSorted()) {
+            return null;
+        }
+        return (IndexImpl) table.getIndex(TableManager.getIndexName(dbName));
+    }
+
+    /**
+     * Returns true if the partition is no longer in this shard.
+     */
+    private boolean partitionMoved(PartitionId partition) {
+        try {
+            repNode.getPartitionDB(partition);
+            return false;
+        } catch (IncorrectRoutingException ire) {
+            return true;
+        }
+    }
+
+    /**
+     * Returns the size of the next batch for the partition of the specified
+     * batch: larger if the batch was quick, smaller if it was slow. Larger
+     * batches hold more locks, so the size is capped.
+     */
+    private static int nextBatchSize(PartitionBatch batch) {
+        if (batch.elapsedMs < POPULATE_BATCH_TARGET_MS / 2) {
+            return Math.min(batch.batchSize * 2, MAX_POPULATE_BATCH_SIZE);
+        }
+        if (batch.elapsedMs > POPULATE_BATCH_TARGET_MS) {
+            return Math.max(batch.batchSize / 2, POPULATE_BATCH_SIZE);
+        }
+        return batch.batchSize;
+    }
+
+    /*
+     * A population batch on one partition: its input (the partition, the
+     * key to resume from, and the batch size) and its results.
+     */
+    private static class PartitionBatch {
+        final PartitionId partitionId;
+        final DatabaseEntry lastKey;
+        final int batchSize;
+
+        /*
+         * If not null, the records of the batch are inserted into the
+         * secondary DB in the key order of this index.
+         */
+        IndexImpl sortIndex = null;
+
+        boolean more = false;
+        int numPopulated = 0;
+        long elapsedMs = 0;
+        RuntimeException error = null;
+
+        PartitionBatch(PartitionId partitionId,
+                       DatabaseEntry lastKey,
+                       int batchSize) {
+            this.partitionId = partitionId;
+            this.lastKey = lastKey;
+            this.batchSize = batchSize;
+        }
+    }
+
+    /*
+     * Buffers the records of a population batch, so that they can be passed
+     * to populateSecondaries() in the order of the index keys they generate
+     * rather than in primary key order.
+     *
+     * This is batch-local sorting, not an external sort of the whole table:
+     * the records must remain locked until they are populated, so the
+     * buffering is limited to a single batch and transaction, at most
+     * MAX_POPULATE_BATCH_SIZE records or MAX_SORTED_BATCH_BYTES. The inserts
+     * of a batch are clustered, so that they touch fewer secondary B-tree
+     * nodes, but each batch still spans the whole key range of the index,
+     * so the secondary is not built in key order and still incurs random
+     * I/O when it does not fit in the cache.
+     */
+    private static class SortedBatch {
+
+        private final IndexImpl index;
+        private final List<SortedRecord> records = new ArrayList<>();
+        private long numBytes = 0;
+
+        SortedBatch(IndexImpl index) {
+            this.index = index;
+        }
+
+        void add(byte[] key, byte[] data, long expirationTime) {
+            final SortedRecord rec =
+                new SortedRecord(getSortKey(key, data), key, data,
+                                 expirationTime);
+            records.add(rec);
+            numBytes += key.length + data.length + rec.sortKey.length;
+        }
+
+        long getNumBytes() {
+            return numBytes;
+        }
+
+        void populate(Transaction txn, Database db) {
+            Collections.sort(records);
+            for (SortedRecord rec : records) {
+                db.populateSecondaries(txn,
+                                       new DatabaseEntry(rec.key),
+                                       new DatabaseEntry(rec.data),
+                                       rec.expirationTime,
+                                       null);
+            }
+            records.clear();
+            numBytes = 0;
+        }
+
+        /*
+         * The sort key of a record is its smallest index key. Records that
+         * generate no index key are populated first.
+         */
+        private byte[] getSortKey(byte[] key, byte[] data) {
+            if (!index.isMultiKey()) {
+                final byte[] indexKey =
+                    index.extractIndexKey(key, data, false);
+                return (indexKey == null) ? new byte[0] : indexKey;
+            }
+            final List<byte[]> indexKeys =
+                index.extractIndexKeys(key, data, false);
+            byte[] min = null;
+            if (indexKeys != null) {
+                for (byte[] indexKey : indexKeys) {
+                    if ((min == null) || compareBytes(indexKey, min) < 0) {
+                        min = indexKey;
+                    }
+                }
+            }
+            return (min == null) ? new byte[0] : min;
+        }
+    }
+
+    private static class SortedRecord implements Comparable<SortedRecord> {
+        final byte[] sortKey;
+        final byte[] key;
+        final byte[] data;
+        final long expirationTime;
+
+        SortedRecord(byte[] sortKey,
+                     byte[] key,
+                     byte[] data,
+                     long expirationTime) {
+            this.sortKey = sortKey;
+            this.key = key;
+            this.data = data;
+            this.expirationTime = expirationTime;
+        }
+
+        @Override
+        public int compareTo(SortedRecord other) {
+            return compareBytes(sortKey, other.sortKey);
+        }
+    }
+
+    /*
+     * Compares byte arrays as unsigned bytes, which is the default order of
+     * the keys of secondary DBs.
+     */
+    private static int compareBytes(byte[] b1, byte[] b2) {
+        final int minLen = Math.min(b1.length, b2.length);
+        for (int i = 0; i < minLen; i++) {
+            final int diff = (b1[i] & 0xff) - (b2[i] & 0xff);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return b1.length - b2.length;
     }
 
     /*
@@ -1070,10 +1615,14 @@ public class MaintenanceThread extends StoppableThread {
         @Override
         public void verifyTableAccess(TableIterate op) { }
 
-        private boolean populate(TableIterate op,
-                                 Transaction txn,
-                                 PartitionId partitionId,
-                                 DatabaseEntry lastKey) {
+        private void populate(TableIterate op,
+                              Transaction txn,
+                              PartitionBatch batch) {
+
+            final PartitionId partitionId = batch.partitionId;
+            final DatabaseEntry lastKey = batch.lastKey;
+            final SortedBatch sorted = (batch.sortIndex == null) ?
+                null : new SortedBatch(batch.sortIndex);
 
             /*
              * Use READ_UNCOMMITTED_ALL and keyOnly to make it inexpensive to
@@ -1127,24 +1676,36 @@ public class MaintenanceThread extends StoppableThread {
                             final byte[] keyBytes = keyEntry.getData();
                             /* Sets the lastKey return */
                             lastKey.setData(keyBytes);
-                            scanner.getDatabase().
-                                populateSecondaries(txn, lastKey, dentry,
-                                                    scanner.getExpirationTime(),
-                                                    null);
+                            if (sorted != null) {
+                                sorted.add(keyBytes, dentry.getData(),
+                                           scanner.getExpirationTime());
+                            } else {
+                                scanner.getDatabase().
+                                    populateSecondaries(
+                                        txn, lastKey, dentry,
+                                        scanner.getExpirationTime(),
+                                        null);
+                            }
                             ++numElements;
                         }
                     } else if (match < 0) {
                         moreElements = false;
                         break;
                     }
-                    if (numElements >= POPULATE_BATCH_SIZE) {
+                    if ((numElements >= batch.batchSize) ||
+                        ((sorted != null) &&
+                         (sorted.getNumBytes() >= MAX_SORTED_BATCH_BYTES))) {
                         break;
                     }
                 }
+                if (sorted != null) {
+                    sorted.populate(txn, scanner.getDatabase());
+                }
+                batch.numPopulated = numElements;
             } finally {
                 scanner.close();
             }
-            return moreElements;
+            batch.more = moreElements;
         }
     }
 
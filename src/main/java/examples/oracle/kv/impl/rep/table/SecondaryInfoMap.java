@@ -754,6 +754,23 @@ class SecondaryInfoMap implements Serializable  {
          */
         private long lastPass = 0;
 
+        /*
+         * The partitions being populated concurrently, mapped to the last key
+         * read from each (null if none has been read yet). Only used when
+         * the RN populates more than one partition at a time, in which case
+         * currentPartition and lastKey are not used. This field was added in
+         * 18.1; if it is lost in a mixed version shard the partitions it
+         * lists are simply populated again from their start.
+         */
+        private Map<PartitionId, byte[]> activePartitions = null;
+
+        /*
+         * Population progress: the number of records populated so far and
+         * the time the population started. Informational only.
+         */
+        private long numPopulated = 0;
+        private long populateStartTime = 0;
+
         /**
          * Returns true if the secondary DB needs to be populated.
          *
@@ -770,6 +787,7 @@ class SecondaryInfoMap implements Serializable  {
             assert needsPopulating == true;
             needsPopulating = false;
             completed = null;
+            activePartitions = null;
             lastKey = null;
             lastData = null;
         }
@@ -875,6 +893,89 @@ class SecondaryInfoMap implements Serializable  {
             lastPass = System.currentTimeMillis();
         }
 
+        /**
+         * Returns the partitions being populated concurrently, mapped to the
+         * last key read from each. If a partition was being populated by
+         * the single partition scheme (see getCurrentPartition()), it is
+         * moved to the returned map, so that the two schemes can be switched
+         * while a population is in progress.
+         *
+         * @return the modifiable map of the partitions being populated
+         */
+        Map<PartitionId, byte[]> getActivePartitions() {
+            assert needsPopulating == true;
+            if (activePartitions == null) {
+                activePartitions = new HashMap<>();
+            }
+            if (currentPartition != null) {
+                activePartitions.put(currentPartition,
+                                     (lastKey == null) ?
+                                     null : lastKey.getData());
+                currentPartition = null;
+                lastKey = null;
+            }
+            return activePartitions;
+        }
+
+        /**
+         * Moves one of the partitions being populated concurrently, if there
+         * are any, to the current partition, restoring its last key. Returns
+         * true if a partition was moved.
+         */
+        boolean resumeActivePartition() {
+            assert needsPopulating == true;
+            assert currentPartition == null;
+            if ((activePartitions == null) || activePartitions.isEmpty()) {
+                return false;
+            }
+            final Iterator<Entry<PartitionId, byte[]>> itr =
+                activePartitions.entrySet().iterator();
+            final Entry<PartitionId, byte[]> entry = itr.next();
+            itr.remove();
+            currentPartition = entry.getKey();
+            lastKey = (entry.getValue() == null) ?
+                      null : new DatabaseEntry(entry.getValue());
+            return true;
+        }
+
+        /**
+         * Marks the specified partition, which was populated through
+         * getActivePartitions(), as completed.
+         */
+        void completeActivePartition(PartitionId partitionId) {
+            assert needsPopulating == true;
+            if (completed == null) {
+                completed = new HashSet<>();
+            }
+            completed.add(partitionId);
+            if (activePartitions != null) {
+                activePartitions.remove(partitionId);
+            }
+        }
+
+        /**
+         * Records that the specified number of records has been populated.
+         */
+        void addPopulated(long n) {
+            if (populateStartTime == 0) {
+                populateStartTime = System.currentTimeMillis();
+            }
+            numPopulated += n;
+        }
+
+        /**
+         * Returns the average number of records populated per second since
+         * the population started, or 0 if unknown.
+         */
+        long getPopulateRate() {
+            final long elapsed =
+                System.currentTimeMillis() - populateStartTime;
+            if ((populateStartTime == 0) || (elapsed <= 0)) {
+                return 0;
+            }
+            return (numPopulated * 1000L) / elapsed;
+        }
+
         /*
          * Set an error string and cancel any current, or future
          * population.
@@ -907,6 +1008,7 @@ class SecondaryInfoMap implements Serializable  {
             needsPopulating = false;
             needsCleaning = false;
             currentPartition = null;
+            activePartitions = null;
             lastKey = null;
             lastData = null;
         }
@@ -917,6 +1019,10 @@ class SecondaryInfoMap implements Serializable  {
                 ", " + currentPartition +
                 ", " + ((completed == null) ? "-" : completed.size()) +
                 ", " + needsCleaning + ", " + removed +
+                ", active: " + ((activePartitions == null) ?
+                                "-" : activePartitions.keySet()) +
+                ", populated: " + numPopulated +
+                ", rate: " + getPopulateRate() + "/s" +
                 ", error: " + errorString + "]";
         }
     }
@@ -97,6 +97,13 @@ public class TableManager extends MetadataManager<TableMetadata>
         return sb.toString();
     }
 
+    /*
+     * Gets the index name from a secondary database name.
+     */
+    static String getIndexName(String dbName) {
+        return dbName.split("\\.", 2)[0];
+    }
+
     /*
      * Gets the table name from a secondary database name.
      */
@@ -31,6 +31,7 @@ import java.rmi.server.UnicastRemoteObject;
 import java.security.Security;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
@@ -112,6 +113,11 @@ import oracle.kv.impl.util.registry.RegistryUtils;
 import oracle.kv.impl.util.registry.RegistryUtils.InterfaceType;
 import oracle.kv.impl.util.registry.ServerSocketFactory;
 import oracle.kv.impl.util.server.LoggerUtils;
+import oracle.kv.impl.util.sklogger.CustomGauge;
+import oracle.kv.impl.util.sklogger.CustomGauge.GaugeCalculator;
+import oracle.kv.impl.util.sklogger.CustomGauge.GaugeResult;
+import oracle.kv.impl.util.sklogger.MetricRegistry;
+import oracle.kv.impl.util.sklogger.MetricsHttpServer;
 
 import com.sleepycat.je.rep.utilint.RepUtils;
 import com.sleepycat.je.utilint.JVMSystemUtils;
@@ -246,6 +252,7 @@ public final class StorageNodeAgent {
     private TrustedLoginImpl trustedLogin;
     private SNASecurity snaSecurity;
     private CollectorService collectorService;
+    private MetricsHttpServer metricsServer;
     private final ParameterTracker snParameterTracker;
     private final ParameterTracker globalParameterTracker;
 
@@ -1106,6 +1113,8 @@ public final class StorageNodeAgent {
             adminService.registered(this);
         }
 
+        startMetricsServer(snp);
+
         logger.info("Started StorageNodeAgent for " + getStoreName());
     }
 
@@ -1954,6 +1963,69 @@ public final class StorageNodeAgent {
         }
     }
 
+    /**
+     * Starts the metrics HTTP server if a port is configured. Failing to
+     * start it is logged, but does not prevent the SNA from starting. The
+     * server is not authenticated, so on a secure store it only listens on
+     * the loopback address.
+     */
+    private void startMetricsServer(StorageNodeParams snp) {
+        final int port = snp.getMetricsHttpPort();
+        if (port == 0) {
+            return;
+        }
+        final MetricRegistry registry = new MetricRegistry();
+        registry.register(new CustomGauge("storageNode", new SNGauges()));
+        try {
+            metricsServer = new MetricsHttpServer(
+                registry,
+                MetricsHttpServer.getListenHost(
+                    getHostname(), (sp != null) && sp.isSecure()),
+                port, logger);
+            metricsServer.start();
+        } catch (IOException e) {
+            logger.warning("Unable to start metrics HTTP server on port " +
+                           port + ": " + e);
+            metricsServer = null;
+        }
+    }
+
+    /**
+     * Reports the number of services managed by this SNA and how many of
+     * them are running. The service maps are not synchronized, so a scrape
+     * that overlaps with a service being added or removed may fail, in
+     * which case CustomGauge omits the values from that scrape.
+     */
+    private class SNGauges implements GaugeCalculator {
+
+        @Override
+        public List<GaugeResult> getValuesList() {
+            final Map<String, Object> values = new HashMap<>();
+            final List<ServiceManager> repNodes =
+                new ArrayList<>(repNodeServices.values());
+            final List<ServiceManager> arbNodes =
+                new ArrayList<>(arbNodeServices.values());
+            final ServiceManager admin = adminService;
+            values.put("repNodes", repNodes.size());
+            values.put("runningRepNodes", countRunning(repNodes));
+            values.put("arbNodes", arbNodes.size());
+            values.put("runningArbNodes", countRunning(arbNodes));
+            values.put("adminRunning",
+                       ((admin != null) && admin.isRunning()) ? 1 : 0);
+            return Collections.singletonList(new GaugeResult(values));
+        }
+
+        private int countRunning(List<ServiceManager> services) {
+            int n = 0;
+            for (ServiceManager mgr : services) {
+                if (mgr.isRunning()) {
+                    n++;
+                }
+            }
+            return n;
+        }
+    }
+
     /**
      * Starts the master balance manager component
      *
@@ -2967,6 +3039,10 @@ public final class StorageNodeAgent {
         if (collectorService != null) {
             collectorService.shutdown();
         }
+        if (metricsServer != null) {
+            metricsServer.stop();
+            metricsServer = null;
+        }
         mgmtAgent.shutdown();
     }
 
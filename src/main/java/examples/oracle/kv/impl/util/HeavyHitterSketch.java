@@ -0,0 +1,271 @@
+/*-
+ * Copyright (C) 2011, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This file was distributed by Oracle as part of a version of Oracle NoSQL
+ * Database made available at:
+ *
+ * http://www.oracle.com/technetwork/database/database-technologies/nosqldb/downloads/index.html
+ *
+ * Please see the LICENSE file included in the top-level directory of the
+ * appropriate version of Oracle NoSQL Database for a copy of the license and
+ * additional information.
+ */
+
+package oracle.kv.impl.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A constant memory summary of the most frequent items of a stream of long
+ * values, safe for concurrent use.
+ *
+ * Item frequencies are estimated with a Count-Min sketch, a DEPTH x width
+ * array of counters where each item increments one counter per row, chosen
+ * by a row specific hash, and the estimate is the minimum of those counters.
+ * Estimates never undercount, and overcount by at most 2 * total / width
+ * with high probability.
+ *
+ * The top K items are kept in a small Space-Saving style summary: an item
+ * whose estimate exceeds the smallest count in a full summary replaces the
+ * item with that count. The summary is guarded by a lock. An item that is
+ * already in the summary does not take it: its presence is checked against
+ * a snapshot of the summary items, published when they change, and its
+ * count in the summary is refreshed from the sketch when the summary is
+ * read or changed. Other items take the lock only while the summary is
+ * filling, and when their estimate exceeds the smallest count in the
+ * summary, which is read without locking. So adding a frequent item, the
+ * bulk of the stream for a skewed workload, costs DEPTH atomic increments
+ * and a scan of at most K items, with no locking.
+ *
+ * Each item may carry an int attribute, reported with the item, which is
+ * remembered from the add call that inserted it into the summary.
+ */
+public class HeavyHitterSketch {
+
+    private static final int DEPTH = 4;
+
+    /* Odd multipliers used to derive the per-row hashes */
+    private static final long[] SEEDS = {
+        0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL,
+        0x165667B19E3779F9L, 0xD6E8FEB86659FD93L
+    };
+
+    private final int width;
+    private final int widthMask;
+    private final AtomicLongArray counters;
+    private final AtomicLong total = new AtomicLong();
+
+    private final int k;
+
+    /* The summary, guarded by "this" */
+    private final long[] topItems;
+    private final int[] topAttrs;
+    private final long[] topCounts;
+    private int topSize;
+
+    /*
+     * The smallest count in the summary if it is full, else 0. Read
+     * without locking to decide whether an item can enter the summary.
+     */
+    private volatile long minTopCount;
+
+    /*
+     * A copy of the items in the summary, replaced when they change. Read
+     * without locking to recognize items that are already in the summary.
+     */
+    private volatile long[] trackedItems = new long[0];
+
+    /**
+     * Creates a sketch.
+     *
+     * @param width the number of counters per row, rounded up to a power of
+     * 2
+     * @param k the number of top items to track
+     */
+    public HeavyHitterSketch(int width, int k) {
+        int w = 1;
+        while (w < width) {
+            w <<= 1;
+        }
+        this.width = w;
+        widthMask = w - 1;
+        counters = new AtomicLongArray(DEPTH * w);
+        this.k = k;
+        topItems = new long[k];
+        topAttrs = new int[k];
+        topCounts = new long[k];
+    }
+
+    /**
+     * Records one occurrence of the item.
+     *
+     * @param item the item
+     * @param attr an attribute reported with the item if it is one of the
+     * top items
+     */
+    public void add(long item, int attr) {
+        total.incrementAndGet();
+
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            final int index = row * width + slot(item, row);
+            final long count = counters.incrementAndGet(index);
+            if (count < estimate) {
+                estimate = count;
+            }
+        }
+
+        if (estimate > minTopCount && !isTracked(item)) {
+            updateTop(item, attr, estimate);
+        }
+    }
+
+    /*
+     * Returns whether the item is in the summary, in which case its count
+     * there is refreshed when needed, see refreshTopCounts.
+     */
+    private boolean isTracked(long item) {
+        for (long tracked : trackedItems) {
+            if (tracked == item) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the total number of items added.
+     */
+    public long getTotal() {
+        return total.get();
+    }
+
+    /**
+     * Returns the top items, most frequent first.
+     */
+    public synchronized List<HeavyHitter> getTopK() {
+        refreshTopCounts();
+        final List<HeavyHitter> list = new ArrayList<>(topSize);
+        for (int i = 0; i < topSize; i++) {
+            list.add(new HeavyHitter(topItems[i], topAttrs[i], topCounts[i]));
+        }
+        Collections.sort(list, new Comparator<HeavyHitter>() {
+            @Override
+            public int compare(HeavyHitter h1, HeavyHitter h2) {
+                return Long.compare(h2.count, h1.count);
+            }
+        });
+        return list;
+    }
+
+    private int slot(long item, int row) {
+        final long h = (item ^ (item >>> 29)) * SEEDS[row];
+        return (int) (h >>> 32) & widthMask;
+    }
+
+    private long estimate(long item) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            final long count = counters.get(row * width + slot(item, row));
+            if (count < estimate) {
+                estimate = count;
+            }
+        }
+        return estimate;
+    }
+
+    /*
+     * Updates the counts of the summary items, which are not updated when
+     * the items are added, from the sketch.
+     */
+    private void refreshTopCounts() {
+        for (int i = 0; i < topSize; i++) {
+            topCounts[i] = estimate(topItems[i]);
+        }
+    }
+
+    private synchronized void updateTop(long item, int attr, long estimate) {
+
+        refreshTopCounts();
+
+        int minIndex = -1;
+        for (int i = 0; i < topSize; i++) {
+            if (topItems[i] == item) {
+                /* Added by another thread since isTracked was checked */
+                updateMinTopCount();
+                return;
+            }
+            if (minIndex < 0 || topCounts[i] < topCounts[minIndex]) {
+                minIndex = i;
+            }
+        }
+
+        if (topSize < k) {
+            topItems[topSize] = item;
+            topAttrs[topSize] = attr;
+            topCounts[topSize] = estimate;
+            topSize++;
+        } else if (estimate > topCounts[minIndex]) {
+            topItems[minIndex] = item;
+            topAttrs[minIndex] = attr;
+            topCounts[minIndex] = estimate;
+        } else {
+            updateMinTopCount();
+            return;
+        }
+        trackedItems = Arrays.copyOf(topItems, topSize);
+        updateMinTopCount();
+    }
+
+    private void updateMinTopCount() {
+        if (topSize < k) {
+            return;
+        }
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < topSize; i++) {
+            if (topCounts[i] < min) {
+                min = topCounts[i];
+            }
+        }
+        minTopCount = min;
+    }
+
+    /**
+     * A frequent item and its estimated count.
+     */
+    public static class HeavyHitter {
+
+        private final long item;
+        private final int attr;
+        private final long count;
+
+        HeavyHitter(long item, int attr, long count) {
+            this.item = item;
+            this.attr = attr;
+            this.count = count;
+        }
+
+        public long getItem() {
+            return item;
+        }
+
+        public int getAttr() {
+            return attr;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            return item + "(" + attr + "):" + count;
+        }
+    }
+}
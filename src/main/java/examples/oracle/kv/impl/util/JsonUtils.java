@@ -48,6 +48,20 @@ public class JsonUtils {
         return enableFeatures(mapper.getJsonFactory().createJsonParser(in));
     }
 
+    /**
+     * Returns a JSON parser that parses input from a string, reading its
+     * characters directly.
+     *
+     * @param in the string
+     * @return the parser
+     * @throws IOException if there is a problem parsing the input
+     */
+    public static JsonParser createJsonParser(String in)
+        throws IOException {
+
+        return enableFeatures(mapper.getJsonFactory().createJsonParser(in));
+    }
+
     /**
      * Returns a JSON parser that parses input from an input stream.
      *
@@ -293,12 +293,26 @@ public class SerialVersion {
     /* Add maxWriteKB and resumeKey to MultiDeleteTable operation */
     public static final short MULTIDELTBL_WRITEKB_RESUMEKEY = V16;
 
+    /*
+     * Introduced at R18.2
+     * - Columnar query results
+     * - Compressed table values
+     */
+    public static final short V17 = 17;
+    static { init(V17, KVVersion.R18_2); }
+
+    /* Add columnar results to TableQuery and QueryResult */
+    public static final short COLUMNAR_QUERY_RESULTS_VERSION = V17;
+
+    /* Add compressed values of tables with ValueCompression */
+    public static final short VALUE_COMPRESSION_VERSION = V17;
+
     /*
      * When adding a new version and updating DEFAULT_CURRENT, be sure to make
      * corresponding changes in KVVersion as well as the files referenced from
      * there to add a new release version.
      */
-    private static final short DEFAULT_CURRENT = V16;
+    private static final short DEFAULT_CURRENT = V17;
 
     /**
      * The current serial version, with a system property override for use in
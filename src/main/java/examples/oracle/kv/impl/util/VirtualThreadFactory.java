@@ -0,0 +1,146 @@
+/*-
+ * Copyright (C) 2011, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This file was distributed by Oracle as part of a version of Oracle NoSQL
+ * Database made available at:
+ *
+ * http://www.oracle.com/technetwork/database/database-technologies/nosqldb/downloads/index.html
+ *
+ * Please see the LICENSE file included in the top-level directory of the
+ * appropriate version of Oracle NoSQL Database for a copy of the license and
+ * additional information.
+ */
+
+package oracle.kv.impl.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Logger;
+
+/**
+ * Creates virtual threads when running on a Java version that supports them
+ * (Java 21 and later). The code base targets Java 8, so the virtual thread
+ * API is accessed by reflection, and callers must check isSupported, or a
+ * null return from create, and fall back to a KVThreadFactory otherwise.
+ *
+ * Virtual threads are named like KVThreadFactory threads, are always daemon
+ * threads, and log uncaught exceptions in the same way. They should be
+ * started per task, with the executor returned by
+ * createThreadPerTaskExecutor, rather than pooled.
+ */
+public class VirtualThreadFactory {
+
+    /*
+     * The Thread.ofVirtual() method and the Thread.Builder methods used to
+     * configure the builder, or null if virtual threads are not supported.
+     */
+    private static final Method ofVirtual;
+    private static final Method name;
+    private static final Method uncaughtExceptionHandler;
+    private static final Method factory;
+
+    /* The Executors.newThreadPerTaskExecutor method */
+    private static final Method newThreadPerTaskExecutor;
+
+    static {
+        Method ofVirtualMethod = null;
+        Method nameMethod = null;
+        Method handlerMethod = null;
+        Method factoryMethod = null;
+        Method perTaskMethod = null;
+        try {
+            final Class<?> builderClass =
+                Class.forName("java.lang.Thread$Builder");
+            ofVirtualMethod = Thread.class.getMethod("ofVirtual");
+            nameMethod =
+                builderClass.getMethod("name", String.class, long.class);
+            handlerMethod =
+                builderClass.getMethod("uncaughtExceptionHandler",
+                                       Thread.UncaughtExceptionHandler.class);
+            factoryMethod = builderClass.getMethod("factory");
+            perTaskMethod =
+                Executors.class.getMethod("newThreadPerTaskExecutor",
+                                          ThreadFactory.class);
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            ofVirtualMethod = null;
+        }
+        ofVirtual = ofVirtualMethod;
+        name = nameMethod;
+        uncaughtExceptionHandler = handlerMethod;
+        factory = factoryMethod;
+        newThreadPerTaskExecutor = perTaskMethod;
+    }
+
+    private VirtualThreadFactory() {
+    }
+
+    /**
+     * Returns true if the running JVM supports virtual threads.
+     */
+    public static boolean isSupported() {
+        return ofVirtual != null;
+    }
+
+    /**
+     * Returns a thread factory that creates virtual threads, or null if the
+     * running JVM does not support virtual threads.
+     *
+     * @param factoryName the name used to name the threads, as with
+     * KVThreadFactory
+     * @param exceptionLogger the logger used to record uncaught exceptions
+     */
+    public static ThreadFactory create(String factoryName,
+                                       Logger exceptionLogger) {
+        if (!isSupported()) {
+            return null;
+        }
+
+        /* Use KVThreadFactory's handler so exceptions are logged alike */
+        final Thread.UncaughtExceptionHandler handler =
+            new KVThreadFactory(factoryName, exceptionLogger)
+            .makeUncaughtExceptionHandler();
+        try {
+            Object builder = ofVirtual.invoke(null);
+            builder = name.invoke(builder, "KV" + factoryName + "_", 1L);
+            builder = uncaughtExceptionHandler.invoke(builder, handler);
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            if (exceptionLogger != null) {
+                exceptionLogger.warning("Unable to create virtual thread " +
+                                        "factory: " + e);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Returns an executor that starts a new virtual thread for each task,
+     * or null if the running JVM does not support virtual threads.
+     *
+     * @param factoryName the name used to name the threads, as with
+     * KVThreadFactory
+     * @param exceptionLogger the logger used to record uncaught exceptions
+     */
+    public static ExecutorService createThreadPerTaskExecutor(
+        String factoryName,
+        Logger exceptionLogger) {
+
+        final ThreadFactory threadFactory =
+            create(factoryName, exceptionLogger);
+        if (threadFactory == null) {
+            return null;
+        }
+        try {
+            return (ExecutorService)
+                newThreadPerTaskExecutor.invoke(null, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            if (exceptionLogger != null) {
+                exceptionLogger.warning("Unable to create virtual thread " +
+                                        "executor: " + e);
+            }
+            return null;
+        }
+    }
+}
@@ -244,6 +244,10 @@ public class Histogram extends
             this.histogramCounts = histogramCounts;
         }
 
+        public long[] getUpperBounds() {
+            return upperBounds;
+        }
+
         public long[] getHistogramCounts() {
             return histogramCounts;
         }
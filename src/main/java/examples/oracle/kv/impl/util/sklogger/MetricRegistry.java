@@ -14,6 +14,8 @@
 package oracle.kv.impl.util.sklogger;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
@@ -178,6 +180,13 @@ public class MetricRegistry {
         registeredMetrics.remove(statsName);
     }
 
+    /**
+     * Returns a live, unmodifiable view of the registered metrics.
+     */
+    public Collection<Metric<?>> getMetrics() {
+        return Collections.unmodifiableCollection(registeredMetrics.values());
+    }
+
     /**
      * Add {@link MetricProcessor} to handle registered metrics.
      */
@@ -0,0 +1,149 @@
+/*-
+ * Copyright (C) 2011, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This file was distributed by Oracle as part of a version of Oracle NoSQL
+ * Database made available at:
+ *
+ * http://www.oracle.com/technetwork/database/database-technologies/nosqldb/downloads/index.html
+ *
+ * Please see the LICENSE file included in the top-level directory of the
+ * appropriate version of Oracle NoSQL Database for a copy of the license and
+ * additional information.
+ */
+
+package oracle.kv.impl.util.sklogger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An embedded HTTP server that exposes the metrics of a
+ * {@link MetricRegistry} in the OpenMetrics text format at {@link #PATH},
+ * for scraping by Prometheus and compatible monitoring systems. It uses the
+ * JDK HTTP server, so it adds no dependencies.
+ * <p>
+ * Requests are handled on the server's single dispatcher thread, and each
+ * scrape is rendered into the same reusable buffer, so scrapes are cheap and
+ * do not compete with each other for more than one thread.
+ * <p>
+ * The server does not authenticate requests. On a secure store, callers
+ * should use {@link #getListenHost} so that the server only listens on the
+ * loopback address, and metrics can only be scraped from the local host.
+ */
+public class MetricsHttpServer {
+
+    /** The path at which metrics are served. */
+    public static final String PATH = "/metrics";
+
+    private static final String CONTENT_TYPE =
+        "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    private final MetricRegistry registry;
+    private final Logger logger;
+    private final HttpServer server;
+
+    /* Only used by the dispatcher thread */
+    private final OpenMetricsWriter writer = new OpenMetricsWriter();
+
+    /**
+     * Creates a server that listens on the specified address. The server
+     * does not accept requests until it is started.
+     *
+     * @param registry the registry whose metrics are served
+     * @param hostName the host name or address to listen on
+     * @param port the port to listen on
+     * @param logger the logger, or null
+     * @throws IOException if the address cannot be bound
+     */
+    public MetricsHttpServer(MetricRegistry registry,
+                             String hostName,
+                             int port,
+                             Logger logger)
+        throws IOException {
+
+        this.registry = registry;
+        this.logger = logger;
+        server = HttpServer.create(new InetSocketAddress(hostName, port), 0);
+        server.createContext(PATH, new MetricsHandler());
+        server.setExecutor(null);
+    }
+
+    /**
+     * Returns the host the server should listen on: the specified host name
+     * for a non-secure store, and the loopback address for a secure store,
+     * since the server does not authenticate requests.
+     *
+     * @param hostName the host name of the service
+     * @param isSecure whether the store is secure
+     * @return the host to listen on
+     */
+    public static String getListenHost(String hostName, boolean isSecure) {
+        return isSecure ?
+            InetAddress.getLoopbackAddress().getHostAddress() :
+            hostName;
+    }
+
+    public void start() {
+        server.start();
+        if (logger != null) {
+            logger.info("Metrics HTTP server listening on " +
+                        server.getAddress() + PATH);
+        }
+    }
+
+    /**
+     * Stops the server, without waiting for in-progress scrapes.
+     */
+    public void stop() {
+        server.stop(0);
+    }
+
+    /**
+     * Returns the address the server is listening on.
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    private class MetricsHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                final String method = exchange.getRequestMethod();
+                final boolean head = "HEAD".equals(method);
+                if (!head && !"GET".equals(method)) {
+                    exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+                writer.write(registry.getMetrics());
+                exchange.getResponseHeaders().set("Content-Type",
+                                                  CONTENT_TYPE);
+                if (head) {
+                    exchange.sendResponseHeaders(200, -1);
+                    return;
+                }
+                exchange.sendResponseHeaders(200, writer.getLength());
+                final OutputStream out = exchange.getResponseBody();
+                out.write(writer.getBuffer(), 0, writer.getLength());
+                out.flush();
+            } catch (IOException | RuntimeException e) {
+                if (logger != null) {
+                    logger.log(Level.FINE, "Problem serving metrics", e);
+                }
+                throw e;
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,359 @@
+/*-
+ * Copyright (C) 2011, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This file was distributed by Oracle as part of a version of Oracle NoSQL
+ * Database made available at:
+ *
+ * http://www.oracle.com/technetwork/database/database-technologies/nosqldb/downloads/index.html
+ *
+ * Please see the LICENSE file included in the top-level directory of the
+ * appropriate version of Oracle NoSQL Database for a copy of the license and
+ * additional information.
+ */
+
+package oracle.kv.impl.util.sklogger;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import oracle.kv.impl.util.sklogger.MetricFamilySamples.Sample;
+
+/**
+ * Renders metrics in the OpenMetrics text exposition format, directly into a
+ * reusable UTF-8 byte buffer, so that serving a scrape does not build
+ * intermediate strings. Integral values, which are nearly all of them, are
+ * written without allocating. The buffer grows as needed and is kept for
+ * the next scrape.
+ * <p>
+ * Metrics are mapped as follows:
+ * <ul>
+ * <li>{@link Counter}: counter, as NAME_total
+ * <li>{@link LongGauge}: gauge
+ * <li>{@link CustomGauge}: gauge, with each numeric result field as a sample
+ * labeled with field="FIELD"
+ * <li>{@link SizeQuantile}: summary, with quantiles and NAME_sum
+ * <li>{@link PerfQuantile}: summary in milliseconds, with the 0.95 and 0.99
+ * quantiles, NAME_count and NAME_sum
+ * <li>{@link Histogram}: histogram, with cumulative NAME_bucket samples and
+ * NAME_count
+ * </ul>
+ * Lifetime values are reported, as returned by {@link Metric#collect}, so
+ * scrapes do not interfere with the interval values seen by other watchers
+ * of rate metrics.
+ * <p>
+ * Instances are not thread safe.
+ */
+public class OpenMetricsWriter {
+
+    private static final int INITIAL_SIZE = 8192;
+
+    /* Scratch space for formatting longs */
+    private final byte[] digits = new byte[20];
+
+    private byte[] buf = new byte[INITIAL_SIZE];
+    private int len;
+
+    /**
+     * Renders the metrics, replacing any previous contents of the buffer.
+     */
+    public void write(Collection<Metric<?>> metrics) {
+        len = 0;
+        for (Metric<?> metric : metrics) {
+            final MetricFamilySamples<?> family = metric.collect();
+            if (family != null) {
+                writeFamily(family);
+            }
+        }
+        ascii("# EOF\n");
+    }
+
+    /**
+     * Returns the buffer holding the rendered metrics. Only the first
+     * {@link #getLength} bytes are valid.
+     */
+    public byte[] getBuffer() {
+        return buf;
+    }
+
+    /**
+     * Returns the number of bytes of rendered metrics.
+     */
+    public int getLength() {
+        return len;
+    }
+
+    private void writeFamily(MetricFamilySamples<?> family) {
+        final String name = family.getName();
+        final List<String> labelNames = family.getLabelNames();
+        switch (family.getType()) {
+        case COUNTER:
+            header(name, "counter");
+            for (Sample<?> s : family.getSamples()) {
+                final Counter.RateResult r = (Counter.RateResult) s.dataValue;
+                sample(name, "_total", labelNames, s.labelValues, null, null);
+                value(r.getCount());
+            }
+            break;
+        case LONG_GAUGE:
+            header(name, "gauge");
+            for (Sample<?> s : family.getSamples()) {
+                final LongGauge.GaugeResult r =
+                    (LongGauge.GaugeResult) s.dataValue;
+                sample(name, null, labelNames, s.labelValues, null, null);
+                value(r.getGaugeVal());
+            }
+            break;
+        case CUSTOM_GAUGE:
+            header(name, "gauge");
+            for (Sample<?> s : family.getSamples()) {
+                for (Map.Entry<String, Object> e :
+                         s.dataValue.toMap().entrySet()) {
+                    if (!(e.getValue() instanceof Number)) {
+                        continue;
+                    }
+                    sample(name, null, labelNames, s.labelValues,
+                           "field", e.getKey());
+                    value((Number) e.getValue());
+                }
+            }
+            break;
+        case SIZE_QUANTILE:
+            header(name, "summary");
+            for (Sample<?> s : family.getSamples()) {
+                final SizeQuantile.RateResult r =
+                    (SizeQuantile.RateResult) s.dataValue;
+                final double[] quantiles = r.getQuantile();
+                final int[] values = r.getQuantileValues();
+                for (int i = 0; i < quantiles.length; i++) {
+                    sampleStart(name, null, labelNames, s.labelValues);
+                    labelStart(labelNames.isEmpty(), "quantile");
+                    number(quantiles[i]);
+                    ascii("\"}");
+                    value(values[i]);
+                }
+                sample(name, "_sum", labelNames, s.labelValues, null, null);
+                value(r.getSum());
+            }
+            break;
+        case PERF_QUANTILE:
+            header(name, "summary");
+            for (Sample<?> s : family.getSamples()) {
+                final PerfQuantile.RateResult r =
+                    (PerfQuantile.RateResult) s.dataValue;
+                sample(name, null, labelNames, s.labelValues,
+                       "quantile", "0.95");
+                value(r.get95th());
+                sample(name, null, labelNames, s.labelValues,
+                       "quantile", "0.99");
+                value(r.get99th());
+                sample(name, "_count", labelNames, s.labelValues, null, null);
+                value(r.getOperationCount());
+                sample(name, "_sum", labelNames, s.labelValues, null, null);
+                value(r.getTotalLatency());
+            }
+            break;
+        case HISTOGRAM:
+            header(name, "histogram");
+            for (Sample<?> s : family.getSamples()) {
+                final Histogram.RateResult r =
+                    (Histogram.RateResult) s.dataValue;
+                final long[] bounds = r.getUpperBounds();
+                final long[] counts = r.getHistogramCounts();
+                long cumulative = 0;
+                for (int i = 0; i < bounds.length; i++) {
+                    cumulative += counts[i];
+                    sampleStart(name, "_bucket", labelNames, s.labelValues);
+                    labelStart(labelNames.isEmpty(), "le");
+                    if (bounds[i] == Long.MAX_VALUE) {
+                        ascii("+Inf");
+                    } else {
+                        number(bounds[i]);
+                    }
+                    ascii("\"}");
+                    value(cumulative);
+                }
+                sample(name, "_count", labelNames, s.labelValues, null, null);
+                value(r.getTotalCount());
+            }
+            break;
+        default:
+            /* Events and untyped stats are not exposed */
+            break;
+        }
+    }
+
+    private void header(String name, String type) {
+        ascii("# TYPE ");
+        ascii(name);
+        put((byte) ' ');
+        ascii(type);
+        newline();
+    }
+
+    /**
+     * Writes a sample name and its labels, including the extra label if
+     * extraName is not null.
+     */
+    private void sample(String name,
+                        String suffix,
+                        List<String> labelNames,
+                        List<String> labelValues,
+                        String extraName,
+                        String extraValue) {
+        sampleStart(name, suffix, labelNames, labelValues);
+        if (extraName != null) {
+            labelStart(labelNames.isEmpty(), extraName);
+            escaped(extraValue);
+            put((byte) '"');
+        }
+        if (!labelNames.isEmpty() || extraName != null) {
+            put((byte) '}');
+        }
+    }
+
+    /**
+     * Writes a sample name and its labels, leaving the label set open if
+     * there are labels, so that the caller can add another one.
+     */
+    private void sampleStart(String name,
+                             String suffix,
+                             List<String> labelNames,
+                             List<String> labelValues) {
+        ascii(name);
+        if (suffix != null) {
+            ascii(suffix);
+        }
+        for (int i = 0; i < labelNames.size(); i++) {
+            put((byte) ((i == 0) ? '{' : ','));
+            ascii(labelNames.get(i));
+            ascii("=\"");
+            escaped(labelValues.get(i));
+            put((byte) '"');
+        }
+    }
+
+    /**
+     * Starts a label that follows the labels written by sampleStart, and
+     * writes its name and opening quote.
+     */
+    private void labelStart(boolean first, String labelName) {
+        put((byte) (first ? '{' : ','));
+        ascii(labelName);
+        ascii("=\"");
+    }
+
+    private void value(long value) {
+        put((byte) ' ');
+        number(value);
+        newline();
+    }
+
+    private void value(Number value) {
+        put((byte) ' ');
+        if (value instanceof Double || value instanceof Float) {
+            number(value.doubleValue());
+        } else {
+            number(value.longValue());
+        }
+        newline();
+    }
+
+    private void newline() {
+        put((byte) '\n');
+    }
+
+    private void number(double value) {
+        if (value == (long) value) {
+            number((long) value);
+        } else if (Double.isNaN(value)) {
+            ascii("NaN");
+        } else if (Double.isInfinite(value)) {
+            ascii((value > 0) ? "+Inf" : "-Inf");
+        } else {
+            ascii(Double.toString(value));
+        }
+    }
+
+    private void number(long value) {
+        if (value == Long.MIN_VALUE) {
+            ascii(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            put((byte) '-');
+            value = -value;
+        }
+        int i = digits.length;
+        do {
+            digits[--i] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        ensure(digits.length - i);
+        System.arraycopy(digits, i, buf, len, digits.length - i);
+        len += digits.length - i;
+    }
+
+    /**
+     * Writes a string known to contain only ASCII characters.
+     */
+    private void ascii(String s) {
+        final int n = s.length();
+        ensure(n);
+        for (int i = 0; i < n; i++) {
+            buf[len++] = (byte) s.charAt(i);
+        }
+    }
+
+    /**
+     * Writes a label value as UTF-8, escaping backslashes, double quotes and
+     * newlines.
+     */
+    private void escaped(String s) {
+        final int n = s.length();
+        for (int i = 0; i < n; i++) {
+            final char c = s.charAt(i);
+            if (c == '\\' || c == '"') {
+                put((byte) '\\');
+                put((byte) c);
+            } else if (c == '\n') {
+                put((byte) '\\');
+                put((byte) 'n');
+            } else if (c < 0x80) {
+                put((byte) c);
+            } else if (c < 0x800) {
+                put((byte) (0xc0 | (c >> 6)));
+                put((byte) (0x80 | (c & 0x3f)));
+            } else if (Character.isHighSurrogate(c) && (i + 1 < n) &&
+                       Character.isLowSurrogate(s.charAt(i + 1))) {
+                final int cp = Character.toCodePoint(c, s.charAt(++i));
+                put((byte) (0xf0 | (cp >> 18)));
+                put((byte) (0x80 | ((cp >> 12) & 0x3f)));
+                put((byte) (0x80 | ((cp >> 6) & 0x3f)));
+                put((byte) (0x80 | (cp & 0x3f)));
+            } else if (Character.isSurrogate(c)) {
+                /* Unpaired surrogate, write the replacement character */
+                put((byte) 0xef);
+                put((byte) 0xbf);
+                put((byte) 0xbd);
+            } else {
+                put((byte) (0xe0 | (c >> 12)));
+                put((byte) (0x80 | ((c >> 6) & 0x3f)));
+                put((byte) (0x80 | (c & 0x3f)));
+            }
+        }
+    }
+
+    private void put(byte b) {
+        ensure(1);
+        buf[len++] = b;
+    }
+
+    private void ensure(int n) {
+        if (len + n > buf.length) {
+            final byte[] newBuf = new byte[Math.max(buf.length * 2, len + n)];
+            System.arraycopy(buf, 0, newBuf, 0, len);
+            buf = newBuf;
+        }
+    }
+}
@@ -397,6 +397,10 @@ public class PerfQuantile
             return percent99;
         }
 
+        public long getTotalLatency() {
+            return totalLatency;
+        }
+
         public float getAvgMs() {
             if (operationCount == 0) {
                 return 0;
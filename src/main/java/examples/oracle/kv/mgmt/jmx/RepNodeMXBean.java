@@ -386,4 +386,13 @@ public interface RepNodeMXBean {
      * Software Monitoring</a>
      */
     String getEnvMetric();
+
+    /**
+     * Returns a JSON string describing the most frequently read and written
+     * partitions and keys of the node during the most recent stats interval.
+     * Keys are identified by a hash of their major path, together with their
+     * partition. These metrics are also reported by the notification
+     * oracle.kv.repnode.hotkeymetric.
+     */
+    String getHotKeyMetric();
 }
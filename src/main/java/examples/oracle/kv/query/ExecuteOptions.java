@@ -76,6 +76,20 @@ public class ExecuteOptions {
 
     private boolean doPrefetching = true;
 
+    private long resultCacheTTLMs;
+
+    private int maxMemoryMB = DEFAULT_MAX_MEMORY_MB;
+
+    private boolean columnarResults;
+
+    /**
+     * The default value of the max memory a query may consume at the
+     * client: 1024 MB.
+     *
+     * @since 18.1
+     */
+    public static final int DEFAULT_MAX_MEMORY_MB = 1024;
+
     public ExecuteOptions() {}
 
     /**
@@ -418,4 +432,120 @@ public class ExecuteOptions {
     public boolean getDoPrefetching() {
         return doPrefetching;
     }
+
+    /**
+     * Sets the time to live of the results of the query in the client-side
+     * query result cache. If the TTL is greater than zero, the results of a
+     * read-only query executed synchronously with
+     * {@link Consistency#NONE_REQUIRED} consistency are cached by the store
+     * handle, and a later execution of the same query text, or of a
+     * {@link BoundStatement} with the same variable values, that uses a
+     * non-zero TTL is served from the cache, without contacting the store,
+     * until the TTL expires. Queries that use any other consistency are not
+     * cached. Cached results are discarded when the client detects a change
+     * in the table metadata, and when a write made through the same store
+     * handle to a table the query may access completes. Writes made by other
+     * clients are not detected, so cached results may be out of date with
+     * respect to them by up to the TTL. Setting the TTL to zero, the
+     * default, disables the use of the cache.
+     * <p>
+     * The total size of the cache is configured with
+     * {@link KVStoreConfig#setQueryResultCacheMaxBytes}.
+     *
+     * @param ttl the time to live, must be &gt;= 0
+     * @param unit the unit of the ttl; may be null only if ttl is zero
+     *
+     * @since 18.1
+     */
+    public ExecuteOptions setResultCacheTTL(long ttl, TimeUnit unit) {
+
+        if (ttl < 0) {
+            throw new IllegalArgumentException(
+                "The result cache TTL can not be a negative value: " + ttl);
+        }
+        if ((ttl != 0) && (unit == null)) {
+            throw new IllegalArgumentException("A non-zero result cache " +
+                "TTL requires a non-null time unit");
+        }
+
+        resultCacheTTLMs = (ttl == 0 ? 0 : unit.toMillis(ttl));
+        return this;
+    }
+
+    /**
+     * Returns the time to live, in milliseconds, of the results of the query
+     * in the client-side query result cache. Zero means the cache is not
+     * used.
+     *
+     * @since 18.1
+     */
+    public long getResultCacheTTL() {
+        return resultCacheTTLMs;
+    }
+
+    /**
+     * Sets the max number of megabytes of memory the query may consume at
+     * the client for operations that need to hold an unbounded amount of
+     * data, such as the elimination of duplicate results of an index scan
+     * on a multi-key (array or map) index. If the limit is exceeded, the
+     * query fails with an IllegalArgumentException, rather than exhausting
+     * the memory of the client process. The default is
+     * {@link #DEFAULT_MAX_MEMORY_MB}.
+     *
+     * @param mb the max memory in megabytes, must be &gt; 0
+     *
+     * @since 18.1
+     */
+    public ExecuteOptions setMaxMemoryMB(int mb) {
+        if (mb <= 0) {
+            throw new IllegalArgumentException(
+                "The max memory of a query must be a positive value: " + mb);
+        }
+        maxMemoryMB = mb;
+        return this;
+    }
+
+    /**
+     * Returns the max number of megabytes of memory the query may consume
+     * at the client.
+     *
+     * @since 18.1
+     */
+    public int getMaxMemoryMB() {
+        return maxMemoryMB;
+    }
+
+    /**
+     * For internal use only.
+     * @hidden
+     *
+     * Sets whether the results of the query should be returned in columnar
+     * batches, which are smaller on the wire for results with many rows and
+     * few columns, especially if the columns contain repeated strings, and
+     * are read through QueryStatementResultImpl.columnarIterator without
+     * creating a record for each result. Only queries whose results are
+     * records that are never NULL, and that run on all partitions or shards
+     * without sorting, duplicate elimination or a size limit at the client,
+     * return columnar batches. Other queries return rows. The default is
+     * false.
+     *
+     * @since 18.2
+     */
+    public ExecuteOptions setColumnarResults(boolean value) {
+        columnarResults = value;
+        return this;
+    }
+
+    /**
+     * For internal use only.
+     * @hidden
+     *
+     * Returns whether the results of the query should be returned in
+     * columnar batches.
+     *
+     * @since 18.2
+     */
+    public boolean getColumnarResults() {
+        return columnarResults;
+    }
 }
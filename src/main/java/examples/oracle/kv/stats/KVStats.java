@@ -24,7 +24,10 @@ import oracle.kv.KVStore;
 import oracle.kv.KVStoreConfig;
 import oracle.kv.impl.api.RequestDispatcher;
 import oracle.kv.impl.api.ops.InternalOperation.OpCode;
+import oracle.kv.impl.api.query.QueryResultCache;
 import oracle.kv.impl.api.rgstate.RepNodeState;
+import oracle.kv.impl.api.table.ValueCompressionStats;
+import oracle.kv.impl.measurement.LatencyHistogram;
 import oracle.kv.impl.topo.RepNodeId;
 import oracle.kv.impl.topo.Topology;
 import oracle.kv.table.TableAPI;
@@ -50,20 +53,83 @@ public class KVStats implements Serializable {
 
     private final long requestRetryCount;
 
+    private final long queryCacheHits;
+
+    private final long queryCacheMisses;
+
+    private final long queryCacheSavedRequests;
+
+    private final long compressionValues;
+
+    private final long compressionCompressedValues;
+
+    private final long compressionUncompressedBytes;
+
+    private final long compressionStoredBytes;
+
     /**
      * @hidden
      * Internal use only.
      */
     public KVStats(boolean clear,
                    RequestDispatcher requestDispatcher) {
+        this(clear, requestDispatcher, null);
+    }
+
+    /**
+     * @hidden
+     * Internal use only.
+     */
+    public KVStats(boolean clear,
+                   RequestDispatcher requestDispatcher,
+                   QueryResultCache queryCache) {
+        this(clear, requestDispatcher, queryCache, null);
+    }
+
+    /**
+     * @hidden
+     * Internal use only.
+     */
+    public KVStats(boolean clear,
+                   RequestDispatcher requestDispatcher,
+                   QueryResultCache queryCache,
+                   ValueCompressionStats compressionStats) {
+
+        if (compressionStats != null) {
+            compressionValues = compressionStats.getValues(clear);
+            compressionCompressedValues =
+                compressionStats.getCompressedValues(clear);
+            compressionUncompressedBytes =
+                compressionStats.getUncompressedBytes(clear);
+            compressionStoredBytes = compressionStats.getStoredBytes(clear);
+        } else {
+            compressionValues = 0;
+            compressionCompressedValues = 0;
+            compressionUncompressedBytes = 0;
+            compressionStoredBytes = 0;
+        }
+
+        if (queryCache != null) {
+            queryCacheHits = queryCache.getHits(clear);
+            queryCacheMisses = queryCache.getMisses(clear);
+            queryCacheSavedRequests = queryCache.getSavedRequests(clear);
+        } else {
+            queryCacheHits = 0;
+            queryCacheMisses = 0;
+            queryCacheSavedRequests = 0;
+        }
 
         opMetrics = new LinkedList<OperationMetrics>();
 
+        final Map<OpCode, LatencyHistogram> histograms =
+            requestDispatcher.getLatencyHistograms(clear);
         for (Map.Entry<OpCode, Latency> entry :
              requestDispatcher.getLatencyStats(clear).entrySet()) {
 
-            opMetrics.add(new OperationMetricsImpl(entry.getKey(),
-                                                   entry.getValue()));
+            opMetrics.add(new OperationMetricsImpl(
+                              entry.getKey(),
+                              entry.getValue(),
+                              histograms.get(entry.getKey())));
         }
 
         nodeMetrics = new LinkedList<NodeMetrics>();
@@ -190,6 +256,22 @@ public class KVStats implements Serializable {
                                     requestRetryCount));
         }
 
+        if (queryCacheHits > 0 || queryCacheMisses > 0) {
+            sb.append(String.format("query cache hits= %,d misses= %,d " +
+                                    "saved requests= %,d\n",
+                                    queryCacheHits,
+                                    queryCacheMisses,
+                                    queryCacheSavedRequests));
+        }
+
+        if (compressionValues > 0) {
+            sb.append(String.format("value compression values= %,d " +
+                                    "compressed= %,d ratio= %.2f\n",
+                                    compressionValues,
+                                    compressionCompressedValues,
+                                    getCompressionRatio()));
+        }
+
         for (OperationMetrics metrics : getOpMetrics()) {
             if (metrics.getTotalOps() > 0) {
                 sb.append(metrics.toString()).append("\n");
@@ -233,6 +315,91 @@ public class KVStats implements Serializable {
         return requestRetryCount;
     }
 
+    /**
+     * Returns the number of query executions that were served from the
+     * client-side query result cache.
+     *
+     * @see oracle.kv.query.ExecuteOptions#setResultCacheTTL
+     * @since 18.1
+     */
+    public long getQueryCacheHits() {
+        return queryCacheHits;
+    }
+
+    /**
+     * Returns the number of query executions that were eligible for the
+     * client-side query result cache, but had to be executed by the store.
+     *
+     * @see oracle.kv.query.ExecuteOptions#setResultCacheTTL
+     * @since 18.1
+     */
+    public long getQueryCacheMisses() {
+        return queryCacheMisses;
+    }
+
+    /**
+     * Returns the number of requests to the store's nodes that were avoided
+     * because query results were served from the client-side query result
+     * cache.
+     *
+     * @see oracle.kv.query.ExecuteOptions#setResultCacheTTL
+     * @since 18.1
+     */
+    public long getQueryCacheSavedRequests() {
+        return queryCacheSavedRequests;
+    }
+
+    /**
+     * Returns the number of row values written to tables that have value
+     * compression enabled, whether or not they were compressed.
+     *
+     * @hidden
+     */
+    public long getCompressionValues() {
+        return compressionValues;
+    }
+
+    /**
+     * Returns the number of row values that were stored compressed.
+     *
+     * @hidden
+     */
+    public long getCompressionCompressedValues() {
+        return compressionCompressedValues;
+    }
+
+    /**
+     * Returns the total serialized size, in bytes, of the row values written
+     * to tables that have value compression enabled.
+     *
+     * @hidden
+     */
+    public long getCompressionUncompressedBytes() {
+        return compressionUncompressedBytes;
+    }
+
+    /**
+     * Returns the total size, in bytes, of the row values written to tables
+     * that have value compression enabled, as stored.
+     *
+     * @hidden
+     */
+    public long getCompressionStoredBytes() {
+        return compressionStoredBytes;
+    }
+
+    /**
+     * Returns the ratio of the serialized size of the row values written to
+     * tables that have value compression enabled to their stored size, or 1
+     * if no such values were written.
+     *
+     * @hidden
+     */
+    public double getCompressionRatio() {
+        return (compressionStoredBytes == 0) ? 1.0 :
+            (double) compressionUncompressedBytes / compressionStoredBytes;
+    }
+
     private static class OperationMetricsImpl
         implements OperationMetrics, Serializable {
 
@@ -240,10 +407,15 @@ public class KVStats implements Serializable {
 
         private final String operationName;
         private final Latency latency;
+        private final LatencyHistogram histogram;
 
-        OperationMetricsImpl(OpCode opCode, Latency latency) {
+        OperationMetricsImpl(OpCode opCode,
+                             Latency latency,
+                             LatencyHistogram histogram) {
             this.operationName = opCodeToNameMap.get(opCode);
             this.latency = latency;
+            this.histogram = (histogram != null) ?
+                histogram : LatencyHistogram.EMPTY;
         }
 
         @Override
@@ -286,6 +458,26 @@ public class KVStats implements Serializable {
             return latency.get99thPercent();
         }
 
+        @Override
+        public long getMinLatencyMicros() {
+            return histogram.getMinMicros();
+        }
+
+        @Override
+        public long getMaxLatencyMicros() {
+            return histogram.getMaxMicros();
+        }
+
+        @Override
+        public double getAverageLatencyMicros() {
+            return histogram.getAverageMicros();
+        }
+
+        @Override
+        public long getPercentileLatencyMicros(double percent) {
+            return histogram.getPercentileMicros(percent);
+        }
+
         /**
          * Returns a descriptive string containing the values associated with
          * each of the metrics associated with the operation.
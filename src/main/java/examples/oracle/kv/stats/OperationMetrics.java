@@ -69,4 +69,32 @@ public interface OperationMetrics {
      * Returns the 99th percentile request latency in milliseconds.
      */
     public int get99thLatencyMs();
+
+    /**
+     * @hidden
+     * Returns the minimum request latency in microseconds.
+     */
+    public long getMinLatencyMicros();
+
+    /**
+     * @hidden
+     * Returns the maximum request latency in microseconds.
+     */
+    public long getMaxLatencyMicros();
+
+    /**
+     * @hidden
+     * Returns the average request latency in microseconds.
+     */
+    public double getAverageLatencyMicros();
+
+    /**
+     * @hidden
+     * Returns the request latency in microseconds at or below which the
+     * specified percentage of requests completed, for example 99.9 for the
+     * 99.9th percentile. The value is accurate to within 1%.
+     *
+     * @param percent the percentile, between 0 and 100
+     */
+    public long getPercentileLatencyMicros(double percent);
 }
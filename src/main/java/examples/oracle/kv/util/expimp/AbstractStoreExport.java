@@ -73,6 +73,7 @@ import oracle.kv.impl.api.avro.SchemaData;
 import oracle.kv.impl.api.table.RowImpl;
 import oracle.kv.impl.api.table.TableAPIImpl;
 import oracle.kv.impl.api.table.TableImpl;
+import oracle.kv.impl.api.table.ValueCompression;
 import oracle.kv.impl.security.util.KVStoreLogin;
 import oracle.kv.impl.security.util.KVStoreLogin.CredentialsProvider;
 import oracle.kv.impl.test.TestHook;
@@ -623,7 +624,13 @@ public abstract class AbstractStoreExport implements CredentialsProvider {
                     Format valueFormat = value.getFormat();
 
                     byte[] keyBytes = keySerializer.toByteArray(key);
-                    byte[] valueBytes = value.getValue();
+
+                    /*
+                     * Values are exported uncompressed, since the table in
+                     * the target store may use a different dictionary.
+                     */
+                    byte[] valueBytes = ValueCompression.uncompressValue(
+                        table.getValueCompression(), value.getValue());
 
                     int exportTableVersion =
                         exportedTableVersion.get(tableName);
@@ -640,7 +647,7 @@ public abstract class AbstractStoreExport implements CredentialsProvider {
                             exportTableVersion);
 
                         Key rKey = rRow.getPrimaryKey(false);
-                        Value rValue = rRow.createValue();
+                        Value rValue = table.createUncompressedValue(rRow);
 
                         keyBytes = keySerializer.toByteArray(rKey);
                         valueBytes = rValue.getValue();
@@ -1590,7 +1597,13 @@ public abstract class AbstractStoreExport implements CredentialsProvider {
         String tableName = tableToUse.getFullName();
 
         byte[] keyBytes = keySerializer.toByteArray(key);
-        byte[] valueBytes = vv.getValue().getValue();
+
+        /*
+         * Values are exported uncompressed, since the table in the target
+         * store may use a different dictionary.
+         */
+        byte[] valueBytes = ValueCompression.uncompressValue(
+            tableToUse.getValueCompression(), vv.getValue().getValue());
         Value.Format valueFormat = vv.getValue().getFormat();
         int exportTableVersion = exportedTableVersion.get(tableName);
 
@@ -1606,7 +1619,7 @@ public abstract class AbstractStoreExport implements CredentialsProvider {
                                             exportTableVersion);
 
             Key rKey = row.getPrimaryKey(false);
-            Value rValue = row.createValue();
+            Value rValue = tableToUse.createUncompressedValue(row);
 
             keyBytes = keySerializer.toByteArray(rKey);
             valueBytes = rValue.getValue();
@@ -2499,7 +2512,8 @@ public abstract class AbstractStoreExport implements CredentialsProvider {
 
         final String name = table.getName();
 
-        byte[] data = vv.getValue().getValue();
+        byte[] data = ValueCompression.uncompressValue(
+            table.getValueCompression(), vv.getValue().getValue());
 
         if (data.length == 0) {
             return;
@@ -76,6 +76,7 @@ import oracle.kv.impl.api.avro.AvroSchemaMetadata;
 import oracle.kv.impl.api.avro.AvroSchemaStatus;
 import oracle.kv.impl.api.table.RowImpl;
 import oracle.kv.impl.api.table.TableImpl;
+import oracle.kv.impl.api.table.ValueCompression;
 import oracle.kv.impl.security.util.KVStoreLogin;
 import oracle.kv.impl.security.util.KVStoreLogin.CredentialsProvider;
 import oracle.kv.impl.test.TestHook;
@@ -1321,6 +1322,13 @@ public abstract class AbstractStoreImport implements CredentialsProvider {
                     return ImportState.RECORD_SKIPPED;
                 }
 
+                /*
+                 * Exported values are uncompressed, but decompress any value
+                 * that is not, so that it is not read as plain Avro data.
+                 */
+                valueBytes = ValueCompression.uncompressValue(
+                    table.getValueCompression(), valueBytes);
+
                 String schemaString = tableWriterSchemas.get(fileName);
 
                 if (valueBytes.length != 0 && schemaString == null) {
@@ -1385,10 +1393,14 @@ public abstract class AbstractStoreImport implements CredentialsProvider {
                     key = Key.createKey(majorPath, minorPath);
 
                     /*
-                     * Set the first byte of valueBytes with the table version
+                     * Set the first byte of valueBytes with the table version,
+                     * and compress the value if the table uses compression
                      */
                     if (valueBytes.length != 0)  {
                         valueBytes[0] = (byte)table.getTableVersion();
+                        if (valueFormat != Value.Format.AVRO) {
+                            valueBytes = table.compressValue(valueBytes);
+                        }
                     }
 
                     Value value =